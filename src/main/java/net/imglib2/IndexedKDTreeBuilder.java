@@ -0,0 +1,196 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2;
+
+import net.imglib2.KDTree.ValueNode;
+
+/**
+ * Builds the nodes of a {@link KDTree} for points that are identified by an
+ * index into primitive coordinate storage. Instead of sorting lists of
+ * {@link RealLocalizable}s, the median partitioning is done on an array of
+ * point indices.
+ * 
+ * @param <T>
+ *            value type.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+abstract class IndexedKDTreeBuilder< T >
+{
+	final protected int n;
+
+	/**
+	 * point indices, partitioned in place while building the tree.
+	 */
+	final private int[] permutation;
+
+	/**
+	 * coordinates of the points in {@link #permutation} in the current split
+	 * dimension.
+	 */
+	final private double[] keys;
+
+	final private PointReference position;
+
+	IndexedKDTreeBuilder( final int n, final int size )
+	{
+		this.n = n;
+		permutation = new int[ size ];
+		for ( int i = 0; i < size; ++i )
+			permutation[ i ] = i;
+		keys = new double[ size ];
+		position = new PointReference();
+	}
+
+	/**
+	 * @return coordinate of point {@code i} in dimension {@code d}.
+	 */
+	abstract double coordinate( int i, int d );
+
+	/**
+	 * @return a value object that refers to the sample of point {@code i}.
+	 */
+	abstract T value( int i );
+
+	/**
+	 * @return the root node of the tree, or {@code null} if there are no
+	 *         points.
+	 */
+	ValueNode< T > build()
+	{
+		return makeNode( 0, permutation.length - 1, 0 );
+	}
+
+	private ValueNode< T > makeNode( final int i, final int j, final int d )
+	{
+		if ( j < i )
+			return null;
+
+		final int k = i + ( j - i ) / 2;
+		if ( j > i )
+		{
+			for ( int x = i; x <= j; ++x )
+				keys[ x ] = coordinate( permutation[ x ], d );
+			select( i, j, k );
+		}
+		final int p = permutation[ k ];
+
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+		final ValueNode< T > left = makeNode( i, k - 1, dChild );
+		final ValueNode< T > right = makeNode( k + 1, j, dChild );
+		position.index = p;
+		return new ValueNode< T >( value( p ), position, d, left, right );
+	}
+
+	/**
+	 * Reorder {@code keys[i..j]} (and {@code permutation} accordingly) such
+	 * that the element at {@code k} is in its sorted position, all elements
+	 * before are smaller or equal, and all elements after are larger or equal.
+	 */
+	private void select( int i, int j, final int k )
+	{
+		while ( j > i )
+		{
+			final double pivot = keys[ i + ( j - i ) / 2 ];
+			int a = i;
+			int b = j;
+			while ( a <= b )
+			{
+				while ( keys[ a ] < pivot )
+					++a;
+				while ( keys[ b ] > pivot )
+					--b;
+				if ( a <= b )
+				{
+					final double tk = keys[ a ];
+					keys[ a ] = keys[ b ];
+					keys[ b ] = tk;
+					final int tp = permutation[ a ];
+					permutation[ a ] = permutation[ b ];
+					permutation[ b ] = tp;
+					++a;
+					--b;
+				}
+			}
+			if ( k <= b )
+				j = b;
+			else if ( k >= a )
+				i = a;
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Provides the coordinates of point {@link #index} to the
+	 * {@link KDTreeNode} constructor.
+	 */
+	private final class PointReference implements RealLocalizable
+	{
+		int index;
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public void localize( final float[] pos )
+		{
+			for ( int d = 0; d < n; ++d )
+				pos[ d ] = ( float ) coordinate( index, d );
+		}
+
+		@Override
+		public void localize( final double[] pos )
+		{
+			for ( int d = 0; d < n; ++d )
+				pos[ d ] = coordinate( index, d );
+		}
+
+		@Override
+		public float getFloatPosition( final int d )
+		{
+			return ( float ) coordinate( index, d );
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return coordinate( index, d );
+		}
+	}
+}
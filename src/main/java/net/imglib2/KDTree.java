@@ -244,6 +244,7 @@ public class KDTree< T > implements EuclideanSpace, IterableRealInterval< T >
 	 * @param interval
 	 *            elements in the tree are obtained by iterating this
 	 */
+	@SuppressWarnings( "unchecked" )
 	public KDTree( final IterableRealInterval< T > interval )
 	{
 		this.n = interval.numDimensions();
@@ -252,6 +253,19 @@ public class KDTree< T > implements EuclideanSpace, IterableRealInterval< T >
 		interval.realMin( this.min );
 		this.max = new double[ n ];
 		interval.realMax( this.max );
+
+		// primitive point lists are partitioned by index, without cursor copies
+		if ( interval instanceof NativeRealPointSampleList )
+		{
+			root = ( KDTreeNode< T > ) ( ( NativeRealPointSampleList< ? > ) interval ).buildKDTreeNodes();
+			return;
+		}
+		if ( interval instanceof NativePointSampleList )
+		{
+			root = ( KDTreeNode< T > ) ( ( NativePointSampleList< ? > ) interval ).buildKDTreeNodes();
+			return;
+		}
+
 		final ArrayList< RealCursor< T > > values = new ArrayList< RealCursor< T > >( ( int ) interval.size() );
 		final RealCursor< T > cursor = interval.localizingCursor();
 		while ( cursor.hasNext() )
@@ -0,0 +1,443 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import net.imglib2.img.array.ArrayCursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.NativeType;
+
+/**
+ * A list of data samples at explicit {@link RealLocalizable real coordinates}.
+ * In contrast to {@link RealPointSampleList}, coordinates are stored in a
+ * single {@code double[]} (point-major, i.e., coordinate {@code d} of point
+ * {@code i} is at index {@code i * n + d}) and samples are stored in a
+ * one-dimensional {@link ArrayImg}. No objects are created per point.
+ * 
+ * <p>
+ * Samples are copied when {@link #add(RealLocalizable, NativeType) added}.
+ * When the list needs to grow, the storage is reallocated. Cursors created
+ * before an {@link #add(RealLocalizable, NativeType) add} are invalid
+ * afterwards.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class NativeRealPointSampleList< T extends NativeType< T > > implements IterableRealInterval< T >
+{
+	public class NativeRealPointSampleListCursor implements RealCursor< T >
+	{
+		protected int index;
+
+		protected final T sample;
+
+		protected NativeRealPointSampleListCursor()
+		{
+			sample = samples.createLinkedType();
+			sample.updateContainer( this );
+			reset();
+		}
+
+		protected NativeRealPointSampleListCursor( final NativeRealPointSampleListCursor cursor )
+		{
+			this();
+			index = cursor.index;
+			sample.updateIndex( index );
+		}
+
+		@Override
+		public NativeRealPointSampleListCursor copy()
+		{
+			return new NativeRealPointSampleListCursor( this );
+		}
+
+		@Override
+		final public NativeRealPointSampleListCursor copyCursor()
+		{
+			return copy();
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return coordinates[ index * n + d ];
+		}
+
+		@Override
+		public float getFloatPosition( final int d )
+		{
+			return ( float ) coordinates[ index * n + d ];
+		}
+
+		@Override
+		public void localize( final float[] pos )
+		{
+			final int o = index * n;
+			for ( int d = 0; d < n; ++d )
+				pos[ d ] = ( float ) coordinates[ o + d ];
+		}
+
+		@Override
+		public void localize( final double[] pos )
+		{
+			System.arraycopy( coordinates, index * n, pos, 0, n );
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public T get()
+		{
+			return sample;
+		}
+
+		@Override
+		public void fwd()
+		{
+			sample.updateIndex( ++index );
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return index < size - 1;
+		}
+
+		@Override
+		public void jumpFwd( final long steps )
+		{
+			index += ( int ) steps;
+			sample.updateIndex( index );
+		}
+
+		@Override
+		public void reset()
+		{
+			index = -1;
+			sample.updateIndex( index );
+		}
+
+		@Override
+		public T next()
+		{
+			fwd();
+			return sample;
+		}
+
+		@Override
+		public void remove()
+		{
+			/* Not yet implemented */
+		}
+	}
+
+	final protected int n;
+
+	/**
+	 * coordinates of all points, point-major.
+	 */
+	protected double[] coordinates;
+
+	/**
+	 * samples of all points.
+	 */
+	protected ArrayImg< T, ? > samples;
+
+	/**
+	 * linked to {@link #samples}, used to write new samples.
+	 */
+	protected T writeSample;
+
+	/**
+	 * number of points.
+	 */
+	protected int size;
+
+	final protected double[] min, max;
+
+	/**
+	 * @param n
+	 *            number of dimensions
+	 * @param type
+	 *            an instance of the sample type
+	 * @param initialCapacity
+	 *            number of points for which storage is allocated initially
+	 */
+	public NativeRealPointSampleList( final int n, final T type, final int initialCapacity )
+	{
+		this.n = n;
+		min = new double[ n ];
+		max = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Double.MAX_VALUE;
+			max[ d ] = -Double.MAX_VALUE;
+		}
+		final int capacity = Math.max( 1, initialCapacity );
+		coordinates = new double[ capacity * n ];
+		setSamples( new ArrayImgFactory< T >().create( new long[] { capacity }, type ) );
+		size = 0;
+	}
+
+	/**
+	 * @param n
+	 *            number of dimensions
+	 * @param type
+	 *            an instance of the sample type
+	 */
+	public NativeRealPointSampleList( final int n, final T type )
+	{
+		this( n, type, 16 );
+	}
+
+	/**
+	 * Wrap existing storage without copying.
+	 * 
+	 * @param n
+	 *            number of dimensions
+	 * @param coordinates
+	 *            coordinates of the points, point-major. Must contain at
+	 *            least {@code n * samples.size()} elements.
+	 * @param samples
+	 *            one-dimensional image of samples, one for each point.
+	 */
+	public NativeRealPointSampleList( final int n, final double[] coordinates, final ArrayImg< T, ? > samples )
+	{
+		if ( samples.numDimensions() != 1 )
+			throw new IllegalArgumentException( "samples must be one-dimensional." );
+		final long numPoints = samples.size();
+		if ( numPoints * n > coordinates.length )
+			throw new IllegalArgumentException( "not enough coordinates for " + numPoints + " points." );
+
+		this.n = n;
+		this.coordinates = coordinates;
+		setSamples( samples );
+		size = ( int ) numPoints;
+		min = new double[ n ];
+		max = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Double.MAX_VALUE;
+			max[ d ] = -Double.MAX_VALUE;
+		}
+		for ( int i = 0; i < size; ++i )
+			updateBounds( i );
+	}
+
+	public void add( final RealLocalizable position, final T sample )
+	{
+		if ( size == samples.size() )
+			grow();
+		final int o = size * n;
+		for ( int d = 0; d < n; ++d )
+			coordinates[ o + d ] = position.getDoublePosition( d );
+		addSample( sample );
+	}
+
+	public void add( final double[] position, final T sample )
+	{
+		if ( size == samples.size() )
+			grow();
+		System.arraycopy( position, 0, coordinates, size * n, n );
+		addSample( sample );
+	}
+
+	/**
+	 * Build a {@link KDTree} of the points in this list. The nodes of the tree
+	 * refer to the samples stored in this list.
+	 */
+	public KDTree< T > kdTree()
+	{
+		return new KDTree< T >( this );
+	}
+
+	/**
+	 * @return the root node of a {@link KDTree} of the points in this list.
+	 */
+	KDTreeNode< T > buildKDTreeNodes()
+	{
+		final double[] c = coordinates;
+		final ArrayImg< T, ? > s = samples;
+		return new IndexedKDTreeBuilder< T >( n, size )
+		{
+			@Override
+			double coordinate( final int i, final int d )
+			{
+				return c[ i * n + d ];
+			}
+
+			@Override
+			T value( final int i )
+			{
+				final T t = s.createLinkedType();
+				t.updateContainer( this );
+				t.updateIndex( i );
+				return t;
+			}
+		}.build();
+	}
+
+	private void addSample( final T sample )
+	{
+		writeSample.updateIndex( size );
+		writeSample.set( sample );
+		updateBounds( size );
+		++size;
+	}
+
+	private void setSamples( final ArrayImg< T, ? > samples )
+	{
+		this.samples = samples;
+		writeSample = samples.createLinkedType();
+		writeSample.updateContainer( this );
+	}
+
+	private void grow()
+	{
+		final long capacity = Math.min( Integer.MAX_VALUE / Math.max( 1, n ), Math.max( 16, 2 * samples.size() ) );
+		if ( capacity <= size )
+			throw new IllegalStateException( "too many points." );
+		coordinates = Arrays.copyOf( coordinates, ( int ) capacity * n );
+		final ArrayImg< T, ? > grown = samples.factory().create( new long[] { capacity }, writeSample );
+		final ArrayCursor< T > in = samples.cursor();
+		final ArrayCursor< T > out = grown.cursor();
+		for ( int i = 0; i < size; ++i )
+			out.next().set( in.next() );
+		setSamples( grown );
+	}
+
+	private void updateBounds( final int i )
+	{
+		final int o = i * n;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double x = coordinates[ o + d ];
+			if ( x < min[ d ] )
+				min[ d ] = x;
+			if ( x > max[ d ] )
+				max[ d ] = x;
+		}
+	}
+
+	@Override
+	public NativeRealPointSampleListCursor cursor()
+	{
+		return new NativeRealPointSampleListCursor();
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return this; // iteration order is only compatible with ourselves
+	}
+
+	@Override
+	public T firstElement()
+	{
+		final T t = samples.createLinkedType();
+		t.updateContainer( this );
+		t.updateIndex( 0 );
+		return t;
+	}
+
+	@Override
+	public NativeRealPointSampleListCursor localizingCursor()
+	{
+		return new NativeRealPointSampleListCursor();
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		return max[ d ];
+	}
+
+	@Override
+	public void realMax( final double[] m )
+	{
+		for ( int d = 0; d < n; ++d )
+			m[ d ] = max[ d ];
+	}
+
+	@Override
+	public void realMax( final RealPositionable m )
+	{
+		m.setPosition( max );
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		return min[ d ];
+	}
+
+	@Override
+	public void realMin( final double[] m )
+	{
+		for ( int d = 0; d < n; ++d )
+			m[ d ] = min[ d ];
+	}
+
+	@Override
+	public void realMin( final RealPositionable m )
+	{
+		m.setPosition( min );
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public Iterator< T > iterator()
+	{
+		return cursor();
+	}
+}
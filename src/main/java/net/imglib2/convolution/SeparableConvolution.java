@@ -0,0 +1,374 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.convolution;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Separable convolution of <em>n</em>-dimensional images of {@link RealType}
+ * with one 1D kernel per dimension.
+ * 
+ * <p>
+ * The source region required for the target (the target interval expanded by
+ * the kernel radii) is copied into a <code>double[]</code> buffer, with
+ * out-of-bounds values provided by an extended source. Then the kernels are
+ * applied one dimension at a time, each pass shrinking the buffer to the
+ * target size in that dimension. Lines along dimension 0 are convolved
+ * directly. For higher dimensions, whole rows of contiguous memory are
+ * multiplied and added, so the inner loops always run over consecutive
+ * elements. Lines and rows are processed in parallel.
+ * </p>
+ * 
+ * <p>
+ * To bound memory, the target is processed in slabs along its last
+ * dimension. The source region of the next slab is read before the current
+ * slab is written. Therefore, the target may be the source itself (in-place
+ * convolution), provided that, if the target is split into several slabs, the
+ * out-of-bounds values along the last dimension only refer to source values
+ * near the border (as for border and mirror extension, but not periodic
+ * extension).
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class SeparableConvolution
+{
+	/**
+	 * Maximum number of elements of the intermediate buffers.
+	 */
+	private static final long MAX_BUFFER_SIZE = 1 << 24;
+
+	/**
+	 * Gaussian smoothing with the given standard deviation in each dimension.
+	 * The source is extended by mirroring (single boundary).
+	 * 
+	 * @param sigma
+	 *            standard deviation in each dimension.
+	 * @param source
+	 *            the source.
+	 * @param target
+	 *            the target. May be the source itself.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void gauss( final double[] sigma, final RandomAccessibleInterval< T > source, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final double[][] kernels = new double[ sigma.length ][];
+		for ( int d = 0; d < sigma.length; ++d )
+			kernels[ d ] = sigma[ d ] > 0 ? Util.createGaussianKernel1DDouble( sigma[ d ], true ) : new double[] { 1 };
+		convolve( kernels, source, new OutOfBoundsMirrorFactory< T, RandomAccessibleInterval< T > >( Boundary.SINGLE ), target, numThreads );
+	}
+
+	/**
+	 * Convolve a source extended by the given {@link OutOfBoundsFactory}.
+	 * 
+	 * @see #convolve(double[][], RandomAccessible, RandomAccessibleInterval,
+	 *      int)
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void convolve( final double[][] kernels, final RandomAccessibleInterval< T > source, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > factory, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		convolve( kernels, Views.extend( source, factory ), target, numThreads );
+	}
+
+	/**
+	 * Set every target pixel <em>x</em> to <em>sum<sub>j</sub>
+	 * k<sub>0</sub>[j<sub>0</sub>] * ... * k<sub>n-1</sub>[j<sub>n-1</sub>] *
+	 * source(x + c - j)</em>, where the origin <em>c<sub>d</sub></em> of each
+	 * kernel is at index <code>kernels[d].length / 2</code>.
+	 * 
+	 * @param kernels
+	 *            one 1D kernel for each dimension.
+	 * @param source
+	 *            must be defined on the target interval expanded by the kernel
+	 *            radii (use an extended view if necessary).
+	 * @param target
+	 *            the target.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void convolve( final double[][] kernels, final RandomAccessible< T > source, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( kernels.length != n || source.numDimensions() != n )
+			throw new IllegalArgumentException( "Source, target and kernels must have the same dimensionality." );
+		for ( int d = 0; d < n; ++d )
+			if ( kernels[ d ].length == 0 )
+				throw new IllegalArgumentException( "Kernels must not be empty." );
+
+		// reversed kernels, such that convolution becomes a sliding dot product
+		final double[][] reversed = new double[ n ][];
+		final long[] lowPad = new long[ n ];
+		final long[] highPad = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			final int length = kernels[ d ].length;
+			reversed[ d ] = new double[ length ];
+			for ( int j = 0; j < length; ++j )
+				reversed[ d ][ j ] = kernels[ d ][ length - 1 - j ];
+			highPad[ d ] = length / 2;
+			lowPad[ d ] = length - 1 - highPad[ d ];
+		}
+
+		final int last = n - 1;
+		final long height = target.dimension( last );
+		long rowElements = 1;
+		for ( int d = 0; d < last; ++d )
+			rowElements *= target.dimension( d ) + kernels[ d ].length - 1;
+		final long kernelRows = kernels[ last ].length - 1;
+		final long rowsPerSlab = Math.min( height, Math.max( Math.max( 1, lowPad[ last ] ), MAX_BUFFER_SIZE / rowElements - kernelRows ) );
+
+		final long[] targetMin = new long[ n ];
+		final long[] targetMax = new long[ n ];
+		target.min( targetMin );
+		target.max( targetMax );
+		final long[] srcMin = new long[ n ];
+		final long[] srcMax = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			srcMin[ d ] = targetMin[ d ] - lowPad[ d ];
+			srcMax[ d ] = targetMax[ d ] + highPad[ d ];
+		}
+
+		double[] in = null;
+		for ( long y0 = 0; y0 < height; y0 += rowsPerSlab )
+		{
+			final long y1 = Math.min( height, y0 + rowsPerSlab );
+			if ( in == null )
+				in = readSlab( source, srcMin, srcMax, targetMin[ last ], y0, y1, lowPad[ last ], highPad[ last ], numThreads );
+
+			final int[] dims = new int[ n ];
+			for ( int d = 0; d < last; ++d )
+				dims[ d ] = ( int ) ( srcMax[ d ] - srcMin[ d ] + 1 );
+			dims[ last ] = ( int ) ( y1 - y0 + kernelRows );
+			double[] buffer = in;
+			for ( int d = 0; d < n; ++d )
+			{
+				final int outLen = ( int ) ( d == last ? y1 - y0 : target.dimension( d ) );
+				buffer = pass( buffer, dims, d, reversed[ d ], outLen, numThreads );
+				dims[ d ] = outLen;
+			}
+
+			// read the next slab before writing this one, for in-place convolution
+			final long y2 = Math.min( height, y1 + rowsPerSlab );
+			in = y1 < height ? readSlab( source, srcMin, srcMax, targetMin[ last ], y1, y2, lowPad[ last ], highPad[ last ], numThreads ) : null;
+
+			targetMin[ last ] = target.min( last ) + y0;
+			targetMax[ last ] = target.min( last ) + y1 - 1;
+			write( buffer, Views.interval( target, targetMin, targetMax ), numThreads );
+			targetMin[ last ] = target.min( last );
+		}
+	}
+
+	/**
+	 * Read the source region for target rows <code>[y0, y1)</code>.
+	 */
+	private static < T extends RealType< T > > double[] readSlab( final RandomAccessible< T > source, final long[] srcMin, final long[] srcMax, final long targetMin, final long y0, final long y1, final long lowPad, final long highPad, final int numThreads )
+	{
+		final int last = srcMin.length - 1;
+		final long[] min = srcMin.clone();
+		final long[] max = srcMax.clone();
+		min[ last ] = targetMin + y0 - lowPad;
+		max[ last ] = targetMin + y1 - 1 + highPad;
+		return read( source, min, max, numThreads );
+	}
+
+	/**
+	 * Copy the source interval into a flat buffer, in parallel slabs along the
+	 * last dimension.
+	 */
+	private static < T extends RealType< T > > double[] read( final RandomAccessible< T > source, final long[] min, final long[] max, final int numThreads )
+	{
+		final int n = min.length;
+		final int last = n - 1;
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+			size *= max[ d ] - min[ d ] + 1;
+		if ( size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Source region of a single target slab is too large." );
+		final long height = max[ last ] - min[ last ] + 1;
+		final long sliceSize = size / height;
+		final double[] buffer = new double[ ( int ) size ];
+
+		final int numTasks = ( int ) Math.min( height, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( height, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( height, numTasks, taskIndex + 1 );
+				if ( start == end )
+					return;
+				final long[] cmin = min.clone();
+				final long[] cmax = max.clone();
+				cmin[ last ] = min[ last ] + start;
+				cmax[ last ] = min[ last ] + end - 1;
+				final Cursor< T > c = Views.flatIterable( Views.interval( source, cmin, cmax ) ).cursor();
+				int i = ( int ) ( start * sliceSize );
+				while ( c.hasNext() )
+					buffer[ i++ ] = c.next().getRealDouble();
+			}
+		} );
+		return buffer;
+	}
+
+	/**
+	 * Write a flat buffer into the target, in parallel slabs along the last
+	 * dimension.
+	 */
+	private static < S extends RealType< S > > void write( final double[] buffer, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final int last = n - 1;
+		final long height = target.dimension( last );
+		final long sliceSize = buffer.length / height;
+		final int numTasks = ( int ) Math.min( height, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( height, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( height, numTasks, taskIndex + 1 );
+				if ( start == end )
+					return;
+				final long[] min = new long[ n ];
+				final long[] max = new long[ n ];
+				target.min( min );
+				target.max( max );
+				min[ last ] = target.min( last ) + start;
+				max[ last ] = target.min( last ) + end - 1;
+				final Cursor< S > c = Views.flatIterable( Views.interval( target, min, max ) ).cursor();
+				int i = ( int ) ( start * sliceSize );
+				while ( c.hasNext() )
+					c.next().setReal( buffer[ i++ ] );
+			}
+		} );
+	}
+
+	/**
+	 * Apply the (reversed) kernel along dimension <code>d</code>, reducing the
+	 * size of the buffer in that dimension to <code>outLen</code>.
+	 */
+	private static double[] pass( final double[] in, final int[] dims, final int d, final double[] kernel, final int outLen, final int numThreads )
+	{
+		final int n = dims.length;
+		int block = 1;
+		for ( int i = 0; i < d; ++i )
+			block *= dims[ i ];
+		int outer = 1;
+		for ( int i = d + 1; i < n; ++i )
+			outer *= dims[ i ];
+		final int inLen = dims[ d ];
+		final int taps = kernel.length;
+		final int blockSize = block;
+		final int numOuter = outer;
+
+		if ( taps == 1 && kernel[ 0 ] == 1 )
+			return in;
+
+		final double[] out = new double[ numOuter * outLen * blockSize ];
+		if ( blockSize == 1 )
+		{
+			// lines along dimension 0
+			final int numTasks = Math.min( numOuter, 4 * Math.max( 1, numThreads ) );
+			ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+			{
+				@Override
+				public void run( final int taskIndex )
+				{
+					final int start = ( int ) ParallelHelper.chunkStart( numOuter, numTasks, taskIndex );
+					final int end = ( int ) ParallelHelper.chunkStart( numOuter, numTasks, taskIndex + 1 );
+					for ( int line = start; line < end; ++line )
+					{
+						final int inBase = line * inLen;
+						final int outBase = line * outLen;
+						for ( int x = 0; x < outLen; ++x )
+						{
+							double sum = 0;
+							final int i = inBase + x;
+							for ( int k = 0; k < taps; ++k )
+								sum += kernel[ k ] * in[ i + k ];
+							out[ outBase + x ] = sum;
+						}
+					}
+				}
+			} );
+		}
+		else
+		{
+			// rows of blockSize contiguous elements
+			final long numUnits = ( long ) numOuter * outLen;
+			final int numTasks = ( int ) Math.min( numUnits, 4l * Math.max( 1, numThreads ) );
+			ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+			{
+				@Override
+				public void run( final int taskIndex )
+				{
+					final int start = ( int ) ParallelHelper.chunkStart( numUnits, numTasks, taskIndex );
+					final int end = ( int ) ParallelHelper.chunkStart( numUnits, numTasks, taskIndex + 1 );
+					for ( int unit = start; unit < end; ++unit )
+					{
+						final int o = unit % outLen;
+						final int z = unit / outLen;
+						final int outBase = unit * blockSize;
+						int inBase = ( z * inLen + o ) * blockSize;
+
+						double wk = kernel[ 0 ];
+						for ( int j = 0; j < blockSize; ++j )
+							out[ outBase + j ] = wk * in[ inBase + j ];
+						for ( int k = 1; k < taps; ++k )
+						{
+							inBase += blockSize;
+							wk = kernel[ k ];
+							for ( int j = 0; j < blockSize; ++j )
+								out[ outBase + j ] += wk * in[ inBase + j ];
+						}
+					}
+				}
+			} );
+		}
+		return out;
+	}
+}
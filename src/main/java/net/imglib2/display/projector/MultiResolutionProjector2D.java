@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector;
+
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.mipmap.Mipmaps;
+import net.imglib2.mipmap.MultiResolutionRandomAccessibleInterval;
+import net.imglib2.view.Views;
+
+/**
+ * A 2D Projector that renders a {@link MultiResolutionRandomAccessibleInterval}
+ * at a given {@link #setScreenScale(double) screen scale}. For each
+ * {@link #map()} the coarsest resolution level that is not coarser than the
+ * screen is selected, and the remaining (integer) scale difference is
+ * bridged by subsampling. Overview rendering therefore touches a number of
+ * source pixels proportional to the number of screen pixels.
+ * 
+ * The reference point is given in full resolution coordinates.
+ * 
+ * @param <A>
+ * @param <B>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class MultiResolutionProjector2D< A, B > extends AbstractProjector2D
+{
+	final protected Converter< ? super A, B > converter;
+
+	final protected MultiResolutionRandomAccessibleInterval< A > source;
+
+	final protected IterableInterval< B > target;
+
+	private final int dimX;
+
+	private final int dimY;
+
+	private double screenScale = 1.0;
+
+	private int currentLevel = 0;
+
+	/**
+	 * creates a new 2D projector that samples a plain in the dimensions dimX,
+	 * dimY.
+	 * 
+	 * @param dimX
+	 * @param dimY
+	 * @param source
+	 * @param target
+	 * @param converter
+	 *            a converter that is applied to each point in the plain. This
+	 *            can e.g. be used for normalization, conversions, ...
+	 */
+	public MultiResolutionProjector2D( final int dimX, final int dimY, final MultiResolutionRandomAccessibleInterval< A > source, final IterableInterval< B > target, final Converter< ? super A, B > converter )
+	{
+		super( source.numDimensions() );
+		this.dimX = dimX;
+		this.dimY = dimY;
+		this.source = source;
+		this.target = target;
+		this.converter = converter;
+	}
+
+	/**
+	 * @param screenScale
+	 *            screen pixels per full resolution pixel, e.g. 0.25 for a view
+	 *            that is zoomed out by a factor of 4. Values larger than 1 are
+	 *            rendered from level 0 at scale 1.
+	 */
+	public void setScreenScale( final double screenScale )
+	{
+		this.screenScale = screenScale;
+	}
+
+	public double getScreenScale()
+	{
+		return screenScale;
+	}
+
+	/**
+	 * @return the resolution level used by the last {@link #map()}.
+	 */
+	public int getCurrentLevel()
+	{
+		return currentLevel;
+	}
+
+	@Override
+	public void map()
+	{
+		final int n = source.numDimensions();
+		currentLevel = Math.min( Mipmaps.bestLevel( source, screenScale, dimX ), Mipmaps.bestLevel( source, screenScale, dimY ) );
+
+		final long[] steps = new long[ n ];
+		final long[] levelPosition = new long[ position.length ];
+		for ( int d = 0; d < n; ++d )
+		{
+			final long factor = source.getDownsamplingFactor( currentLevel, d );
+			if ( d == dimX || d == dimY )
+				steps[ d ] = Math.max( 1, ( long ) Math.floor( 1.0 / ( screenScale * factor ) ) );
+			else
+				steps[ d ] = 1;
+			levelPosition[ d ] = position[ d ] / ( factor * steps[ d ] );
+		}
+
+		final RandomAccessibleInterval< A > level = Views.subsample( source.getLevel( currentLevel ), steps );
+		final IterableIntervalProjector2D< A, B > projector = new IterableIntervalProjector2D< A, B >( dimX, dimY, Views.extendBorder( level ), target, converter );
+		projector.setPosition( levelPosition );
+		projector.map();
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector.specialized;
+
+import net.imglib2.converter.RealARGBConverter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.ArrayColorTable;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.AbstractProjector2D;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.type.numeric.ARGBType;
+
+/**
+ * Base class for fast {@link AbstractProjector2D}s that map a 2D data plain of
+ * primitive values directly into the <code>int[]</code> of an ARGB target
+ * (e.g. an {@link ARGBScreenImage}). Values are scaled from
+ * <em>[min, max]</em> and looked up in a precomputed ARGB table, avoiding a
+ * per-pixel {@link net.imglib2.converter.Converter} call.
+ * 
+ * Without a {@link ColorTable} the result matches {@link RealARGBConverter},
+ * with a {@link ColorTable} it matches {@link RealLUTConverter}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public abstract class AbstractXYARGBProjector extends AbstractProjector2D
+{
+	protected final int[] targetArray;
+
+	protected final boolean isUnsigned;
+
+	/**
+	 * ARGB values indexed by bin.
+	 */
+	private final int[] lut;
+
+	private final int maxBin;
+
+	private final boolean isGray;
+
+	private double min;
+
+	private double max;
+
+	private double factor;
+
+	private double offset;
+
+	/**
+	 * @param numDims
+	 *            number of dimensions of the source
+	 * @param targetArray
+	 *            ARGB output
+	 * @param min
+	 *            value that is mapped to the first bin
+	 * @param max
+	 *            value that is mapped to the last bin
+	 * @param colorTable
+	 *            lookup table or <code>null</code> for grayscale
+	 * @param isUnsigned
+	 *            whether integer source values are unsigned
+	 */
+	public AbstractXYARGBProjector( final int numDims, final int[] targetArray, final double min, final double max, final ColorTable colorTable, final boolean isUnsigned )
+	{
+		super( numDims );
+		this.targetArray = targetArray;
+		this.isUnsigned = isUnsigned;
+		this.isGray = colorTable == null;
+		this.lut = isGray ? grayTable() : argbTable( colorTable );
+		this.maxBin = lut.length - 1;
+		setDisplayRange( min, max );
+	}
+
+	/**
+	 * Set the value range that is mapped to the color table.
+	 */
+	public void setDisplayRange( final double min, final double max )
+	{
+		this.min = min;
+		this.max = max;
+		final int bins = lut.length;
+		if ( max == min )
+		{
+			// degenerate case, see Binning.valueToBin()
+			factor = 0;
+			offset = bins / 2;
+		}
+		else if ( isGray )
+		{
+			// rounding as in RealARGBConverter
+			factor = 255.0 / ( max - min );
+			offset = 0.5;
+		}
+		else
+		{
+			// floor as in Binning.valueToBin()
+			factor = bins / ( max - min );
+			offset = 0;
+		}
+	}
+
+	public double getMin()
+	{
+		return min;
+	}
+
+	public double getMax()
+	{
+		return max;
+	}
+
+	private static int[] grayTable()
+	{
+		final int[] table = new int[ 256 ];
+		for ( int b = 0; b < 256; ++b )
+			table[ b ] = 0xff000000 | ( ( ( b << 8 ) | b ) << 8 ) | b;
+		return table;
+	}
+
+	private static int[] argbTable( final ColorTable colorTable )
+	{
+		final int bins = colorTable.getLength();
+		final int[] table = new int[ bins ];
+		if ( colorTable instanceof ArrayColorTable )
+		{
+			final ArrayColorTable< ? > act = ( ArrayColorTable< ? > ) colorTable;
+			for ( int i = 0; i < bins; ++i )
+				table[ i ] = act.argb( i );
+		}
+		else
+		{
+			final int c = colorTable.getComponentCount();
+			for ( int i = 0; i < bins; ++i )
+			{
+				final int r = c > 0 ? colorTable.get( ColorTable.RED, i ) : 0;
+				final int g = c > 1 ? colorTable.get( ColorTable.GREEN, i ) : 0;
+				final int b = c > 2 ? colorTable.get( ColorTable.BLUE, i ) : 0;
+				final int a = c > 3 ? colorTable.get( ColorTable.ALPHA, i ) : 0xff;
+				table[ i ] = ARGBType.rgba( r, g, b, a );
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Map <code>length</code> values of a primitive source array starting at
+	 * <code>srcOffset</code> into {@link #targetArray} starting at
+	 * <code>dstOffset</code>. The array type is dispatched once per call, the
+	 * inner loops operate directly on the primitive arrays.
+	 * 
+	 * @param data
+	 *            a <code>byte[]</code>, <code>short[]</code>,
+	 *            <code>int[]</code>, <code>long[]</code>, <code>float[]</code>
+	 *            or <code>double[]</code>
+	 */
+	protected void mapArray( final Object data, final int srcOffset, final int dstOffset, final int length )
+	{
+		if ( data instanceof byte[] )
+			map( ( byte[] ) data, srcOffset, dstOffset, length );
+		else if ( data instanceof short[] )
+			map( ( short[] ) data, srcOffset, dstOffset, length );
+		else if ( data instanceof int[] )
+			map( ( int[] ) data, srcOffset, dstOffset, length );
+		else if ( data instanceof long[] )
+			map( ( long[] ) data, srcOffset, dstOffset, length );
+		else if ( data instanceof float[] )
+			map( ( float[] ) data, srcOffset, dstOffset, length );
+		else if ( data instanceof double[] )
+			map( ( double[] ) data, srcOffset, dstOffset, length );
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + data.getClass().getSimpleName() );
+	}
+
+	private int bin( final double value )
+	{
+		final int bin = ( int ) ( ( value - min ) * factor + offset );
+		return bin < 0 ? 0 : ( bin > maxBin ? maxBin : bin );
+	}
+
+	private void map( final byte[] src, final int srcOffset, final int dstOffset, final int length )
+	{
+		if ( isUnsigned )
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] & 0xff ) ];
+		else
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] ) ];
+	}
+
+	private void map( final short[] src, final int srcOffset, final int dstOffset, final int length )
+	{
+		if ( isUnsigned )
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] & 0xffff ) ];
+		else
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] ) ];
+	}
+
+	private void map( final int[] src, final int srcOffset, final int dstOffset, final int length )
+	{
+		if ( isUnsigned )
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] & 0xffffffffL ) ];
+		else
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] ) ];
+	}
+
+	private void map( final long[] src, final int srcOffset, final int dstOffset, final int length )
+	{
+		if ( isUnsigned )
+			for ( int i = 0; i < length; ++i )
+			{
+				final long v = src[ srcOffset + i ];
+				targetArray[ dstOffset + i ] = lut[ bin( ( v >>> 1 ) * 2.0 + ( v & 1 ) ) ];
+			}
+		else
+			for ( int i = 0; i < length; ++i )
+				targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] ) ];
+	}
+
+	private void map( final float[] src, final int srcOffset, final int dstOffset, final int length )
+	{
+		for ( int i = 0; i < length; ++i )
+			targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] ) ];
+	}
+
+	private void map( final double[] src, final int srcOffset, final int dstOffset, final int length )
+	{
+		for ( int i = 0; i < length; ++i )
+			targetArray[ dstOffset + i ] = lut[ bin( src[ srcOffset + i ] ) ];
+	}
+}
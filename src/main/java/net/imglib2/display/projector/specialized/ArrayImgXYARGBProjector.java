@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector.specialized;
+
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.AbstractProjector2D;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Fast implementation of a {@link AbstractProjector2D} that selects a 2D data
+ * plain from an ArrayImg of any primitive {@link RealType} (byte, short, int,
+ * long, float or double storage). Values are scaled from <em>[min, max]</em>
+ * and looked up in a {@link ColorTable} directly into the ARGB target, e.g. an
+ * {@link ARGBScreenImage}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ * 
+ * @param <A>
+ *            source
+ */
+public class ArrayImgXYARGBProjector< A extends RealType< A > & NativeType< A > > extends AbstractXYARGBProjector
+{
+	private final Object sourceArray;
+
+	private final long[] dims;
+
+	private final long[] sourceMin;
+
+	private final int planeSize;
+
+	/**
+	 * @param source
+	 *            input data, XY plain size must match the target size.
+	 * @param target
+	 *            ARGB output
+	 * @param min
+	 *            value that is mapped to the first bin of the color table
+	 * @param max
+	 *            value that is mapped to the last bin of the color table
+	 * @param colorTable
+	 *            lookup table or <code>null</code> for grayscale
+	 */
+	public ArrayImgXYARGBProjector( final ArrayImg< A, ? extends ArrayDataAccess< ? > > source, final ArrayImg< ARGBType, IntArray > target, final double min, final double max, final ColorTable colorTable )
+	{
+		super( source.numDimensions(), target.update( null ).getCurrentStorageArray(), min, max, colorTable, isUnsigned( source.firstElement() ) );
+
+		this.dims = new long[ n ];
+		source.dimensions( dims );
+		sourceMin = new long[ n ];
+		source.min( sourceMin );
+		planeSize = ( int ) ( source.dimension( 0 ) * ( n > 1 ? source.dimension( 1 ) : 1 ) );
+		checkSource( source.firstElement(), planeSize, targetArray.length );
+
+		sourceArray = source.update( null ).getCurrentStorageArray();
+	}
+
+	@Override
+	public void map()
+	{
+		final long[] tmpPos = position.clone();
+		for ( int d = 0; d < Math.min( n, 2 ); ++d )
+			tmpPos[ d ] = sourceMin[ d ];
+
+		final int offset = dims.length > 2 ? ( int ) IntervalIndexer.positionWithOffsetToIndex( tmpPos, dims, sourceMin ) : 0;
+
+		mapArray( sourceArray, offset, 0, planeSize );
+	}
+
+	static boolean isUnsigned( final RealType< ? > type )
+	{
+		return type.getMinValue() >= 0;
+	}
+
+	static void checkSource( final NativeType< ? > type, final long planeSize, final long targetSize )
+	{
+		if ( type.getEntitiesPerPixel().getRatio() != 1 )
+			throw new IllegalArgumentException( "Source type must be stored as one primitive value per pixel." );
+		if ( planeSize != targetSize )
+			throw new IllegalArgumentException( "Size of the source XY plain must match the target size." );
+	}
+}
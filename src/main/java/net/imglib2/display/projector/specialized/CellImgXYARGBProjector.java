@@ -0,0 +1,146 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector.specialized;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.AbstractProjector2D;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cells;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Fast implementation of a {@link AbstractProjector2D} that selects a 2D data
+ * plain from a CellImg of any primitive {@link RealType} (byte, short, int,
+ * long, float or double storage). Only the cells intersecting the plain are
+ * visited, and each cell row is mapped directly from the cell's primitive
+ * array. Values are scaled from <em>[min, max]</em> and looked up in a
+ * {@link ColorTable} directly into the ARGB target, e.g. an
+ * {@link ARGBScreenImage}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ * 
+ * @param <A>
+ *            source
+ */
+public class CellImgXYARGBProjector< A extends RealType< A > & NativeType< A > > extends AbstractXYARGBProjector
+{
+	private final Cells< ?, ? extends AbstractCell< ? > > cells;
+
+	private final int width;
+
+	private final int[] cellDims;
+
+	private final int[] cellSteps;
+
+	private final long[] gridPos;
+
+	/**
+	 * @param source
+	 *            input data, XY plain size must match the target size.
+	 * @param target
+	 *            ARGB output
+	 * @param min
+	 *            value that is mapped to the first bin of the color table
+	 * @param max
+	 *            value that is mapped to the last bin of the color table
+	 * @param colorTable
+	 *            lookup table or <code>null</code> for grayscale
+	 */
+	public CellImgXYARGBProjector( final AbstractCellImg< A, ?, ?, ? > source, final ArrayImg< ARGBType, IntArray > target, final double min, final double max, final ColorTable colorTable )
+	{
+		super( source.numDimensions(), target.update( null ).getCurrentStorageArray(), min, max, colorTable, ArrayImgXYARGBProjector.isUnsigned( source.firstElement() ) );
+
+		width = ( int ) source.dimension( 0 );
+		final long planeSize = width * ( source.numDimensions() > 1 ? source.dimension( 1 ) : 1 );
+		ArrayImgXYARGBProjector.checkSource( source.firstElement(), planeSize, targetArray.length );
+
+		cells = source.getCells();
+		cellDims = new int[ n ];
+		cellSteps = new int[ n ];
+		gridPos = new long[ n ];
+	}
+
+	@Override
+	public void map()
+	{
+		final int nd = cells.numDimensions();
+		final RandomAccess< ? extends AbstractCell< ? > > cellAccess = cells.randomAccess();
+
+		// cell grid position of the plain in dimensions > 1
+		for ( int d = 2; d < nd; ++d )
+			gridPos[ d ] = position[ d ] / cells.cellDimension( d );
+		gridPos[ 0 ] = 0;
+		if ( nd > 1 )
+			gridPos[ 1 ] = 0;
+
+		final long numCellsX = ( cells.dimension( 0 ) - 1 ) / cells.cellDimension( 0 ) + 1;
+		final long numCellsY = nd > 1 ? ( cells.dimension( 1 ) - 1 ) / cells.cellDimension( 1 ) + 1 : 1;
+
+		for ( long cy = 0; cy < numCellsY; ++cy )
+		{
+			if ( nd > 1 )
+				gridPos[ 1 ] = cy;
+			for ( long cx = 0; cx < numCellsX; ++cx )
+			{
+				gridPos[ 0 ] = cx;
+				cellAccess.setPosition( gridPos );
+				final AbstractCell< ? > cell = cellAccess.get();
+				cell.dimensions( cellDims );
+				IntervalIndexer.createAllocationSteps( cellDims, cellSteps );
+
+				// offset of the plain within the cell
+				int zOffset = 0;
+				for ( int d = 2; d < nd; ++d )
+					zOffset += ( int ) ( position[ d ] - cell.min( d ) ) * cellSteps[ d ];
+
+				final Object data = ( ( ArrayDataAccess< ? > ) cell.getData() ).getCurrentStorageArray();
+				final int cellWidth = cellDims[ 0 ];
+				final int cellHeight = nd > 1 ? cellDims[ 1 ] : 1;
+				final int minX = ( int ) cell.min( 0 );
+				final int minY = nd > 1 ? ( int ) cell.min( 1 ) : 0;
+				for ( int y = 0; y < cellHeight; ++y )
+					mapArray( data, zOffset + y * cellWidth, ( minY + y ) * width + minX, cellWidth );
+			}
+		}
+	}
+}
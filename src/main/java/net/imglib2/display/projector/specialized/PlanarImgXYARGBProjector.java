@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector.specialized;
+
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.AbstractProjector2D;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Fast implementation of a {@link AbstractProjector2D} that selects a 2D data
+ * plain from a PlanarImg of any primitive {@link RealType} (byte, short, int,
+ * long, float or double storage). Values are scaled from <em>[min, max]</em>
+ * and looked up in a {@link ColorTable} directly into the ARGB target, e.g. an
+ * {@link ARGBScreenImage}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ * 
+ * @param <A>
+ *            source
+ */
+public class PlanarImgXYARGBProjector< A extends RealType< A > & NativeType< A > > extends AbstractXYARGBProjector
+{
+	private final PlanarImg< A, ? extends ArrayDataAccess< ? > > source;
+
+	private final int planeSize;
+
+	/**
+	 * @param source
+	 *            input data, XY plain size must match the target size.
+	 * @param target
+	 *            ARGB output
+	 * @param min
+	 *            value that is mapped to the first bin of the color table
+	 * @param max
+	 *            value that is mapped to the last bin of the color table
+	 * @param colorTable
+	 *            lookup table or <code>null</code> for grayscale
+	 */
+	public PlanarImgXYARGBProjector( final PlanarImg< A, ? extends ArrayDataAccess< ? > > source, final ArrayImg< ARGBType, IntArray > target, final double min, final double max, final ColorTable colorTable )
+	{
+		super( source.numDimensions(), target.update( null ).getCurrentStorageArray(), min, max, colorTable, ArrayImgXYARGBProjector.isUnsigned( source.firstElement() ) );
+
+		planeSize = ( int ) ( source.dimension( 0 ) * ( source.numDimensions() > 1 ? source.dimension( 1 ) : 1 ) );
+		ArrayImgXYARGBProjector.checkSource( source.firstElement(), planeSize, targetArray.length );
+
+		this.source = source;
+	}
+
+	@Override
+	public void map()
+	{
+		// positioning for every call to map because the plane index is
+		// position dependent
+		int planeIndex;
+		if ( position.length > 2 )
+		{
+			final long[] tmpPos = new long[ position.length - 2 ];
+			final long[] tmpDim = new long[ position.length - 2 ];
+			for ( int i = 0; i < tmpDim.length; i++ )
+			{
+				tmpPos[ i ] = position[ i + 2 ];
+				tmpDim[ i ] = source.dimension( i + 2 );
+			}
+			planeIndex = ( int ) IntervalIndexer.positionToIndex( tmpPos, tmpDim );
+		}
+		else
+		{
+			planeIndex = 0;
+		}
+
+		mapArray( source.getPlane( planeIndex ).getCurrentStorageArray(), 0, 0, planeSize );
+	}
+}
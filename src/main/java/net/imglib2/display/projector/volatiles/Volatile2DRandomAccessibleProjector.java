@@ -33,6 +33,9 @@
  */
 package net.imglib2.display.projector.volatiles;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
 import net.imglib2.IterableInterval;
@@ -45,19 +48,54 @@ import net.imglib2.display.projector.IterableIntervalProjector2D;
 import net.imglib2.view.Views;
 
 /**
- * {@link XYRandomAccessibleProjector} for {@link Volatile} input. After each
+ * {@link IterableIntervalProjector2D} for {@link Volatile} input. After each
  * {@link #map()} call, the projector has a {@link #isValid() state} that
  * signalizes whether all projected pixels were valid.
  * 
+ * Validity is tracked per target row. Subsequent {@link #map()} calls re-map
+ * only rows that contained invalid pixels, so progressive refinement costs
+ * are proportional to the number of invalid rows rather than to the size of
+ * the target. Moving the reference point or calling {@link #invalidate()}
+ * marks all rows invalid again. An in-flight {@link #map()} can be aborted
+ * from another thread with {@link #cancel()}.
+ * 
  * @author Stephan Saalfeld (saalfeld@mpi-cbg.de)
  */
 public class Volatile2DRandomAccessibleProjector< T, A extends Volatile< T >, B > extends IterableIntervalProjector2D< A, B >
 {
 	protected boolean valid = false;
 
+	protected final RandomAccessibleInterval< B > targetInterval;
+
+	protected final int dimX;
+
+	protected final int dimY;
+
+	/**
+	 * One flag per target row, true if all pixels of the row were valid
+	 * when it was last mapped.
+	 */
+	protected final boolean[] validRows;
+
+	/**
+	 * Reference point of the last {@link #map()} call.
+	 */
+	protected final long[] lastPosition;
+
+	/**
+	 * Advanced by {@link #cancel()}. A {@link #map()} is aborted if the
+	 * generation changes while it is running.
+	 */
+	protected final AtomicInteger generation = new AtomicInteger();
+
 	public Volatile2DRandomAccessibleProjector( final int dimX, final int dimY, final RandomAccessible< A > source, final RandomAccessibleInterval< B > target, final Converter< ? super A, B > converter )
 	{
 		super( dimX, dimY, source, Views.iterable( target ), converter );
+		this.targetInterval = target;
+		this.dimX = dimX;
+		this.dimY = dimY;
+		validRows = new boolean[ ( int ) target.dimension( 1 ) ];
+		lastPosition = new long[ n ];
 	}
 
 	/**
@@ -68,46 +106,159 @@ public class Volatile2DRandomAccessibleProjector< T, A extends Volatile< T >, B
 		return valid;
 	}
 
+	/**
+	 * Mark all target rows invalid such that the next {@link #map()} re-maps
+	 * the entire target. Call this if the source changed, e.g. after a pan or
+	 * zoom.
+	 */
+	public void invalidate()
+	{
+		Arrays.fill( validRows, false );
+		valid = false;
+	}
+
+	/**
+	 * Abort the currently running {@link #map()} (if any). Rows that were not
+	 * mapped yet remain invalid and will be mapped by the next {@link #map()}.
+	 * A {@link #map()} that starts after this call is not affected. Can be
+	 * called from any thread.
+	 */
+	public void cancel()
+	{
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of target rows that contained invalid pixels (or
+	 *         were not mapped at all) in the last {@link #map()} call.
+	 */
+	public int numInvalidRows()
+	{
+		int count = 0;
+		for ( final boolean v : validRows )
+			if ( !v )
+				++count;
+		return count;
+	}
+
 	/**
 	 * projects data from the source to the target and applies the former
-	 * specified {@link Converter} e.g. for normalization.
+	 * specified {@link Converter} e.g. for normalization. Only target rows
+	 * that were not completely valid after the previous call are mapped.
 	 */
 	@Override
 	public void map()
 	{
+		final int renderGeneration = generation.get();
+
+		for ( int d = 0; d < position.length; ++d )
+		{
+			if ( position[ d ] != lastPosition[ d ] )
+			{
+				invalidate();
+				break;
+			}
+		}
+		localize( lastPosition );
+
 		// fix interval for all dimensions
 		for ( int d = 0; d < position.length; ++d )
 			min[ d ] = max[ d ] = position[ d ];
 
-		min[ 0 ] = target.min( 0 );
-		min[ 1 ] = target.min( 1 );
-		max[ 0 ] = target.max( 0 );
-		max[ 1 ] = target.max( 1 );
+		min[ dimX ] = targetInterval.min( 0 );
+		min[ dimY ] = targetInterval.min( 1 );
+		max[ dimX ] = targetInterval.max( 0 );
+		max[ dimY ] = targetInterval.max( 1 );
 
 		final IterableInterval< A > srcIterable = Views.iterable( Views.interval( source, new FinalInterval( min, max ) ) );
-		final Cursor< B > targetCursor = target.localizingCursor();
+		if ( dimX < dimY && target.iterationOrder().equals( srcIterable.iterationOrder() ) )
+			valid = mapCursors( srcIterable, renderGeneration );
+		else
+			valid = mapRandomAccess( renderGeneration );
+	}
 
-		if ( target.iterationOrder().equals( srcIterable.iterationOrder() ) )
+	/**
+	 * Map invalid rows using cursors, if source and target have the same
+	 * iteration order.
+	 * 
+	 * @return true if all rows are valid.
+	 */
+	private boolean mapCursors( final IterableInterval< A > srcIterable, final int renderGeneration )
+	{
+		final Cursor< A > sourceCursor = srcIterable.cursor();
+		final Cursor< B > targetCursor = target.cursor();
+		final long width = targetInterval.dimension( 0 );
+
+		boolean allValid = true;
+		for ( int y = 0; y < validRows.length; ++y )
 		{
-			// use cursors
-			final Cursor< A > sourceCursor = srcIterable.cursor();
-			while ( targetCursor.hasNext() )
+			if ( generation.get() != renderGeneration )
+				return false;
+
+			if ( validRows[ y ] )
+			{
+				sourceCursor.jumpFwd( width );
+				targetCursor.jumpFwd( width );
+				continue;
+			}
+
+			boolean rowValid = true;
+			for ( long x = 0; x < width; ++x )
 			{
-				converter.convert( sourceCursor.next(), targetCursor.next() );
+				final A a = sourceCursor.next();
+				converter.convert( a, targetCursor.next() );
+				rowValid &= a.isValid();
 			}
+
+			validRows[ y ] = rowValid;
+			allValid &= rowValid;
 		}
-		else
+		return allValid;
+	}
+
+	/**
+	 * Map invalid rows using {@link RandomAccess}es.
+	 * 
+	 * @return true if all rows are valid.
+	 */
+	private boolean mapRandomAccess( final int renderGeneration )
+	{
+		final RandomAccess< A > sourceRandomAccess = source.randomAccess();
+		final RandomAccess< B > targetRandomAccess = targetInterval.randomAccess();
+
+		final long width = targetInterval.dimension( 0 );
+		final long cr = -width;
+
+		boolean allValid = true;
+		sourceRandomAccess.setPosition( min );
+		targetRandomAccess.setPosition( targetInterval.min( 0 ), 0 );
+		for ( int y = 0; y < validRows.length; ++y )
 		{
-			// use localizing cursor
-			final RandomAccess< A > sourceRandomAccess = source.randomAccess();
-			while ( targetCursor.hasNext() )
-			{
-				final B b = targetCursor.next();
-				sourceRandomAccess.setPosition( targetCursor.getLongPosition( 0 ), 0 );
-				sourceRandomAccess.setPosition( targetCursor.getLongPosition( 1 ), 1 );
+			if ( generation.get() != renderGeneration )
+				return false;
+
+			if ( validRows[ y ] )
+				continue;
 
-				converter.convert( sourceRandomAccess.get(), b );
+			final long sy = min[ dimY ] + y;
+			sourceRandomAccess.setPosition( min[ dimX ], dimX );
+			sourceRandomAccess.setPosition( sy, dimY );
+			targetRandomAccess.setPosition( sy, 1 );
+
+			boolean rowValid = true;
+			for ( long x = 0; x < width; ++x )
+			{
+				final A a = sourceRandomAccess.get();
+				converter.convert( a, targetRandomAccess.get() );
+				rowValid &= a.isValid();
+				sourceRandomAccess.fwd( dimX );
+				targetRandomAccess.fwd( 0 );
 			}
+			targetRandomAccess.move( cr, 0 );
+
+			validRows[ y ] = rowValid;
+			allValid &= rowValid;
 		}
+		return allValid;
 	}
 }
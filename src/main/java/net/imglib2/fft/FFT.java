@@ -0,0 +1,370 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.fft;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.ComplexType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.complex.ComplexDoubleType;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.util.Util;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
+
+/**
+ * <em>n</em>-dimensional discrete Fourier transforms of {@link ComplexType}
+ * images, computed in place by transforming all lines along one dimension
+ * after another. Lines are distributed over threads. 1D transforms of any
+ * length are supported, but lengths with only small prime factors (see
+ * {@link #nextFastSize(long)}) are fastest.
+ * 
+ * <p>
+ * The forward transform is unnormalized, the inverse transform is normalized
+ * by the number of pixels, such that {@link #inverse} undoes
+ * {@link #forward}. The zero frequency is at the min of the image.
+ * </p>
+ * 
+ * <p>
+ * Lines of {@link ArrayImg}s of {@link ComplexFloatType} and
+ * {@link ComplexDoubleType} are accessed directly in the underlying array.
+ * Other images, e.g. {@link net.imglib2.img.cell.CellImg}s, are accessed
+ * through {@link RandomAccess}es.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class FFT
+{
+	/**
+	 * Images with more elements are created as
+	 * {@link net.imglib2.img.cell.CellImg}s by
+	 * {@link #createComplexImg(long[])}.
+	 */
+	private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE / 2;
+
+	/**
+	 * Get the smallest size &ge; <code>n</code> which has no prime factors
+	 * other than 2, 3, and 5.
+	 */
+	public static long nextFastSize( final long n )
+	{
+		long best = 1;
+		while ( best < n )
+			best <<= 1;
+		for ( long p5 = 1; p5 < best; p5 *= 5 )
+			for ( long p35 = p5; p35 < best; p35 *= 3 )
+			{
+				long size = p35;
+				while ( size < n )
+					size <<= 1;
+				best = Math.min( best, size );
+			}
+		return best;
+	}
+
+	/**
+	 * In-place forward transform of all dimensions.
+	 */
+	public static < C extends ComplexType< C > > void forward( final RandomAccessibleInterval< C > img, final int numThreads )
+	{
+		for ( int d = 0; d < img.numDimensions(); ++d )
+			transform( img, d, false, numThreads );
+	}
+
+	/**
+	 * In-place inverse transform of all dimensions.
+	 */
+	public static < C extends ComplexType< C > > void inverse( final RandomAccessibleInterval< C > img, final int numThreads )
+	{
+		for ( int d = 0; d < img.numDimensions(); ++d )
+			transform( img, d, true, numThreads );
+	}
+
+	/**
+	 * Copy a real image into a new complex image and transform it.
+	 * 
+	 * @return the transform, with min at the origin.
+	 */
+	public static < T extends RealType< T > > Img< ComplexFloatType > forward( final RandomAccessibleInterval< T > source, final ImgFactory< ComplexFloatType > factory, final int numThreads )
+	{
+		final Img< ComplexFloatType > img = realToComplex( source, factory, numThreads );
+		forward( img, numThreads );
+		return img;
+	}
+
+	/**
+	 * In-place transform of all lines along dimension <code>d</code>.
+	 * 
+	 * @param img
+	 *            the image to transform.
+	 * @param d
+	 *            the dimension along which to transform.
+	 * @param inverse
+	 *            whether to compute the inverse (normalized) transform.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < C extends ComplexType< C > > void transform( final RandomAccessibleInterval< C > img, final int d, final boolean inverse, final int numThreads )
+	{
+		final int n = img.numDimensions();
+		final long length = img.dimension( d );
+		if ( length > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "FFT length must be < 2^31." );
+		if ( length == 1 )
+			return;
+		final long numLines = Intervals.numElements( img ) / length;
+		final FFT1D plan = new FFT1D( ( int ) length );
+
+		// direct access to interleaved real/imaginary arrays
+		float[] floats = null;
+		double[] doubles = null;
+		if ( img instanceof ArrayImg )
+		{
+			final Object data = ( ( ArrayImg< ?, ? > ) img ).update( null );
+			final Object type = Util.getTypeFromInterval( img );
+			if ( data instanceof FloatArray && type instanceof ComplexFloatType )
+				floats = ( ( FloatArray ) data ).getCurrentStorageArray();
+			else if ( data instanceof DoubleArray && type instanceof ComplexDoubleType )
+				doubles = ( ( DoubleArray ) data ).getCurrentStorageArray();
+		}
+		final float[] floatData = floats;
+		final double[] doubleData = doubles;
+
+		long s = 1;
+		for ( int i = 0; i < d; ++i )
+			s *= img.dimension( i );
+		final long stride = s;
+
+		// dimensions of the line start positions
+		final long[] lineDims = new long[ n ];
+		img.dimensions( lineDims );
+		lineDims[ d ] = 1;
+
+		final int numTasks = ( int ) Math.min( numLines, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( numLines, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( numLines, numTasks, taskIndex + 1 );
+				final FFT1D.Workspace ws = plan.createWorkspace();
+				final double[] re = ws.re;
+				final double[] im = ws.im;
+				final int len = plan.n;
+
+				if ( floatData != null || doubleData != null )
+				{
+					for ( long line = start; line < end; ++line )
+					{
+						final long inner = line % stride;
+						final long outer = line / stride;
+						final int base = ( int ) ( 2 * ( outer * stride * len + inner ) );
+						final int step = ( int ) ( 2 * stride );
+						if ( floatData != null )
+						{
+							for ( int k = 0, i = base; k < len; ++k, i += step )
+							{
+								re[ k ] = floatData[ i ];
+								im[ k ] = floatData[ i + 1 ];
+							}
+							plan.transform( ws, inverse );
+							for ( int k = 0, i = base; k < len; ++k, i += step )
+							{
+								floatData[ i ] = ( float ) re[ k ];
+								floatData[ i + 1 ] = ( float ) im[ k ];
+							}
+						}
+						else
+						{
+							for ( int k = 0, i = base; k < len; ++k, i += step )
+							{
+								re[ k ] = doubleData[ i ];
+								im[ k ] = doubleData[ i + 1 ];
+							}
+							plan.transform( ws, inverse );
+							for ( int k = 0, i = base; k < len; ++k, i += step )
+							{
+								doubleData[ i ] = re[ k ];
+								doubleData[ i + 1 ] = im[ k ];
+							}
+						}
+					}
+				}
+				else
+				{
+					final RandomAccess< C > a = img.randomAccess();
+					final long[] pos = new long[ n ];
+					for ( long line = start; line < end; ++line )
+					{
+						IntervalIndexer.indexToPosition( line, lineDims, pos );
+						for ( int i = 0; i < n; ++i )
+							pos[ i ] += img.min( i );
+						a.setPosition( pos );
+						for ( int k = 0; k < len; ++k, a.fwd( d ) )
+						{
+							final C c = a.get();
+							re[ k ] = c.getRealDouble();
+							im[ k ] = c.getImaginaryDouble();
+						}
+						plan.transform( ws, inverse );
+						a.setPosition( pos );
+						for ( int k = 0; k < len; ++k, a.fwd( d ) )
+							a.get().setComplexNumber( re[ k ], im[ k ] );
+					}
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Create a complex image, as an {@link ArrayImg} if it is small enough,
+	 * otherwise as a {@link net.imglib2.img.cell.CellImg}.
+	 */
+	public static Img< ComplexFloatType > createComplexImg( final long[] dimensions )
+	{
+		long size = 1;
+		for ( final long dim : dimensions )
+			size *= dim;
+		final ImgFactory< ComplexFloatType > factory = size <= MAX_ARRAY_SIZE ? new ArrayImgFactory< ComplexFloatType >() : new CellImgFactory< ComplexFloatType >( 64 );
+		return factory.create( dimensions, new ComplexFloatType() );
+	}
+
+	/**
+	 * Copy a real image into a new complex image with zero imaginary part.
+	 * 
+	 * @return complex image with min at the origin.
+	 */
+	public static < T extends RealType< T > > Img< ComplexFloatType > realToComplex( final RandomAccessibleInterval< T > source, final ImgFactory< ComplexFloatType > factory, final int numThreads )
+	{
+		final long[] dimensions = new long[ source.numDimensions() ];
+		source.dimensions( dimensions );
+		final Img< ComplexFloatType > img = factory.create( dimensions, new ComplexFloatType() );
+		realToComplex( source, img, numThreads );
+		return img;
+	}
+
+	/**
+	 * Copy a real image into a complex image of the same size, setting the
+	 * imaginary part to zero.
+	 */
+	public static < T extends RealType< T >, C extends ComplexType< C > > void realToComplex( final RandomAccessibleInterval< T > source, final RandomAccessibleInterval< C > target, final int numThreads )
+	{
+		checkSameDimensions( source, target );
+		final int last = source.numDimensions() - 1;
+		final long height = source.dimension( last );
+		final int numTasks = ( int ) Math.min( height, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( height, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( height, numTasks, taskIndex + 1 );
+				if ( start == end )
+					return;
+				final Cursor< T > s = Views.flatIterable( slab( source, start, end ) ).cursor();
+				final Cursor< C > t = Views.flatIterable( slab( target, start, end ) ).cursor();
+				while ( s.hasNext() )
+					t.next().setComplexNumber( s.next().getRealDouble(), 0 );
+			}
+		} );
+	}
+
+	/**
+	 * Copy the real part of a complex image into a real image of the same
+	 * size.
+	 */
+	public static < C extends ComplexType< C >, T extends RealType< T > > void complexToReal( final RandomAccessibleInterval< C > source, final RandomAccessibleInterval< T > target, final int numThreads )
+	{
+		checkSameDimensions( source, target );
+		final int last = source.numDimensions() - 1;
+		final long height = source.dimension( last );
+		final int numTasks = ( int ) Math.min( height, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( height, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( height, numTasks, taskIndex + 1 );
+				if ( start == end )
+					return;
+				final Cursor< C > s = Views.flatIterable( slab( source, start, end ) ).cursor();
+				final Cursor< T > t = Views.flatIterable( slab( target, start, end ) ).cursor();
+				while ( s.hasNext() )
+					t.next().setReal( s.next().getRealDouble() );
+			}
+		} );
+	}
+
+	/**
+	 * Get rows <code>[start, end)</code> (relative to the min) along the last
+	 * dimension of an interval.
+	 */
+	static < X > IntervalView< X > slab( final RandomAccessibleInterval< X > rai, final long start, final long end )
+	{
+		final int last = rai.numDimensions() - 1;
+		final long[] min = new long[ last + 1 ];
+		final long[] max = new long[ last + 1 ];
+		rai.min( min );
+		rai.max( max );
+		min[ last ] = rai.min( last ) + start;
+		max[ last ] = rai.min( last ) + end - 1;
+		return Views.interval( rai, min, max );
+	}
+
+	private static void checkSameDimensions( final RandomAccessibleInterval< ? > a, final RandomAccessibleInterval< ? > b )
+	{
+		final int n = a.numDimensions();
+		if ( b.numDimensions() != n )
+			throw new IllegalArgumentException( "Source and target must have the same dimensionality." );
+		for ( int d = 0; d < n; ++d )
+			if ( a.dimension( d ) != b.dimension( d ) )
+				throw new IllegalArgumentException( "Source and target must have the same dimensions." );
+	}
+}
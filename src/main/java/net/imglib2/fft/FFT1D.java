@@ -0,0 +1,413 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.fft;
+
+/**
+ * Plan for 1D complex discrete Fourier transforms of a fixed length.
+ * 
+ * <p>
+ * Lengths whose prime factors are all small are transformed by an iterative
+ * mixed-radix Stockham algorithm (with dedicated radix-2 and radix-4
+ * butterflies and a generic butterfly for other factors). Other lengths are
+ * reduced to a power-of-two transform by Bluestein's algorithm.
+ * </p>
+ * 
+ * <p>
+ * A plan is immutable and can be shared between threads. Each thread needs
+ * its own {@link Workspace}.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+final class FFT1D
+{
+	/**
+	 * Lengths with a prime factor larger than this are transformed using
+	 * Bluestein's algorithm.
+	 */
+	private static final int MAX_GENERIC_RADIX = 31;
+
+	/**
+	 * Scratch buffers for one thread.
+	 */
+	final class Workspace
+	{
+		final double[] re;
+
+		final double[] im;
+
+		final double[] tmpRe;
+
+		final double[] tmpIm;
+
+		final double[] bufRe;
+
+		final double[] bufIm;
+
+		final double[] radixRe;
+
+		final double[] radixIm;
+
+		private Workspace()
+		{
+			final int size = factors == null ? bluesteinPlan.n : n;
+			re = new double[ n ];
+			im = new double[ n ];
+			tmpRe = new double[ size ];
+			tmpIm = new double[ size ];
+			bufRe = factors == null ? new double[ size ] : null;
+			bufIm = factors == null ? new double[ size ] : null;
+			final int radix = factors == null ? bluesteinPlan.maxRadix() : maxRadix();
+			radixRe = new double[ radix ];
+			radixIm = new double[ radix ];
+		}
+	}
+
+	final int n;
+
+	/**
+	 * radices of the Stockham stages, or <code>null</code> if Bluestein's
+	 * algorithm is used.
+	 */
+	private final int[] factors;
+
+	/**
+	 * twiddle factors <em>exp(-2 &pi; i k / n)</em>.
+	 */
+	private final double[] wRe;
+
+	private final double[] wIm;
+
+	/**
+	 * power-of-two plan for Bluestein's algorithm.
+	 */
+	private final FFT1D bluesteinPlan;
+
+	/**
+	 * chirp <em>exp(-&pi; i k<sup>2</sup> / n)</em>.
+	 */
+	private final double[] chirpRe;
+
+	private final double[] chirpIm;
+
+	/**
+	 * transform of the zero-padded conjugate chirp.
+	 */
+	private final double[] filterRe;
+
+	private final double[] filterIm;
+
+	FFT1D( final int n )
+	{
+		if ( n < 1 )
+			throw new IllegalArgumentException( "FFT length must be positive." );
+		this.n = n;
+		final int[] f = factorize( n );
+		if ( f != null )
+		{
+			factors = f;
+			wRe = new double[ n ];
+			wIm = new double[ n ];
+			for ( int k = 0; k < n; ++k )
+			{
+				final double angle = 2 * Math.PI * k / n;
+				wRe[ k ] = Math.cos( angle );
+				wIm[ k ] = -Math.sin( angle );
+			}
+			bluesteinPlan = null;
+			chirpRe = chirpIm = filterRe = filterIm = null;
+		}
+		else
+		{
+			factors = null;
+			wRe = wIm = null;
+			int m = 1;
+			while ( m < 2 * n - 1 )
+				m <<= 1;
+			bluesteinPlan = new FFT1D( m );
+			chirpRe = new double[ n ];
+			chirpIm = new double[ n ];
+			final long twoN = 2l * n;
+			for ( int k = 0; k < n; ++k )
+			{
+				final double angle = Math.PI * ( ( ( long ) k * k ) % twoN ) / n;
+				chirpRe[ k ] = Math.cos( angle );
+				chirpIm[ k ] = -Math.sin( angle );
+			}
+			filterRe = new double[ m ];
+			filterIm = new double[ m ];
+			filterRe[ 0 ] = chirpRe[ 0 ];
+			filterIm[ 0 ] = -chirpIm[ 0 ];
+			for ( int k = 1; k < n; ++k )
+			{
+				filterRe[ k ] = filterRe[ m - k ] = chirpRe[ k ];
+				filterIm[ k ] = filterIm[ m - k ] = -chirpIm[ k ];
+			}
+			final double[] r = new double[ bluesteinPlan.maxRadix() ];
+			bluesteinPlan.stockham( filterRe, filterIm, new double[ m ], new double[ m ], r, r.clone() );
+		}
+	}
+
+	private int maxRadix()
+	{
+		int max = 0;
+		for ( final int radix : factors )
+			max = Math.max( max, radix );
+		return max;
+	}
+
+	Workspace createWorkspace()
+	{
+		return new Workspace();
+	}
+
+	/**
+	 * Transform the first {@link #n} elements of the workspace
+	 * <code>re</code>, <code>im</code> arrays in place. The forward transform
+	 * uses <em>exp(-2 &pi; i j k / n)</em> and is unnormalized. The inverse
+	 * transform uses <em>exp(2 &pi; i j k / n)</em> and is normalized by
+	 * <em>1/n</em>.
+	 */
+	void transform( final Workspace ws, final boolean inverse )
+	{
+		final double[] re = ws.re;
+		final double[] im = ws.im;
+		if ( inverse )
+			for ( int k = 0; k < n; ++k )
+				im[ k ] = -im[ k ];
+
+		if ( factors != null )
+			stockham( re, im, ws.tmpRe, ws.tmpIm, ws.radixRe, ws.radixIm );
+		else
+			bluestein( re, im, ws );
+
+		if ( inverse )
+		{
+			final double s = 1.0 / n;
+			for ( int k = 0; k < n; ++k )
+			{
+				re[ k ] *= s;
+				im[ k ] *= -s;
+			}
+		}
+	}
+
+	/**
+	 * Split n into radices 4, 2, 3, 5, ... Returns <code>null</code> if n has
+	 * a prime factor larger than {@link #MAX_GENERIC_RADIX}.
+	 */
+	private static int[] factorize( int n )
+	{
+		final int[] tmp = new int[ 32 ];
+		int k = 0;
+		while ( n % 4 == 0 )
+		{
+			tmp[ k++ ] = 4;
+			n /= 4;
+		}
+		if ( n % 2 == 0 )
+		{
+			tmp[ k++ ] = 2;
+			n /= 2;
+		}
+		for ( int p = 3; n > 1; p += 2 )
+		{
+			if ( p > MAX_GENERIC_RADIX )
+				return null;
+			while ( n % p == 0 )
+			{
+				tmp[ k++ ] = p;
+				n /= p;
+			}
+		}
+		final int[] factors = new int[ k ];
+		System.arraycopy( tmp, 0, factors, 0, k );
+		return factors;
+	}
+
+	/**
+	 * Forward transform of length n (must have {@link #factors}) by
+	 * decimation-in-frequency Stockham stages, alternating between
+	 * <code>(xRe, xIm)</code> and <code>(yRe, yIm)</code>. The result is
+	 * stored in <code>(xRe, xIm)</code>. <code>(aRe, aIm)</code> is scratch
+	 * space for generic butterflies.
+	 */
+	private void stockham( final double[] xRe, final double[] xIm, final double[] yRe, final double[] yIm, final double[] aRe, final double[] aIm )
+	{
+		double[] srcRe = xRe, srcIm = xIm, dstRe = yRe, dstIm = yIm;
+		int s = 1;
+		int len = n;
+		for ( final int radix : factors )
+		{
+			final int m = len / radix;
+			switch ( radix )
+			{
+			case 2:
+				for ( int p = 0; p < m; ++p )
+				{
+					final double w1r = wRe[ p * s ], w1i = wIm[ p * s ];
+					for ( int q = 0; q < s; ++q )
+					{
+						final int i0 = q + s * p;
+						final int i1 = i0 + s * m;
+						final double ar = srcRe[ i0 ], ai = srcIm[ i0 ];
+						final double br = srcRe[ i1 ], bi = srcIm[ i1 ];
+						final int o = q + s * 2 * p;
+						dstRe[ o ] = ar + br;
+						dstIm[ o ] = ai + bi;
+						final double dr = ar - br, di = ai - bi;
+						dstRe[ o + s ] = dr * w1r - di * w1i;
+						dstIm[ o + s ] = dr * w1i + di * w1r;
+					}
+				}
+				break;
+			case 4:
+				for ( int p = 0; p < m; ++p )
+				{
+					final double w1r = wRe[ p * s ], w1i = wIm[ p * s ];
+					final double w2r = wRe[ 2 * p * s ], w2i = wIm[ 2 * p * s ];
+					final double w3r = wRe[ 3 * p * s ], w3i = wIm[ 3 * p * s ];
+					for ( int q = 0; q < s; ++q )
+					{
+						final int i0 = q + s * p;
+						final int i1 = i0 + s * m;
+						final int i2 = i1 + s * m;
+						final int i3 = i2 + s * m;
+						final double a0r = srcRe[ i0 ], a0i = srcIm[ i0 ];
+						final double a1r = srcRe[ i1 ], a1i = srcIm[ i1 ];
+						final double a2r = srcRe[ i2 ], a2i = srcIm[ i2 ];
+						final double a3r = srcRe[ i3 ], a3i = srcIm[ i3 ];
+						final double s02r = a0r + a2r, s02i = a0i + a2i;
+						final double d02r = a0r - a2r, d02i = a0i - a2i;
+						final double s13r = a1r + a3r, s13i = a1i + a3i;
+						final double d13r = a1r - a3r, d13i = a1i - a3i;
+						final int o = q + s * 4 * p;
+						dstRe[ o ] = s02r + s13r;
+						dstIm[ o ] = s02i + s13i;
+						// b1 = (a0 - a2) - i (a1 - a3)
+						final double b1r = d02r + d13i, b1i = d02i - d13r;
+						dstRe[ o + s ] = b1r * w1r - b1i * w1i;
+						dstIm[ o + s ] = b1r * w1i + b1i * w1r;
+						final double b2r = s02r - s13r, b2i = s02i - s13i;
+						dstRe[ o + 2 * s ] = b2r * w2r - b2i * w2i;
+						dstIm[ o + 2 * s ] = b2r * w2i + b2i * w2r;
+						// b3 = (a0 - a2) + i (a1 - a3)
+						final double b3r = d02r - d13i, b3i = d02i + d13r;
+						dstRe[ o + 3 * s ] = b3r * w3r - b3i * w3i;
+						dstIm[ o + 3 * s ] = b3r * w3i + b3i * w3r;
+					}
+				}
+				break;
+			default:
+				final int rootStep = n / radix;
+				for ( int p = 0; p < m; ++p )
+				{
+					for ( int q = 0; q < s; ++q )
+					{
+						for ( int k = 0; k < radix; ++k )
+						{
+							final int i = q + s * ( p + k * m );
+							aRe[ k ] = srcRe[ i ];
+							aIm[ k ] = srcIm[ i ];
+						}
+						final int o = q + s * radix * p;
+						for ( int t = 0; t < radix; ++t )
+						{
+							double br = 0, bi = 0;
+							for ( int k = 0, r = 0; k < radix; ++k, r = ( r + t ) % radix )
+							{
+								final double cr = wRe[ r * rootStep ], ci = wIm[ r * rootStep ];
+								br += aRe[ k ] * cr - aIm[ k ] * ci;
+								bi += aRe[ k ] * ci + aIm[ k ] * cr;
+							}
+							final int w = p * t * s;
+							dstRe[ o + t * s ] = br * wRe[ w ] - bi * wIm[ w ];
+							dstIm[ o + t * s ] = br * wIm[ w ] + bi * wRe[ w ];
+						}
+					}
+				}
+			}
+			len = m;
+			s *= radix;
+			final double[] tRe = srcRe, tIm = srcIm;
+			srcRe = dstRe;
+			srcIm = dstIm;
+			dstRe = tRe;
+			dstIm = tIm;
+		}
+		if ( srcRe != xRe )
+		{
+			System.arraycopy( srcRe, 0, xRe, 0, n );
+			System.arraycopy( srcIm, 0, xIm, 0, n );
+		}
+	}
+
+	/**
+	 * Forward transform of length n by Bluestein's algorithm.
+	 */
+	private void bluestein( final double[] re, final double[] im, final Workspace ws )
+	{
+		final int m = bluesteinPlan.n;
+		final double[] aRe = ws.bufRe;
+		final double[] aIm = ws.bufIm;
+		for ( int k = 0; k < n; ++k )
+		{
+			aRe[ k ] = re[ k ] * chirpRe[ k ] - im[ k ] * chirpIm[ k ];
+			aIm[ k ] = re[ k ] * chirpIm[ k ] + im[ k ] * chirpRe[ k ];
+		}
+		for ( int k = n; k < m; ++k )
+			aRe[ k ] = aIm[ k ] = 0;
+		bluesteinPlan.stockham( aRe, aIm, ws.tmpRe, ws.tmpIm, ws.radixRe, ws.radixIm );
+
+		// multiply by filter and conjugate for the inverse transform
+		for ( int k = 0; k < m; ++k )
+		{
+			final double r = aRe[ k ] * filterRe[ k ] - aIm[ k ] * filterIm[ k ];
+			final double i = aRe[ k ] * filterIm[ k ] + aIm[ k ] * filterRe[ k ];
+			aRe[ k ] = r;
+			aIm[ k ] = -i;
+		}
+		bluesteinPlan.stockham( aRe, aIm, ws.tmpRe, ws.tmpIm, ws.radixRe, ws.radixIm );
+
+		final double s = 1.0 / m;
+		for ( int k = 0; k < n; ++k )
+		{
+			final double r = aRe[ k ] * s;
+			final double i = -aIm[ k ] * s;
+			re[ k ] = r * chirpRe[ k ] - i * chirpIm[ k ];
+			im[ k ] = r * chirpIm[ k ] + i * chirpRe[ k ];
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.fft;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.view.Views;
+
+/**
+ * Convolution and correlation of {@link RealType} images with arbitrary
+ * (non-separable) kernels by multiplication in Fourier space.
+ * 
+ * <p>
+ * The source region required for the target (the target interval expanded by
+ * the kernel size) is read from an extended source and zero-padded to a size
+ * suitable for the {@link FFT} (see {@link FFT#nextFastSize(long)}), large
+ * enough that the cyclic convolution does not wrap around into the target
+ * region. The kernel origin is at <code>min + dimension / 2</code> in every
+ * dimension. The source is read completely before the target is written, so
+ * the target may be the source itself.
+ * </p>
+ * 
+ * <p>
+ * Intermediate results are stored as {@link ComplexFloatType} images created
+ * by {@link FFT#createComplexImg(long[])}.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class FFTConvolution
+{
+	/**
+	 * Convolve a source extended by the given {@link OutOfBoundsFactory}.
+	 * 
+	 * @see #convolve(RandomAccessible, RandomAccessibleInterval,
+	 *      RandomAccessibleInterval, int)
+	 */
+	public static < T extends RealType< T >, K extends RealType< K >, S extends RealType< S > > void convolve( final RandomAccessibleInterval< T > source, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > factory, final RandomAccessibleInterval< K > kernel, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		convolve( Views.extend( source, factory ), kernel, target, numThreads );
+	}
+
+	/**
+	 * Set every target pixel <em>x</em> to <em>sum<sub>j</sub> kernel(j) *
+	 * source(x + c - j)</em>, where <em>j</em> runs over the kernel interval
+	 * and <em>c</em> is the kernel origin.
+	 * 
+	 * @param source
+	 *            must be defined on the target interval expanded by the kernel
+	 *            size (use an extended view if necessary).
+	 * @param kernel
+	 *            the kernel.
+	 * @param target
+	 *            the target.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, K extends RealType< K >, S extends RealType< S > > void convolve( final RandomAccessible< T > source, final RandomAccessibleInterval< K > kernel, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		compute( source, kernel, target, false, numThreads );
+	}
+
+	/**
+	 * Correlate a source extended by the given {@link OutOfBoundsFactory}.
+	 * 
+	 * @see #correlate(RandomAccessible, RandomAccessibleInterval,
+	 *      RandomAccessibleInterval, int)
+	 */
+	public static < T extends RealType< T >, K extends RealType< K >, S extends RealType< S > > void correlate( final RandomAccessibleInterval< T > source, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > factory, final RandomAccessibleInterval< K > kernel, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		correlate( Views.extend( source, factory ), kernel, target, numThreads );
+	}
+
+	/**
+	 * Set every target pixel <em>x</em> to <em>sum<sub>j</sub> kernel(j) *
+	 * source(x - c + j)</em>, where <em>j</em> runs over the kernel interval
+	 * and <em>c</em> is the kernel origin.
+	 * 
+	 * @param source
+	 *            must be defined on the target interval expanded by the kernel
+	 *            size (use an extended view if necessary).
+	 * @param kernel
+	 *            the kernel.
+	 * @param target
+	 *            the target.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, K extends RealType< K >, S extends RealType< S > > void correlate( final RandomAccessible< T > source, final RandomAccessibleInterval< K > kernel, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		compute( source, kernel, target, true, numThreads );
+	}
+
+	private static < T extends RealType< T >, K extends RealType< K >, S extends RealType< S > > void compute( final RandomAccessible< T > source, final RandomAccessibleInterval< K > kernel, final RandomAccessibleInterval< S > target, final boolean correlate, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( source.numDimensions() != n || kernel.numDimensions() != n )
+			throw new IllegalArgumentException( "Source, kernel and target must have the same dimensionality." );
+
+		final long[] paddedDims = new long[ n ];
+		final long[] srcMin = new long[ n ];
+		final long[] srcMax = new long[ n ];
+		final long[] validMax = new long[ n ];
+		final long[] kernelMax = new long[ n ];
+		final long[] outMin = new long[ n ];
+		final long[] outMax = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			final long k = kernel.dimension( d );
+			final long t = target.dimension( d );
+			final long origin = k / 2;
+			final long lowPad = correlate ? origin : k - 1 - origin;
+			paddedDims[ d ] = FFT.nextFastSize( t + k - 1 );
+			srcMin[ d ] = target.min( d ) - lowPad;
+			srcMax[ d ] = srcMin[ d ] + t + k - 2;
+			validMax[ d ] = t + k - 2;
+			kernelMax[ d ] = k - 1;
+			// for convolution, target pixel o ends up at o + k - 1
+			outMin[ d ] = correlate ? 0 : k - 1;
+			outMax[ d ] = outMin[ d ] + t - 1;
+		}
+
+		final Img< ComplexFloatType > image = FFT.createComplexImg( paddedDims );
+		FFT.realToComplex( Views.interval( source, srcMin, srcMax ), Views.interval( image, new long[ n ], validMax ), numThreads );
+		final Img< ComplexFloatType > kernelImage = FFT.createComplexImg( paddedDims );
+		FFT.realToComplex( kernel, Views.interval( kernelImage, new long[ n ], kernelMax ), numThreads );
+
+		FFT.forward( image, numThreads );
+		FFT.forward( kernelImage, numThreads );
+		multiply( image, kernelImage, correlate, numThreads );
+		FFT.inverse( image, numThreads );
+
+		FFT.complexToReal( Views.interval( image, outMin, outMax ), target, numThreads );
+	}
+
+	/**
+	 * Multiply <code>a</code> by <code>b</code> (or by the complex conjugate
+	 * of <code>b</code>) in place. Both images must have the same iteration
+	 * order.
+	 */
+	private static void multiply( final Img< ComplexFloatType > a, final Img< ComplexFloatType > b, final boolean conjugate, final int numThreads )
+	{
+		final long size = Intervals.numElements( a );
+		final int numTasks = ( int ) Math.min( size, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final Cursor< ComplexFloatType > ca = a.cursor();
+				final Cursor< ComplexFloatType > cb = b.cursor();
+				if ( start > 0 )
+				{
+					ca.jumpFwd( start );
+					cb.jumpFwd( start );
+				}
+				for ( long i = start; i < end; ++i )
+				{
+					final ComplexFloatType x = ca.next();
+					final ComplexFloatType y = cb.next();
+					final float xr = x.getRealFloat(), xi = x.getImaginaryFloat();
+					final float yr = y.getRealFloat();
+					final float yi = conjugate ? -y.getImaginaryFloat() : y.getImaginaryFloat();
+					x.setComplexNumber( xr * yr - xi * yi, xr * yi + xi * yr );
+				}
+			}
+		} );
+	}
+}
@@ -35,6 +35,7 @@
 package net.imglib2.histogram;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -47,6 +48,8 @@ import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.view.Views;
 
 /**
  * This class represents an n-dimensional set of counters. Histogram
@@ -57,12 +60,24 @@ import net.imglib2.type.numeric.integer.LongType;
 public class DiscreteFrequencyDistribution implements Img< LongType >
 {
 
+	/**
+	 * Maximum number of bins for which histograms accumulate counts in
+	 * primitive partial arrays before merging them with
+	 * {@link #addCounts(long[])}.
+	 */
+	static final long MAX_PARTIAL_SIZE = 1 << 16;
+
 	// -- instance variables --
 
 	private final Img< LongType > counts;
 
 	private final RandomAccess< LongType > accessor;
 
+	/**
+	 * The counts if they are stored sparsely, <code>null</code> otherwise.
+	 */
+	private final SparseLongImg sparse;
+
 	private long totalValues;
 
 	// -- public api --
@@ -71,6 +86,17 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	 * Construct an n-dimensional counter with the given number of bins
 	 */
 	public DiscreteFrequencyDistribution( final long[] binCounts )
+	{
+		this( binCounts, false );
+	}
+
+	/**
+	 * Construct an n-dimensional counter with the given number of bins. If
+	 * <code>sparse</code> is true, only non-zero counts are stored, in a hash
+	 * map keyed by the flat bin index. This is useful for high-dimensional
+	 * joint histograms where most bins are empty.
+	 */
+	public DiscreteFrequencyDistribution( final long[] binCounts, final boolean sparse )
 	{
 		// check inputs for issues
 
@@ -81,7 +107,16 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 
 		// then build object
 
-		counts = new ArrayImgFactory< LongType >().create( binCounts, new LongType() );
+		if ( sparse )
+		{
+			this.sparse = new SparseLongImg( binCounts );
+			counts = this.sparse;
+		}
+		else
+		{
+			this.sparse = null;
+			counts = new ArrayImgFactory< LongType >().create( binCounts, new LongType() );
+		}
 
 		accessor = counts.randomAccess();
 
@@ -95,6 +130,7 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	public DiscreteFrequencyDistribution( final Img< LongType > img )
 	{
 		counts = img;
+		sparse = img instanceof SparseLongImg ? ( SparseLongImg ) img : null;
 		accessor = counts.randomAccess();
 		resetCounters();
 	}
@@ -104,6 +140,12 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	 */
 	public void resetCounters()
 	{
+		if ( sparse != null )
+		{
+			sparse.map().clear();
+			totalValues = 0;
+			return;
+		}
 		final Cursor< LongType > cursor = counts.cursor();
 		while ( cursor.hasNext() )
 		{
@@ -122,6 +164,8 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 			if ( binPos[ i ] < 0 || binPos[ i ] >= dimension( i ) )
 				return 0;
 		}
+		if ( sparse != null )
+			return sparse.map().get( sparse.index( binPos ) );
 		accessor.setPosition( binPos );
 		return accessor.get().get();
 	}
@@ -132,6 +176,13 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	public void setFrequency( final long[] binPos, final long value )
 	{
 		if ( value < 0 ) { throw new IllegalArgumentException( "frequency count must be >= 0" ); }
+		if ( sparse != null )
+		{
+			final long index = sparse.index( binPos );
+			totalValues += ( value - sparse.map().get( index ) );
+			sparse.map().put( index, value );
+			return;
+		}
 		accessor.setPosition( binPos );
 		final long currentValue = accessor.get().get();
 		totalValues += ( value - currentValue );
@@ -153,6 +204,12 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	 */
 	public void increment( final long[] binPos )
 	{
+		if ( sparse != null )
+		{
+			sparse.map().add( sparse.index( binPos ), 1 );
+			totalValues++;
+			return;
+		}
 		accessor.setPosition( binPos );
 		accessor.get().inc();
 		totalValues++;
@@ -163,11 +220,130 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	 */
 	public void decrement( final long[] binPos )
 	{
+		if ( sparse != null )
+		{
+			sparse.map().add( sparse.index( binPos ), -1 );
+			totalValues--;
+			return;
+		}
 		accessor.setPosition( binPos );
 		accessor.get().dec();
 		totalValues--;
 	}
 
+	/**
+	 * Adds partial counts to all bins. The counts are given in flat iteration
+	 * order, i.e., bin <em>(x, y, ...)</em> is at index <em>x + y *
+	 * dimension(0) + ...</em>. This is used to merge primitive partial
+	 * distributions that were accumulated without going through
+	 * {@link #increment(long[])}.
+	 */
+	void addCounts( final long[] flatCounts )
+	{
+		if ( sparse != null )
+		{
+			for ( int i = 0; i < flatCounts.length; ++i )
+			{
+				if ( flatCounts[ i ] != 0 )
+				{
+					sparse.map().add( i, flatCounts[ i ] );
+					totalValues += flatCounts[ i ];
+				}
+			}
+			return;
+		}
+		final Cursor< LongType > cursor = Views.flatIterable( counts ).cursor();
+		int i = 0;
+		while ( cursor.hasNext() )
+		{
+			final LongType t = cursor.next();
+			final long c = flatCounts[ i++ ];
+			t.set( t.get() + c );
+			totalValues += c;
+		}
+	}
+
+	/**
+	 * Adds partial counts, given as a map from flat bin index to count, to all
+	 * bins.
+	 */
+	void addCounts( final LongLongHashMap partialCounts )
+	{
+		final long[] binPos = new long[ numDimensions() ];
+		final long[] dims = new long[ numDimensions() ];
+		dimensions( dims );
+		for ( int slot = 0; slot < partialCounts.capacity(); ++slot )
+		{
+			final long index = partialCounts.keyAt( slot );
+			if ( index == LongLongHashMap.EMPTY )
+				continue;
+			final long c = partialCounts.valueAt( slot );
+			if ( sparse != null )
+				sparse.map().add( index, c );
+			else
+			{
+				IntervalIndexer.indexToPosition( index, dims, binPos );
+				accessor.setPosition( binPos );
+				final LongType t = accessor.get();
+				t.set( t.get() + c );
+			}
+			totalValues += c;
+		}
+	}
+
+	/**
+	 * Selects bins, see {@link DiscreteFrequencyDistribution#frequencySum}.
+	 */
+	interface BinFilter
+	{
+		boolean accept( long[] binPos );
+	}
+
+	/**
+	 * Returns the sum of the frequency counts of all bins accepted by the
+	 * given filter. Only non-empty bins are passed to the filter.
+	 */
+	long frequencySum( final BinFilter filter )
+	{
+		long sum = 0;
+		final long[] binPos = new long[ numDimensions() ];
+		if ( sparse != null )
+		{
+			final LongLongHashMap map = sparse.map();
+			for ( int slot = 0; slot < map.capacity(); ++slot )
+			{
+				final long index = map.keyAt( slot );
+				if ( index == LongLongHashMap.EMPTY )
+					continue;
+				sparse.position( index, binPos );
+				if ( filter.accept( binPos ) )
+					sum += map.valueAt( slot );
+			}
+		}
+		else
+		{
+			final Cursor< LongType > cursor = counts.localizingCursor();
+			while ( cursor.hasNext() )
+			{
+				final long c = cursor.next().get();
+				if ( c == 0 )
+					continue;
+				cursor.localize( binPos );
+				if ( filter.accept( binPos ) )
+					sum += c;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns true if only non-zero counts are stored.
+	 */
+	public boolean isSparse()
+	{
+		return sparse != null;
+	}
+
 	/**
 	 * Returns the total number of values counted by this distribution.
 	 */
@@ -190,6 +366,8 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 	 */
 	public List< long[] > modePositions()
 	{
+		if ( sparse != null && sparse.map().size() > 0 )
+			return sparseModePositions();
 		long commonValue = 0;
 		final List< long[] > modePositions = new ArrayList< long[] >();
 		final Cursor< LongType > cursor = localizingCursor();
@@ -214,6 +392,44 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 		return modePositions;
 	}
 
+	/**
+	 * Returns the positions of the highest non-zero frequency bins, in flat
+	 * iteration order.
+	 */
+	private List< long[] > sparseModePositions()
+	{
+		final LongLongHashMap map = sparse.map();
+		long commonValue = 0;
+		long[] indices = new long[ 1 ];
+		int numModes = 0;
+		for ( int slot = 0; slot < map.capacity(); ++slot )
+		{
+			if ( map.keyAt( slot ) == LongLongHashMap.EMPTY )
+				continue;
+			final long val = map.valueAt( slot );
+			if ( val > commonValue )
+			{
+				commonValue = val;
+				numModes = 0;
+			}
+			if ( val == commonValue )
+			{
+				if ( numModes == indices.length )
+					indices = Arrays.copyOf( indices, 2 * numModes );
+				indices[ numModes++ ] = map.keyAt( slot );
+			}
+		}
+		Arrays.sort( indices, 0, numModes );
+		final List< long[] > modePositions = new ArrayList< long[] >();
+		for ( int i = 0; i < numModes; ++i )
+		{
+			final long[] pos = new long[ numDimensions() ];
+			sparse.position( indices[ i ], pos );
+			modePositions.add( pos );
+		}
+		return modePositions;
+	}
+
 	// -- Img methods --
 
 	@Override
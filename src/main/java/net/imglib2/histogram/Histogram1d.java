@@ -38,12 +38,14 @@ import java.util.Iterator;
 
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RealPositionable;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.util.ParallelHelper;
 
 /**
  * A Histogram1d is a histogram that tracks up to four kinds of values: 1)
@@ -425,6 +427,24 @@ public class Histogram1d< T > implements Img< LongType >
 		init( data );
 	}
 
+	/**
+	 * Counts the data contained in the given data source using the underlying
+	 * bin distribution. The data is split into chunks that are counted in
+	 * parallel into primitive partial histograms, which are merged at the end.
+	 * 
+	 * @param data
+	 *            The total data to count
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public void countData( final IterableInterval< T > data, final int numThreads )
+	{
+		reset();
+		if ( data.size() > 0 )
+			firstValue = data.firstElement();
+		add( data, numThreads );
+	}
+
 	/**
 	 * Counts additional data contained in a given iterable collection. One can
 	 * use this to update an existing histogram with a subset of values.
@@ -437,6 +457,20 @@ public class Histogram1d< T > implements Img< LongType >
 		add( data );
 	}
 
+	/**
+	 * Counts additional data contained in a given interval, in parallel. One
+	 * can use this to update an existing histogram with a subset of values.
+	 * 
+	 * @param data
+	 *            The new data to count
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public void addData( final IterableInterval< T > data, final int numThreads )
+	{
+		add( data, numThreads );
+	}
+
 	/**
 	 * Uncounts some original data contained in a given iterable collection. One
 	 * can use this to update an existing histogram with a subset of values.
@@ -743,18 +777,95 @@ public class Histogram1d< T > implements Img< LongType >
 		}
 
 		// record the rest of the elements
+		add( iter );
+	}
+
+	private void add( final Iterable< T > data )
+	{
+		add( data.iterator() );
+	}
+
+	/**
+	 * Count the remaining values of an iterator. The first values are
+	 * incremented directly. Only if there are at least as many values as
+	 * bins, the rest are counted into a dense primitive array which is merged
+	 * into the distribution at the end.
+	 */
+	private void add( final Iterator< T > iter )
+	{
+		final long binCount = mapper.getBinCount();
+		final boolean dense = binCount <= DiscreteFrequencyDistribution.MAX_PARTIAL_SIZE;
+		for ( long i = 0; iter.hasNext() && ( !dense || i < binCount ); ++i )
+			increment( iter.next() );
+
+		if ( !iter.hasNext() )
+			return;
+		final long[] counts = new long[ ( int ) binCount ];
 		while ( iter.hasNext() )
 		{
-			increment ( iter.next() );
+			final long bin = mapper.map( iter.next() );
+			if ( bin == Long.MIN_VALUE || bin == Long.MAX_VALUE )
+				ignoredCount++;
+			else
+				counts[ ( int ) bin ]++;
 		}
+		distrib.addCounts( counts );
 	}
 
-	private void add( final Iterable< T > data )
+	/**
+	 * Count the values of an interval in parallel chunks, each into its own
+	 * primitive partial histogram. The partial histograms are summed and
+	 * merged into the distribution at the end. Each chunk has at least as
+	 * many values as there are bins, otherwise the values are counted
+	 * sequentially.
+	 */
+	private void add( final IterableInterval< T > data, final int numThreads )
 	{
-		for ( final T value : data )
+		final long binCount = mapper.getBinCount();
+		final long size = data.size();
+		final int numTasks = ( int ) Math.min( numThreads, size / Math.max( 1, binCount ) );
+		if ( binCount > DiscreteFrequencyDistribution.MAX_PARTIAL_SIZE || numTasks <= 1 )
+		{
+			add( data );
+			return;
+		}
+
+		final long[][] partialCounts = new long[ numTasks ][];
+		final long[] partialIgnored = new long[ numTasks ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final long[] counts = new long[ ( int ) binCount ];
+				long ignored = 0;
+				final Cursor< T > cursor = data.cursor();
+				cursor.jumpFwd( start );
+				for ( long i = start; i < end; ++i )
+				{
+					final long bin = mapper.map( cursor.next() );
+					if ( bin == Long.MIN_VALUE || bin == Long.MAX_VALUE )
+						++ignored;
+					else
+						++counts[ ( int ) bin ];
+				}
+				partialCounts[ taskIndex ] = counts;
+				partialIgnored[ taskIndex ] = ignored;
+			}
+		} );
+
+		final long[] counts = partialCounts[ 0 ];
+		for ( int t = 1; t < numTasks; ++t )
 		{
-			increment( value );
+			final long[] partial = partialCounts[ t ];
+			for ( int i = 0; i < counts.length; ++i )
+				counts[ i ] += partial[ i ];
 		}
+		for ( int t = 0; t < numTasks; ++t )
+			ignoredCount += partialIgnored[ t ];
+		distrib.addCounts( counts );
 	}
 
 	private void subtract( final Iterable< T > data )
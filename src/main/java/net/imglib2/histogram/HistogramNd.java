@@ -40,12 +40,16 @@ import java.util.List;
 
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RealPositionable;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.util.ParallelHelper;
 
 // TODO - calculate lazily but should be able to count upper/lower/middle in
 // one pass rather than the multiple passes that are now in place.
@@ -90,6 +94,23 @@ public class HistogramNd< T > implements Img< LongType >
 	 *            The algorithms used to map values to bins
 	 */
 	public HistogramNd( final List< BinMapper1d< T >> mappers )
+	{
+		this( mappers, false );
+	}
+
+	/**
+	 * Construct a histogram from a list of bin mapping algorithms. Use
+	 * countData() to populate it. If <code>sparse</code> is true, only
+	 * non-empty bins are stored, in a hash map keyed by the linearized bin
+	 * index. Use this for high-dimensional joint histograms where most bins
+	 * are empty.
+	 * 
+	 * @param mappers
+	 *            The algorithms used to map values to bins
+	 * @param sparse
+	 *            Whether to store only non-empty bins
+	 */
+	public HistogramNd( final List< BinMapper1d< T >> mappers, final boolean sparse )
 	{
 		this.mappers = mappers;
 		final long[] dims = new long[ mappers.size() ];
@@ -97,7 +118,7 @@ public class HistogramNd< T > implements Img< LongType >
 		{
 			dims[ i ] = mappers.get( i ).getBinCount();
 		}
-		distrib = new DiscreteFrequencyDistribution( dims );
+		distrib = new DiscreteFrequencyDistribution( dims, sparse );
 		pos = new long[ mappers.size() ];
 		ignoredCount = 0;
 	}
@@ -112,7 +133,7 @@ public class HistogramNd< T > implements Img< LongType >
 	public HistogramNd( final HistogramNd< T > other )
 	{
 		final List< BinMapper1d< T >> mappersCopy = new ArrayList< BinMapper1d< T >>();
-		for ( final BinMapper1d< T > m : mappers )
+		for ( final BinMapper1d< T > m : other.mappers )
 		{
 			mappersCopy.add( m.copy() );
 		}
@@ -187,17 +208,14 @@ public class HistogramNd< T > implements Img< LongType >
 	{
 		if ( !hasTails( dim ) )
 			return 0;
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			if ( binPos[ dim ] == 0 )
-				sum += distrib.frequency( binPos );
-		}
-		return sum;
+			@Override
+			public boolean accept( final long[] binPos )
+			{
+				return binPos[ dim ] == 0;
+			}
+		} );
 	}
 
 	/**
@@ -207,23 +225,19 @@ public class HistogramNd< T > implements Img< LongType >
 	{
 		if ( !hasTails() )
 			return 0;
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			for ( int i = 0; i < mappers.size(); i++ )
+			@Override
+			public boolean accept( final long[] binPos )
 			{
-				if ( binPos[ i ] == 0 )
+				for ( int i = 0; i < binPos.length; i++ )
 				{
-					sum += distrib.frequency( binPos );
-					break;
+					if ( binPos[ i ] == 0 )
+						return true;
 				}
+				return false;
 			}
-		}
-		return sum;
+		} );
 	}
 
 	/**
@@ -235,17 +249,14 @@ public class HistogramNd< T > implements Img< LongType >
 		if ( !hasTails( dim ) )
 			return 0;
 		final long dimSize = mappers.get( dim ).getBinCount();
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			if ( binPos[ dim ] == dimSize - 1 )
-				sum += distrib.frequency( binPos );
-		}
-		return sum;
+			@Override
+			public boolean accept( final long[] binPos )
+			{
+				return binPos[ dim ] == dimSize - 1;
+			}
+		} );
 	}
 
 	/**
@@ -255,23 +266,19 @@ public class HistogramNd< T > implements Img< LongType >
 	{
 		if ( !hasTails() )
 			return 0;
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			for ( int i = 0; i < mappers.size(); i++ )
+			@Override
+			public boolean accept( final long[] binPos )
 			{
-				if ( binPos[ i ] == mappers.get( i ).getBinCount() - 1 )
+				for ( int i = 0; i < binPos.length; i++ )
 				{
-					sum += distrib.frequency( binPos );
-					break;
+					if ( binPos[ i ] == mappers.get( i ).getBinCount() - 1 )
+						return true;
 				}
+				return false;
 			}
-		}
-		return sum;
+		} );
 	}
 
 	/**
@@ -282,22 +289,15 @@ public class HistogramNd< T > implements Img< LongType >
 	{
 		final boolean hasTails = hasTails( dim );
 		final long dimSize = mappers.get( dim ).getBinCount();
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			boolean inTail = false;
-			if ( hasTails && ( binPos[ dim ] == 0 ) || ( binPos[ dim ] == dimSize - 1 ) )
+			@Override
+			public boolean accept( final long[] binPos )
 			{
-				inTail = true;
+				final boolean inTail = hasTails && ( binPos[ dim ] == 0 ) || ( binPos[ dim ] == dimSize - 1 );
+				return !inTail;
 			}
-			if ( !inTail )
-				sum += distrib.frequency( binPos );
-		}
-		return sum;
+		} );
 	}
 
 	/**
@@ -311,26 +311,19 @@ public class HistogramNd< T > implements Img< LongType >
 		// But this double counts some tail bins.
 		if ( !hasTails() )
 			return distributionCount();
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			boolean inTail = false;
-			for ( int i = 0; i < binPos.length; i++ )
+			@Override
+			public boolean accept( final long[] binPos )
 			{
-				if ( ( binPos[ i ] == 0 ) || ( binPos[ i ] == mappers.get( i ).getBinCount() - 1 ) )
+				for ( int i = 0; i < binPos.length; i++ )
 				{
-					inTail = true;
-					break;
+					if ( ( binPos[ i ] == 0 ) || ( binPos[ i ] == mappers.get( i ).getBinCount() - 1 ) )
+						return false;
 				}
+				return true;
 			}
-			if ( !inTail )
-				sum += distrib.frequency( binPos );
-		}
-		return sum;
+		} );
 	}
 
 	/**
@@ -340,18 +333,14 @@ public class HistogramNd< T > implements Img< LongType >
 	 */
 	public long distributionCount( final int dim, final long dimVal )
 	{
-		long sum = 0;
-		final Cursor< ? > cursor = distrib.localizingCursor();
-		final long[] binPos = new long[ distrib.numDimensions() ];
-		while ( cursor.hasNext() )
+		return distrib.frequencySum( new DiscreteFrequencyDistribution.BinFilter()
 		{
-			cursor.next();
-			cursor.localize( binPos );
-			if ( binPos[ dim ] != dimVal )
-				continue;
-			sum += distrib.frequency( binPos );
-		}
-		return sum;
+			@Override
+			public boolean accept( final long[] binPos )
+			{
+				return binPos[ dim ] == dimVal;
+			}
+		} );
 	}
 
 	/**
@@ -756,6 +745,24 @@ public class HistogramNd< T > implements Img< LongType >
 		init( data );
 	}
 
+	/**
+	 * Counts the data contained in the given data sources using the underlying
+	 * bin distribution. Each source provides the values of one dimension of
+	 * the histogram; all sources must have the same size and iteration order.
+	 * The data is split into chunks that are counted in parallel into
+	 * primitive partial histograms, which are merged at the end.
+	 * 
+	 * @param data
+	 *            The total data to count
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public void countData( final List< IterableInterval< T >> data, final int numThreads )
+	{
+		reset();
+		add( data, numThreads );
+	}
+
 	/**
 	 * Counts additional data contained in a given iterable collection. One can
 	 * use this to update an existing histogram with a subset of values.
@@ -780,6 +787,21 @@ public class HistogramNd< T > implements Img< LongType >
 		add( data );
 	}
 
+	/**
+	 * Counts additional data contained in the given data sources, in
+	 * parallel. Each source provides the values of one dimension of the
+	 * histogram; all sources must have the same size and iteration order.
+	 * 
+	 * @param data
+	 *            The new data to count
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public void addData( final List< IterableInterval< T >> data, final int numThreads )
+	{
+		add( data, numThreads );
+	}
+
 	/**
 	 * Uncounts some original data contained in a given iterable collection. One
 	 * can use this to update an existing histogram with a subset of values.
@@ -1050,6 +1072,102 @@ public class HistogramNd< T > implements Img< LongType >
 		modifyCounts( data, incrementer );
 	}
 
+	/**
+	 * Count the values of the given sources in parallel chunks, each into its
+	 * own primitive partial histogram indexed by the flat bin index (a dense
+	 * array, or a hash map if the distribution is sparse). The partial
+	 * histograms are merged into the distribution at the end.
+	 */
+	private void add( final List< IterableInterval< T >> data, final int numThreads )
+	{
+		final int n = mappers.size();
+		if ( data.size() != n )
+			throw new IllegalArgumentException( "Need one data source per histogram dimension." );
+		final long size = data.get( 0 ).size();
+		for ( int d = 1; d < n; ++d )
+			if ( data.get( d ).size() != size )
+				throw new IllegalArgumentException( "All data sources must have the same size." );
+
+		final BinIndexer< T > indexer = new BinIndexer< T >( mappers );
+		final long binCount = indexer.binCount;
+		final boolean sparse = distrib.isSparse();
+		// dense partial histograms are only used for chunks of at least
+		// binCount tuples
+		final int numTasks = ( int ) Math.min( Math.max( 1, numThreads ), sparse ? size : size / Math.max( 1, binCount ) );
+		if ( !sparse && ( binCount > DiscreteFrequencyDistribution.MAX_PARTIAL_SIZE || numTasks <= 1 ) )
+		{
+			add( new ArrayList< Iterable< T >>( data ) );
+			return;
+		}
+		if ( size == 0 )
+			return;
+
+		final int numBins = sparse ? 0 : ( int ) binCount;
+		final long[][] partialCounts = new long[ numTasks ][];
+		final LongLongHashMap[] partialMaps = new LongLongHashMap[ numTasks ];
+		final long[] partialIgnored = new long[ numTasks ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final long[] counts = sparse ? null : new long[ numBins ];
+				final LongLongHashMap map = sparse ? new LongLongHashMap() : null;
+				long ignored = 0;
+				@SuppressWarnings( "unchecked" )
+				final Cursor< T >[] cursors = ( Cursor< T >[] ) new Cursor< ? >[ n ];
+				for ( int d = 0; d < n; ++d )
+				{
+					cursors[ d ] = data.get( d ).cursor();
+					cursors[ d ].jumpFwd( start );
+				}
+				for ( long i = start; i < end; ++i )
+				{
+					boolean outside = false;
+					long index = 0;
+					for ( int d = 0; d < n; ++d )
+					{
+						final long bin = indexer.map( d, cursors[ d ].next() );
+						if ( bin == Long.MIN_VALUE || bin == Long.MAX_VALUE )
+							outside = true;
+						else
+							index += bin * indexer.strides[ d ];
+					}
+					if ( outside )
+						++ignored;
+					else if ( sparse )
+						map.add( index, 1 );
+					else
+						++counts[ ( int ) index ];
+				}
+				partialCounts[ taskIndex ] = counts;
+				partialMaps[ taskIndex ] = map;
+				partialIgnored[ taskIndex ] = ignored;
+			}
+		} );
+
+		for ( int t = 0; t < numTasks; ++t )
+			ignoredCount += partialIgnored[ t ];
+		if ( sparse )
+		{
+			for ( int t = 0; t < numTasks; ++t )
+				distrib.addCounts( partialMaps[ t ] );
+		}
+		else
+		{
+			final long[] counts = partialCounts[ 0 ];
+			for ( int t = 1; t < numTasks; ++t )
+			{
+				final long[] partial = partialCounts[ t ];
+				for ( int i = 0; i < numBins; ++i )
+					counts[ i ] += partial[ i ];
+			}
+			distrib.addCounts( counts );
+		}
+	}
+
 	private void subtract( final Iterable< List< T >> data )
 	{
 		modifyCounts( data, decrementer );
@@ -1071,31 +1189,56 @@ public class HistogramNd< T > implements Img< LongType >
 
 	private void modifyCounts( final List< Iterable< T >> data, final Counter counter )
 	{
-		final List< T > vals = new ArrayList< T >( mappers.size() );
-		final List< Iterator< T >> iters = new ArrayList< Iterator< T >>();
-		for ( int i = 0; i < data.size(); i++ )
+		final int n = data.size();
+		@SuppressWarnings( "unchecked" )
+		final Iterator< T >[] iters = ( Iterator< T >[] ) new Iterator< ? >[ n ];
+		for ( int i = 0; i < n; i++ )
 		{
-			iters.add( data.get( i ).iterator() );
-			vals.add( null );
+			iters[ i ] = data.get( i ).iterator();
 		}
+		final BinIndexer< T > indexer = new BinIndexer< T >( mappers );
+
+		// after the first binCount tuples, count into a dense primitive array
+		// and merge it at the end, if possible
+		final boolean dense = counter == incrementer && n == mappers.size() && !distrib.isSparse() && indexer.binCount <= DiscreteFrequencyDistribution.MAX_PARTIAL_SIZE;
+		long[] counts = null;
+		long numTuples = 0;
 		boolean hasNext = true;
 		do
 		{
-			for ( int i = 0; i < iters.size(); i++ )
+			for ( int i = 0; i < n; i++ )
 			{
-				if ( !iters.get( i ).hasNext() )
+				if ( !iters[ i ].hasNext() )
 					hasNext = false;
 			}
 			if ( hasNext )
 			{
-				for ( int i = 0; i < iters.size(); i++ )
+				boolean ignored = false;
+				long index = 0;
+				for ( int i = 0; i < n; i++ )
+				{
+					final long bin = indexer.map( i, iters[ i ].next() );
+					pos[ i ] = bin;
+					if ( bin == Long.MIN_VALUE || bin == Long.MAX_VALUE )
+						ignored = true;
+					else
+						index += bin * indexer.strides[ i ];
+				}
+				if ( counts == null )
 				{
-					vals.set( i, iters.get( i ).next() );
+					counter.count( pos, ignored );
+					if ( dense && ++numTuples == indexer.binCount )
+						counts = new long[ ( int ) indexer.binCount ];
 				}
-				count( vals, counter );
+				else if ( ignored )
+					ignoredCount++;
+				else
+					counts[ ( int ) index ]++;
 			}
 		}
 		while ( hasNext );
+		if ( counts != null )
+			distrib.addCounts( counts );
 	}
 
 	private void count( final List< T > values, final Counter counter )
@@ -1113,6 +1256,59 @@ public class HistogramNd< T > implements Img< LongType >
 		counter.count( pos, ignored );
 	}
 
+	/**
+	 * Maps values to bins and bin positions to flat bin indices. Values of
+	 * dimensions with a {@link Real1dBinMapper} or {@link Integer1dBinMapper}
+	 * are mapped from their primitive <code>double</code> or
+	 * <code>long</code> value.
+	 */
+	private static final class BinIndexer< T >
+	{
+		final BinMapper1d< T >[] mappers;
+
+		final Real1dBinMapper< ? >[] realMappers;
+
+		final Integer1dBinMapper< ? >[] integerMappers;
+
+		final long[] strides;
+
+		final long binCount;
+
+		@SuppressWarnings( "unchecked" )
+		BinIndexer( final List< BinMapper1d< T >> mappers )
+		{
+			final int n = mappers.size();
+			this.mappers = ( BinMapper1d< T >[] ) new BinMapper1d< ? >[ n ];
+			realMappers = new Real1dBinMapper< ? >[ n ];
+			integerMappers = new Integer1dBinMapper< ? >[ n ];
+			strides = new long[ n ];
+			long count = 1;
+			for ( int d = 0; d < n; ++d )
+			{
+				final BinMapper1d< T > m = mappers.get( d );
+				this.mappers[ d ] = m;
+				if ( m instanceof Real1dBinMapper )
+					realMappers[ d ] = ( Real1dBinMapper< ? > ) m;
+				else if ( m instanceof Integer1dBinMapper )
+					integerMappers[ d ] = ( Integer1dBinMapper< ? > ) m;
+				strides[ d ] = count;
+				count *= m.getBinCount();
+			}
+			binCount = count;
+		}
+
+		long map( final int d, final T value )
+		{
+			final Real1dBinMapper< ? > real = realMappers[ d ];
+			if ( real != null )
+				return real.map( ( ( RealType< ? > ) value ).getRealDouble() );
+			final Integer1dBinMapper< ? > integer = integerMappers[ d ];
+			if ( integer != null )
+				return integer.map( ( ( IntegerType< ? > ) value ).getIntegerLong() );
+			return mappers[ d ].map( value );
+		}
+	}
+
 	private interface Counter
 	{
 
@@ -100,7 +100,15 @@ public class Integer1dBinMapper< T extends IntegerType< T >> implements
 	@Override
 	public long map( final T value )
 	{
-		final long val = value.getIntegerLong();
+		return map( value.getIntegerLong() );
+	}
+
+	/**
+	 * Returns the bin position of a primitive value, see
+	 * {@link #map(IntegerType)}.
+	 */
+	public long map( final long val )
+	{
 		long pos;
 		if ( val >= minVal && val <= maxVal )
 		{
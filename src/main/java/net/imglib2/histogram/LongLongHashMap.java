@@ -0,0 +1,285 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.Arrays;
+
+/**
+ * A primitive open-addressing hash map from non-negative <code>long</code>
+ * keys to <code>long</code> values, using linear probing. Absent keys map to
+ * 0, and entries whose value becomes 0 are removed, so the map only stores
+ * non-zero counts.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+final class LongLongHashMap
+{
+	/**
+	 * Marks unused slots. Valid keys are non-negative.
+	 */
+	static final long EMPTY = -1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+
+	private long[] values;
+
+	private int mask;
+
+	private int size;
+
+	public LongLongHashMap()
+	{
+		this( MIN_CAPACITY );
+	}
+
+	public LongLongHashMap( final int expectedSize )
+	{
+		allocate( capacityFor( expectedSize ) );
+	}
+
+	private LongLongHashMap( final LongLongHashMap other )
+	{
+		keys = other.keys.clone();
+		values = other.values.clone();
+		mask = other.mask;
+		size = other.size;
+	}
+
+	public LongLongHashMap copy()
+	{
+		return new LongLongHashMap( this );
+	}
+
+	/**
+	 * Returns the number of non-zero entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the value associated with <code>key</code>, or 0 if there is
+	 * none.
+	 */
+	public long get( final long key )
+	{
+		int slot = slot( key );
+		while ( true )
+		{
+			final long k = keys[ slot ];
+			if ( k == key )
+				return values[ slot ];
+			if ( k == EMPTY )
+				return 0;
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+
+	/**
+	 * Associates <code>value</code> with <code>key</code>. Setting a value of
+	 * 0 removes the entry.
+	 */
+	public void put( final long key, final long value )
+	{
+		final int slot = find( key );
+		if ( keys[ slot ] == key )
+		{
+			if ( value == 0 )
+				removeAt( slot );
+			else
+				values[ slot ] = value;
+		}
+		else if ( value != 0 )
+			insertAt( slot, key, value );
+	}
+
+	/**
+	 * Adds <code>delta</code> to the value associated with <code>key</code>.
+	 * 
+	 * @return the new value.
+	 */
+	public long add( final long key, final long delta )
+	{
+		final int slot = find( key );
+		if ( keys[ slot ] == key )
+		{
+			final long value = values[ slot ] + delta;
+			if ( value == 0 )
+				removeAt( slot );
+			else
+				values[ slot ] = value;
+			return value;
+		}
+		if ( delta != 0 )
+			insertAt( slot, key, delta );
+		return delta;
+	}
+
+	/**
+	 * Adds all entries of <code>other</code> to this map.
+	 */
+	public void addAll( final LongLongHashMap other )
+	{
+		for ( int slot = 0; slot < other.keys.length; ++slot )
+			if ( other.keys[ slot ] != EMPTY )
+				add( other.keys[ slot ], other.values[ slot ] );
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear()
+	{
+		Arrays.fill( keys, EMPTY );
+		Arrays.fill( values, 0 );
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of slots. Entries can be enumerated by iterating
+	 * over all slots and skipping those where {@link #keyAt(int)} is
+	 * {@link #EMPTY}.
+	 */
+	public int capacity()
+	{
+		return keys.length;
+	}
+
+	public long keyAt( final int slot )
+	{
+		return keys[ slot ];
+	}
+
+	public long valueAt( final int slot )
+	{
+		return values[ slot ];
+	}
+
+	// -- helpers --
+
+	private static int capacityFor( final int expectedSize )
+	{
+		int capacity = MIN_CAPACITY;
+		while ( capacity < 2l * expectedSize )
+			capacity <<= 1;
+		return capacity;
+	}
+
+	private void allocate( final int capacity )
+	{
+		keys = new long[ capacity ];
+		Arrays.fill( keys, EMPTY );
+		values = new long[ capacity ];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private int slot( final long key )
+	{
+		final long h = key * 0x9E3779B97F4A7C15l;
+		return ( int ) ( h ^ ( h >>> 32 ) ) & mask;
+	}
+
+	/**
+	 * Returns the slot containing <code>key</code>, or the empty slot where it
+	 * would be inserted.
+	 */
+	private int find( final long key )
+	{
+		if ( key < 0 )
+			throw new IllegalArgumentException( "keys must be non-negative" );
+		int slot = slot( key );
+		while ( true )
+		{
+			final long k = keys[ slot ];
+			if ( k == key || k == EMPTY )
+				return slot;
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+
+	private void insertAt( final int slot, final long key, final long value )
+	{
+		keys[ slot ] = key;
+		values[ slot ] = value;
+		if ( ++size * 2 > keys.length )
+			rehash( keys.length * 2 );
+	}
+
+	/**
+	 * Remove the entry at <code>slot</code> and shift following entries of
+	 * the probe sequence back, so that no tombstones are needed.
+	 */
+	private void removeAt( final int slot )
+	{
+		int gap = slot;
+		int i = ( slot + 1 ) & mask;
+		while ( keys[ i ] != EMPTY )
+		{
+			final int home = slot( keys[ i ] );
+			if ( ( ( i - home ) & mask ) >= ( ( i - gap ) & mask ) )
+			{
+				keys[ gap ] = keys[ i ];
+				values[ gap ] = values[ i ];
+				gap = i;
+			}
+			i = ( i + 1 ) & mask;
+		}
+		keys[ gap ] = EMPTY;
+		values[ gap ] = 0;
+		--size;
+	}
+
+	private void rehash( final int capacity )
+	{
+		final long[] oldKeys = keys;
+		final long[] oldValues = values;
+		final int oldSize = size;
+		allocate( capacity );
+		for ( int i = 0; i < oldKeys.length; ++i )
+		{
+			final long k = oldKeys[ i ];
+			if ( k != EMPTY )
+			{
+				final int slot = find( k );
+				keys[ slot ] = k;
+				values[ slot ] = oldValues[ i ];
+			}
+		}
+		size = oldSize;
+	}
+}
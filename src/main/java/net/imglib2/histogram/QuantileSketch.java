@@ -0,0 +1,476 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.ParallelHelper;
+
+/**
+ * A streaming, mergeable sketch of a distribution of real values, based on the
+ * KLL quantile sketch (Karnin, Lang, Liberty: "Optimal Quantile Approximation
+ * in Streams", 2016). The sketch uses memory proportional to <code>k</code>
+ * (plus a logarithmic term), independent of the number of values added, and
+ * answers rank and quantile queries with a rank error of roughly
+ * <code>1.7 / k</code>.
+ * <p>
+ * Values are added to a buffer of weight 1. When a level of the sketch is
+ * full, it is sorted and every other value (starting at a random offset) is
+ * promoted to the next level with twice the weight. Sketches of disjoint
+ * parts of the data, for example of the cells of a {@link net.imglib2.img.cell.CellImg},
+ * can be computed independently and combined with {@link #merge(QuantileSketch)}.
+ * <p>
+ * This class is not thread-safe. Use one sketch per thread and merge them, as
+ * {@link #create(IterableInterval, int, int)} does.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class QuantileSketch
+{
+	/**
+	 * Default accuracy parameter.
+	 */
+	public static final int DEFAULT_K = 200;
+
+	private static final int MIN_LEVEL_CAPACITY = 8;
+
+	private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+	private final int k;
+
+	/**
+	 * Values per level. Values on level <em>h</em> have weight
+	 * <em>2<sup>h</sup></em>.
+	 */
+	private double[][] levels;
+
+	private int[] levelSizes;
+
+	/**
+	 * Capacity per level, recomputed when a level is added.
+	 */
+	private int[] levelCapacities;
+
+	private int numLevels;
+
+	private long count;
+
+	private double min;
+
+	private double max;
+
+	private long randomState;
+
+	/**
+	 * Sorted values and their cumulative weights, computed lazily for queries.
+	 */
+	private double[] sortedValues;
+
+	private long[] cumulativeWeights;
+
+	/**
+	 * Create an empty sketch with the given accuracy parameter.
+	 * 
+	 * @param k
+	 *            the capacity of the top level. Larger values give more
+	 *            accurate results and use more memory.
+	 */
+	public QuantileSketch( final int k )
+	{
+		if ( k < MIN_LEVEL_CAPACITY )
+			throw new IllegalArgumentException( "k must be at least " + MIN_LEVEL_CAPACITY );
+		this.k = k;
+		levels = new double[ 1 ][ k ];
+		levelSizes = new int[ 1 ];
+		levelCapacities = new int[] { k };
+		numLevels = 1;
+		count = 0;
+		min = Double.NaN;
+		max = Double.NaN;
+		randomState = 0x5DEECE66DL;
+	}
+
+	/**
+	 * Create an empty sketch with accuracy parameter {@link #DEFAULT_K}.
+	 */
+	public QuantileSketch()
+	{
+		this( DEFAULT_K );
+	}
+
+	/**
+	 * Create a sketch of all values of an {@link IterableInterval}. The values
+	 * are split into chunks that are sketched in parallel and merged.
+	 * 
+	 * @param data
+	 *            the values to sketch.
+	 * @param k
+	 *            accuracy parameter of the sketch.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T > > QuantileSketch create( final IterableInterval< T > data, final int k, final int numThreads )
+	{
+		final long size = data.size();
+		final int numTasks = ( int ) Math.max( 1, Math.min( size, Math.max( 1, numThreads ) ) );
+		final QuantileSketch[] sketches = new QuantileSketch[ numTasks ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final QuantileSketch sketch = new QuantileSketch( k );
+				final Cursor< T > cursor = data.cursor();
+				cursor.jumpFwd( start );
+				for ( long i = start; i < end; ++i )
+					sketch.add( cursor.next().getRealDouble() );
+				sketches[ taskIndex ] = sketch;
+			}
+		} );
+		for ( int t = 1; t < numTasks; ++t )
+			sketches[ 0 ].merge( sketches[ t ] );
+		return sketches[ 0 ];
+	}
+
+	/**
+	 * Add all values of an {@link Iterable} to this sketch.
+	 */
+	public < T extends RealType< T > > void addAll( final Iterable< T > data )
+	{
+		for ( final T t : data )
+			add( t.getRealDouble() );
+	}
+
+	/**
+	 * Add a value to this sketch. NaN values are ignored.
+	 */
+	public void add( final double value )
+	{
+		if ( Double.isNaN( value ) )
+			return;
+		if ( count == 0 )
+		{
+			min = value;
+			max = value;
+		}
+		else if ( value < min )
+			min = value;
+		else if ( value > max )
+			max = value;
+		++count;
+		append( 0, value );
+		if ( levelSizes[ 0 ] >= levelCapacities[ 0 ] )
+			compress();
+		sortedValues = null;
+	}
+
+	/**
+	 * Merge another sketch into this one. Afterwards, this sketch summarizes
+	 * the union of the values of both sketches. The other sketch is not
+	 * modified.
+	 */
+	public void merge( final QuantileSketch other )
+	{
+		if ( other.count == 0 )
+			return;
+		if ( count == 0 )
+		{
+			min = other.min;
+			max = other.max;
+		}
+		else
+		{
+			min = Math.min( min, other.min );
+			max = Math.max( max, other.max );
+		}
+		count += other.count;
+		for ( int h = 0; h < other.numLevels; ++h )
+			for ( int i = 0; i < other.levelSizes[ h ]; ++i )
+				append( h, other.levels[ h ][ i ] );
+		compress();
+		sortedValues = null;
+	}
+
+	/**
+	 * Returns the number of values added to this sketch.
+	 */
+	public long count()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the smallest value added to this sketch (NaN if empty).
+	 */
+	public double min()
+	{
+		return min;
+	}
+
+	/**
+	 * Returns the largest value added to this sketch (NaN if empty).
+	 */
+	public double max()
+	{
+		return max;
+	}
+
+	/**
+	 * Returns the number of values retained by this sketch.
+	 */
+	public int numRetained()
+	{
+		int n = 0;
+		for ( int h = 0; h < numLevels; ++h )
+			n += levelSizes[ h ];
+		return n;
+	}
+
+	/**
+	 * Returns the approximate fraction of values that are &le;
+	 * <code>value</code>.
+	 */
+	public double rank( final double value )
+	{
+		if ( count == 0 )
+			return Double.NaN;
+		sort();
+		int i = Arrays.binarySearch( sortedValues, value );
+		if ( i < 0 )
+			i = -i - 1;
+		else
+			while ( i < sortedValues.length && sortedValues[ i ] == value )
+				++i;
+		return i == 0 ? 0 : ( double ) cumulativeWeights[ i - 1 ] / count;
+	}
+
+	/**
+	 * Returns the approximate <code>q</code>-quantile, i.e., a value such that
+	 * a fraction <code>q</code> of the values are smaller or equal.
+	 * 
+	 * @param q
+	 *            the quantile in <code>[0, 1]</code>.
+	 */
+	public double quantile( final double q )
+	{
+		if ( q < 0 || q > 1 )
+			throw new IllegalArgumentException( "quantile must be in [0, 1]" );
+		if ( count == 0 )
+			return Double.NaN;
+		if ( q == 0 )
+			return min;
+		if ( q == 1 )
+			return max;
+		sort();
+		final double target = q * count;
+		int lo = 0;
+		int hi = cumulativeWeights.length - 1;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( cumulativeWeights[ mid ] < target )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return sortedValues[ lo ];
+	}
+
+	/**
+	 * Returns the approximate quantiles for each of the given fractions.
+	 */
+	public double[] quantiles( final double[] qs )
+	{
+		final double[] result = new double[ qs.length ];
+		for ( int i = 0; i < qs.length; ++i )
+			result[ i ] = quantile( qs[ i ] );
+		return result;
+	}
+
+	/**
+	 * Returns an approximate histogram of the values. Bin <em>i</em> counts
+	 * the values in <code>(splitPoints[i-1], splitPoints[i]]</code>, where the
+	 * first bin is open to the left and the last bin (index
+	 * <code>splitPoints.length</code>) is open to the right.
+	 * 
+	 * @param splitPoints
+	 *            strictly increasing bin boundaries.
+	 */
+	public long[] histogram( final double[] splitPoints )
+	{
+		final long[] bins = new long[ splitPoints.length + 1 ];
+		if ( count == 0 )
+			return bins;
+		sort();
+		int bin = 0;
+		long previous = 0;
+		for ( int i = 0; i < sortedValues.length; ++i )
+		{
+			while ( bin < splitPoints.length && sortedValues[ i ] > splitPoints[ bin ] )
+				++bin;
+			bins[ bin ] += cumulativeWeights[ i ] - previous;
+			previous = cumulativeWeights[ i ];
+		}
+		return bins;
+	}
+
+	// -- helpers --
+
+	private void append( final int level, final double value )
+	{
+		while ( level >= numLevels )
+			addLevel();
+		double[] items = levels[ level ];
+		final int size = levelSizes[ level ];
+		if ( size == items.length )
+		{
+			items = Arrays.copyOf( items, 2 * size );
+			levels[ level ] = items;
+		}
+		items[ size ] = value;
+		levelSizes[ level ] = size + 1;
+	}
+
+	private void addLevel()
+	{
+		if ( numLevels == levels.length )
+		{
+			levels = Arrays.copyOf( levels, 2 * numLevels );
+			levelSizes = Arrays.copyOf( levelSizes, 2 * numLevels );
+			levelCapacities = Arrays.copyOf( levelCapacities, 2 * numLevels );
+		}
+		levels[ numLevels ] = new double[ MIN_LEVEL_CAPACITY ];
+		levelSizes[ numLevels ] = 0;
+		++numLevels;
+		for ( int h = 0; h < numLevels; ++h )
+		{
+			final int depth = numLevels - 1 - h;
+			levelCapacities[ h ] = Math.max( MIN_LEVEL_CAPACITY, ( int ) Math.ceil( k * Math.pow( CAPACITY_DECAY, depth ) ) );
+		}
+	}
+
+	/**
+	 * Compact full levels, lowest first, until every level is within its
+	 * capacity.
+	 */
+	private void compress()
+	{
+		boolean compacted = true;
+		while ( compacted )
+		{
+			compacted = false;
+			for ( int h = 0; h < numLevels; ++h )
+			{
+				if ( levelSizes[ h ] >= levelCapacities[ h ] )
+				{
+					compact( h );
+					compacted = true;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sort level <code>h</code> and promote every other value to level
+	 * <code>h + 1</code>. If the level has an odd number of values, one value
+	 * stays behind.
+	 */
+	private void compact( final int h )
+	{
+		if ( h + 1 == numLevels )
+			addLevel();
+		final double[] items = levels[ h ];
+		final int size = levelSizes[ h ];
+		Arrays.sort( items, 0, size );
+		final int start = size & 1;
+		final int offset = nextBit();
+		for ( int i = start + offset; i < size; i += 2 )
+			append( h + 1, items[ i ] );
+		levelSizes[ h ] = start;
+	}
+
+	private int nextBit()
+	{
+		randomState ^= randomState << 13;
+		randomState ^= randomState >>> 7;
+		randomState ^= randomState << 17;
+		return ( int ) ( randomState >>> 63 );
+	}
+
+	private void sort()
+	{
+		if ( sortedValues != null )
+			return;
+		final int n = numRetained();
+		final double[] values = new double[ n ];
+		final long[] weights = new long[ n ];
+		int i = 0;
+		for ( int h = 0; h < numLevels; ++h )
+			for ( int j = 0; j < levelSizes[ h ]; ++j )
+			{
+				values[ i ] = levels[ h ][ j ];
+				weights[ i ] = 1l << h;
+				++i;
+			}
+
+		// sort values and weights together by value
+		final Integer[] indices = new Integer[ n ];
+		for ( int j = 0; j < n; ++j )
+			indices[ j ] = j;
+		Arrays.sort( indices, new Comparator< Integer >()
+		{
+			@Override
+			public int compare( final Integer a, final Integer b )
+			{
+				return Double.compare( values[ a ], values[ b ] );
+			}
+		} );
+		sortedValues = new double[ n ];
+		cumulativeWeights = new long[ n ];
+		long sum = 0;
+		for ( int j = 0; j < n; ++j )
+		{
+			sortedValues[ j ] = values[ indices[ j ] ];
+			sum += weights[ indices[ j ] ];
+			cumulativeWeights[ j ] = sum;
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.Arrays;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.ParallelHelper;
+
+/**
+ * Rank filters (median, minimum, maximum, percentile) over rectangular windows
+ * of integer images, using a sliding-window histogram (Huang et al., "A Fast
+ * Two-Dimensional Median Filtering Algorithm", 1979).
+ * <p>
+ * Each line along dimension 0 is processed by moving the window one pixel at
+ * a time: the values of the leaving slab of the window are removed from the
+ * histogram and the values of the entering slab are added. The requested rank
+ * is tracked incrementally from the previous pixel. For a window of radius
+ * <em>r</em> in <em>n</em> dimensions, this costs <em>O(r<sup>n-1</sup>)</em>
+ * histogram updates per pixel instead of sorting <em>(2r+1)<sup>n</sup></em>
+ * values. Lines are processed in parallel.
+ * <p>
+ * Values are mapped to bins with an {@link Integer1dBinMapper}. Values that do
+ * not map to a bin are ignored; pixels whose window contains no mappable
+ * values are set to 0.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class RankFilter
+{
+	/**
+	 * Maximum number of histogram bins.
+	 */
+	public static final long MAX_BIN_COUNT = 1 << 24;
+
+	/**
+	 * Median filter. The histogram covers the value range of the source type.
+	 * 
+	 * @param source
+	 *            the input, must be defined in the windows around all target
+	 *            pixels (use an extended view if necessary).
+	 * @param target
+	 *            the output.
+	 * @param radius
+	 *            the window radius in each dimension.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends IntegerType< T >, S extends RealType< S > > void median( final RandomAccessible< T > source, final RandomAccessibleInterval< S > target, final long[] radius, final int numThreads )
+	{
+		percentile( source, target, radius, 0.5, numThreads );
+	}
+
+	/**
+	 * Minimum filter, see {@link #median}.
+	 */
+	public static < T extends IntegerType< T >, S extends RealType< S > > void min( final RandomAccessible< T > source, final RandomAccessibleInterval< S > target, final long[] radius, final int numThreads )
+	{
+		percentile( source, target, radius, 0, numThreads );
+	}
+
+	/**
+	 * Maximum filter, see {@link #median}.
+	 */
+	public static < T extends IntegerType< T >, S extends RealType< S > > void max( final RandomAccessible< T > source, final RandomAccessibleInterval< S > target, final long[] radius, final int numThreads )
+	{
+		percentile( source, target, radius, 1, numThreads );
+	}
+
+	/**
+	 * Percentile filter, see {@link #median}.
+	 * 
+	 * @param percentile
+	 *            the rank to compute, in <code>[0, 1]</code>. 0 is the
+	 *            minimum, 1 the maximum.
+	 */
+	public static < T extends IntegerType< T >, S extends RealType< S > > void percentile( final RandomAccessible< T > source, final RandomAccessibleInterval< S > target, final long[] radius, final double percentile, final int numThreads )
+	{
+		final RandomAccess< T > access = source.randomAccess();
+		for ( int d = 0; d < target.numDimensions(); ++d )
+			access.setPosition( target.min( d ), d );
+		final T type = access.get();
+		final long minValue = ( long ) type.getMinValue();
+		final long maxValue = ( long ) type.getMaxValue();
+		if ( maxValue - minValue + 1 > MAX_BIN_COUNT || maxValue - minValue + 1 <= 0 )
+			throw new IllegalArgumentException( "The value range of " + type.getClass().getSimpleName() + " is too large. Specify an Integer1dBinMapper." );
+		final Integer1dBinMapper< T > mapper = new Integer1dBinMapper< T >( minValue, maxValue - minValue + 1, false );
+		percentile( source, target, radius, percentile, mapper, numThreads );
+	}
+
+	/**
+	 * Percentile filter with a given bin mapping.
+	 * 
+	 * @param source
+	 *            the input, must be defined in the windows around all target
+	 *            pixels (use an extended view if necessary).
+	 * @param target
+	 *            the output.
+	 * @param radius
+	 *            the window radius in each dimension.
+	 * @param percentile
+	 *            the rank to compute, in <code>[0, 1]</code>. 0 is the
+	 *            minimum, 1 the maximum.
+	 * @param mapper
+	 *            maps values to histogram bins. The result is the center value
+	 *            of the bin containing the requested rank.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends IntegerType< T >, S extends RealType< S > > void percentile( final RandomAccessible< T > source, final RandomAccessibleInterval< S > target, final long[] radius, final double percentile, final Integer1dBinMapper< T > mapper, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( source.numDimensions() != n || radius.length != n )
+			throw new IllegalArgumentException( "Source, target and radius must have the same dimensionality." );
+		if ( percentile < 0 || percentile > 1 )
+			throw new IllegalArgumentException( "percentile must be in [0, 1]" );
+		if ( mapper.getBinCount() > MAX_BIN_COUNT )
+			throw new IllegalArgumentException( "too many bins" );
+
+		// center value of each bin
+		final int numBins = ( int ) mapper.getBinCount();
+		final double[] binValues = new double[ numBins ];
+		final RandomAccess< T > access = source.randomAccess();
+		for ( int d = 0; d < n; ++d )
+			access.setPosition( target.min( d ), d );
+		final T value = access.get().createVariable();
+		for ( int b = 0; b < numBins; ++b )
+		{
+			mapper.getCenterValue( b, value );
+			binValues[ b ] = value.getRealDouble();
+		}
+
+		// lines along dimension 0
+		final long[] lineDims = new long[ Math.max( 1, n - 1 ) ];
+		lineDims[ 0 ] = 1;
+		long numLinesL = 1;
+		for ( int d = 1; d < n; ++d )
+		{
+			lineDims[ d - 1 ] = target.dimension( d );
+			numLinesL *= target.dimension( d );
+		}
+		final long numLines = numLinesL;
+		final int numTasks = ( int ) Math.min( numLines, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( numLines, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( numLines, numTasks, taskIndex + 1 );
+				final SlidingWindow< T > window = new SlidingWindow< T >( source.randomAccess(), mapper, radius );
+				final RandomAccess< S > out = target.randomAccess();
+				final long[] linePos = new long[ lineDims.length ];
+				final long[] pos = new long[ n ];
+				final long width = target.dimension( 0 );
+				for ( long line = start; line < end; ++line )
+				{
+					IntervalIndexer.indexToPosition( line, lineDims, linePos );
+					pos[ 0 ] = target.min( 0 );
+					for ( int d = 1; d < n; ++d )
+						pos[ d ] = target.min( d ) + linePos[ d - 1 ];
+					out.setPosition( pos );
+					window.init( pos );
+					for ( long x = 0; x < width; ++x )
+					{
+						if ( x > 0 )
+						{
+							window.slide();
+							out.fwd( 0 );
+						}
+						final long total = window.total;
+						if ( total == 0 )
+							out.get().setZero();
+						else
+							out.get().setReal( binValues[ window.rank( ( long ) Math.floor( percentile * ( total - 1 ) ) ) ] );
+					}
+				}
+			}
+		} );
+	}
+
+	/**
+	 * A histogram of the values in a window that slides along dimension 0.
+	 */
+	private static final class SlidingWindow< T extends IntegerType< T > >
+	{
+		private final RandomAccess< T > access;
+
+		private final Integer1dBinMapper< T > mapper;
+
+		private final long[] radius;
+
+		private final long[] size;
+
+		private final long[] slabMin;
+
+		private final long[] k;
+
+		private final long[] counts;
+
+		private final int n;
+
+		/**
+		 * number of values in the window that map to a bin.
+		 */
+		long total;
+
+		/**
+		 * x coordinate of the current window center.
+		 */
+		private long x;
+
+		/**
+		 * the bin of the last rank query.
+		 */
+		private int rankBin;
+
+		/**
+		 * number of values in bins below <code>rankBin</code>.
+		 */
+		private long below;
+
+		SlidingWindow( final RandomAccess< T > access, final Integer1dBinMapper< T > mapper, final long[] radius )
+		{
+			this.access = access;
+			this.mapper = mapper;
+			this.radius = radius;
+			n = radius.length;
+			size = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+				size[ d ] = 2 * radius[ d ] + 1;
+			slabMin = new long[ n ];
+			k = new long[ n ];
+			counts = new long[ ( int ) mapper.getBinCount() ];
+		}
+
+		/**
+		 * Fill the histogram with the window centered at <code>center</code>.
+		 */
+		void init( final long[] center )
+		{
+			Arrays.fill( counts, 0 );
+			total = 0;
+			rankBin = 0;
+			below = 0;
+			for ( int d = 1; d < n; ++d )
+				slabMin[ d ] = center[ d ] - radius[ d ];
+			x = center[ 0 ];
+			for ( long i = x - radius[ 0 ]; i <= x + radius[ 0 ]; ++i )
+				slab( i, 1 );
+		}
+
+		/**
+		 * Move the window by one pixel along dimension 0.
+		 */
+		void slide()
+		{
+			slab( x - radius[ 0 ], -1 );
+			++x;
+			slab( x + radius[ 0 ], 1 );
+		}
+
+		/**
+		 * Returns the bin containing the value of rank <code>r</code>
+		 * (0-based), starting the search at the bin of the previous query.
+		 */
+		int rank( final long r )
+		{
+			while ( below > r )
+			{
+				--rankBin;
+				below -= counts[ rankBin ];
+			}
+			while ( below + counts[ rankBin ] <= r )
+			{
+				below += counts[ rankBin ];
+				++rankBin;
+			}
+			return rankBin;
+		}
+
+		/**
+		 * Add (<code>sign = 1</code>) or remove (<code>sign = -1</code>) the
+		 * values of the window slab at <code>x0</code>.
+		 */
+		private void slab( final long x0, final int sign )
+		{
+			access.setPosition( x0, 0 );
+			for ( int d = 1; d < n; ++d )
+			{
+				access.setPosition( slabMin[ d ], d );
+				k[ d ] = 0;
+			}
+			while ( true )
+			{
+				final long bin = mapper.map( access.get() );
+				if ( bin != Long.MIN_VALUE && bin != Long.MAX_VALUE )
+				{
+					counts[ ( int ) bin ] += sign;
+					total += sign;
+					if ( bin < rankBin )
+						below += sign;
+				}
+
+				int d = 1;
+				for ( ; d < n; ++d )
+				{
+					if ( ++k[ d ] < size[ d ] )
+					{
+						access.fwd( d );
+						break;
+					}
+					k[ d ] = 0;
+					access.move( 1 - size[ d ], d );
+				}
+				if ( d == n )
+					break;
+			}
+		}
+	}
+}
@@ -115,7 +115,14 @@ public class Real1dBinMapper< T extends RealType< T >> implements BinMapper1d< T
 	@Override
 	public long map( final T value )
 	{
-		final double val = value.getRealDouble();
+		return map( value.getRealDouble() );
+	}
+
+	/**
+	 * Returns the bin position of a primitive value, see {@link #map(RealType)}.
+	 */
+	public long map( final double val )
+	{
 		long pos;
 		if ( val >= minVal && val <= maxVal )
 		{
@@ -0,0 +1,336 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.util.Arrays;
+
+/**
+ * Lossless compression of primitive storage arrays for
+ * {@link CompressedCell}s, in pure Java.
+ * <p>
+ * The elements are first split into byte planes (all most significant bytes,
+ * then all second bytes, and so on), so that the slowly varying high bytes
+ * of e.g. 12-bit data in 16-bit containers form long repetitive runs. The
+ * bytes are then compressed by a simple LZ77 scheme in the style of LZ4: a
+ * sequence of tokens, each consisting of a run of literal bytes followed by a
+ * back-reference (offset, length) into the already decoded output. Lengths
+ * and offsets are written as variable-length integers. Constant regions (e.g.
+ * background) reduce to a few bytes.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+final class CellCompressor
+{
+	private static final int MIN_MATCH = 4;
+
+	private static final int HASH_BITS = 14;
+
+	private CellCompressor()
+	{}
+
+	/**
+	 * Compress a <code>byte[]</code>, <code>char[]</code>,
+	 * <code>short[]</code>, <code>int[]</code>, <code>long[]</code>,
+	 * <code>float[]</code> or <code>double[]</code> array.
+	 */
+	static byte[] compress( final Object array )
+	{
+		return compressBytes( shuffle( array ) );
+	}
+
+	/**
+	 * Decompress into <code>array</code>, which must have the type and length
+	 * of the array that was compressed.
+	 */
+	static void decompress( final byte[] compressed, final Object array )
+	{
+		final byte[] bytes = new byte[ numBytes( array ) ];
+		decompressBytes( compressed, bytes );
+		unshuffle( bytes, array );
+	}
+
+	private static int numBytes( final Object array )
+	{
+		if ( array instanceof byte[] )
+			return ( ( byte[] ) array ).length;
+		else if ( array instanceof char[] )
+			return ( ( char[] ) array ).length * 2;
+		else if ( array instanceof short[] )
+			return ( ( short[] ) array ).length * 2;
+		else if ( array instanceof int[] )
+			return ( ( int[] ) array ).length * 4;
+		else if ( array instanceof float[] )
+			return ( ( float[] ) array ).length * 4;
+		else if ( array instanceof long[] )
+			return ( ( long[] ) array ).length * 8;
+		else if ( array instanceof double[] )
+			return ( ( double[] ) array ).length * 8;
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + array.getClass().getSimpleName() );
+	}
+
+	/**
+	 * Split elements into byte planes, most significant bytes first.
+	 */
+	static byte[] shuffle( final Object array )
+	{
+		final byte[] bytes = new byte[ numBytes( array ) ];
+		if ( array instanceof byte[] )
+			System.arraycopy( array, 0, bytes, 0, bytes.length );
+		else if ( array instanceof char[] )
+		{
+			final char[] a = ( char[] ) array;
+			final int n = a.length;
+			for ( int j = 0; j < n; ++j )
+			{
+				bytes[ j ] = ( byte ) ( a[ j ] >>> 8 );
+				bytes[ n + j ] = ( byte ) a[ j ];
+			}
+		}
+		else if ( array instanceof short[] )
+		{
+			final short[] a = ( short[] ) array;
+			final int n = a.length;
+			for ( int j = 0; j < n; ++j )
+			{
+				bytes[ j ] = ( byte ) ( a[ j ] >>> 8 );
+				bytes[ n + j ] = ( byte ) a[ j ];
+			}
+		}
+		else if ( array instanceof int[] || array instanceof float[] )
+		{
+			final int n = bytes.length / 4;
+			final int[] ia = array instanceof int[] ? ( int[] ) array : null;
+			final float[] fa = ia == null ? ( float[] ) array : null;
+			for ( int j = 0; j < n; ++j )
+			{
+				final int v = ia != null ? ia[ j ] : Float.floatToRawIntBits( fa[ j ] );
+				for ( int k = 0; k < 4; ++k )
+					bytes[ k * n + j ] = ( byte ) ( v >>> ( 24 - 8 * k ) );
+			}
+		}
+		else
+		{
+			final int n = bytes.length / 8;
+			final long[] la = array instanceof long[] ? ( long[] ) array : null;
+			final double[] da = la == null ? ( double[] ) array : null;
+			for ( int j = 0; j < n; ++j )
+			{
+				final long v = la != null ? la[ j ] : Double.doubleToRawLongBits( da[ j ] );
+				for ( int k = 0; k < 8; ++k )
+					bytes[ k * n + j ] = ( byte ) ( v >>> ( 56 - 8 * k ) );
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Inverse of {@link #shuffle(Object)}.
+	 */
+	static void unshuffle( final byte[] bytes, final Object array )
+	{
+		if ( array instanceof byte[] )
+			System.arraycopy( bytes, 0, array, 0, bytes.length );
+		else if ( array instanceof char[] )
+		{
+			final char[] a = ( char[] ) array;
+			final int n = a.length;
+			for ( int j = 0; j < n; ++j )
+				a[ j ] = ( char ) ( ( ( bytes[ j ] & 0xff ) << 8 ) | ( bytes[ n + j ] & 0xff ) );
+		}
+		else if ( array instanceof short[] )
+		{
+			final short[] a = ( short[] ) array;
+			final int n = a.length;
+			for ( int j = 0; j < n; ++j )
+				a[ j ] = ( short ) ( ( ( bytes[ j ] & 0xff ) << 8 ) | ( bytes[ n + j ] & 0xff ) );
+		}
+		else if ( array instanceof int[] || array instanceof float[] )
+		{
+			final int n = bytes.length / 4;
+			final int[] ia = array instanceof int[] ? ( int[] ) array : null;
+			final float[] fa = ia == null ? ( float[] ) array : null;
+			for ( int j = 0; j < n; ++j )
+			{
+				int v = 0;
+				for ( int k = 0; k < 4; ++k )
+					v = ( v << 8 ) | ( bytes[ k * n + j ] & 0xff );
+				if ( ia != null )
+					ia[ j ] = v;
+				else
+					fa[ j ] = Float.intBitsToFloat( v );
+			}
+		}
+		else
+		{
+			final int n = bytes.length / 8;
+			final long[] la = array instanceof long[] ? ( long[] ) array : null;
+			final double[] da = la == null ? ( double[] ) array : null;
+			for ( int j = 0; j < n; ++j )
+			{
+				long v = 0;
+				for ( int k = 0; k < 8; ++k )
+					v = ( v << 8 ) | ( bytes[ k * n + j ] & 0xff );
+				if ( la != null )
+					la[ j ] = v;
+				else
+					da[ j ] = Double.longBitsToDouble( v );
+			}
+		}
+	}
+
+	/**
+	 * Growable output buffer.
+	 */
+	private static final class Output
+	{
+		byte[] buffer;
+
+		int size;
+
+		Output( final int capacity )
+		{
+			buffer = new byte[ Math.max( 16, capacity ) ];
+			size = 0;
+		}
+
+		void ensure( final int n )
+		{
+			if ( size + n > buffer.length )
+				buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, size + n ) );
+		}
+
+		void writeVarInt( int v )
+		{
+			ensure( 5 );
+			while ( ( v & ~0x7f ) != 0 )
+			{
+				buffer[ size++ ] = ( byte ) ( ( v & 0x7f ) | 0x80 );
+				v >>>= 7;
+			}
+			buffer[ size++ ] = ( byte ) v;
+		}
+
+		void write( final byte[] src, final int offset, final int length )
+		{
+			ensure( length );
+			System.arraycopy( src, offset, buffer, size, length );
+			size += length;
+		}
+	}
+
+	private static int readInt( final byte[] b, final int i )
+	{
+		return ( b[ i ] & 0xff ) | ( ( b[ i + 1 ] & 0xff ) << 8 ) | ( ( b[ i + 2 ] & 0xff ) << 16 ) | ( b[ i + 3 ] << 24 );
+	}
+
+	static byte[] compressBytes( final byte[] in )
+	{
+		final int n = in.length;
+		final Output out = new Output( n / 16 );
+		// positions (+1) of recent 4-byte sequences, by hash
+		final int[] table = new int[ 1 << HASH_BITS ];
+		int anchor = 0;
+		int i = 0;
+		while ( i + MIN_MATCH <= n )
+		{
+			final int h = ( readInt( in, i ) * -1640531535 ) >>> ( 32 - HASH_BITS );
+			final int candidate = table[ h ] - 1;
+			table[ h ] = i + 1;
+			if ( candidate >= 0 && readInt( in, candidate ) == readInt( in, i ) )
+			{
+				int length = MIN_MATCH;
+				while ( i + length < n && in[ candidate + length ] == in[ i + length ] )
+					++length;
+				out.writeVarInt( i - anchor );
+				out.write( in, anchor, i - anchor );
+				out.writeVarInt( i - candidate );
+				out.writeVarInt( length - MIN_MATCH );
+				i += length;
+				anchor = i;
+			}
+			else
+				++i;
+		}
+		out.writeVarInt( n - anchor );
+		out.write( in, anchor, n - anchor );
+		return Arrays.copyOf( out.buffer, out.size );
+	}
+
+	static void decompressBytes( final byte[] in, final byte[] out )
+	{
+		int ip = 0;
+		int op = 0;
+		while ( true )
+		{
+			// literals
+			int literals = 0;
+			for ( int shift = 0;; shift += 7 )
+			{
+				final int b = in[ ip++ ];
+				literals |= ( b & 0x7f ) << shift;
+				if ( b >= 0 )
+					break;
+			}
+			System.arraycopy( in, ip, out, op, literals );
+			ip += literals;
+			op += literals;
+			if ( op >= out.length )
+				return;
+
+			// match
+			int offset = 0;
+			for ( int shift = 0;; shift += 7 )
+			{
+				final int b = in[ ip++ ];
+				offset |= ( b & 0x7f ) << shift;
+				if ( b >= 0 )
+					break;
+			}
+			int length = 0;
+			for ( int shift = 0;; shift += 7 )
+			{
+				final int b = in[ ip++ ];
+				length |= ( b & 0x7f ) << shift;
+				if ( b >= 0 )
+					break;
+			}
+			length += MIN_MATCH;
+			// copy byte by byte, source and destination may overlap
+			for ( final int end = op + length; op < end; ++op )
+				out[ op ] = out[ op - offset ];
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.util.Fraction;
+
+/**
+ * A cell of a {@link CompressedCellImg} whose data is kept compressed in
+ * memory while it is not used.
+ * <p>
+ * A cell is in one of three states:
+ * <ul>
+ * <li><em>hot</em>: the data is uncompressed and held by the pool of hot
+ * cells of the {@link CompressedCells}.</li>
+ * <li><em>cooling</em>: the cell was evicted from the pool, but its data may
+ * still be used by accessors. Only a weak reference to the data access is
+ * kept (plus the storage array itself). When the access is garbage collected,
+ * no accessor can modify the data anymore, and it is compressed.</li>
+ * <li><em>cold</em>: only the compressed data is kept. A cell whose data was
+ * never accessed has neither compressed nor uncompressed data and reads as
+ * zero.</li>
+ * </ul>
+ * {@link #getData()} makes the cell hot, reusing the data access if it is
+ * still alive, or decompressing otherwise.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public final class CompressedCell< A extends ArrayDataAccess< A > > extends AbstractCell< A >
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Weak reference to the data access of a cooling cell.
+	 */
+	static final class CoolingReference< A > extends WeakReference< A >
+	{
+		final CompressedCell< ? > cell;
+
+		CoolingReference( final A data, final ReferenceQueue< Object > queue, final CompressedCell< ? > cell )
+		{
+			super( data, queue );
+			this.cell = cell;
+		}
+	}
+
+	private final transient CompressedCells< A > cells;
+
+	private final A creator;
+
+	private final int numEntities;
+
+	/**
+	 * data of a hot cell.
+	 */
+	private A data;
+
+	/**
+	 * data access of a cooling cell.
+	 */
+	private CoolingReference< A > cooling;
+
+	/**
+	 * storage array of a cooling cell.
+	 */
+	private Object coolingStorage;
+
+	/**
+	 * data of a cold cell, or <code>null</code> if never accessed.
+	 */
+	private byte[] compressed;
+
+	public CompressedCell( final CompressedCells< A > cells, final A creator, final int[] dimensions, final long[] min, final Fraction entitiesPerPixel )
+	{
+		super( dimensions, min );
+		this.cells = cells;
+		this.creator = creator;
+		this.numEntities = ( int ) entitiesPerPixel.mulCeil( numPixels );
+	}
+
+	@Override
+	public A getData()
+	{
+		return cells.load( this );
+	}
+
+	/**
+	 * @return the size of the compressed data in bytes, or 0 if the cell is
+	 *         not cold.
+	 */
+	public int compressedSize()
+	{
+		synchronized ( this )
+		{
+			return compressed == null ? 0 : compressed.length;
+		}
+	}
+
+	/**
+	 * @return whether the data of the cell is currently held uncompressed.
+	 */
+	public boolean isHot()
+	{
+		synchronized ( this )
+		{
+			return data != null;
+		}
+	}
+
+	// the following methods are called by CompressedCells, which holds the lock
+	// of this cell
+
+	/**
+	 * Make this cell hot.
+	 * 
+	 * @return the data access.
+	 */
+	A heat()
+	{
+		if ( data == null )
+		{
+			A d = cooling == null ? null : cooling.get();
+			if ( d == null )
+			{
+				d = creator.createArray( numEntities );
+				if ( coolingStorage != null )
+					System.arraycopy( coolingStorage, 0, d.getCurrentStorageArray(), 0, numEntities );
+				else if ( compressed != null )
+					CellCompressor.decompress( compressed, d.getCurrentStorageArray() );
+			}
+			if ( cooling != null )
+				cooling.clear();
+			cooling = null;
+			coolingStorage = null;
+			compressed = null;
+			data = d;
+		}
+		return data;
+	}
+
+	/**
+	 * Evict this hot cell from the pool of hot cells.
+	 */
+	void cool( final ReferenceQueue< Object > queue )
+	{
+		coolingStorage = data.getCurrentStorageArray();
+		cooling = new CoolingReference< A >( data, queue, this );
+		data = null;
+	}
+
+	/**
+	 * Called when the data access of a cooling cell was garbage collected.
+	 */
+	void freeze( final CoolingReference< ? > reference )
+	{
+		if ( reference == cooling )
+		{
+			compressed = CellCompressor.compress( coolingStorage );
+			cooling = null;
+			coolingStorage = null;
+		}
+	}
+}
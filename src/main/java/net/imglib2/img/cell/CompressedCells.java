@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.img.list.ListLocalizingCursor;
+import net.imglib2.util.Fraction;
+
+/**
+ * Implementation of {@link Cells} that uses {@link CompressedCell}s, which
+ * keep their data compressed in memory while it is not used.
+ * <p>
+ * At most <code>maxHotCells</code> cells are kept uncompressed in a pool of
+ * hot cells, in least-recently-used order. Accessing a cell (through
+ * {@link CompressedCell#getData()}, which cursors and random accesses do when
+ * entering a cell) moves it into the pool, decompressing if necessary, and
+ * evicts the least recently used cell from the pool. An evicted cell is
+ * compressed as soon as its data access was garbage collected, i.e., when no
+ * cursor or random access can modify it anymore.
+ * <p>
+ * The uncompressed memory footprint is therefore <code>maxHotCells</code>
+ * cells plus the cells that are still referenced by accessors (or not yet
+ * collected).
+ * <p>
+ * Each cell is (de)compressed under its own lock. The pool of hot cells is
+ * locked only while it is updated, so accessors in different threads do not
+ * block each other while decompressing.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class CompressedCells< A extends ArrayDataAccess< A > > extends AbstractCells< A, CompressedCell< A >, ListImg< CompressedCell< A > > >
+{
+	private final ListImg< CompressedCell< A > > cells;
+
+	private final int maxHotCells;
+
+	/**
+	 * hot cells in least-recently-used order.
+	 */
+	private final LinkedHashMap< CompressedCell< A >, Boolean > hotCells;
+
+	private final ReferenceQueue< Object > queue;
+
+	public CompressedCells( final A creator, final Fraction entitiesPerPixel, final long[] dimensions, final int[] cellDimensions, final int maxHotCells )
+	{
+		super( entitiesPerPixel, dimensions, cellDimensions );
+		this.maxHotCells = Math.max( 1, maxHotCells );
+		hotCells = new LinkedHashMap< CompressedCell< A >, Boolean >( 16, 0.75f, true );
+		queue = new ReferenceQueue< Object >();
+		cells = new ListImgFactory< CompressedCell< A > >().create( numCells, new CompressedCell< A >( this, creator, new int[ 1 ], new long[ 1 ], entitiesPerPixel ) );
+
+		final long[] cellGridPosition = new long[ n ];
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		final ListLocalizingCursor< CompressedCell< A > > cellCursor = cells.localizingCursor();
+		while ( cellCursor.hasNext() )
+		{
+			cellCursor.fwd();
+			cellCursor.localize( cellGridPosition );
+			getCellDimensions( cellGridPosition, cellMin, cellDims );
+			cellCursor.set( new CompressedCell< A >( this, creator, cellDims, cellMin, entitiesPerPixel ) );
+		}
+	}
+
+	@Override
+	protected ListImg< CompressedCell< A > > cells()
+	{
+		return cells;
+	}
+
+	/**
+	 * @return the maximum number of hot cells.
+	 */
+	public int getMaxHotCells()
+	{
+		return maxHotCells;
+	}
+
+	/**
+	 * Compress evicted cells whose data is no longer referenced.
+	 */
+	public void compact()
+	{
+		for ( Reference< ? > r = queue.poll(); r != null; r = queue.poll() )
+		{
+			final CompressedCell.CoolingReference< ? > ref = ( CompressedCell.CoolingReference< ? > ) r;
+			synchronized ( ref.cell )
+			{
+				ref.cell.freeze( ref );
+			}
+		}
+	}
+
+	/**
+	 * @return the total size in bytes of the compressed data of all cold
+	 *         cells.
+	 */
+	public long compressedSize()
+	{
+		long size = 0;
+		final Cursor< CompressedCell< A > > c = cells.cursor();
+		while ( c.hasNext() )
+			size += c.next().compressedSize();
+		return size;
+	}
+
+	/**
+	 * Make a cell hot and move it to the front of the pool of hot cells.
+	 * Decompression happens under the lock of the cell only, the pool is
+	 * locked just for the update.
+	 */
+	A load( final CompressedCell< A > cell )
+	{
+		compact();
+		A data;
+		synchronized ( cell )
+		{
+			data = cell.heat();
+		}
+		synchronized ( hotCells )
+		{
+			// the cell may have been evicted concurrently. Because we hold its
+			// data access, heating it again just revives the same access.
+			synchronized ( cell )
+			{
+				data = cell.heat();
+			}
+			if ( hotCells.put( cell, Boolean.TRUE ) == null && hotCells.size() > maxHotCells )
+			{
+				final Iterator< CompressedCell< A > > it = hotCells.keySet().iterator();
+				final CompressedCell< A > eldest = it.next();
+				it.remove();
+				synchronized ( eldest )
+				{
+					eldest.cool( queue );
+				}
+			}
+		}
+		return data;
+	}
+}
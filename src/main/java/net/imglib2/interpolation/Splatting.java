@@ -0,0 +1,471 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.interpolation;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableRealInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealCursor;
+import net.imglib2.interpolation.neighborsearch.InverseDistanceWeightingInterpolator;
+import net.imglib2.interpolation.neighborsearch.NearestNeighborSearchInterpolator;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.view.Views;
+
+/**
+ * Rasterize point samples (e.g., a {@link net.imglib2.RealPointSampleList} or
+ * a {@link net.imglib2.KDTree}) into an image by scattering ("splatting") the
+ * value of every point onto the pixels around it. The value of each point is
+ * distributed with weights given by a kernel, and added to the target.
+ * 
+ * <p>
+ * This is the adjoint of interpolation: instead of evaluating a
+ * {@link NearestNeighborSearchInterpolator} or
+ * {@link InverseDistanceWeightingInterpolator} for every target pixel, the
+ * cost is proportional to the number of points times the kernel size. Density
+ * maps are obtained by splatting points with value 1.
+ * </p>
+ * 
+ * <p>
+ * The target is split into tiles (slabs along the last dimension), and the
+ * points are sorted by the tile that contains the first row of their kernel
+ * support. Tiles are processed in parallel, each accumulating into a
+ * {@code double[]} buffer covering the tile plus the kernel halo, which is
+ * then added to the target. Even and odd tiles are processed in separate
+ * phases, such that concurrently processed buffers never overlap.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class Splatting
+{
+	/**
+	 * Maximum number of pixels of a tile buffer (excluding the halo), unless
+	 * the halo requires more rows.
+	 */
+	private static final long MAX_TILE_SIZE = 1 << 22;
+
+	/**
+	 * Add the value of each point to the nearest target pixel.
+	 * 
+	 * @param points
+	 *            point samples.
+	 * @param target
+	 *            values are added to this image. Points outside are ignored.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void nearest( final IterableRealInterval< T > points, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		splat( points, new Kernel()
+		{
+			@Override
+			public int size( final int d )
+			{
+				return 1;
+			}
+
+			@Override
+			public long weights( final double x, final int d, final double[] weights )
+			{
+				weights[ 0 ] = 1;
+				return ( long ) Math.floor( x + 0.5 );
+			}
+		}, target, numThreads );
+	}
+
+	/**
+	 * Distribute the value of each point to the 2<sup>n</sup> surrounding
+	 * target pixels with n-linear weights.
+	 * 
+	 * @param points
+	 *            point samples.
+	 * @param target
+	 *            values are added to this image. Contributions to pixels
+	 *            outside are ignored.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void linear( final IterableRealInterval< T > points, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		splat( points, new Kernel()
+		{
+			@Override
+			public int size( final int d )
+			{
+				return 2;
+			}
+
+			@Override
+			public long weights( final double x, final int d, final double[] weights )
+			{
+				final long f = ( long ) Math.floor( x );
+				final double w = x - f;
+				weights[ 0 ] = 1.0 - w;
+				weights[ 1 ] = w;
+				return f;
+			}
+		}, target, numThreads );
+	}
+
+	/**
+	 * Distribute the value of each point with a (separable) Gaussian kernel.
+	 * The kernel is truncated at 3 sigma and normalized, such that the
+	 * weights of every point sum to 1.
+	 * 
+	 * @param points
+	 *            point samples.
+	 * @param sigma
+	 *            standard deviation of the Gaussian in each dimension.
+	 * @param target
+	 *            values are added to this image. Contributions to pixels
+	 *            outside are ignored.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void gaussian( final IterableRealInterval< T > points, final double[] sigma, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( sigma.length != n )
+			throw new IllegalArgumentException( "sigma must have the same dimensionality as target." );
+		final int[] radius = new int[ n ];
+		final double[] scale = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( !( sigma[ d ] > 0 ) )
+				throw new IllegalArgumentException( "sigma must be positive." );
+			radius[ d ] = ( int ) Math.ceil( 3 * sigma[ d ] );
+			scale[ d ] = -0.5 / ( sigma[ d ] * sigma[ d ] );
+		}
+		splat( points, new Kernel()
+		{
+			@Override
+			public int size( final int d )
+			{
+				return 2 * radius[ d ] + 2;
+			}
+
+			@Override
+			public long weights( final double x, final int d, final double[] weights )
+			{
+				final long f = ( long ) Math.floor( x ) - radius[ d ];
+				final int size = 2 * radius[ d ] + 2;
+				double sum = 0;
+				for ( int i = 0; i < size; ++i )
+				{
+					final double dx = f + i - x;
+					final double w = ( Math.abs( dx ) <= radius[ d ] ) ? Math.exp( scale[ d ] * dx * dx ) : 0;
+					weights[ i ] = w;
+					sum += w;
+				}
+				for ( int i = 0; i < size; ++i )
+					weights[ i ] /= sum;
+				return f;
+			}
+		}, target, numThreads );
+	}
+
+	/**
+	 * A separable splatting kernel.
+	 */
+	public interface Kernel
+	{
+		/**
+		 * @return the number of pixels covered in dimension {@code d}.
+		 */
+		public int size( int d );
+
+		/**
+		 * Compute the weights for a point at coordinate {@code x} in dimension
+		 * {@code d}.
+		 * 
+		 * @param weights
+		 *            array of length {@link #size(int)} to store the weights.
+		 * @return the coordinate of the pixel corresponding to
+		 *         {@code weights[0]}.
+		 */
+		public long weights( double x, int d, double[] weights );
+	}
+
+	/**
+	 * Splat all points with the given separable {@link Kernel}. Kernel
+	 * implementations must be safe for concurrent use.
+	 * 
+	 * @param points
+	 *            point samples.
+	 * @param kernel
+	 *            the kernel.
+	 * @param target
+	 *            values are added to this image. Contributions to pixels
+	 *            outside are ignored.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void splat( final IterableRealInterval< T > points, final Kernel kernel, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( points.numDimensions() != n )
+			throw new IllegalArgumentException( "points and target must have the same dimensionality." );
+		final long numPointsL = points.size();
+		if ( numPointsL > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "too many points." );
+		final int numPoints = ( int ) numPointsL;
+		if ( numPoints == 0 || Intervals.numElements( target ) == 0 )
+			return;
+
+		final int last = n - 1;
+		final long[] min = Intervals.minAsLongArray( target );
+		final long[] max = Intervals.maxAsLongArray( target );
+		final int[] steps = new int[ n ];
+		long sliceSize = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( sliceSize > Integer.MAX_VALUE )
+				throw new IllegalArgumentException( "target slices are too large." );
+			steps[ d ] = ( int ) sliceSize;
+			if ( d < last )
+				sliceSize *= target.dimension( d );
+		}
+
+		// tiles have at least as many rows as the halo, such that a tile only
+		// overlaps the halo of the previous tile
+		final long height = target.dimension( last );
+		final int halo = kernel.size( last ) - 1;
+		final long numBalancedTiles = 4l * Math.max( 1, numThreads );
+		final long balancedRows = ( height + numBalancedTiles - 1 ) / numBalancedTiles;
+		final long tileRows = Math.max( Math.max( 1, halo ), Math.min( balancedRows, MAX_TILE_SIZE / sliceSize - halo ) );
+		if ( ( tileRows + halo ) * sliceSize > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "target slices are too large." );
+		final int numTiles = ( int ) ( ( height + tileRows - 1 ) / tileRows );
+
+		final double[][] coordinates = new double[ n ][];
+		final double[] values = new double[ numPoints ];
+		final int[] tileStart = sortByTile( points, kernel, min[ last ], max[ last ], tileRows, numTiles, coordinates, values, numThreads );
+
+		for ( int parity = 0; parity < 2; ++parity )
+		{
+			final int firstTile = parity;
+			final int numTasks = ( numTiles - parity + 1 ) / 2;
+			ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+			{
+				@Override
+				public void run( final int taskIndex )
+				{
+					final int tile = firstTile + 2 * taskIndex;
+					if ( tileStart[ tile ] == tileStart[ tile + 1 ] )
+						return;
+
+					final long[] tileMin = min.clone();
+					final long[] tileMax = max.clone();
+					tileMin[ last ] = min[ last ] + tile * tileRows;
+					tileMax[ last ] = Math.min( max[ last ], tileMin[ last ] + tileRows + halo - 1 );
+					final double[] buffer = new double[ ( int ) ( ( tileMax[ last ] - tileMin[ last ] + 1 ) * steps[ last ] ) ];
+
+					final double[][] weights = new double[ n ][];
+					for ( int d = 0; d < n; ++d )
+						weights[ d ] = new double[ kernel.size( d ) ];
+					final int[] lo = new int[ n ];
+					final int[] hi = new int[ n ];
+					final int[] offsets = new int[ n ];
+					final int[] k = new int[ n ];
+					final double[] partial = new double[ n + 1 ];
+
+					A: for ( int i = tileStart[ tile ]; i < tileStart[ tile + 1 ]; ++i )
+					{
+						for ( int d = 0; d < n; ++d )
+						{
+							final long first = kernel.weights( coordinates[ d ][ i ], d, weights[ d ] );
+							final long l = Math.max( first, tileMin[ d ] );
+							final long h = Math.min( first + weights[ d ].length - 1, tileMax[ d ] );
+							if ( l > h )
+								continue A;
+							lo[ d ] = ( int ) ( l - first );
+							hi[ d ] = ( int ) ( h - first );
+							offsets[ d ] = ( int ) ( first - tileMin[ d ] ) * steps[ d ];
+						}
+						accumulate( buffer, values[ i ], weights, lo, hi, offsets, steps, k, partial );
+					}
+
+					// add the buffer to the target
+					final Cursor< S > out = Views.flatIterable( Views.interval( target, tileMin, tileMax ) ).cursor();
+					for ( int i = 0; i < buffer.length; ++i )
+					{
+						final S t = out.next();
+						if ( buffer[ i ] != 0 )
+							t.setReal( t.getRealDouble() + buffer[ i ] );
+					}
+				}
+			} );
+		}
+	}
+
+	/**
+	 * Sort points by the tile containing the first target row (along the last
+	 * dimension) of their kernel support. Points whose support does not
+	 * intersect the target along the last dimension are dropped.
+	 * 
+	 * @param coordinates
+	 *            receives one array of sorted point coordinates per dimension.
+	 * @param values
+	 *            receives the sorted point values.
+	 * @return the index of the first point of each tile, and the total
+	 *         number of sorted points at index {@code numTiles}.
+	 */
+	private static < T extends RealType< T > > int[] sortByTile( final IterableRealInterval< T > points, final Kernel kernel, final long min, final long max, final long tileRows, final int numTiles, final double[][] coordinates, final double[] values, final int numThreads )
+	{
+		final int n = points.numDimensions();
+		final int last = n - 1;
+		final int numPoints = values.length;
+		final int[] tileOf = new int[ numPoints ];
+
+		// count the points of each tile, per chunk of points
+		final int numTasks = Math.min( numPoints, 4 * Math.max( 1, numThreads ) );
+		final int[][] counts = new int[ numTasks ][ numTiles ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int start = ( int ) ParallelHelper.chunkStart( numPoints, numTasks, taskIndex );
+				final int end = ( int ) ParallelHelper.chunkStart( numPoints, numTasks, taskIndex + 1 );
+				final double[] weights = new double[ kernel.size( last ) ];
+				final RealCursor< T > c = points.localizingCursor();
+				if ( start > 0 )
+					c.jumpFwd( start );
+				for ( int i = start; i < end; ++i )
+				{
+					c.fwd();
+					final long first = kernel.weights( c.getDoublePosition( last ), last, weights );
+					final long l = Math.max( first, min );
+					final long h = Math.min( first + weights.length - 1, max );
+					if ( l > h )
+						tileOf[ i ] = -1;
+					else
+					{
+						final int tile = ( int ) ( ( l - min ) / tileRows );
+						tileOf[ i ] = tile;
+						++counts[ taskIndex ][ tile ];
+					}
+				}
+			}
+		} );
+
+		// turn counts into the index of the first point of each tile and chunk
+		final int[] tileStart = new int[ numTiles + 1 ];
+		int sum = 0;
+		for ( int tile = 0; tile < numTiles; ++tile )
+		{
+			tileStart[ tile ] = sum;
+			for ( int t = 0; t < numTasks; ++t )
+			{
+				final int count = counts[ t ][ tile ];
+				counts[ t ][ tile ] = sum;
+				sum += count;
+			}
+		}
+		tileStart[ numTiles ] = sum;
+
+		for ( int d = 0; d < n; ++d )
+			coordinates[ d ] = new double[ sum ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int start = ( int ) ParallelHelper.chunkStart( numPoints, numTasks, taskIndex );
+				final int end = ( int ) ParallelHelper.chunkStart( numPoints, numTasks, taskIndex + 1 );
+				final int[] next = counts[ taskIndex ];
+				final RealCursor< T > c = points.localizingCursor();
+				if ( start > 0 )
+					c.jumpFwd( start );
+				for ( int i = start; i < end; ++i )
+				{
+					final T value = c.next();
+					final int tile = tileOf[ i ];
+					if ( tile < 0 )
+						continue;
+					final int j = next[ tile ]++;
+					for ( int d = 0; d < n; ++d )
+						coordinates[ d ][ j ] = c.getDoublePosition( d );
+					values[ j ] = value.getRealDouble();
+				}
+			}
+		} );
+		return tileStart;
+	}
+
+	/**
+	 * Add {@code value} times the outer product of the clipped weight
+	 * vectors to the buffer.
+	 */
+	private static void accumulate( final double[] buffer, final double value, final double[][] weights, final int[] lo, final int[] hi, final int[] offsets, final int[] steps, final int[] k, final double[] partial )
+	{
+		final int n = weights.length;
+		partial[ n ] = value;
+		int base = 0;
+		for ( int d = n - 1; d > 0; --d )
+		{
+			k[ d ] = lo[ d ];
+			partial[ d ] = partial[ d + 1 ] * weights[ d ][ k[ d ] ];
+			base += offsets[ d ] + k[ d ] * steps[ d ];
+		}
+		final double[] w0 = weights[ 0 ];
+		final int o0 = offsets[ 0 ];
+		while ( true )
+		{
+			final double p = partial[ 1 ];
+			for ( int i = lo[ 0 ]; i <= hi[ 0 ]; ++i )
+				buffer[ base + o0 + i ] += p * w0[ i ];
+
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( k[ d ] < hi[ d ] )
+				{
+					++k[ d ];
+					base += steps[ d ];
+					break;
+				}
+				base -= ( k[ d ] - lo[ d ] ) * steps[ d ];
+				k[ d ] = lo[ d ];
+			}
+			if ( d == n )
+				return;
+			for ( int e = d; e > 0; --e )
+				partial[ e ] = partial[ e + 1 ] * weights[ e ][ k[ e ] ];
+		}
+	}
+}
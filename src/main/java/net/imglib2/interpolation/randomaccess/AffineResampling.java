@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.interpolation.randomaccess;
+
+import java.util.List;
+
+/**
+ * Helpers for resampling under an affine target-to-source mapping given as an
+ * <em>n x (n+1)</em> matrix.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+class AffineResampling
+{
+	/**
+	 * Maximum number of source elements buffered per block.
+	 */
+	static final long MAX_BLOCK_SOURCE_SIZE = 1 << 20;
+
+	/**
+	 * Maximum number of target elements per block.
+	 */
+	static final long MAX_BLOCK_TARGET_SIZE = 1 << 16;
+
+	static void checkAffine( final double[][] affine, final int n )
+	{
+		if ( affine.length != n )
+			throw new IllegalArgumentException( "Affine matrix must have " + n + " rows." );
+		for ( int r = 0; r < n; ++r )
+			if ( affine[ r ].length != n + 1 )
+				throw new IllegalArgumentException( "Affine matrix must have " + ( n + 1 ) + " columns." );
+	}
+
+	static boolean isAxisAligned( final double[][] affine )
+	{
+		final int n = affine.length;
+		for ( int r = 0; r < n; ++r )
+			for ( int c = 0; c < n; ++c )
+				if ( r != c && affine[ r ][ c ] != 0 )
+					return false;
+		return true;
+	}
+
+	/**
+	 * Compute the bounding box of the source region required to interpolate
+	 * the target block <code>[min, max]</code>. The box contains
+	 * <code>margin</code> pixels below and <code>margin + 1</code> pixels
+	 * above the floor of every transformed target position.
+	 */
+	static void sourceBoundingBox( final double[][] affine, final long[] min, final long[] max, final int margin, final long[] srcMin, final long[] srcMax )
+	{
+		final int n = min.length;
+		for ( int r = 0; r < n; ++r )
+		{
+			double lo = affine[ r ][ n ];
+			double hi = affine[ r ][ n ];
+			for ( int c = 0; c < n; ++c )
+			{
+				final double a = affine[ r ][ c ] * min[ c ];
+				final double b = affine[ r ][ c ] * max[ c ];
+				lo += Math.min( a, b );
+				hi += Math.max( a, b );
+			}
+			srcMin[ r ] = ( long ) Math.floor( lo ) - margin;
+			srcMax[ r ] = ( long ) Math.floor( hi ) + margin + 1;
+		}
+	}
+
+	/**
+	 * Recursively split the target interval <code>[min, max]</code> into
+	 * blocks whose source bounding box and target size are small enough.
+	 */
+	static void splitBlocks( final double[][] affine, final long[] min, final long[] max, final int margin, final List< long[][] > blocks )
+	{
+		final int n = min.length;
+		final long[] srcMin = new long[ n ];
+		final long[] srcMax = new long[ n ];
+		sourceBoundingBox( affine, min, max, margin, srcMin, srcMax );
+		long sourceSize = 1;
+		long targetSize = 1;
+		int splitDim = -1;
+		long splitDimSize = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			sourceSize *= srcMax[ d ] - srcMin[ d ] + 1;
+			final long s = max[ d ] - min[ d ] + 1;
+			targetSize *= s;
+			// prefer splitting the outer dimensions, to keep lines long
+			if ( s > 1 && ( splitDim < 0 || s >= splitDimSize || splitDimSize <= 8 ) )
+			{
+				splitDim = d;
+				splitDimSize = s;
+			}
+		}
+
+		if ( splitDim < 0 || ( sourceSize <= MAX_BLOCK_SOURCE_SIZE && targetSize <= MAX_BLOCK_TARGET_SIZE ) )
+		{
+			blocks.add( new long[][] { min.clone(), max.clone() } );
+			return;
+		}
+
+		final long mid = min[ splitDim ] + ( max[ splitDim ] - min[ splitDim ] ) / 2;
+		final long[] max1 = max.clone();
+		max1[ splitDim ] = mid;
+		splitBlocks( affine, min, max1, margin, blocks );
+		final long[] min2 = min.clone();
+		min2[ splitDim ] = mid + 1;
+		splitBlocks( affine, min2, max, margin, blocks );
+	}
+}
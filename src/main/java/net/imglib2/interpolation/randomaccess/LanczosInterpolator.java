@@ -57,13 +57,27 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 
 	final protected T interpolatedValue;
 
-	final protected long[] size, max;
-
 	final protected double minValue, maxValue;
 
 	final protected boolean clip;
 
-	final protected double[] lut, products;
+	final protected double[] lut;
+
+	/**
+	 * Per-axis kernel weights, <code>2 * alpha</code> consecutive values per
+	 * dimension.
+	 */
+	final protected double[] weights;
+
+	/**
+	 * Partial sums of the separable reduction, one per dimension.
+	 */
+	final protected double[] sums;
+
+	/**
+	 * Current tap index per dimension.
+	 */
+	final protected int[] tapIndex;
 
 	final static private long[] createOffset( final int a, final int n )
 	{
@@ -95,14 +109,9 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 		this.alpha = alpha;
 
 		lut = createLanczosLUT( alpha, lutScale );
-		products = new double[ n + 1 ];
-		products[ n ] = 1.0;
-
-		this.size = new long[ n ];
-		this.max = new long[ n ];
-
-		for ( int d = 0; d < n; ++d )
-			size[ d ] = alpha * 2;
+		weights = new double[ n * 2 * alpha ];
+		sums = new double[ n ];
+		tapIndex = new int[ n ];
 
 		this.clip = clip;
 
@@ -122,15 +131,14 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 
 	public LanczosInterpolator( final LanczosInterpolator< T > interpolator )
 	{
-		super( interpolator.target.copyRandomAccess(), interpolator.offset );
+		super( interpolator, interpolator.target.copyRandomAccess(), interpolator.offset );
 
 		this.alpha = interpolator.alpha;
 
 		lut = interpolator.lut.clone();
-		products = interpolator.products.clone();
-
-		this.size = interpolator.size.clone();
-		this.max = interpolator.max.clone();
+		weights = interpolator.weights.clone();
+		sums = new double[ n ];
+		tapIndex = new int[ n ];
 
 		this.clip = interpolator.clip;
 
@@ -139,7 +147,7 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 		this.maxValue = interpolator.maxValue;
 	}
 
-	final static private double[] createLanczosLUT( final int max, final int scale )
+	final static double[] createLanczosLUT( final int max, final int scale )
 	{
 		final double[] lut = new double[ max * scale + 2 ];
 		for ( int i = 0; i < lut.length; ++i )
@@ -150,48 +158,57 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 		return lut;
 	}
 
-	final protected void resetKernel()
+	/**
+	 * Fill the per-axis weight vectors for the current position.
+	 */
+	final protected void fillWeights()
 	{
-		for ( int d = n - 1; d >= 0; --d )
+		final int taps = 2 * alpha;
+		for ( int d = 0; d < n; ++d )
 		{
-			final long p = target.getLongPosition( d );
-			max[ d ] = p + size[ d ];
-			products[ d ] = lookUpLanczos( position[ d ] - p ) * products[ d + 1 ];
+			final double x = position[ d ] - target.getLongPosition( d );
+			final int o = d * taps;
+			for ( int k = 0; k < taps; ++k )
+				weights[ o + k ] = lookUpLanczos( x - k );
 		}
 	}
 
-	final protected void accumulate( final int d )
-	{
-		for ( int e = d; e >= 0; --e )
-			products[ e ] = lookUpLanczos( position[ e ] - target.getLongPosition( e ) ) * products[ e + 1 ];
-	}
-
+	/**
+	 * Computes the interpolated value separably: the per-axis weight vectors
+	 * are computed once per position, then the <em>(2 alpha)<sup>n</sup></em>
+	 * samples are reduced along dimension 0, the partial sums along
+	 * dimension 1, and so on.
+	 */
 	@Override
 	public T get()
 	{
-		double convolved = 0;
+		fillWeights();
 
-		resetKernel();
-
-		boolean proceed = true;
+		final int taps = 2 * alpha;
+		final int[] k = tapIndex;
+		double convolved = 0;
 
-		A: while ( proceed )
+		A: while ( true )
 		{
-			convolved += target.get().getRealDouble() * products[ 0 ];
+			sums[ 0 ] += target.get().getRealDouble() * weights[ k[ 0 ] ];
 
 			for ( int d = 0; d < n; ++d )
 			{
-				target.fwd( d );
-				final long p = target.getLongPosition( d );
-				if ( p < max[ d ] )
+				if ( ++k[ d ] < taps )
 				{
-					products[ d ] = lookUpLanczos( position[ d ] - p ) * products[ ++d ];
+					target.fwd( d );
 					continue A;
 				}
-				target.move( -size[ d ], d );
-				accumulate( d );
+				k[ d ] = 0;
+				target.move( 1 - taps, d );
+				final int e = d + 1;
+				if ( e < n )
+					sums[ e ] += sums[ d ] * weights[ e * taps + k[ e ] ];
+				else
+					convolved = sums[ d ];
+				sums[ d ] = 0;
 			}
-			proceed = false;
+			break;
 		}
 
 		// do clipping if desired (it should be, except maybe for float or
@@ -217,6 +234,11 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 	}
 
 	final private double lookUpLanczos( final double x )
+	{
+		return lookUpLanczos( lut, x );
+	}
+
+	final static double lookUpLanczos( final double[] lut, final double x )
 	{
 		final double y = x < 0 ? -lutScale * x : lutScale * x;
 		final int yi = ( int ) y;
@@ -227,7 +249,7 @@ public class LanczosInterpolator< T extends RealType< T > > extends FloorOffset<
 	@Override
 	public Sampler< T > copy()
 	{
-		return copy();
+		return copyRealRandomAccess();
 	}
 
 	@Override
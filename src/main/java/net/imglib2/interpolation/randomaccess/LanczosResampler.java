@@ -0,0 +1,297 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.interpolation.randomaccess;
+
+import java.util.ArrayList;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.interpolation.randomaccess.SeparableResampler.AxisWeights;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.view.Views;
+
+/**
+ * Bulk Lanczos resampling of a {@link RandomAccessible} onto a target grid.
+ * This produces the same values as rasterizing a {@link LanczosInterpolator}
+ * at the transformed target coordinates, but the kernel weights are computed
+ * once per target coordinate and axis and reused for the whole scanline.
+ * 
+ * The mapping from target to source coordinates is an affine transform given
+ * as an <em>n x (n+1)</em> matrix, see {@link NLinearResampler}.
+ * <ul>
+ * <li>If the transform is axis-aligned (scaling and translation only), the
+ * interpolation is computed separably with {@link SeparableResampler}, using
+ * one precomputed weight table per axis. Optionally, the kernel is stretched
+ * when downsampling, to avoid aliasing.</li>
+ * <li>Otherwise, the target is split into blocks that are processed in
+ * parallel. The source bounding box of each block is copied into a primitive
+ * buffer once, and every target pixel is reduced separably from per-axis
+ * weight vectors.</li>
+ * </ul>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class LanczosResampler
+{
+	/**
+	 * Resample <code>source</code> into <code>target</code>.
+	 * 
+	 * @param source
+	 *            must be defined on all positions required for interpolation
+	 *            (use an extended view if necessary).
+	 * @param affine
+	 *            <em>n x (n+1)</em> matrix mapping target coordinates to source
+	 *            coordinates.
+	 * @param target
+	 *            the output.
+	 * @param alpha
+	 *            the radius of the Lanczos kernel.
+	 * @param clip
+	 *            whether to clip values to the range of the target type.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void resample( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target, final int alpha, final boolean clip, final int numThreads )
+	{
+		double clipMin = Double.NEGATIVE_INFINITY;
+		double clipMax = Double.POSITIVE_INFINITY;
+		if ( clip )
+		{
+			final S t = Views.iterable( target ).firstElement();
+			clipMin = t.getMinValue();
+			clipMax = t.getMaxValue();
+		}
+		resample( source, affine, target, alpha, false, clipMin, clipMax, numThreads );
+	}
+
+	/**
+	 * Resample <code>source</code> into <code>target</code>.
+	 * 
+	 * @param source
+	 *            must be defined on all positions required for interpolation
+	 *            (use an extended view if necessary).
+	 * @param affine
+	 *            <em>n x (n+1)</em> matrix mapping target coordinates to source
+	 *            coordinates.
+	 * @param target
+	 *            the output.
+	 * @param alpha
+	 *            the radius of the Lanczos kernel.
+	 * @param antialias
+	 *            whether to widen the kernel along axes that are downsampled.
+	 *            This is only supported for axis-aligned transforms and ignored
+	 *            otherwise.
+	 * @param clipMin
+	 *            values are clipped to <code>[clipMin, clipMax]</code>.
+	 * @param clipMax
+	 *            values are clipped to <code>[clipMin, clipMax]</code>.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void resample( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target, final int alpha, final boolean antialias, final double clipMin, final double clipMax, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		AffineResampling.checkAffine( affine, n );
+		if ( source.numDimensions() != n )
+			throw new IllegalArgumentException( "Source and target must have the same dimensionality." );
+
+		if ( AffineResampling.isAxisAligned( affine ) )
+		{
+			final AxisWeights[] weights = new AxisWeights[ n ];
+			for ( int d = 0; d < n; ++d )
+				weights[ d ] = axisWeights( affine[ d ][ d ], affine[ d ][ n ], target.min( d ), ( int ) target.dimension( d ), alpha, antialias );
+			SeparableResampler.resample( source, weights, target, clipMin, clipMax, numThreads );
+		}
+		else
+			resampleBlocks( source, affine, target, alpha, clipMin, clipMax, numThreads );
+	}
+
+	/**
+	 * Lanczos weights for target coordinates
+	 * <code>targetMin ... targetMin + size - 1</code> mapped to source
+	 * coordinates <code>scale * t + offset</code>.
+	 * 
+	 * If <code>antialias</code> is set and <code>|scale| &gt; 1</code>, the
+	 * kernel is stretched by <code>|scale|</code> and normalized, i.e., it
+	 * acts as a low-pass filter at the target resolution.
+	 */
+	public static AxisWeights axisWeights( final double scale, final double offset, final long targetMin, final int size, final int alpha, final boolean antialias )
+	{
+		final double[] lut = LanczosInterpolator.createLanczosLUT( alpha, LanczosInterpolator.lutScale );
+		final double stretch = antialias ? Math.max( 1.0, Math.abs( scale ) ) : 1.0;
+		final int radius = ( int ) Math.ceil( alpha * stretch );
+		final int taps = 2 * radius;
+		final long[] first = new long[ size ];
+		final double[] weights = new double[ taps * size ];
+		for ( int i = 0; i < size; ++i )
+		{
+			final double s = scale * ( targetMin + i ) + offset;
+			final long f = ( long ) Math.floor( s ) - radius + 1;
+			first[ i ] = f;
+			final int o = i * taps;
+			if ( stretch == 1.0 )
+			{
+				for ( int k = 0; k < taps; ++k )
+					weights[ o + k ] = LanczosInterpolator.lookUpLanczos( lut, s - f - k );
+			}
+			else
+			{
+				double sum = 0;
+				for ( int k = 0; k < taps; ++k )
+				{
+					final double x = ( s - f - k ) / stretch;
+					final double w = x > -alpha && x < alpha ? LanczosInterpolator.lookUpLanczos( lut, x ) : 0;
+					weights[ o + k ] = w;
+					sum += w;
+				}
+				for ( int k = 0; k < taps; ++k )
+					weights[ o + k ] /= sum;
+			}
+		}
+		return new AxisWeights( taps, first, weights );
+	}
+
+	private static < T extends RealType< T >, S extends RealType< S > > void resampleBlocks( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target, final int alpha, final double clipMin, final double clipMax, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		target.min( min );
+		target.max( max );
+		final ArrayList< long[][] > blocks = new ArrayList< long[][] >();
+		AffineResampling.splitBlocks( affine, min, max, alpha, blocks );
+		final double[] lut = LanczosInterpolator.createLanczosLUT( alpha, LanczosInterpolator.lutScale );
+
+		ParallelHelper.run( blocks.size(), numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long[][] block = blocks.get( taskIndex );
+				resampleBlock( source, affine, Views.interval( target, block[ 0 ], block[ 1 ] ), alpha, lut, clipMin, clipMax );
+			}
+		} );
+	}
+
+	/**
+	 * Copy the source bounding box of the target block into a primitive
+	 * buffer and interpolate all target pixels of the block from the buffer.
+	 */
+	private static < T extends RealType< T >, S extends RealType< S > > void resampleBlock( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target, final int alpha, final double[] lut, final double clipMin, final double clipMax )
+	{
+		final int n = target.numDimensions();
+		final long[] srcMin = new long[ n ];
+		final long[] srcMax = new long[ n ];
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		target.min( min );
+		target.max( max );
+		AffineResampling.sourceBoundingBox( affine, min, max, alpha, srcMin, srcMax );
+
+		final int[] strides = new int[ n ];
+		int size = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			strides[ d ] = size;
+			size *= ( int ) ( srcMax[ d ] - srcMin[ d ] + 1 );
+		}
+		final double[] buffer = new double[ size ];
+		SeparableResampler.read( source, srcMin, srcMax, buffer, 0 );
+
+		final int taps = 2 * alpha;
+		final double[] weights = new double[ n * taps ];
+		final double[] p0 = new double[ n ];
+		final double[] step = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+			step[ d ] = affine[ d ][ 0 ];
+
+		final long width = target.dimension( 0 );
+		final Cursor< S > out = Views.flatIterable( target ).localizingCursor();
+		while ( out.hasNext() )
+		{
+			out.fwd();
+			for ( int r = 0; r < n; ++r )
+			{
+				double s = affine[ r ][ n ];
+				for ( int c = 0; c < n; ++c )
+					s += affine[ r ][ c ] * out.getLongPosition( c );
+				p0[ r ] = s;
+			}
+
+			for ( long x = 0; x < width; ++x )
+			{
+				if ( x > 0 )
+					out.fwd();
+
+				int index = 0;
+				for ( int d = 0; d < n; ++d )
+				{
+					final double s = p0[ d ] + x * step[ d ];
+					final long f = ( long ) Math.floor( s ) - alpha + 1;
+					index += ( int ) ( f - srcMin[ d ] ) * strides[ d ];
+					final int o = d * taps;
+					for ( int k = 0; k < taps; ++k )
+						weights[ o + k ] = LanczosInterpolator.lookUpLanczos( lut, s - f - k );
+				}
+
+				final double value = reduce( buffer, strides, weights, taps, n - 1, index );
+				out.get().setReal( Math.min( clipMax, Math.max( clipMin, value ) ) );
+			}
+		}
+	}
+
+	/**
+	 * Reduce the <em>taps<sup>d+1</sup></em> samples starting at
+	 * <code>index</code> along dimensions <em>0 ... d</em>.
+	 */
+	private static double reduce( final double[] buffer, final int[] strides, final double[] weights, final int taps, final int d, final int index )
+	{
+		double sum = 0;
+		final int o = d * taps;
+		if ( d == 0 )
+		{
+			for ( int k = 0; k < taps; ++k )
+				sum += weights[ k ] * buffer[ index + k ];
+		}
+		else
+		{
+			final int stride = strides[ d ];
+			for ( int k = 0; k < taps; ++k )
+				sum += weights[ o + k ] * reduce( buffer, strides, weights, taps, d - 1, index + k * stride );
+		}
+		return sum;
+	}
+}
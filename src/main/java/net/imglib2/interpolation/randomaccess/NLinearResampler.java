@@ -0,0 +1,295 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.interpolation.randomaccess;
+
+import java.util.ArrayList;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.interpolation.randomaccess.SeparableResampler.AxisWeights;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.view.Views;
+
+/**
+ * Bulk n-linear resampling of a {@link RandomAccessible} onto a target grid.
+ * This produces the same values as rasterizing an {@link NLinearInterpolator}
+ * at the transformed target coordinates, but evaluates whole lines at once
+ * instead of calling <code>setPosition()</code> and <code>get()</code> per
+ * target pixel.
+ * 
+ * The mapping from target to source coordinates is an affine transform given
+ * as an <em>n x (n+1)</em> matrix <em>A</em>, i.e., target pixel <em>t</em>
+ * receives the interpolated source value at <em>A<sub>0..n-1</sub> t +
+ * A<sub>n</sub></em>.
+ * <ul>
+ * <li>If the transform is axis-aligned (scaling and translation only), the
+ * interpolation is computed separably with {@link SeparableResampler}, using
+ * one precomputed weight table per axis.</li>
+ * <li>Otherwise, the target is split into blocks that are processed in
+ * parallel. The source bounding box of each block is copied into a primitive
+ * buffer once, so the 2<sup>n</sup> corners of every target pixel are read
+ * from the buffer at precomputed offsets. Along each target line, the source
+ * position advances by a constant vector.</li>
+ * </ul>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class NLinearResampler
+{
+	/**
+	 * Resample <code>source</code> into <code>target</code>.
+	 * 
+	 * @param source
+	 *            must be defined on all positions required for interpolation
+	 *            (use an extended view if necessary).
+	 * @param affine
+	 *            <em>n x (n+1)</em> matrix mapping target coordinates to source
+	 *            coordinates.
+	 * @param target
+	 *            the output.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void resample( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		AffineResampling.checkAffine( affine, n );
+		if ( source.numDimensions() != n )
+			throw new IllegalArgumentException( "Source and target must have the same dimensionality." );
+
+		if ( AffineResampling.isAxisAligned( affine ) )
+		{
+			final AxisWeights[] weights = new AxisWeights[ n ];
+			for ( int d = 0; d < n; ++d )
+				weights[ d ] = axisWeights( affine[ d ][ d ], affine[ d ][ n ], target.min( d ), ( int ) target.dimension( d ) );
+			SeparableResampler.resample( source, weights, target, numThreads );
+		}
+		else
+			resampleLines( source, affine, target, numThreads );
+	}
+
+	/**
+	 * Linear interpolation weights for target coordinates
+	 * <code>targetMin ... targetMin + size - 1</code> mapped to source
+	 * coordinates <code>scale * t + offset</code>.
+	 */
+	public static AxisWeights axisWeights( final double scale, final double offset, final long targetMin, final int size )
+	{
+		final long[] first = new long[ size ];
+		final double[] weights = new double[ 2 * size ];
+		for ( int i = 0; i < size; ++i )
+		{
+			final double s = scale * ( targetMin + i ) + offset;
+			final long f = ( long ) Math.floor( s );
+			final double w = s - f;
+			first[ i ] = f;
+			weights[ 2 * i ] = 1.0 - w;
+			weights[ 2 * i + 1 ] = w;
+		}
+		return new AxisWeights( 2, first, weights );
+	}
+
+	private static < T extends RealType< T >, S extends RealType< S > > void resampleLines( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		target.min( min );
+		target.max( max );
+		final ArrayList< long[][] > blocks = new ArrayList< long[][] >();
+		AffineResampling.splitBlocks( affine, min, max, 1, blocks );
+
+		ParallelHelper.run( blocks.size(), numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long[][] block = blocks.get( taskIndex );
+				resampleBlock( source, affine, Views.interval( target, block[ 0 ], block[ 1 ] ) );
+			}
+		} );
+	}
+
+	/**
+	 * Copy the source bounding box of the target block into a primitive
+	 * buffer and interpolate all target pixels of the block from the buffer.
+	 */
+	private static < T extends RealType< T >, S extends RealType< S > > void resampleBlock( final RandomAccessible< T > source, final double[][] affine, final RandomAccessibleInterval< S > target )
+	{
+		final int n = target.numDimensions();
+		final long[] srcMin = new long[ n ];
+		final long[] srcMax = new long[ n ];
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		target.min( min );
+		target.max( max );
+		AffineResampling.sourceBoundingBox( affine, min, max, 1, srcMin, srcMax );
+
+		final int[] srcDims = new int[ n ];
+		final int[] strides = new int[ n ];
+		int size = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			srcDims[ d ] = ( int ) ( srcMax[ d ] - srcMin[ d ] + 1 );
+			strides[ d ] = size;
+			size *= srcDims[ d ];
+		}
+		final double[] buffer = new double[ size ];
+		SeparableResampler.read( source, srcMin, srcMax, buffer, 0 );
+
+		// offsets of the 2^n corners relative to the floor position
+		final int numCorners = 1 << n;
+		final int[] cornerOffsets = new int[ numCorners ];
+		for ( int c = 0; c < numCorners; ++c )
+			for ( int d = 0; d < n; ++d )
+				if ( ( c & ( 1 << d ) ) != 0 )
+					cornerOffsets[ c ] += strides[ d ];
+
+		final double[] weights = new double[ numCorners ];
+		final double[] p0 = new double[ n ];
+		final double[] step = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+			step[ d ] = affine[ d ][ 0 ];
+
+		final long width = target.dimension( 0 );
+		final Cursor< S > out = Views.flatIterable( target ).localizingCursor();
+		while ( out.hasNext() )
+		{
+			out.fwd();
+			for ( int r = 0; r < n; ++r )
+			{
+				double s = affine[ r ][ n ];
+				for ( int c = 0; c < n; ++c )
+					s += affine[ r ][ c ] * out.getLongPosition( c );
+				p0[ r ] = s;
+			}
+
+			if ( n == 2 )
+			{
+				interpolateLine2D( buffer, srcMin, strides, p0, step, width, out );
+				continue;
+			}
+			if ( n == 3 )
+			{
+				interpolateLine3D( buffer, srcMin, strides, p0, step, width, out );
+				continue;
+			}
+
+			for ( long x = 0; x < width; ++x )
+			{
+				if ( x > 0 )
+					out.fwd();
+
+				int index = 0;
+				weights[ 0 ] = 1.0;
+				for ( int d = n - 1; d >= 0; --d )
+				{
+					final double s = p0[ d ] + x * step[ d ];
+					final long f = ( long ) Math.floor( s );
+					index += ( int ) ( f - srcMin[ d ] ) * strides[ d ];
+
+					// n-linear weights, same layout as NLinearInterpolator
+					final double w = s - f;
+					final double wInv = 1.0 - w;
+					final int wInvIndexIncrement = 1 << d;
+					final int loopCount = 1 << ( n - 1 - d );
+					final int baseIndexIncrement = wInvIndexIncrement * 2;
+					int baseIndex = 0;
+					for ( int i = 0; i < loopCount; ++i )
+					{
+						weights[ baseIndex + wInvIndexIncrement ] = weights[ baseIndex ] * w;
+						weights[ baseIndex ] *= wInv;
+						baseIndex += baseIndexIncrement;
+					}
+				}
+
+				double value = 0;
+				for ( int c = 0; c < numCorners; ++c )
+					value += weights[ c ] * buffer[ index + cornerOffsets[ c ] ];
+				out.get().setReal( value );
+			}
+		}
+	}
+
+	private static < S extends RealType< S > > void interpolateLine2D( final double[] buffer, final long[] srcMin, final int[] strides, final double[] p0, final double[] step, final long width, final Cursor< S > out )
+	{
+		final int sy = strides[ 1 ];
+		for ( long x = 0; x < width; ++x )
+		{
+			if ( x > 0 )
+				out.fwd();
+			final double s0 = p0[ 0 ] + x * step[ 0 ];
+			final double s1 = p0[ 1 ] + x * step[ 1 ];
+			final long f0 = ( long ) Math.floor( s0 );
+			final long f1 = ( long ) Math.floor( s1 );
+			final double w0 = s0 - f0;
+			final double w1 = s1 - f1;
+			final int i = ( int ) ( f0 - srcMin[ 0 ] ) + ( int ) ( f1 - srcMin[ 1 ] ) * sy;
+			final double a = buffer[ i ] + w0 * ( buffer[ i + 1 ] - buffer[ i ] );
+			final double b = buffer[ i + sy ] + w0 * ( buffer[ i + sy + 1 ] - buffer[ i + sy ] );
+			out.get().setReal( a + w1 * ( b - a ) );
+		}
+	}
+
+	private static < S extends RealType< S > > void interpolateLine3D( final double[] buffer, final long[] srcMin, final int[] strides, final double[] p0, final double[] step, final long width, final Cursor< S > out )
+	{
+		final int sy = strides[ 1 ];
+		final int sz = strides[ 2 ];
+		for ( long x = 0; x < width; ++x )
+		{
+			if ( x > 0 )
+				out.fwd();
+			final double s0 = p0[ 0 ] + x * step[ 0 ];
+			final double s1 = p0[ 1 ] + x * step[ 1 ];
+			final double s2 = p0[ 2 ] + x * step[ 2 ];
+			final long f0 = ( long ) Math.floor( s0 );
+			final long f1 = ( long ) Math.floor( s1 );
+			final long f2 = ( long ) Math.floor( s2 );
+			final double w0 = s0 - f0;
+			final double w1 = s1 - f1;
+			final double w2 = s2 - f2;
+			final int i = ( int ) ( f0 - srcMin[ 0 ] ) + ( int ) ( f1 - srcMin[ 1 ] ) * sy + ( int ) ( f2 - srcMin[ 2 ] ) * sz;
+			final int j = i + sz;
+			final double a0 = buffer[ i ] + w0 * ( buffer[ i + 1 ] - buffer[ i ] );
+			final double b0 = buffer[ i + sy ] + w0 * ( buffer[ i + sy + 1 ] - buffer[ i + sy ] );
+			final double a1 = buffer[ j ] + w0 * ( buffer[ j + 1 ] - buffer[ j ] );
+			final double b1 = buffer[ j + sy ] + w0 * ( buffer[ j + sy + 1 ] - buffer[ j + sy ] );
+			final double c0 = a0 + w1 * ( b0 - a0 );
+			final double c1 = a1 + w1 * ( b1 - a1 );
+			out.get().setReal( c0 + w2 * ( c1 - c0 ) );
+		}
+	}
+}
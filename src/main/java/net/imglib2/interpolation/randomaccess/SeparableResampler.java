@@ -0,0 +1,381 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.interpolation.randomaccess;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.view.Views;
+
+/**
+ * Resample a {@link RandomAccessible} onto a grid whose axes are aligned with
+ * the source axes (scaling and translation), using a separable interpolation
+ * kernel.
+ * 
+ * For each axis, the kernel is described by an {@link AxisWeights} table that
+ * holds, for every target coordinate, the source coordinate of the first tap
+ * and the weights of all taps. The required source region is copied into a
+ * primitive buffer once, then the kernel is applied one axis at a time. Each
+ * pass processes runs of contiguous memory, so the inner loops are simple
+ * multiply-adds over <code>double[]</code> arrays. To bound memory, the target
+ * is processed in slabs along its last dimension.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class SeparableResampler
+{
+	/**
+	 * Maximum number of elements of the intermediate buffers.
+	 */
+	private static final long MAX_BUFFER_SIZE = 1 << 24;
+
+	/**
+	 * Interpolation weights along one axis.
+	 */
+	public static class AxisWeights
+	{
+		/**
+		 * number of taps per target coordinate.
+		 */
+		public final int taps;
+
+		/**
+		 * source coordinate of the first tap, for each target coordinate.
+		 */
+		public final long[] first;
+
+		/**
+		 * weights, <code>taps</code> consecutive values per target coordinate.
+		 */
+		public final double[] weights;
+
+		public AxisWeights( final int taps, final long[] first, final double[] weights )
+		{
+			if ( weights.length != taps * first.length )
+				throw new IllegalArgumentException( "Need " + taps + " weights per target coordinate." );
+			this.taps = taps;
+			this.first = first;
+			this.weights = weights;
+		}
+
+		/**
+		 * @return number of target coordinates.
+		 */
+		public int size()
+		{
+			return first.length;
+		}
+	}
+
+	/**
+	 * Set every target pixel <em>t</em> to
+	 * <em>sum<sub>k</sub> w<sub>0</sub>(t<sub>0</sub>, k<sub>0</sub>) *
+	 * ... * w<sub>n-1</sub>(t<sub>n-1</sub>, k<sub>n-1</sub>) *
+	 * source(first<sub>0</sub>(t<sub>0</sub>) + k<sub>0</sub>, ...)</em>.
+	 * 
+	 * @param source
+	 *            must be defined on all positions referenced by the weight
+	 *            tables (use an extended view if necessary).
+	 * @param weights
+	 *            one table per dimension, indexed by target coordinate relative
+	 *            to target min.
+	 * @param target
+	 *            the output.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void resample( final RandomAccessible< T > source, final AxisWeights[] weights, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		resample( source, weights, target, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, numThreads );
+	}
+
+	/**
+	 * Like {@link #resample(RandomAccessible, AxisWeights[], RandomAccessibleInterval, int)}
+	 * but clip the results to <code>[clipMin, clipMax]</code>.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void resample( final RandomAccessible< T > source, final AxisWeights[] weights, final RandomAccessibleInterval< S > target, final double clipMin, final double clipMax, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		if ( weights.length != n || source.numDimensions() != n )
+			throw new IllegalArgumentException( "Source, target and weights must have the same dimensionality." );
+		for ( int d = 0; d < n; ++d )
+			if ( weights[ d ].size() != target.dimension( d ) )
+				throw new IllegalArgumentException( "Weights for dimension " + d + " do not match the target size." );
+
+		final int last = n - 1;
+		final long height = target.dimension( last );
+
+		// number of target rows (along the last dimension) per slab
+		long slabElements = 1;
+		for ( int d = 0; d < last; ++d )
+			slabElements *= Math.max( target.dimension( d ), span( weights[ d ], 0, weights[ d ].size() ) );
+		final double sourceRowsPerRow = Math.max( 1.0, ( double ) span( weights[ last ], 0, ( int ) height ) / height );
+		final long rowsPerSlab = Math.max( 1, Math.min( height, ( long ) ( ( MAX_BUFFER_SIZE / slabElements - weights[ last ].taps ) / sourceRowsPerRow ) ) );
+
+		final long[] targetMin = new long[ n ];
+		final long[] targetMax = new long[ n ];
+		target.min( targetMin );
+		target.max( targetMax );
+		for ( long y0 = 0; y0 < height; y0 += rowsPerSlab )
+		{
+			final int y1 = ( int ) Math.min( height, y0 + rowsPerSlab );
+			targetMin[ last ] = target.min( last ) + y0;
+			targetMax[ last ] = target.min( last ) + y1 - 1;
+			resampleSlab( source, weights, ( int ) y0, y1, Views.interval( target, targetMin, targetMax ), clipMin, clipMax, numThreads );
+		}
+	}
+
+	/**
+	 * number of source coordinates referenced by target coordinates
+	 * <code>[from, to)</code>.
+	 */
+	private static long span( final AxisWeights w, final int from, final int to )
+	{
+		return sourceMax( w, from, to ) - sourceMin( w, from, to ) + 1;
+	}
+
+	private static long sourceMin( final AxisWeights w, final int from, final int to )
+	{
+		long min = Long.MAX_VALUE;
+		for ( int i = from; i < to; ++i )
+			min = Math.min( min, w.first[ i ] );
+		return min;
+	}
+
+	private static long sourceMax( final AxisWeights w, final int from, final int to )
+	{
+		long max = Long.MIN_VALUE;
+		for ( int i = from; i < to; ++i )
+			max = Math.max( max, w.first[ i ] + w.taps - 1 );
+		return max;
+	}
+
+	private static < T extends RealType< T >, S extends RealType< S > > void resampleSlab( final RandomAccessible< T > source, final AxisWeights[] weights, final int y0, final int y1, final RandomAccessibleInterval< S > target, final double clipMin, final double clipMax, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final int last = n - 1;
+
+		// source region and dimensions of the first buffer
+		final long[] srcMin = new long[ n ];
+		final long[] srcMax = new long[ n ];
+		final int[] dims = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			final int from = d == last ? y0 : 0;
+			final int to = d == last ? y1 : weights[ d ].size();
+			srcMin[ d ] = sourceMin( weights[ d ], from, to );
+			srcMax[ d ] = sourceMax( weights[ d ], from, to );
+			dims[ d ] = ( int ) ( srcMax[ d ] - srcMin[ d ] + 1 );
+		}
+
+		double[] buffer = read( source, srcMin, srcMax, numThreads );
+
+		for ( int d = 0; d < n; ++d )
+		{
+			final int from = d == last ? y0 : 0;
+			final int to = d == last ? y1 : weights[ d ].size();
+			buffer = pass( buffer, dims, d, weights[ d ], from, to, srcMin[ d ], numThreads );
+			dims[ d ] = to - from;
+		}
+
+		write( buffer, target, clipMin, clipMax, numThreads );
+	}
+
+	/**
+	 * Copy the source interval into a flat buffer, in parallel slabs along the
+	 * last dimension.
+	 */
+	private static < T extends RealType< T > > double[] read( final RandomAccessible< T > source, final long[] min, final long[] max, final int numThreads )
+	{
+		final int n = min.length;
+		final int last = n - 1;
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+			size *= max[ d ] - min[ d ] + 1;
+		if ( size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Source region of a single target slab is too large." );
+		final long sliceSize = size / ( max[ last ] - min[ last ] + 1 );
+		final double[] buffer = new double[ ( int ) size ];
+
+		final long height = max[ last ] - min[ last ] + 1;
+		final int numTasks = ( int ) Math.min( height, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( height, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( height, numTasks, taskIndex + 1 );
+				if ( start == end )
+					return;
+				final long[] cmin = min.clone();
+				final long[] cmax = max.clone();
+				cmin[ last ] = min[ last ] + start;
+				cmax[ last ] = min[ last ] + end - 1;
+				read( source, cmin, cmax, buffer, ( int ) ( start * sliceSize ) );
+			}
+		} );
+		return buffer;
+	}
+
+	/**
+	 * Copy the source interval <code>[min, max]</code> into
+	 * <code>buffer</code>, starting at <code>offset</code>, in flat iteration
+	 * order. Lines along dimension 0 are read by moving a single
+	 * {@link RandomAccess}.
+	 */
+	static < T extends RealType< T > > void read( final RandomAccessible< T > source, final long[] min, final long[] max, final double[] buffer, final int offset )
+	{
+		final int n = min.length;
+		final RandomAccess< T > in = source.randomAccess();
+		final int width = ( int ) ( max[ 0 ] - min[ 0 ] + 1 );
+		final long[] pos = min.clone();
+		int i = offset;
+		while ( true )
+		{
+			in.setPosition( pos );
+			for ( int x = 0; x < width; ++x )
+			{
+				buffer[ i++ ] = in.get().getRealDouble();
+				in.fwd( 0 );
+			}
+
+			// next line
+			int d = 1;
+			for ( ; d < n; ++d )
+			{
+				if ( pos[ d ] < max[ d ] )
+				{
+					++pos[ d ];
+					break;
+				}
+				pos[ d ] = min[ d ];
+			}
+			if ( d >= n )
+				break;
+		}
+	}
+
+	/**
+	 * Write a flat buffer into the target, clipped to
+	 * <code>[clipMin, clipMax]</code>, in parallel slabs along the last
+	 * dimension.
+	 */
+	private static < S extends RealType< S > > void write( final double[] buffer, final RandomAccessibleInterval< S > target, final double clipMin, final double clipMax, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final int last = n - 1;
+		final long height = target.dimension( last );
+		final long sliceSize = buffer.length / height;
+		final int numTasks = ( int ) Math.min( height, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( height, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( height, numTasks, taskIndex + 1 );
+				if ( start == end )
+					return;
+				final long[] min = new long[ n ];
+				final long[] max = new long[ n ];
+				target.min( min );
+				target.max( max );
+				min[ last ] = target.min( last ) + start;
+				max[ last ] = target.min( last ) + end - 1;
+				final Cursor< S > c = Views.flatIterable( Views.interval( target, min, max ) ).cursor();
+				int i = ( int ) ( start * sliceSize );
+				while ( c.hasNext() )
+					c.next().setReal( Math.min( clipMax, Math.max( clipMin, buffer[ i++ ] ) ) );
+			}
+		} );
+	}
+
+	/**
+	 * Apply the kernel along dimension <code>d</code>, producing target
+	 * coordinates <code>[from, to)</code>.
+	 */
+	private static double[] pass( final double[] in, final int[] dims, final int d, final AxisWeights w, final int from, final int to, final long inMin, final int numThreads )
+	{
+		final int n = dims.length;
+		int block = 1;
+		for ( int i = 0; i < d; ++i )
+			block *= dims[ i ];
+		int outer = 1;
+		for ( int i = d + 1; i < n; ++i )
+			outer *= dims[ i ];
+		final int inLen = dims[ d ];
+		final int outLen = to - from;
+		final int taps = w.taps;
+		final int blockSize = block;
+		final int numOuter = outer;
+
+		final double[] out = new double[ numOuter * outLen * blockSize ];
+		final long numUnits = ( long ) numOuter * outLen;
+		final int numTasks = ( int ) Math.min( numUnits, 4l * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int start = ( int ) ParallelHelper.chunkStart( numUnits, numTasks, taskIndex );
+				final int end = ( int ) ParallelHelper.chunkStart( numUnits, numTasks, taskIndex + 1 );
+				for ( int unit = start; unit < end; ++unit )
+				{
+					final int o = unit % outLen;
+					final int z = unit / outLen;
+					final int t = from + o;
+					final int outBase = unit * blockSize;
+					int inBase = ( z * inLen + ( int ) ( w.first[ t ] - inMin ) ) * blockSize;
+					final int wBase = t * taps;
+
+					double wk = w.weights[ wBase ];
+					for ( int j = 0; j < blockSize; ++j )
+						out[ outBase + j ] = wk * in[ inBase + j ];
+					for ( int k = 1; k < taps; ++k )
+					{
+						inBase += blockSize;
+						wk = w.weights[ wBase + k ];
+						for ( int j = 0; j < blockSize; ++j )
+							out[ outBase + j ] += wk * in[ inBase + j ];
+					}
+				}
+			}
+		} );
+		return out;
+	}
+}
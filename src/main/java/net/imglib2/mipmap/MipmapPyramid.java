@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.mipmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.RandomAccessibleInterval;
+
+/**
+ * Default {@link MultiResolutionRandomAccessibleInterval} that holds a list of
+ * levels and their downsampling factors.
+ * 
+ * @param <T>
+ *            pixel type
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class MipmapPyramid< T > implements MultiResolutionRandomAccessibleInterval< T >
+{
+	private final int n;
+
+	private final List< RandomAccessibleInterval< T > > levels;
+
+	private final List< long[] > factors;
+
+	/**
+	 * @param levels
+	 *            the resolution levels, starting with full resolution.
+	 * @param factors
+	 *            the downsampling factors for each level (with respect to
+	 *            level 0), one per dimension.
+	 */
+	public MipmapPyramid( final List< ? extends RandomAccessibleInterval< T > > levels, final List< long[] > factors )
+	{
+		if ( levels.isEmpty() || levels.size() != factors.size() )
+			throw new IllegalArgumentException( "Need at least one level and one factors array per level." );
+		this.n = levels.get( 0 ).numDimensions();
+		this.levels = new ArrayList< RandomAccessibleInterval< T > >( levels );
+		this.factors = new ArrayList< long[] >( factors.size() );
+		for ( final long[] f : factors )
+		{
+			if ( f.length != n )
+				throw new IllegalArgumentException( "Downsampling factors must have one entry per dimension." );
+			this.factors.add( f.clone() );
+		}
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public int numLevels()
+	{
+		return levels.size();
+	}
+
+	@Override
+	public RandomAccessibleInterval< T > getLevel( final int level )
+	{
+		return levels.get( level );
+	}
+
+	@Override
+	public long getDownsamplingFactor( final int level, final int d )
+	{
+		return factors.get( level )[ d ];
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.mipmap;
+
+import java.util.ArrayList;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.ParallelHelper;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Create {@link MultiResolutionRandomAccessibleInterval mipmap pyramids} and
+ * select resolution levels for rendering.
+ * 
+ * Each level is computed from the previous one by combining blocks of
+ * <em>f<sub>0</sub> x f<sub>1</sub> x ...</em> pixels, so the full resolution
+ * source is read exactly once. Blocks at the upper border are clipped. Each
+ * level is computed in parallel, split along the last dimension.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class Mipmaps
+{
+	/**
+	 * How blocks of pixels are combined into one pixel of the next level.
+	 */
+	public static enum Downsampling
+	{
+		/**
+		 * mean value of the block, for intensity data.
+		 */
+		AVERAGE,
+
+		/**
+		 * maximum value of the block, for label or mask data.
+		 */
+		MAX
+	}
+
+	/**
+	 * Create a mipmap pyramid by averaging.
+	 * 
+	 * @param source
+	 *            full resolution data, becomes level 0 (translated to origin).
+	 * @param factory
+	 *            used to create the downsampled levels.
+	 * @param stepFactors
+	 *            downsampling factor from one level to the next, per dimension,
+	 *            e.g. <code>{2, 2, 1}</code> to downsample only in X and Y.
+	 * @param numLevels
+	 *            total number of levels, including level 0.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T > > MipmapPyramid< T > average( final RandomAccessibleInterval< T > source, final ImgFactory< T > factory, final long[] stepFactors, final int numLevels, final int numThreads )
+	{
+		return create( source, factory, stepFactors, numLevels, Downsampling.AVERAGE, numThreads );
+	}
+
+	/**
+	 * Create a mipmap pyramid by taking the maximum of each block, e.g. for
+	 * label data.
+	 * 
+	 * @param source
+	 *            full resolution data, becomes level 0 (translated to origin).
+	 * @param factory
+	 *            used to create the downsampled levels.
+	 * @param stepFactors
+	 *            downsampling factor from one level to the next, per dimension,
+	 *            e.g. <code>{2, 2, 1}</code> to downsample only in X and Y.
+	 * @param numLevels
+	 *            total number of levels, including level 0.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T > > MipmapPyramid< T > max( final RandomAccessibleInterval< T > source, final ImgFactory< T > factory, final long[] stepFactors, final int numLevels, final int numThreads )
+	{
+		return create( source, factory, stepFactors, numLevels, Downsampling.MAX, numThreads );
+	}
+
+	/**
+	 * Create a mipmap pyramid.
+	 * 
+	 * @param source
+	 *            full resolution data, becomes level 0 (translated to origin).
+	 * @param factory
+	 *            used to create the downsampled levels.
+	 * @param stepFactors
+	 *            downsampling factor from one level to the next, per dimension,
+	 *            e.g. <code>{2, 2, 1}</code> to downsample only in X and Y.
+	 * @param numLevels
+	 *            total number of levels, including level 0.
+	 * @param downsampling
+	 *            how blocks are combined.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T > > MipmapPyramid< T > create( final RandomAccessibleInterval< T > source, final ImgFactory< T > factory, final long[] stepFactors, final int numLevels, final Downsampling downsampling, final int numThreads )
+	{
+		final int n = source.numDimensions();
+		if ( stepFactors.length != n )
+			throw new IllegalArgumentException( "stepFactors must have one entry per dimension." );
+
+		final ArrayList< RandomAccessibleInterval< T > > levels = new ArrayList< RandomAccessibleInterval< T > >( numLevels );
+		final ArrayList< long[] > factors = new ArrayList< long[] >( numLevels );
+
+		RandomAccessibleInterval< T > previous = Views.zeroMin( source );
+		long[] factor = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			factor[ d ] = 1;
+		levels.add( previous );
+		factors.add( factor );
+
+		final T type = Util.getTypeFromInterval( source ).createVariable();
+		for ( int l = 1; l < numLevels; ++l )
+		{
+			final long[] dims = new long[ n ];
+			final long[] nextFactor = new long[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				dims[ d ] = ( previous.dimension( d ) - 1 ) / stepFactors[ d ] + 1;
+				nextFactor[ d ] = factor[ d ] * stepFactors[ d ];
+			}
+			final Img< T > level = factory.create( dims, type );
+			downsample( previous, level, stepFactors, downsampling, numThreads );
+			levels.add( level );
+			factors.add( nextFactor );
+			previous = level;
+			factor = nextFactor;
+		}
+
+		return new MipmapPyramid< T >( levels, factors );
+	}
+
+	/**
+	 * Downsample <code>source</code> into <code>target</code> by combining
+	 * blocks of <code>factors</code> pixels. Both must have min at the origin,
+	 * and the target dimensions must be at most
+	 * <code>ceil(source dimensions / factors)</code>.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void downsample( final RandomAccessibleInterval< T > source, final RandomAccessibleInterval< S > target, final long[] factors, final Downsampling downsampling, final int numThreads )
+	{
+		final int n = target.numDimensions();
+		final int splitDim = n - 1;
+		final long splitSize = target.dimension( splitDim );
+		final int numTasks = ( int ) Math.min( splitSize, 4l * Math.max( 1, numThreads ) );
+		final boolean max = downsampling == Downsampling.MAX;
+
+		final long[] sourceMax = new long[ n ];
+		source.max( sourceMax );
+
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long[] min = new long[ n ];
+				final long[] maxPos = new long[ n ];
+				target.min( min );
+				target.max( maxPos );
+				min[ splitDim ] = target.min( splitDim ) + ParallelHelper.chunkStart( splitSize, numTasks, taskIndex );
+				maxPos[ splitDim ] = target.min( splitDim ) + ParallelHelper.chunkStart( splitSize, numTasks, taskIndex + 1 ) - 1;
+
+				final Cursor< S > cursor = Views.flatIterable( Views.interval( target, min, maxPos ) ).localizingCursor();
+				final RandomAccess< T > in = source.randomAccess();
+				final long[] pos = new long[ n ];
+				final long[] blockMin = new long[ n ];
+				final long[] blockMax = new long[ n ];
+
+				while ( cursor.hasNext() )
+				{
+					cursor.fwd();
+					cursor.localize( pos );
+					for ( int d = 0; d < n; ++d )
+					{
+						blockMin[ d ] = pos[ d ] * factors[ d ];
+						blockMax[ d ] = Math.min( blockMin[ d ] + factors[ d ] - 1, sourceMax[ d ] );
+					}
+
+					in.setPosition( blockMin );
+					double acc = max ? Double.NEGATIVE_INFINITY : 0;
+					long count = 0;
+					while ( true )
+					{
+						final double v = in.get().getRealDouble();
+						if ( max )
+						{
+							if ( v > acc )
+								acc = v;
+						}
+						else
+							acc += v;
+						++count;
+
+						int d = 0;
+						for ( ; d < n; ++d )
+						{
+							if ( in.getLongPosition( d ) < blockMax[ d ] )
+							{
+								in.fwd( d );
+								break;
+							}
+							in.setPosition( blockMin[ d ], d );
+						}
+						if ( d == n )
+							break;
+					}
+
+					cursor.get().setReal( max ? acc : acc / count );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Select the resolution level for rendering at the given screen scale.
+	 * This is the coarsest level whose pixels are not larger than a screen
+	 * pixel in dimension <code>d</code>.
+	 * 
+	 * @param source
+	 *            multi-resolution source.
+	 * @param screenScale
+	 *            screen pixels per full resolution pixel, e.g. 0.25 for a view
+	 *            that is zoomed out by a factor of 4.
+	 * @param d
+	 *            the dimension to consider, e.g. the screen X dimension.
+	 */
+	public static int bestLevel( final MultiResolutionRandomAccessibleInterval< ? > source, final double screenScale, final int d )
+	{
+		int best = 0;
+		for ( int l = 1; l < source.numLevels(); ++l )
+			if ( source.getDownsamplingFactor( l, d ) * screenScale <= 1.0 )
+				best = l;
+		return best;
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.mipmap;
+
+import net.imglib2.EuclideanSpace;
+import net.imglib2.RandomAccessibleInterval;
+
+/**
+ * A source that is available at several resolution levels. Level 0 is the full
+ * resolution, higher levels are increasingly downsampled. A pixel at position
+ * <em>x</em> of level <em>l</em> covers the full resolution pixels
+ * <em>x * f ... (x + 1) * f - 1</em>, where <em>f</em> is the
+ * {@link #getDownsamplingFactor(int, int) downsampling factor} of the level.
+ * 
+ * @param <T>
+ *            pixel type
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public interface MultiResolutionRandomAccessibleInterval< T > extends EuclideanSpace
+{
+	/**
+	 * @return the number of resolution levels.
+	 */
+	public int numLevels();
+
+	/**
+	 * @return the data at the given resolution level.
+	 */
+	public RandomAccessibleInterval< T > getLevel( int level );
+
+	/**
+	 * @return the downsampling factor of the given level with respect to the
+	 *         full resolution level 0, in dimension d.
+	 */
+	public long getDownsamplingFactor( int level, int d );
+}
@@ -0,0 +1,178 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.outofbounds;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.type.Type;
+import net.imglib2.view.BorderSplitter;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
+
+/**
+ * A materialized extension of a {@link RandomAccessibleInterval}. The source
+ * data is copied into the interior of an {@link Img} that is larger by a
+ * fixed border in every dimension. The border (halo) is filled with the values
+ * that an {@link OutOfBoundsFactory} would produce for the interior.
+ * 
+ * <p>
+ * This is useful for iterative neighborhood operations: each pass reads plain
+ * {@link Img} data from {@link #getPadded()} and writes to
+ * {@link #getInterior()}. After the interior has changed,
+ * {@link #refreshHalo()} recomputes only the halo, instead of going through
+ * the out-of-bounds strategy for every border access of every pass.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class PaddedBuffer< T extends Type< T > >
+{
+	final protected Img< T > buffer;
+
+	final protected IntervalView< T > padded;
+
+	final protected IntervalView< T > interior;
+
+	final protected OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > factory;
+
+	/**
+	 * Create a padded copy of {@code source}.
+	 * 
+	 * @param source
+	 *            the data to copy into the interior.
+	 * @param border
+	 *            the width of the halo in every dimension.
+	 * @param factory
+	 *            out-of-bounds strategy that defines the halo values.
+	 * @param imgFactory
+	 *            used to create the padded {@link Img}.
+	 */
+	public PaddedBuffer( final RandomAccessibleInterval< T > source, final long[] border, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > factory, final ImgFactory< T > imgFactory )
+	{
+		final int n = source.numDimensions();
+		if ( border.length != n )
+			throw new IllegalArgumentException( "border must have the same dimensionality as source." );
+
+		final long[] dimensions = new long[ n ];
+		final long[] offset = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( border[ d ] < 0 )
+				throw new IllegalArgumentException( "border must not be negative." );
+			dimensions[ d ] = source.dimension( d ) + 2 * border[ d ];
+			offset[ d ] = source.min( d ) - border[ d ];
+		}
+
+		final T type = source.randomAccess().get().createVariable();
+		this.buffer = imgFactory.create( dimensions, type );
+		this.padded = Views.translate( buffer, offset );
+		this.interior = Views.interval( padded, source );
+		this.factory = factory;
+
+		final Cursor< T > in = Views.flatIterable( source ).cursor();
+		final Cursor< T > out = Views.flatIterable( interior ).cursor();
+		while ( out.hasNext() )
+			out.next().set( in.next() );
+
+		refreshHalo();
+	}
+
+	/**
+	 * Create a padded copy of {@code source} with the same border width in
+	 * every dimension.
+	 * 
+	 * @see #PaddedBuffer(RandomAccessibleInterval, long[],
+	 *      OutOfBoundsFactory, ImgFactory)
+	 */
+	public PaddedBuffer( final RandomAccessibleInterval< T > source, final long border, final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > factory, final ImgFactory< T > imgFactory )
+	{
+		this( source, uniform( source.numDimensions(), border ), factory, imgFactory );
+	}
+
+	/**
+	 * Recompute the halo from the current interior values.
+	 */
+	public void refreshHalo()
+	{
+		final OutOfBounds< T > oob = factory.create( interior );
+		for ( final FinalInterval slab : BorderSplitter.border( padded, interior ) )
+		{
+			final Cursor< T > c = Views.flatIterable( Views.interval( padded, slab ) ).localizingCursor();
+			while ( c.hasNext() )
+			{
+				final T t = c.next();
+				oob.setPosition( c );
+				t.set( oob.get() );
+			}
+		}
+	}
+
+	/**
+	 * @return the interior, in the coordinates of the source. Modifications
+	 *         are visible in the halo only after {@link #refreshHalo()}.
+	 */
+	public IntervalView< T > getInterior()
+	{
+		return interior;
+	}
+
+	/**
+	 * @return the interior plus halo, in the coordinates of the source.
+	 */
+	public IntervalView< T > getPadded()
+	{
+		return padded;
+	}
+
+	/**
+	 * @return the underlying zero-min {@link Img}. The interior starts at
+	 *         the border width in every dimension.
+	 */
+	public Img< T > getBuffer()
+	{
+		return buffer;
+	}
+
+	private static long[] uniform( final int n, final long border )
+	{
+		final long[] b = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			b[ d ] = border;
+		return b;
+	}
+}
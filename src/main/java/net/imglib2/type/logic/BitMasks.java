@@ -0,0 +1,468 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.type.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cells;
+import net.imglib2.img.cell.CompressedCellImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.ParallelHelper;
+
+/**
+ * Bulk operations on {@link BitType} masks.
+ * <p>
+ * {@link BitType} pixels of {@link ArrayImg}s, {@link PlanarImg}s and cell
+ * images are stored 64 per <code>long</code> in the storage array of the
+ * image, plane or cell. The operations here work on these words directly,
+ * processing 64 pixels at a time, and in parallel over ranges of words.
+ * Unused bits in the last word of each storage array are kept zero.
+ * <p>
+ * Logical combinations of two masks work on words if both masks have the same
+ * storage layout (same image type and dimensions, and for cell images the same
+ * cell dimensions). Otherwise, and for all other {@link IterableInterval}s,
+ * the operations fall back to iterating pixels. {@link CompressedCellImg}s
+ * are always processed pixel by pixel.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class BitMasks
+{
+	private static final int AND = 0;
+
+	private static final int OR = 1;
+
+	private static final int XOR = 2;
+
+	private static final int AND_NOT = 3;
+
+	/**
+	 * Count the pixels of <code>mask</code> that are <code>true</code>.
+	 */
+	public static long cardinality( final IterableInterval< BitType > mask, final int numThreads )
+	{
+		final Blocks blocks = blocks( mask );
+		if ( blocks == null )
+		{
+			long count = 0;
+			for ( final BitType t : mask )
+				if ( t.get() )
+					++count;
+			return count;
+		}
+
+		return blocks.run( numThreads, new WordRangeOp()
+		{
+			@Override
+			public long run( final int block, final long[] words, final long mask, final int from, final int to, final boolean isLast )
+			{
+				long count = 0;
+				for ( int i = from; i < to; ++i )
+					count += Long.bitCount( words[ i ] );
+				if ( isLast )
+					count += Long.bitCount( words[ to ] & mask );
+				return count;
+			}
+		} );
+	}
+
+	/**
+	 * Set all pixels of <code>mask</code> to <code>value</code>.
+	 */
+	public static void fill( final IterableInterval< BitType > mask, final boolean value, final int numThreads )
+	{
+		final Blocks blocks = blocks( mask );
+		if ( blocks == null )
+		{
+			for ( final BitType t : mask )
+				t.set( value );
+			return;
+		}
+
+		final long word = value ? -1L : 0L;
+		blocks.run( numThreads, new WordRangeOp()
+		{
+			@Override
+			public long run( final int block, final long[] words, final long mask, final int from, final int to, final boolean isLast )
+			{
+				Arrays.fill( words, from, to, word );
+				if ( isLast )
+					words[ to ] = word & mask;
+				return 0;
+			}
+		} );
+	}
+
+	/**
+	 * Invert all pixels of <code>mask</code>.
+	 */
+	public static void not( final IterableInterval< BitType > mask, final int numThreads )
+	{
+		final Blocks blocks = blocks( mask );
+		if ( blocks == null )
+		{
+			for ( final BitType t : mask )
+				t.not();
+			return;
+		}
+
+		blocks.run( numThreads, new WordRangeOp()
+		{
+			@Override
+			public long run( final int block, final long[] words, final long mask, final int from, final int to, final boolean isLast )
+			{
+				for ( int i = from; i < to; ++i )
+					words[ i ] = ~words[ i ];
+				if ( isLast )
+					words[ to ] = ~words[ to ] & mask;
+				return 0;
+			}
+		} );
+	}
+
+	/**
+	 * Set <code>target = target AND source</code> for all pixels.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the dimensions of <code>target</code> and
+	 *             <code>source</code> differ.
+	 */
+	public static void and( final IterableInterval< BitType > target, final RandomAccessibleInterval< BitType > source, final int numThreads )
+	{
+		combine( target, source, AND, numThreads );
+	}
+
+	/**
+	 * Set <code>target = target OR source</code> for all pixels.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the dimensions of <code>target</code> and
+	 *             <code>source</code> differ.
+	 */
+	public static void or( final IterableInterval< BitType > target, final RandomAccessibleInterval< BitType > source, final int numThreads )
+	{
+		combine( target, source, OR, numThreads );
+	}
+
+	/**
+	 * Set <code>target = target XOR source</code> for all pixels.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the dimensions of <code>target</code> and
+	 *             <code>source</code> differ.
+	 */
+	public static void xor( final IterableInterval< BitType > target, final RandomAccessibleInterval< BitType > source, final int numThreads )
+	{
+		combine( target, source, XOR, numThreads );
+	}
+
+	/**
+	 * Set <code>target = target AND NOT source</code> for all pixels.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the dimensions of <code>target</code> and
+	 *             <code>source</code> differ.
+	 */
+	public static void andNot( final IterableInterval< BitType > target, final RandomAccessibleInterval< BitType > source, final int numThreads )
+	{
+		combine( target, source, AND_NOT, numThreads );
+	}
+
+	private static void combine( final IterableInterval< BitType > target, final RandomAccessibleInterval< BitType > source, final int op, final int numThreads )
+	{
+		if ( !Intervals.equalDimensions( target, source ) )
+			throw new IllegalArgumentException( "target and source dimensions do not match" );
+
+		final Blocks targetBlocks = blocks( target );
+		final Blocks sourceBlocks = blocks( source );
+		if ( targetBlocks == null || sourceBlocks == null || !targetBlocks.hasSameLayout( sourceBlocks ) )
+		{
+			combinePixels( target, source, op );
+			return;
+		}
+
+		targetBlocks.run( numThreads, new WordRangeOp()
+		{
+			@Override
+			public long run( final int block, final long[] words, final long mask, final int from, final int to, final boolean isLast )
+			{
+				final long[] src = sourceBlocks.words[ block ];
+				final int end = isLast ? to + 1 : to;
+				switch ( op )
+				{
+				case AND:
+					for ( int i = from; i < end; ++i )
+						words[ i ] &= src[ i ];
+					break;
+				case OR:
+					for ( int i = from; i < end; ++i )
+						words[ i ] |= src[ i ];
+					break;
+				case XOR:
+					for ( int i = from; i < end; ++i )
+						words[ i ] ^= src[ i ];
+					break;
+				case AND_NOT:
+					for ( int i = from; i < end; ++i )
+						words[ i ] &= ~src[ i ];
+					break;
+				}
+				if ( isLast )
+					words[ to ] &= mask;
+				return 0;
+			}
+		} );
+	}
+
+	private static void combinePixels( final IterableInterval< BitType > target, final RandomAccessibleInterval< BitType > source, final int op )
+	{
+		final long[] offset = new long[ target.numDimensions() ];
+		for ( int d = 0; d < offset.length; ++d )
+			offset[ d ] = source.min( d ) - target.min( d );
+		final Cursor< BitType > c = target.localizingCursor();
+		final RandomAccess< BitType > a = source.randomAccess();
+		while ( c.hasNext() )
+		{
+			final BitType t = c.next();
+			a.setPosition( c );
+			a.move( offset );
+			final boolean s = a.get().get();
+			switch ( op )
+			{
+			case AND:
+				t.set( t.get() && s );
+				break;
+			case OR:
+				t.set( t.get() || s );
+				break;
+			case XOR:
+				t.set( t.get() ^ s );
+				break;
+			case AND_NOT:
+				t.set( t.get() && !s );
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Processes the words <code>from ... to-1</code> of storage array
+	 * <code>block</code>. If
+	 * <code>isLast</code>, then also the last word of the storage array (at
+	 * index <code>to</code>), whose unused bits are zero in <code>mask</code>.
+	 */
+	private interface WordRangeOp
+	{
+		public long run( int block, long[] words, long mask, int from, int to, boolean isLast );
+	}
+
+	/**
+	 * The storage arrays of a {@link BitType} image.
+	 */
+	private static final class Blocks
+	{
+		final Object img;
+
+		final long[][] words;
+
+		/**
+		 * number of pixels in each storage array.
+		 */
+		final long[] numBits;
+
+		/**
+		 * index of the first word of each storage array, when all storage
+		 * arrays are concatenated.
+		 */
+		final long[] wordOffsets;
+
+		final long numWords;
+
+		Blocks( final Object img, final long[][] words, final long[] numBits )
+		{
+			this.img = img;
+			this.words = words;
+			this.numBits = numBits;
+			wordOffsets = new long[ words.length ];
+			long o = 0;
+			for ( int b = 0; b < words.length; ++b )
+			{
+				wordOffsets[ b ] = o;
+				o += ( numBits[ b ] + 63 ) / 64;
+			}
+			numWords = o;
+		}
+
+		boolean hasSameLayout( final Blocks other )
+		{
+			if ( img.getClass() != other.img.getClass() || !Arrays.equals( numBits, other.numBits ) )
+				return false;
+			if ( img instanceof AbstractCellImg )
+			{
+				final Cells< ?, ? > c1 = ( ( AbstractCellImg< ?, ?, ?, ? > ) img ).getCells();
+				final Cells< ?, ? > c2 = ( ( AbstractCellImg< ?, ?, ?, ? > ) other.img ).getCells();
+				for ( int d = 0; d < c1.numDimensions(); ++d )
+					if ( c1.cellDimension( d ) != c2.cellDimension( d ) )
+						return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Split the concatenated words into ranges and run <code>op</code>
+		 * on each range, in parallel.
+		 * 
+		 * @return the sum of the results of <code>op</code>.
+		 */
+		long run( final int numThreads, final WordRangeOp op )
+		{
+			if ( numWords == 0 )
+				return 0;
+			final int numTasks = ( int ) Math.min( Math.max( 1, numWords / 1024 ), 4 * Math.max( 1, numThreads ) );
+			final long[] partials = new long[ numTasks ];
+			ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+			{
+				@Override
+				public void run( final int taskIndex )
+				{
+					final long start = ParallelHelper.chunkStart( numWords, numTasks, taskIndex );
+					final long end = ParallelHelper.chunkStart( numWords, numTasks, taskIndex + 1 );
+					int b = Arrays.binarySearch( wordOffsets, start );
+					if ( b < 0 )
+						b = -b - 2;
+					long count = 0;
+					for ( long i = start; i < end; ++b )
+					{
+						final int blockWords = ( int ) ( ( numBits[ b ] + 63 ) / 64 );
+						final int from = ( int ) ( i - wordOffsets[ b ] );
+						final int to = ( int ) Math.min( blockWords, end - wordOffsets[ b ] );
+						final boolean isLast = to == blockWords;
+						final int r = ( int ) ( numBits[ b ] & 63 );
+						final long mask = r == 0 ? -1L : ( 1L << r ) - 1;
+						count += op.run( b, words[ b ], mask, from, isLast ? to - 1 : to, isLast );
+						i = wordOffsets[ b ] + to;
+					}
+					partials[ taskIndex ] = count;
+				}
+			} );
+			long sum = 0;
+			for ( final long p : partials )
+				sum += p;
+			return sum;
+		}
+	}
+
+	/**
+	 * @return the storage arrays of <code>mask</code>, or <code>null</code>
+	 *         if <code>mask</code> is not a {@link BitType} image with
+	 *         accessible storage.
+	 */
+	private static Blocks blocks( final Object img )
+	{
+		if ( !( img instanceof IterableInterval ) )
+			return null;
+		final IterableInterval< ? > mask = ( IterableInterval< ? > ) img;
+		if ( mask.size() == 0 || mask.firstElement().getClass() != BitType.class )
+			return null;
+
+		if ( mask instanceof ArrayImg )
+		{
+			final Object access = ( ( ArrayImg< ?, ? > ) mask ).update( null );
+			final long[] words = storage( access );
+			if ( words != null )
+				return new Blocks( mask, new long[][] { words }, new long[] { mask.size() } );
+		}
+		else if ( mask instanceof PlanarImg )
+		{
+			final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) mask;
+			final int numSlices = planar.numSlices();
+			final long[][] words = new long[ numSlices ][];
+			final long[] numBits = new long[ numSlices ];
+			for ( int i = 0; i < numSlices; ++i )
+			{
+				words[ i ] = storage( planar.getPlane( i ) );
+				if ( words[ i ] == null )
+					return null;
+				numBits[ i ] = mask.size() / numSlices;
+			}
+			return new Blocks( mask, words, numBits );
+		}
+		else if ( mask instanceof AbstractCellImg && !( mask instanceof CompressedCellImg ) )
+		{
+			// NB: CompressedCellImg is excluded, because collecting the storage
+			// arrays of all cells would decompress the whole image, and writes
+			// to arrays of evicted cells could be lost.
+			final Cells< ?, ? > cells = ( ( AbstractCellImg< ?, ?, ?, ? > ) mask ).getCells();
+			final ArrayList< long[] > words = new ArrayList< long[] >();
+			final ArrayList< Long > numBits = new ArrayList< Long >();
+			final Cursor< ? extends AbstractCell< ? > > cursor = cells.cursor();
+			while ( cursor.hasNext() )
+			{
+				final AbstractCell< ? > cell = cursor.next();
+				final long[] w = storage( cell.getData() );
+				if ( w == null )
+					return null;
+				words.add( w );
+				numBits.add( cell.size() );
+			}
+			final long[] n = new long[ numBits.size() ];
+			for ( int i = 0; i < n.length; ++i )
+				n[ i ] = numBits.get( i );
+			return new Blocks( mask, words.toArray( new long[ words.size() ][] ), n );
+		}
+		return null;
+	}
+
+	private static long[] storage( final Object access )
+	{
+		if ( access instanceof ArrayDataAccess )
+		{
+			final Object data = ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray();
+			if ( data instanceof long[] )
+				return ( long[] ) data;
+		}
+		return null;
+	}
+}
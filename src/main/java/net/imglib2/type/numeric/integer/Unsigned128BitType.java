@@ -35,7 +35,6 @@
 
 package net.imglib2.type.numeric.integer;
 
-import java.math.BigDecimal;
 import java.math.BigInteger;
 
 import net.imglib2.img.NativeImg;
@@ -51,7 +50,9 @@ import net.imglib2.util.Fraction;
  * A {@link Type} with a bit depth of 128.
  * Each value is stored in two adjacent long in an array,
  * with the lower long first, then the upper long.
- * Currently the math methods defined in the superinterface {@link NumericType} are implemented using {@link BigInteger} and {@link BigDecimal}.
+ * The math methods defined in the superinterface {@link NumericType} work directly on the two
+ * long words with unsigned 128-bit arithmetic (modulo 2^128), without allocating objects.
+ * {@link BigInteger} is only used by the conversion methods {@link #get()} and {@link #set(BigInteger)}.
  * This class is not {@link Thread}-safe; do a {@link #copy()} first to operate on a different {@link Thread}.
  * 
  * @author Albert Cardona
@@ -325,33 +326,192 @@ public class Unsigned128BitType extends AbstractIntegerType<Unsigned128BitType>
 		mul( (double)c );
 	}
 
-	/** Implemented using {@link BigDecimal#multiply(BigDecimal)} and {@link BigDecimal#toBigInteger()}. */
+	/** Multiplies with the precision of a {@code double}, see {@link #setReal(double)}. */
+	@Override
 	public void mul( double c ) {
-		set( new BigDecimal( get() ).multiply( new BigDecimal( c ) ).toBigInteger() );
+		setReal( getRealDouble() * c );
 	}
 
-	/** Relies on {@link BigInteger#add(BigInteger)}. */
 	@Override
 	public void add(final Unsigned128BitType t) {
-		set( get().add( t.get() ).toByteArray() );
+		final int k = i * 2;
+		final int kt = t.i * 2;
+		final long lower1 = dataAccess.getValue( k );
+		final long lower = lower1 + t.dataAccess.getValue( kt );
+		final long carry = UnsignedLongType.compare( lower, lower1 ) < 0 ? 1 : 0;
+		set( lower, dataAccess.getValue( k + 1 ) + t.dataAccess.getValue( kt + 1 ) + carry );
 	}
 
-	/** Relies on {@link BigInteger#subtract(BigInteger)}. */
 	@Override
 	public void sub(final Unsigned128BitType t) {
-		set( get().subtract( t.get() ).toByteArray() );
+		final int k = i * 2;
+		final int kt = t.i * 2;
+		final long lower1 = dataAccess.getValue( k );
+		final long lower2 = t.dataAccess.getValue( kt );
+		final long borrow = UnsignedLongType.compare( lower1, lower2 ) < 0 ? 1 : 0;
+		set( lower1 - lower2, dataAccess.getValue( k + 1 ) - t.dataAccess.getValue( kt + 1 ) - borrow );
 	}
 
-	/** Relies on {@link BigInteger#multiply(BigInteger)}. */
 	@Override
 	public void mul(final Unsigned128BitType t) {
-		set( get().multiply( t.get() ).toByteArray() );
+		final int k = i * 2;
+		final int kt = t.i * 2;
+		final long lower1 = dataAccess.getValue( k ),
+		           upper1 = dataAccess.getValue( k + 1 ),
+		           lower2 = t.dataAccess.getValue( kt ),
+		           upper2 = t.dataAccess.getValue( kt + 1 );
+		// the products of the upper words only affect bits above 128
+		set( lower1 * lower2, multiplyHigh( lower1, lower2 ) + lower1 * upper2 + upper1 * lower2 );
 	}
 
-	/** Relies on {@link BigInteger#divide(BigInteger)}. */
+	/**
+	 * Integer division, rounding towards zero.
+	 *
+	 * @throws ArithmeticException
+	 *             when t equals zero.
+	 */
 	@Override
 	public void div(final Unsigned128BitType t) {
-		set( get().divide( t.get() ).toByteArray() );
+		final int k = i * 2;
+		final int kt = t.i * 2;
+		long lower1 = dataAccess.getValue( k ),
+		     upper1 = dataAccess.getValue( k + 1 );
+		final long lower2 = t.dataAccess.getValue( kt ),
+		           upper2 = t.dataAccess.getValue( kt + 1 );
+
+		if ( upper2 == 0 && upper1 == 0 ) {
+			if ( lower2 == 0 )
+				throw new ArithmeticException( "/ by zero" );
+			set( UnsignedLongType.divide( lower1, lower2 ), 0 );
+			return;
+		}
+		if ( upper2 == 0 && lower2 == 0 )
+			throw new ArithmeticException( "/ by zero" );
+
+		// binary long division: align the divisor with the dividend and
+		// subtract where possible, one quotient bit at a time
+		final int shift = numberOfLeadingZeros( lower2, upper2 ) - numberOfLeadingZeros( lower1, upper1 );
+		if ( shift < 0 ) {
+			set( 0, 0 );
+			return;
+		}
+		long dLower = shiftLeftLower( lower2, shift ),
+		     dUpper = shiftLeftUpper( lower2, upper2, shift );
+		long qLower = 0, qUpper = 0;
+		for ( int b = shift; b >= 0; --b ) {
+			qUpper = ( qUpper << 1 ) | ( qLower >>> 63 );
+			qLower <<= 1;
+			if ( compare( lower1, upper1, dLower, dUpper ) >= 0 ) {
+				final long borrow = UnsignedLongType.compare( lower1, dLower ) < 0 ? 1 : 0;
+				lower1 -= dLower;
+				upper1 -= dUpper + borrow;
+				qLower |= 1;
+			}
+			dLower = ( dLower >>> 1 ) | ( dUpper << 63 );
+			dUpper >>>= 1;
+		}
+		set( qLower, qUpper );
+	}
+
+	/** The value, rounded to the nearest {@code double}. */
+	@Override
+	public double getRealDouble() {
+		final int k = i * 2;
+		final long lower = dataAccess.getValue( k );
+		final long upper = dataAccess.getValue( k + 1 );
+		if ( upper == 0 )
+			return unsignedToDouble( lower );
+
+		// the 64 most significant bits, with a sticky bit for the rest
+		final int n = Long.numberOfLeadingZeros( upper );
+		final long high = n == 0 ? upper : ( upper << n ) | ( lower >>> ( 64 - n ) );
+		final long rest = lower << n;
+		return Math.scalb( unsignedToDouble( high | ( rest == 0 ? 0 : 1 ) ), 64 - n );
+	}
+
+	@Override
+	public float getRealFloat() {
+		return ( float ) getRealDouble();
+	}
+
+	/**
+	 * Set to the value rounded to the nearest integer. Values outside of
+	 * {@code [0, 2^128-1]} are clamped, {@code NaN} is set to 0.
+	 */
+	@Override
+	public void setReal( final double real ) {
+		// not floor( real + 0.5 ), which is inexact above 2^52
+		final double f = Math.floor( real );
+		final double r = real - f >= 0.5 ? f + 1 : f;
+		if ( !( r > 0 ) )
+			set( 0, 0 );
+		else if ( r >= TWO_POW_128 )
+			set( -1L, -1L );
+		else {
+			final long upper = doubleToUnsigned( Math.floor( Math.scalb( r, -64 ) ) );
+			// exact, because r is an integer
+			final long lower = doubleToUnsigned( r - Math.scalb( unsignedToDouble( upper ), 64 ) );
+			set( lower, upper );
+		}
+	}
+
+	@Override
+	public void setReal( final float real ) {
+		setReal( ( double ) real );
+	}
+
+	@Override
+	public String toString() {
+		return get().toString();
+	}
+
+	private static final double TWO_POW_63 = Math.scalb( 1.0, 63 );
+
+	private static final double TWO_POW_128 = Math.scalb( 1.0, 128 );
+
+	/** Converts an unsigned long to the nearest double. */
+	private static double unsignedToDouble( final long v ) {
+		if ( v >= 0 )
+			return v;
+		// keep the lowest bit as sticky bit, so the conversion rounds correctly
+		return ( ( double ) ( ( v >>> 1 ) | ( v & 1 ) ) ) * 2.0;
+	}
+
+	/** Converts an integer double in {@code [0, 2^64)} to an unsigned long. */
+	private static long doubleToUnsigned( final double v ) {
+		if ( v < TWO_POW_63 )
+			return ( long ) v;
+		return ( long ) ( v - TWO_POW_63 ) | Long.MIN_VALUE;
+	}
+
+	/** The upper 64 bits of the unsigned 128-bit product of a and b. */
+	private static long multiplyHigh( final long a, final long b ) {
+		final long a0 = a & 0xffffffffL, a1 = a >>> 32;
+		final long b0 = b & 0xffffffffL, b1 = b >>> 32;
+		final long p00 = a0 * b0, p01 = a0 * b1, p10 = a1 * b0, p11 = a1 * b1;
+		final long middle = ( p00 >>> 32 ) + ( p01 & 0xffffffffL ) + ( p10 & 0xffffffffL );
+		return p11 + ( p01 >>> 32 ) + ( p10 >>> 32 ) + ( middle >>> 32 );
+	}
+
+	private static int numberOfLeadingZeros( final long lower, final long upper ) {
+		return upper == 0 ? 64 + Long.numberOfLeadingZeros( lower ) : Long.numberOfLeadingZeros( upper );
+	}
+
+	private static long shiftLeftLower( final long lower, final int shift ) {
+		return shift >= 64 ? 0 : lower << shift;
+	}
+
+	private static long shiftLeftUpper( final long lower, final long upper, final int shift ) {
+		if ( shift >= 64 )
+			return lower << ( shift - 64 );
+		if ( shift == 0 )
+			return upper;
+		return ( upper << shift ) | ( lower >>> ( 64 - shift ) );
+	}
+
+	private static int compare( final long lower1, final long upper1, final long lower2, final long upper2 ) {
+		final int c = UnsignedLongType.compare( upper1, upper2 );
+		return c != 0 ? c : UnsignedLongType.compare( lower1, lower2 );
 	}
 
 	@Override
@@ -165,7 +165,7 @@ public class UnsignedLongType extends GenericLongType< UnsignedLongType >
 			// Approximate division: exact or one less than the actual value
 			final long quotient = ( ( d1 >>> 1 ) / d2 ) << 1;
 			final long reminder = d1 - quotient * d2;
-			return quotient + ( -1 == compare( d2, reminder ) ? 0 : 1 );
+			return quotient + ( -1 == compare( reminder, d2 ) ? 0 : 1 );
 		}
 
 		// Exact division, given that both d1 and d2 are smaller than
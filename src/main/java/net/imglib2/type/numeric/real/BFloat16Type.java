@@ -0,0 +1,371 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.type.numeric.real;
+
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.ShortAccess;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+
+/**
+ * A {@link NativeType} for bfloat16 floating point values, stored in a
+ * {@link ShortAccess}. A bfloat16 value is the upper half of a
+ * <code>float</code>: sign bit, 8 exponent bits and 7 mantissa bits. It has
+ * the range of <code>float</code> with about 2 decimal digits of precision.
+ * <p>
+ * Values are converted to <code>float</code> by a shift, and from
+ * <code>float</code> with round-to-nearest-even. Arithmetic is done in
+ * <code>float</code> and rounded when the result is stored.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class BFloat16Type extends AbstractRealType< BFloat16Type > implements NativeType< BFloat16Type >
+{
+	private int i = 0;
+
+	final protected NativeImg< ?, ? extends ShortAccess > img;
+
+	// the DataAccess that holds the information
+	protected ShortAccess dataAccess;
+
+	// this is the constructor if you want it to read from an array
+	public BFloat16Type( final NativeImg< ?, ? extends ShortAccess > shortStorage )
+	{
+		img = shortStorage;
+	}
+
+	// this is the constructor if you want it to be a variable
+	public BFloat16Type( final float value )
+	{
+		img = null;
+		dataAccess = new ShortArray( 1 );
+		set( value );
+	}
+
+	// this is the constructor if you want to specify the dataAccess
+	public BFloat16Type( final ShortAccess access )
+	{
+		img = null;
+		dataAccess = access;
+	}
+
+	// this is the constructor if you want it to be a variable
+	public BFloat16Type()
+	{
+		this( 0 );
+	}
+
+	@Override
+	public NativeImg< BFloat16Type, ? extends ShortAccess > createSuitableNativeImg( final NativeImgFactory< BFloat16Type > storageFactory, final long dim[] )
+	{
+		// create the container
+		final NativeImg< BFloat16Type, ? extends ShortAccess > container = storageFactory.createShortInstance( dim, new Fraction() );
+
+		// create a Type that is linked to the container
+		final BFloat16Type linkedType = new BFloat16Type( container );
+
+		// pass it to the NativeContainer
+		container.setLinkedType( linkedType );
+
+		return container;
+	}
+
+	@Override
+	public void updateContainer( final Object c )
+	{
+		dataAccess = img.update( c );
+	}
+
+	@Override
+	public BFloat16Type duplicateTypeOnSameNativeImg()
+	{
+		return new BFloat16Type( img );
+	}
+
+	/**
+	 * The largest finite value, (2-2^-7) &middot; 2^127.
+	 */
+	public static final float MAX_VALUE = 0x1.fep127f;
+
+	/**
+	 * The smallest positive (subnormal) value, 2^-133.
+	 */
+	public static final float MIN_VALUE = 0x1.0p-133f;
+
+	/**
+	 * Convert bfloat16 bits to <code>float</code>. This is exact.
+	 */
+	public static float toFloat( final short bits )
+	{
+		return Float.intBitsToFloat( bits << 16 );
+	}
+
+	/**
+	 * Convert a <code>float</code> to the nearest bfloat16 value (round half
+	 * to even). Values beyond the range overflow to infinity, NaN stays NaN.
+	 */
+	public static short fromFloat( final float value )
+	{
+		final int f = Float.floatToRawIntBits( value );
+		if ( ( f & 0x7fffffff ) > 0x7f800000 )
+			// NaN, keep it quiet and non-zero
+			return ( short ) ( ( f >>> 16 ) | 0x40 );
+		return ( short ) ( ( f + 0x7fff + ( ( f >>> 16 ) & 1 ) ) >>> 16 );
+	}
+
+	public float get()
+	{
+		return toFloat( dataAccess.getValue( i ) );
+	}
+
+	/**
+	 * Set to the nearest representable value.
+	 */
+	public void set( final float f )
+	{
+		dataAccess.setValue( i, fromFloat( f ) );
+	}
+
+	/**
+	 * @return the raw 16 bits of the value.
+	 */
+	public short getBits()
+	{
+		return dataAccess.getValue( i );
+	}
+
+	/**
+	 * Set the raw 16 bits of the value.
+	 */
+	public void setBits( final short bits )
+	{
+		dataAccess.setValue( i, bits );
+	}
+
+	@Override
+	public float getRealFloat()
+	{
+		return get();
+	}
+
+	@Override
+	public double getRealDouble()
+	{
+		return get();
+	}
+
+	@Override
+	public void setReal( final float real )
+	{
+		set( real );
+	}
+
+	@Override
+	public void setReal( final double real )
+	{
+		set( ( float ) real );
+	}
+
+	@Override
+	public double getMaxValue()
+	{
+		return MAX_VALUE;
+	}
+
+	@Override
+	public double getMinValue()
+	{
+		return -MAX_VALUE;
+	}
+
+	@Override
+	public double getMinIncrement()
+	{
+		return MIN_VALUE;
+	}
+
+	@Override
+	public void mul( final float c )
+	{
+		set( get() * c );
+	}
+
+	@Override
+	public void mul( final double c )
+	{
+		set( ( float ) ( get() * c ) );
+	}
+
+	@Override
+	public void add( final BFloat16Type c )
+	{
+		set( get() + c.get() );
+	}
+
+	@Override
+	public void div( final BFloat16Type c )
+	{
+		set( get() / c.get() );
+	}
+
+	@Override
+	public void mul( final BFloat16Type c )
+	{
+		set( get() * c.get() );
+	}
+
+	@Override
+	public void sub( final BFloat16Type c )
+	{
+		set( get() - c.get() );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		// NB: Use the same hash code as java.lang.Float#hashCode().
+		return Float.floatToIntBits( get() );
+	}
+
+	@Override
+	public int compareTo( final BFloat16Type c )
+	{
+		final float a = get();
+		final float b = c.get();
+		if ( a > b )
+			return 1;
+		else if ( a < b )
+			return -1;
+		else
+			return 0;
+	}
+
+	@Override
+	public void set( final BFloat16Type c )
+	{
+		setBits( c.getBits() );
+	}
+
+	@Override
+	public void setOne()
+	{
+		set( 1 );
+	}
+
+	@Override
+	public void setZero()
+	{
+		set( 0 );
+	}
+
+	@Override
+	public void inc()
+	{
+		set( get() + 1 );
+	}
+
+	@Override
+	public void dec()
+	{
+		set( get() - 1 );
+	}
+
+	@Override
+	public BFloat16Type createVariable()
+	{
+		return new BFloat16Type( 0 );
+	}
+
+	@Override
+	public BFloat16Type copy()
+	{
+		final BFloat16Type copy = new BFloat16Type();
+		copy.setBits( getBits() );
+		return copy;
+	}
+
+	@Override
+	public Fraction getEntitiesPerPixel() { return new Fraction(); }
+
+	@Override
+	public void updateIndex( final int index )
+	{
+		i = index;
+	}
+
+	@Override
+	public int getIndex()
+	{
+		return i;
+	}
+
+	@Override
+	public void incIndex()
+	{
+		++i;
+	}
+
+	@Override
+	public void incIndex( final int increment )
+	{
+		i += increment;
+	}
+
+	@Override
+	public void decIndex()
+	{
+		--i;
+	}
+
+	@Override
+	public void decIndex( final int decrement )
+	{
+		i -= decrement;
+	}
+
+	@Override
+	public int getBitsPerPixel()
+	{
+		return 16;
+	}
+
+	@Override
+	public boolean valueEquals( final BFloat16Type t )
+	{
+		return get() == t.get();
+	}
+}
@@ -0,0 +1,430 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.type.numeric.real;
+
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.ShortAccess;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+
+/**
+ * A {@link NativeType} for IEEE 754 half-precision (binary16) floating point
+ * values, stored in a {@link ShortAccess}. Values have a sign bit, 5 exponent
+ * bits and 10 mantissa bits. The range is &plusmn;65504, with about 3 decimal
+ * digits of precision.
+ * <p>
+ * Values are converted to <code>float</code> by a lookup table with 2^16
+ * entries, and from <code>float</code> with round-to-nearest-even. Arithmetic
+ * is done in <code>float</code> and rounded when the result is stored.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class HalfFloatType extends AbstractRealType< HalfFloatType > implements NativeType< HalfFloatType >
+{
+	private int i = 0;
+
+	final protected NativeImg< ?, ? extends ShortAccess > img;
+
+	// the DataAccess that holds the information
+	protected ShortAccess dataAccess;
+
+	// this is the constructor if you want it to read from an array
+	public HalfFloatType( final NativeImg< ?, ? extends ShortAccess > shortStorage )
+	{
+		img = shortStorage;
+	}
+
+	// this is the constructor if you want it to be a variable
+	public HalfFloatType( final float value )
+	{
+		img = null;
+		dataAccess = new ShortArray( 1 );
+		set( value );
+	}
+
+	// this is the constructor if you want to specify the dataAccess
+	public HalfFloatType( final ShortAccess access )
+	{
+		img = null;
+		dataAccess = access;
+	}
+
+	// this is the constructor if you want it to be a variable
+	public HalfFloatType()
+	{
+		this( 0 );
+	}
+
+	@Override
+	public NativeImg< HalfFloatType, ? extends ShortAccess > createSuitableNativeImg( final NativeImgFactory< HalfFloatType > storageFactory, final long dim[] )
+	{
+		// create the container
+		final NativeImg< HalfFloatType, ? extends ShortAccess > container = storageFactory.createShortInstance( dim, new Fraction() );
+
+		// create a Type that is linked to the container
+		final HalfFloatType linkedType = new HalfFloatType( container );
+
+		// pass it to the NativeContainer
+		container.setLinkedType( linkedType );
+
+		return container;
+	}
+
+	@Override
+	public void updateContainer( final Object c )
+	{
+		dataAccess = img.update( c );
+	}
+
+	@Override
+	public HalfFloatType duplicateTypeOnSameNativeImg()
+	{
+		return new HalfFloatType( img );
+	}
+
+	/**
+	 * The largest finite value, 65504.
+	 */
+	public static final float MAX_VALUE = 65504f;
+
+	/**
+	 * The smallest positive (subnormal) value, 2^-24.
+	 */
+	public static final float MIN_VALUE = 0x1.0p-24f;
+
+	/**
+	 * float values of all 2^16 bit patterns.
+	 */
+	private static final float[] TO_FLOAT = new float[ 1 << 16 ];
+
+	static
+	{
+		for ( int h = 0; h < TO_FLOAT.length; ++h )
+		{
+			final int sign = ( h & 0x8000 ) << 16;
+			final int exponent = ( h >>> 10 ) & 0x1f;
+			final int mantissa = h & 0x3ff;
+			final float f;
+			if ( exponent == 0 )
+				// zero or subnormal
+				f = Math.scalb( ( float ) mantissa, -24 );
+			else if ( exponent == 31 )
+				// infinity or NaN
+				f = Float.intBitsToFloat( 0x7f800000 | ( mantissa << 13 ) );
+			else
+				f = Float.intBitsToFloat( ( ( exponent + 112 ) << 23 ) | ( mantissa << 13 ) );
+			TO_FLOAT[ h ] = Float.intBitsToFloat( sign | Float.floatToRawIntBits( f ) );
+		}
+	}
+
+	/**
+	 * Convert half-precision bits to <code>float</code>. This is exact.
+	 */
+	public static float toFloat( final short bits )
+	{
+		return TO_FLOAT[ bits & 0xffff ];
+	}
+
+	/**
+	 * Convert a <code>float</code> to the nearest half-precision value (round
+	 * half to even). Values beyond the range overflow to infinity, NaN stays
+	 * NaN.
+	 */
+	public static short fromFloat( final float value )
+	{
+		final int f = Float.floatToRawIntBits( value );
+		final int sign = ( f >>> 16 ) & 0x8000;
+		final int abs = f & 0x7fffffff;
+
+		if ( abs >= 0x7f800000 )
+		{
+			// infinity or NaN (keep NaN quiet and non-zero)
+			if ( abs == 0x7f800000 )
+				return ( short ) ( sign | 0x7c00 );
+			return ( short ) ( sign | 0x7e00 | ( ( abs >>> 13 ) & 0x3ff ) );
+		}
+		if ( abs >= 0x47800000 )
+			// >= 2^16, overflow
+			return ( short ) ( sign | 0x7c00 );
+		if ( abs < 0x38800000 )
+		{
+			// < 2^-14, half subnormal or zero
+			if ( abs < 0x33000000 )
+				// <= 2^-25 rounds to zero
+				return ( short ) sign;
+			final int shift = 126 - ( abs >>> 23 );
+			final int m = ( abs & 0x7fffff ) | 0x800000;
+			int h = m >>> shift;
+			final int rest = m & ( ( 1 << shift ) - 1 );
+			final int halfway = 1 << ( shift - 1 );
+			if ( rest > halfway || ( rest == halfway && ( h & 1 ) != 0 ) )
+				++h;
+			return ( short ) ( sign | h );
+		}
+
+		// normal: re-bias exponent (127 to 15) and round the mantissa from 23
+		// to 10 bits. A carry out of the mantissa correctly increments the
+		// exponent, up to infinity.
+		int h = ( abs - 0x38000000 ) >>> 13;
+		final int rest = abs & 0x1fff;
+		if ( rest > 0x1000 || ( rest == 0x1000 && ( h & 1 ) != 0 ) )
+			++h;
+		return ( short ) ( sign | h );
+	}
+
+	public float get()
+	{
+		return toFloat( dataAccess.getValue( i ) );
+	}
+
+	/**
+	 * Set to the nearest representable value.
+	 */
+	public void set( final float f )
+	{
+		dataAccess.setValue( i, fromFloat( f ) );
+	}
+
+	/**
+	 * @return the raw 16 bits of the value.
+	 */
+	public short getBits()
+	{
+		return dataAccess.getValue( i );
+	}
+
+	/**
+	 * Set the raw 16 bits of the value.
+	 */
+	public void setBits( final short bits )
+	{
+		dataAccess.setValue( i, bits );
+	}
+
+	@Override
+	public float getRealFloat()
+	{
+		return get();
+	}
+
+	@Override
+	public double getRealDouble()
+	{
+		return get();
+	}
+
+	@Override
+	public void setReal( final float real )
+	{
+		set( real );
+	}
+
+	@Override
+	public void setReal( final double real )
+	{
+		set( ( float ) real );
+	}
+
+	@Override
+	public double getMaxValue()
+	{
+		return MAX_VALUE;
+	}
+
+	@Override
+	public double getMinValue()
+	{
+		return -MAX_VALUE;
+	}
+
+	@Override
+	public double getMinIncrement()
+	{
+		return MIN_VALUE;
+	}
+
+	@Override
+	public void mul( final float c )
+	{
+		set( get() * c );
+	}
+
+	@Override
+	public void mul( final double c )
+	{
+		set( ( float ) ( get() * c ) );
+	}
+
+	@Override
+	public void add( final HalfFloatType c )
+	{
+		set( get() + c.get() );
+	}
+
+	@Override
+	public void div( final HalfFloatType c )
+	{
+		set( get() / c.get() );
+	}
+
+	@Override
+	public void mul( final HalfFloatType c )
+	{
+		set( get() * c.get() );
+	}
+
+	@Override
+	public void sub( final HalfFloatType c )
+	{
+		set( get() - c.get() );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		// NB: Use the same hash code as java.lang.Float#hashCode().
+		return Float.floatToIntBits( get() );
+	}
+
+	@Override
+	public int compareTo( final HalfFloatType c )
+	{
+		final float a = get();
+		final float b = c.get();
+		if ( a > b )
+			return 1;
+		else if ( a < b )
+			return -1;
+		else
+			return 0;
+	}
+
+	@Override
+	public void set( final HalfFloatType c )
+	{
+		setBits( c.getBits() );
+	}
+
+	@Override
+	public void setOne()
+	{
+		set( 1 );
+	}
+
+	@Override
+	public void setZero()
+	{
+		set( 0 );
+	}
+
+	@Override
+	public void inc()
+	{
+		set( get() + 1 );
+	}
+
+	@Override
+	public void dec()
+	{
+		set( get() - 1 );
+	}
+
+	@Override
+	public HalfFloatType createVariable()
+	{
+		return new HalfFloatType( 0 );
+	}
+
+	@Override
+	public HalfFloatType copy()
+	{
+		final HalfFloatType copy = new HalfFloatType();
+		copy.setBits( getBits() );
+		return copy;
+	}
+
+	@Override
+	public Fraction getEntitiesPerPixel() { return new Fraction(); }
+
+	@Override
+	public void updateIndex( final int index )
+	{
+		i = index;
+	}
+
+	@Override
+	public int getIndex()
+	{
+		return i;
+	}
+
+	@Override
+	public void incIndex()
+	{
+		++i;
+	}
+
+	@Override
+	public void incIndex( final int increment )
+	{
+		i += increment;
+	}
+
+	@Override
+	public void decIndex()
+	{
+		--i;
+	}
+
+	@Override
+	public void decIndex( final int decrement )
+	{
+		i -= decrement;
+	}
+
+	@Override
+	public int getBitsPerPixel()
+	{
+		return 16;
+	}
+
+	@Override
+	public boolean valueEquals( final HalfFloatType t )
+	{
+		return get() == t.get();
+	}
+}
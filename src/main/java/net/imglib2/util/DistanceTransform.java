@@ -0,0 +1,261 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.util;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.BooleanType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Exact squared Euclidean distance transform, using the separable lower
+ * envelope algorithm of Felzenszwalb and Huttenlocher ("Distance Transforms of
+ * Sampled Functions", 2004). The transform is computed by one pass of a linear
+ * time 1D transform along every line of every dimension. Lines are processed
+ * in parallel.
+ * 
+ * <p>
+ * The input is any {@link BooleanType} image, e.g., a
+ * {@link net.imglib2.type.logic.BitType} mask. For label images, pass a
+ * converted view that maps the labels of interest to {@code true}.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class DistanceTransform
+{
+	/**
+	 * Compute the squared Euclidean distance of every pixel to the nearest
+	 * foreground ({@code true}) pixel of {@code source}, for isotropic unit
+	 * pixel spacing.
+	 * 
+	 * @see #squaredEuclidean(RandomAccessibleInterval,
+	 *      RandomAccessibleInterval, double[], int)
+	 */
+	public static < B extends BooleanType< B >, T extends RealType< T > > void squaredEuclidean( final RandomAccessibleInterval< B > source, final RandomAccessibleInterval< T > target, final int numThreads )
+	{
+		final double[] spacing = new double[ source.numDimensions() ];
+		for ( int d = 0; d < spacing.length; ++d )
+			spacing[ d ] = 1;
+		squaredEuclidean( source, target, spacing, numThreads );
+	}
+
+	/**
+	 * Compute the squared Euclidean distance of every pixel to the nearest
+	 * foreground ({@code true}) pixel of {@code source}. Foreground pixels
+	 * have distance 0. If there is no foreground pixel, all distances are
+	 * {@link Double#POSITIVE_INFINITY}.
+	 * 
+	 * <p>
+	 * Intermediate results are stored in a {@code double[]} covering the
+	 * source, therefore the source must have less than 2<sup>31</sup> pixels.
+	 * </p>
+	 * 
+	 * @param source
+	 *            the foreground mask.
+	 * @param target
+	 *            receives the squared distances. Must have the same
+	 *            dimensions as {@code source}.
+	 * @param spacing
+	 *            pixel spacing in each dimension. Distances are measured in
+	 *            these units.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < B extends BooleanType< B >, T extends RealType< T > > void squaredEuclidean( final RandomAccessibleInterval< B > source, final RandomAccessibleInterval< T > target, final double[] spacing, final int numThreads )
+	{
+		final int n = source.numDimensions();
+		if ( target.numDimensions() != n || spacing.length != n )
+			throw new IllegalArgumentException( "Source, target and spacing must have the same dimensionality." );
+		for ( int d = 0; d < n; ++d )
+			if ( source.dimension( d ) != target.dimension( d ) )
+				throw new IllegalArgumentException( "Source and target must have the same dimensions." );
+		final long sizeL = Intervals.numElements( source );
+		if ( sizeL > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "source is too large." );
+		final int size = ( int ) sizeL;
+		if ( size == 0 )
+			return;
+
+		final int[] dims = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+			dims[ d ] = ( int ) source.dimension( d );
+		final double[] buffer = new double[ size ];
+
+		// dimension 0: lines are contiguous in flat iteration order
+		final int width = dims[ 0 ];
+		final int numLines0 = size / width;
+		final int numTasks0 = Math.min( numLines0, 4 * Math.max( 1, numThreads ) );
+		final double w0 = spacing[ 0 ] * spacing[ 0 ];
+		ParallelHelper.run( numTasks0, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int start = ( int ) ParallelHelper.chunkStart( numLines0, numTasks0, taskIndex );
+				final int end = ( int ) ParallelHelper.chunkStart( numLines0, numTasks0, taskIndex + 1 );
+				final Envelope envelope = new Envelope( width );
+				final double[] f = new double[ width ];
+				final Cursor< B > c = Views.flatIterable( source ).cursor();
+				if ( start > 0 )
+					c.jumpFwd( ( long ) start * width );
+				for ( int line = start; line < end; ++line )
+				{
+					for ( int x = 0; x < width; ++x )
+						f[ x ] = c.next().get() ? 0 : Double.POSITIVE_INFINITY;
+					envelope.transform( f, width, w0, buffer, line * width, 1 );
+				}
+			}
+		} );
+
+		// remaining dimensions: strided lines in the buffer
+		int step = width;
+		for ( int d = 1; d < n; ++d )
+		{
+			final int length = dims[ d ];
+			final int stride = step;
+			final int numLines = size / length;
+			final int numTasks = Math.min( numLines, 4 * Math.max( 1, numThreads ) );
+			final double w = spacing[ d ] * spacing[ d ];
+			ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+			{
+				@Override
+				public void run( final int taskIndex )
+				{
+					final int start = ( int ) ParallelHelper.chunkStart( numLines, numTasks, taskIndex );
+					final int end = ( int ) ParallelHelper.chunkStart( numLines, numTasks, taskIndex + 1 );
+					final Envelope envelope = new Envelope( length );
+					final double[] f = new double[ length ];
+					for ( int line = start; line < end; ++line )
+					{
+						final int offset = ( line / stride ) * stride * length + line % stride;
+						for ( int x = 0, i = offset; x < length; ++x, i += stride )
+							f[ x ] = buffer[ i ];
+						envelope.transform( f, length, w, buffer, offset, stride );
+					}
+				}
+			} );
+			step *= length;
+		}
+
+		// write result
+		final int numTasks = Math.min( size, 4 * Math.max( 1, numThreads ) );
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int start = ( int ) ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final int end = ( int ) ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final Cursor< T > c = Views.flatIterable( target ).cursor();
+				if ( start > 0 )
+					c.jumpFwd( start );
+				for ( int i = start; i < end; ++i )
+					c.next().setReal( buffer[ i ] );
+			}
+		} );
+	}
+
+	/**
+	 * Lower envelope of parabolas for the 1D transform
+	 * <em>D(p) = min<sub>q</sub> w (p - q)<sup>2</sup> + f(q)</em>.
+	 */
+	static final class Envelope
+	{
+		/**
+		 * locations of the parabolas in the lower envelope.
+		 */
+		private final int[] v;
+
+		/**
+		 * boundaries between parabolas, z[k] is the left boundary of v[k].
+		 */
+		private final double[] z;
+
+		Envelope( final int length )
+		{
+			v = new int[ length ];
+			z = new double[ length + 1 ];
+		}
+
+		/**
+		 * Transform {@code f[0..length-1]} and write the result to
+		 * {@code out[offset + x * stride]}. Infinite values of {@code f} are
+		 * ignored.
+		 */
+		void transform( final double[] f, final int length, final double w, final double[] out, final int offset, final int stride )
+		{
+			int k = -1;
+			for ( int q = 0; q < length; ++q )
+			{
+				final double fq = f[ q ];
+				if ( fq == Double.POSITIVE_INFINITY )
+					continue;
+				final double hq = fq + w * q * q;
+				double s = Double.NEGATIVE_INFINITY;
+				while ( k >= 0 )
+				{
+					final int p = v[ k ];
+					s = ( hq - ( f[ p ] + w * p * p ) ) / ( 2 * w * ( q - p ) );
+					if ( s > z[ k ] )
+						break;
+					--k;
+				}
+				++k;
+				v[ k ] = q;
+				z[ k ] = k == 0 ? Double.NEGATIVE_INFINITY : s;
+			}
+
+			if ( k < 0 )
+			{
+				for ( int x = 0, i = offset; x < length; ++x, i += stride )
+					out[ i ] = Double.POSITIVE_INFINITY;
+				return;
+			}
+
+			z[ k + 1 ] = Double.POSITIVE_INFINITY;
+			int j = 0;
+			for ( int x = 0, i = offset; x < length; ++x, i += stride )
+			{
+				while ( z[ j + 1 ] < x )
+					++j;
+				final int p = v[ j ];
+				final double dx = x - p;
+				out[ i ] = w * dx * dx + f[ p ];
+			}
+		}
+	}
+}
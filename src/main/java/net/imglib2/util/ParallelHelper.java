@@ -0,0 +1,192 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tools for running independent tasks in parallel.
+ * 
+ * Call {@link ParallelHelper#run(int, int, Task)} with the number of tasks, the
+ * number of threads and a {@link Task} that processes one task index. Tasks are
+ * handed out to worker threads dynamically, the calling thread participates in
+ * the work. {@link ParallelHelper#run(int, int, Task)} returns when all tasks
+ * are done. Worker threads are taken from a shared pool of daemon threads.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class ParallelHelper
+{
+	/**
+	 * A unit of work, identified by its index.
+	 */
+	public interface Task
+	{
+		public void run( int taskIndex );
+	}
+
+	private static ExecutorService executor;
+
+	private static synchronized ExecutorService getExecutor()
+	{
+		if ( executor == null )
+		{
+			executor = Executors.newCachedThreadPool( new ThreadFactory()
+			{
+				private final AtomicInteger threadCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread( final Runnable r )
+				{
+					final Thread t = new Thread( r, "imglib2-parallel-" + threadCount.incrementAndGet() );
+					t.setDaemon( true );
+					return t;
+				}
+			} );
+		}
+		return executor;
+	}
+
+	/**
+	 * @return the number of available processors.
+	 */
+	public static int defaultNumThreads()
+	{
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Run tasks <code>0 ... numTasks-1</code> using at most
+	 * <code>numThreads</code> threads (including the calling thread).
+	 * 
+	 * @param numTasks
+	 *            number of tasks.
+	 * @param numThreads
+	 *            maximum number of threads. If <code>numThreads &le; 1</code>,
+	 *            all tasks are run in the calling thread.
+	 * @param task
+	 *            the work to do for each task index.
+	 * @throws RuntimeException
+	 *             if any task threw. The first exception is re-thrown (wrapped
+	 *             if it was a checked exception).
+	 */
+	public static void run( final int numTasks, final int numThreads, final Task task )
+	{
+		final int nThreads = Math.min( numThreads, numTasks );
+		if ( nThreads <= 1 )
+		{
+			for ( int i = 0; i < numTasks; ++i )
+				task.run( i );
+			return;
+		}
+
+		final AtomicInteger nextTask = new AtomicInteger();
+		final Runnable worker = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for ( int i = nextTask.getAndIncrement(); i < numTasks; i = nextTask.getAndIncrement() )
+					task.run( i );
+			}
+		};
+
+		final ExecutorService ex = getExecutor();
+		final ArrayList< Future< ? > > futures = new ArrayList< Future< ? > >( nThreads - 1 );
+		for ( int t = 1; t < nThreads; ++t )
+			futures.add( ex.submit( worker ) );
+
+		RuntimeException exception = null;
+		try
+		{
+			worker.run();
+		}
+		catch ( final RuntimeException e )
+		{
+			// make the other workers stop early
+			nextTask.set( numTasks );
+			exception = e;
+		}
+
+		for ( final Future< ? > future : futures )
+		{
+			try
+			{
+				future.get();
+			}
+			catch ( final InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+				if ( exception == null )
+					exception = new RuntimeException( e );
+			}
+			catch ( final ExecutionException e )
+			{
+				if ( exception == null )
+				{
+					final Throwable cause = e.getCause();
+					if ( cause instanceof RuntimeException )
+						exception = ( RuntimeException ) cause;
+					else if ( cause instanceof Error )
+						throw ( Error ) cause;
+					else
+						exception = new RuntimeException( cause );
+				}
+			}
+		}
+
+		if ( exception != null )
+			throw exception;
+	}
+
+	/**
+	 * Split the range <code>[0, size)</code> into <code>numChunks</code>
+	 * contiguous chunks of (almost) equal size.
+	 * 
+	 * @return the first index of chunk <code>chunk</code>. The chunk ends
+	 *         (exclusively) at <code>chunkStart( size, numChunks, chunk + 1 )</code>.
+	 */
+	public static long chunkStart( final long size, final int numChunks, final int chunk )
+	{
+		final long chunkSize = size / numChunks;
+		final long remainder = size % numChunks;
+		return chunkSize * chunk + Math.min( chunk, remainder );
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.util;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.FlatIterationOrder;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Projections (maximum, minimum, sum, mean, position of the maximum) of an
+ * <em>n</em>-dimensional {@link RandomAccessibleInterval} of {@link RealType}
+ * along one axis into an <em>(n-1)</em>-dimensional target.
+ * <p>
+ * The source is read once, in its own iteration order (e.g., plane by plane
+ * for a {@link net.imglib2.img.planar.PlanarImg}, cell by cell for a
+ * {@link net.imglib2.img.cell.CellImg}). Consecutive parts of the iteration
+ * are processed in parallel, each accumulating into its own
+ * <code>double[]</code> buffer covering the target. The buffers are merged
+ * when writing the target. For sources in flat iteration order, target
+ * indices are advanced incrementally. For other iteration orders, they are
+ * computed from the cursor position.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class Projections
+{
+	public static enum Operation
+	{
+		MAX, MIN, SUM, MEAN,
+
+		/**
+		 * the coordinate along the projection axis of the (first) maximum.
+		 */
+		ARGMAX
+	}
+
+	public static < T extends RealType< T >, S extends RealType< S > > void max( final RandomAccessibleInterval< T > source, final int axis, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		project( source, axis, Operation.MAX, target, numThreads );
+	}
+
+	public static < T extends RealType< T >, S extends RealType< S > > void min( final RandomAccessibleInterval< T > source, final int axis, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		project( source, axis, Operation.MIN, target, numThreads );
+	}
+
+	public static < T extends RealType< T >, S extends RealType< S > > void sum( final RandomAccessibleInterval< T > source, final int axis, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		project( source, axis, Operation.SUM, target, numThreads );
+	}
+
+	public static < T extends RealType< T >, S extends RealType< S > > void mean( final RandomAccessibleInterval< T > source, final int axis, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		project( source, axis, Operation.MEAN, target, numThreads );
+	}
+
+	public static < T extends RealType< T >, S extends RealType< S > > void argMax( final RandomAccessibleInterval< T > source, final int axis, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		project( source, axis, Operation.ARGMAX, target, numThreads );
+	}
+
+	/**
+	 * Project {@code source} along {@code axis} into {@code target}.
+	 * 
+	 * @param source
+	 *            <em>n</em>-dimensional source.
+	 * @param axis
+	 *            the dimension to project along.
+	 * @param operation
+	 *            how values along the axis are combined.
+	 * @param target
+	 *            <em>(n-1)</em>-dimensional target. Its dimensions must equal
+	 *            those of {@code source} with {@code axis} removed. Its min
+	 *            may be arbitrary.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T >, S extends RealType< S > > void project( final RandomAccessibleInterval< T > source, final int axis, final Operation operation, final RandomAccessibleInterval< S > target, final int numThreads )
+	{
+		final int n = source.numDimensions();
+		if ( n < 2 || axis < 0 || axis >= n )
+			throw new IllegalArgumentException( "axis must be a dimension of a source with at least two dimensions." );
+		if ( target.numDimensions() != n - 1 )
+			throw new IllegalArgumentException( "target must have one dimension less than source." );
+		for ( int d = 0, e = 0; d < n; ++d )
+			if ( d != axis && source.dimension( d ) != target.dimension( e++ ) )
+				throw new IllegalArgumentException( "target dimensions must match source dimensions without axis." );
+		final long targetSizeL = Intervals.numElements( target );
+		if ( targetSizeL > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "target is too large." );
+		final int targetSize = ( int ) targetSizeL;
+		final int axisLength = ( int ) source.dimension( axis );
+		final long sourceSize = targetSizeL * axisLength;
+		if ( sourceSize == 0 )
+			return;
+
+		final IterableInterval< T > iterable = Views.iterable( source );
+		final boolean flat = iterable.iterationOrder() instanceof FlatIterationOrder;
+
+		// flat index strides of the target, in source dimensions (0 for axis)
+		final long[] min = Intervals.minAsLongArray( source );
+		final int[] targetSteps = new int[ n ];
+		int step = 1;
+		for ( int d = 0; d < n; ++d )
+			if ( d != axis )
+			{
+				targetSteps[ d ] = step;
+				step *= ( int ) source.dimension( d );
+			}
+		// number of target pixels per source hyperslice perpendicular to axis below axis
+		final int inner = axis == 0 ? 1 : targetSteps[ axis - 1 ] * ( int ) source.dimension( axis - 1 );
+
+		final boolean arg = operation == Operation.ARGMAX;
+		final int numTasks = ( int ) Math.min( sourceSize, Math.max( 1, numThreads ) );
+		final double[][] accumulators = new double[ numTasks ][];
+		final int[][] positions = new int[ numTasks ][];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final long start = ParallelHelper.chunkStart( sourceSize, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( sourceSize, numTasks, taskIndex + 1 );
+				final double[] acc = new double[ targetSize ];
+				final int[] pos = arg ? new int[ targetSize ] : null;
+				accumulators[ taskIndex ] = acc;
+				positions[ taskIndex ] = pos;
+				Arrays.fill( acc, initialValue( operation ) );
+
+				final Cursor< T > c = flat ? iterable.cursor() : iterable.localizingCursor();
+				if ( start > 0 )
+					c.jumpFwd( start );
+				if ( flat )
+				{
+					// source index i = ( outer * axisLength + a ) * inner + lo
+					final long r = start / inner;
+					int lo = ( int ) ( start % inner );
+					int a = ( int ) ( r % axisLength );
+					long outer = r / axisLength;
+					long i = start;
+					while ( i < end )
+					{
+						final int runLength = ( int ) Math.min( inner - lo, end - i );
+						final int base = ( int ) ( outer * inner ) + lo;
+						accumulateRun( c, operation, acc, pos, base, runLength, a );
+						i += runLength;
+						lo += runLength;
+						if ( lo == inner )
+						{
+							lo = 0;
+							if ( ++a == axisLength )
+							{
+								a = 0;
+								++outer;
+							}
+						}
+					}
+				}
+				else
+				{
+					for ( long i = start; i < end; ++i )
+					{
+						final double v = c.next().getRealDouble();
+						int t = 0;
+						for ( int d = 0; d < n; ++d )
+							t += ( int ) ( c.getLongPosition( d ) - min[ d ] ) * targetSteps[ d ];
+						accumulate( operation, acc, pos, t, ( int ) ( c.getLongPosition( axis ) - min[ axis ] ), v );
+					}
+				}
+			}
+		} );
+
+		// merge and write
+		final int numMergeTasks = Math.min( targetSize, 4 * Math.max( 1, numThreads ) );
+		final long axisMin = source.min( axis );
+		ParallelHelper.run( numMergeTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int start = ( int ) ParallelHelper.chunkStart( targetSize, numMergeTasks, taskIndex );
+				final int end = ( int ) ParallelHelper.chunkStart( targetSize, numMergeTasks, taskIndex + 1 );
+				final double[] acc = accumulators[ 0 ];
+				final int[] pos = positions[ 0 ];
+				for ( int b = 1; b < numTasks; ++b )
+				{
+					final double[] accB = accumulators[ b ];
+					final int[] posB = positions[ b ];
+					for ( int t = start; t < end; ++t )
+						accumulate( operation, acc, pos, t, arg ? posB[ t ] : 0, accB[ t ] );
+				}
+
+				final Cursor< S > out = Views.flatIterable( target ).cursor();
+				if ( start > 0 )
+					out.jumpFwd( start );
+				for ( int t = start; t < end; ++t )
+				{
+					final double value;
+					switch ( operation )
+					{
+					case MEAN:
+						value = acc[ t ] / axisLength;
+						break;
+					case ARGMAX:
+						value = axisMin + pos[ t ];
+						break;
+					default:
+						value = acc[ t ];
+					}
+					out.next().setReal( value );
+				}
+			}
+		} );
+	}
+
+	private static double initialValue( final Operation operation )
+	{
+		switch ( operation )
+		{
+		case MAX:
+		case ARGMAX:
+			return Double.NEGATIVE_INFINITY;
+		case MIN:
+			return Double.POSITIVE_INFINITY;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Accumulate the next {@code runLength} source values (at axis coordinate
+	 * {@code a}) into target indices {@code base ... base + runLength - 1}.
+	 */
+	private static < T extends RealType< T > > void accumulateRun( final Cursor< T > c, final Operation operation, final double[] acc, final int[] pos, final int base, final int runLength, final int a )
+	{
+		final int end = base + runLength;
+		switch ( operation )
+		{
+		case MAX:
+			for ( int t = base; t < end; ++t )
+			{
+				final double v = c.next().getRealDouble();
+				if ( v > acc[ t ] )
+					acc[ t ] = v;
+			}
+			break;
+		case MIN:
+			for ( int t = base; t < end; ++t )
+			{
+				final double v = c.next().getRealDouble();
+				if ( v < acc[ t ] )
+					acc[ t ] = v;
+			}
+			break;
+		case SUM:
+		case MEAN:
+			for ( int t = base; t < end; ++t )
+				acc[ t ] += c.next().getRealDouble();
+			break;
+		case ARGMAX:
+			for ( int t = base; t < end; ++t )
+				accumulate( operation, acc, pos, t, a, c.next().getRealDouble() );
+			break;
+		}
+	}
+
+	private static void accumulate( final Operation operation, final double[] acc, final int[] pos, final int t, final int a, final double v )
+	{
+		switch ( operation )
+		{
+		case MAX:
+			if ( v > acc[ t ] )
+				acc[ t ] = v;
+			break;
+		case MIN:
+			if ( v < acc[ t ] )
+				acc[ t ] = v;
+			break;
+		case SUM:
+		case MEAN:
+			acc[ t ] += v;
+			break;
+		case ARGMAX:
+			if ( v > acc[ t ] || ( v == acc[ t ] && a < pos[ t ] ) )
+			{
+				acc[ t ] = v;
+				pos[ t ] = a;
+			}
+			break;
+		}
+	}
+}
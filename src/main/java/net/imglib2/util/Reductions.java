@@ -0,0 +1,606 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.util;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cells;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedLongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Reductions (sum, minimum, maximum, mean, variance) over the values of an
+ * {@link IterableInterval} of {@link RealType}.
+ * <p>
+ * For {@link ArrayImg}s, {@link PlanarImg}s and cell images of the primitive
+ * types ({@link ByteType}, {@link UnsignedByteType}, {@link ShortType},
+ * {@link UnsignedShortType}, {@link IntType}, {@link UnsignedIntType},
+ * {@link LongType}, {@link UnsignedLongType}, {@link FloatType} and
+ * {@link DoubleType}) the backing primitive arrays are processed directly:
+ * chunks of {@link #CHUNK_SIZE} values are widened into a
+ * <code>double[]</code> buffer and reduced by simple counted loops without
+ * per-pixel virtual calls. All other inputs are read through a {@link Cursor}
+ * into the same buffer.
+ * <p>
+ * Sums are computed by pairwise summation within each chunk and compensated
+ * (Kahan-Babu&scaron;ka) summation across chunks. Variances are computed from
+ * the squared deviations about the mean of each chunk, and partial results are
+ * merged with the update formula of Chan et al. This avoids the cancellation
+ * of the naive <em>&Sigma;x<sup>2</sup> - (&Sigma;x)<sup>2</sup>/n</em>
+ * approach.
+ * <p>
+ * The data is split into contiguous parts (planes or cells where possible)
+ * which are reduced in parallel. The partial results are merged in a fixed
+ * order at the end.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class Reductions
+{
+	/**
+	 * Number of values that are reduced at once.
+	 */
+	public static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * Below this length, {@link #pairwiseSum(double[], int, int)} sums values
+	 * directly.
+	 */
+	private static final int PAIRWISE_BLOCK_SIZE = 128;
+
+	/**
+	 * Mergeable summary statistics of a set of values: count, sum, minimum,
+	 * maximum, mean and variance.
+	 * <p>
+	 * For an empty set, the minimum is {@link Double#POSITIVE_INFINITY}, the
+	 * maximum is {@link Double#NEGATIVE_INFINITY} and mean and variance are
+	 * {@link Double#NaN}.
+	 */
+	public static class Statistics
+	{
+		private long count;
+
+		private double sum;
+
+		private double compensation;
+
+		private double min;
+
+		private double max;
+
+		/**
+		 * sum of squared deviations from the mean.
+		 */
+		private double m2;
+
+		public Statistics()
+		{
+			count = 0;
+			sum = 0;
+			compensation = 0;
+			min = Double.POSITIVE_INFINITY;
+			max = Double.NEGATIVE_INFINITY;
+			m2 = 0;
+		}
+
+		public Statistics( final Statistics other )
+		{
+			count = other.count;
+			sum = other.sum;
+			compensation = other.compensation;
+			min = other.min;
+			max = other.max;
+			m2 = other.m2;
+		}
+
+		/**
+		 * Add a single value.
+		 */
+		public void add( final double value )
+		{
+			add( 1, value, value, value, 0 );
+		}
+
+		/**
+		 * Merge the values summarized by another {@link Statistics} into this
+		 * one.
+		 */
+		public void add( final Statistics other )
+		{
+			add( other.count, other.sum(), other.min, other.max, other.m2 );
+		}
+
+		/**
+		 * Merge <em>n</em> values with sum <em>s</em>, minimum, maximum and
+		 * sum of squared deviations from their mean <em>m2</em>.
+		 */
+		private void add( final long n, final double s, final double nMin, final double nMax, final double nM2 )
+		{
+			if ( n == 0 )
+				return;
+			if ( count == 0 )
+				m2 = nM2;
+			else
+			{
+				final double na = count;
+				final double nb = n;
+				final double delta = s / nb - sum() / na;
+				m2 += nM2 + delta * delta * na * nb / ( na + nb );
+			}
+			count += n;
+			addToSum( s );
+			if ( nMin < min )
+				min = nMin;
+			if ( nMax > max )
+				max = nMax;
+		}
+
+		private void addToSum( final double x )
+		{
+			final double t = sum + x;
+			if ( Math.abs( sum ) >= Math.abs( x ) )
+				compensation += ( sum - t ) + x;
+			else
+				compensation += ( x - t ) + sum;
+			sum = t;
+		}
+
+		/**
+		 * @return the number of values.
+		 */
+		public long count()
+		{
+			return count;
+		}
+
+		/**
+		 * @return the sum of the values.
+		 */
+		public double sum()
+		{
+			return sum + compensation;
+		}
+
+		/**
+		 * @return the smallest value.
+		 */
+		public double min()
+		{
+			return min;
+		}
+
+		/**
+		 * @return the largest value.
+		 */
+		public double max()
+		{
+			return max;
+		}
+
+		/**
+		 * @return the mean of the values.
+		 */
+		public double mean()
+		{
+			return count == 0 ? Double.NaN : sum() / count;
+		}
+
+		/**
+		 * @return the population variance of the values (the mean squared
+		 *         deviation from the mean).
+		 */
+		public double variance()
+		{
+			return count == 0 ? Double.NaN : m2 / count;
+		}
+
+		/**
+		 * @return the sample variance of the values (the sum of squared
+		 *         deviations from the mean divided by <em>n-1</em>).
+		 */
+		public double sampleVariance()
+		{
+			return count < 2 ? Double.NaN : m2 / ( count - 1 );
+		}
+	}
+
+	/**
+	 * Compute count, sum, minimum, maximum, mean and variance of all values of
+	 * <code>data</code>.
+	 * 
+	 * @param data
+	 *            the values to reduce.
+	 * @param numThreads
+	 *            how many threads to use.
+	 */
+	public static < T extends RealType< T > > Statistics statistics( final IterableInterval< T > data, final int numThreads )
+	{
+		return reduce( data, true, numThreads );
+	}
+
+	/**
+	 * Compute the sum of all values of <code>data</code>.
+	 */
+	public static < T extends RealType< T > > double sum( final IterableInterval< T > data, final int numThreads )
+	{
+		return reduce( data, false, numThreads ).sum();
+	}
+
+	/**
+	 * Compute the smallest value of <code>data</code>.
+	 * 
+	 * @return the minimum, or {@link Double#POSITIVE_INFINITY} if
+	 *         <code>data</code> is empty.
+	 */
+	public static < T extends RealType< T > > double min( final IterableInterval< T > data, final int numThreads )
+	{
+		return reduce( data, false, numThreads ).min();
+	}
+
+	/**
+	 * Compute the largest value of <code>data</code>.
+	 * 
+	 * @return the maximum, or {@link Double#NEGATIVE_INFINITY} if
+	 *         <code>data</code> is empty.
+	 */
+	public static < T extends RealType< T > > double max( final IterableInterval< T > data, final int numThreads )
+	{
+		return reduce( data, false, numThreads ).max();
+	}
+
+	/**
+	 * Compute the mean of all values of <code>data</code>.
+	 */
+	public static < T extends RealType< T > > double mean( final IterableInterval< T > data, final int numThreads )
+	{
+		return reduce( data, false, numThreads ).mean();
+	}
+
+	/**
+	 * Compute the population variance of all values of <code>data</code>.
+	 */
+	public static < T extends RealType< T > > double variance( final IterableInterval< T > data, final int numThreads )
+	{
+		return reduce( data, true, numThreads ).variance();
+	}
+
+	/**
+	 * Sum <code>values[offset] ... values[offset + length - 1]</code> by
+	 * pairwise summation.
+	 */
+	static double pairwiseSum( final double[] values, final int offset, final int length )
+	{
+		if ( length <= PAIRWISE_BLOCK_SIZE )
+		{
+			// independent partial sums to break the dependency chain
+			double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+			final int end = offset + length;
+			int i = offset;
+			for ( ; i + 3 < end; i += 4 )
+			{
+				s0 += values[ i ];
+				s1 += values[ i + 1 ];
+				s2 += values[ i + 2 ];
+				s3 += values[ i + 3 ];
+			}
+			for ( ; i < end; ++i )
+				s0 += values[ i ];
+			return ( s0 + s1 ) + ( s2 + s3 );
+		}
+		final int half = ( length >>> 1 ) & ~3;
+		return pairwiseSum( values, offset, half ) + pairwiseSum( values, offset + half, length - half );
+	}
+
+	/**
+	 * Reduce <code>values[offset] ... values[offset + length - 1]</code> and
+	 * merge the result into <code>statistics</code>.
+	 */
+	private static void reduce( final double[] values, final int offset, final int length, final boolean withVariance, final Statistics statistics )
+	{
+		if ( length == 0 )
+			return;
+		final int end = offset + length;
+		final double sum = pairwiseSum( values, offset, length );
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for ( int i = offset; i < end; ++i )
+		{
+			final double v = values[ i ];
+			if ( v < min )
+				min = v;
+			if ( v > max )
+				max = v;
+		}
+		double m2 = 0;
+		if ( withVariance )
+		{
+			final double mean = sum / length;
+			for ( int i = offset; i < end; ++i )
+			{
+				final double d = values[ i ] - mean;
+				m2 += d * d;
+			}
+		}
+		statistics.add( length, sum, min, max, m2 );
+	}
+
+	/**
+	 * Reduce <code>length</code> values of a primitive storage array, starting
+	 * at <code>offset</code>, and merge the result into
+	 * <code>statistics</code>.
+	 * 
+	 * @param buffer
+	 *            temporary storage for {@link #CHUNK_SIZE} values.
+	 */
+	private static void reduceArray( final Object data, final boolean isUnsigned, final int offset, final int length, final double[] buffer, final boolean withVariance, final Statistics statistics )
+	{
+		for ( int o = offset; o < offset + length; o += CHUNK_SIZE )
+		{
+			final int n = Math.min( CHUNK_SIZE, offset + length - o );
+			if ( data instanceof double[] )
+			{
+				reduce( ( double[] ) data, o, n, withVariance, statistics );
+				continue;
+			}
+			if ( data instanceof float[] )
+			{
+				final float[] a = ( float[] ) data;
+				for ( int i = 0; i < n; ++i )
+					buffer[ i ] = a[ o + i ];
+			}
+			else if ( data instanceof byte[] )
+			{
+				final byte[] a = ( byte[] ) data;
+				if ( isUnsigned )
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ] & 0xff;
+				else
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ];
+			}
+			else if ( data instanceof short[] )
+			{
+				final short[] a = ( short[] ) data;
+				if ( isUnsigned )
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ] & 0xffff;
+				else
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ];
+			}
+			else if ( data instanceof int[] )
+			{
+				final int[] a = ( int[] ) data;
+				if ( isUnsigned )
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ] & 0xffffffffL;
+				else
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ];
+			}
+			else if ( data instanceof long[] )
+			{
+				final long[] a = ( long[] ) data;
+				if ( isUnsigned )
+					for ( int i = 0; i < n; ++i )
+					{
+						final long v = a[ o + i ];
+						buffer[ i ] = ( v >>> 1 ) * 2.0 + ( v & 1 );
+					}
+				else
+					for ( int i = 0; i < n; ++i )
+						buffer[ i ] = a[ o + i ];
+			}
+			else
+				throw new IllegalArgumentException( "Unsupported storage array " + data.getClass().getSimpleName() );
+			reduce( buffer, 0, n, withVariance, statistics );
+		}
+	}
+
+	/**
+	 * @return whether <code>type</code> stores exactly one primitive value per
+	 *         pixel, which can be reduced by
+	 *         {@link #reduceArray(Object, boolean, int, int, double[], boolean, Statistics)}
+	 *         . Subclasses are not accepted, because they might interpret the
+	 *         storage differently.
+	 */
+	private static boolean isPrimitive( final RealType< ? > type )
+	{
+		final Class< ? > c = type.getClass();
+		return c == ByteType.class || c == ShortType.class || c == IntType.class || c == LongType.class || c == FloatType.class || c == DoubleType.class || isUnsigned( type );
+	}
+
+	private static boolean isUnsigned( final RealType< ? > type )
+	{
+		final Class< ? > c = type.getClass();
+		return c == UnsignedByteType.class || c == UnsignedShortType.class || c == UnsignedIntType.class || c == UnsignedLongType.class;
+	}
+
+	private static < T extends RealType< T > > Statistics reduce( final IterableInterval< T > data, final boolean withVariance, final int numThreads )
+	{
+		final long size = data.size();
+		if ( size == 0 )
+			return new Statistics();
+
+		final T type = data.firstElement();
+		if ( isPrimitive( type ) )
+		{
+			final boolean isUnsigned = isUnsigned( type );
+			if ( data instanceof ArrayImg )
+			{
+				final Object access = ( ( ArrayImg< ?, ? > ) data ).update( null );
+				if ( access instanceof ArrayDataAccess )
+					return reduceFlat( new Object[] { ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray() }, ( int ) size, isUnsigned, withVariance, numThreads );
+			}
+			else if ( data instanceof PlanarImg )
+			{
+				final PlanarImg< ?, ? > img = ( PlanarImg< ?, ? > ) data;
+				final Object[] planes = new Object[ img.numSlices() ];
+				for ( int i = 0; i < planes.length; ++i )
+					planes[ i ] = img.getPlane( i ).getCurrentStorageArray();
+				return reduceFlat( planes, ( int ) ( size / planes.length ), isUnsigned, withVariance, numThreads );
+			}
+			else if ( data instanceof AbstractCellImg )
+			{
+				final Cells< ?, ? > cells = ( ( AbstractCellImg< ?, ?, ?, ? > ) data ).getCells();
+				if ( cells.cursor().next().getData() instanceof ArrayDataAccess )
+					return reduceCells( cells, isUnsigned, withVariance, numThreads );
+			}
+		}
+		return reduceIterable( data, withVariance, numThreads );
+	}
+
+	/**
+	 * Reduce a sequence of storage arrays of equal length (the data of an
+	 * {@link ArrayImg} or the planes of a {@link PlanarImg}).
+	 */
+	private static Statistics reduceFlat( final Object[] arrays, final int arrayLength, final boolean isUnsigned, final boolean withVariance, final int numThreads )
+	{
+		final long size = ( long ) arrays.length * arrayLength;
+		final int numTasks = ( int ) Math.min( ( size + CHUNK_SIZE - 1 ) / CHUNK_SIZE, 4 * Math.max( 1, numThreads ) );
+		final Statistics[] partials = new Statistics[ numTasks ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final Statistics statistics = new Statistics();
+				final double[] buffer = new double[ CHUNK_SIZE ];
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				for ( long i = start; i < end; )
+				{
+					final int a = ( int ) ( i / arrayLength );
+					final int o = ( int ) ( i - ( long ) a * arrayLength );
+					final int n = ( int ) Math.min( arrayLength - o, end - i );
+					reduceArray( arrays[ a ], isUnsigned, o, n, buffer, withVariance, statistics );
+					i += n;
+				}
+				partials[ taskIndex ] = statistics;
+			}
+		} );
+		return merge( partials );
+	}
+
+	/**
+	 * Reduce the cells of a cell image, in parallel over ranges of cells.
+	 */
+	private static Statistics reduceCells( final Cells< ?, ? > cells, final boolean isUnsigned, final boolean withVariance, final int numThreads )
+	{
+		long numCells = 1;
+		for ( int d = 0; d < cells.numDimensions(); ++d )
+			numCells *= ( cells.dimension( d ) - 1 ) / cells.cellDimension( d ) + 1;
+		final long size = numCells;
+		final int numTasks = ( int ) Math.min( size, 4 * Math.max( 1, numThreads ) );
+		final Statistics[] partials = new Statistics[ numTasks ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final Statistics statistics = new Statistics();
+				final double[] buffer = new double[ CHUNK_SIZE ];
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final Cursor< ? extends AbstractCell< ? > > cursor = cells.cursor();
+				cursor.jumpFwd( start );
+				for ( long i = start; i < end; ++i )
+				{
+					final AbstractCell< ? > cell = cursor.next();
+					final Object data = ( ( ArrayDataAccess< ? > ) cell.getData() ).getCurrentStorageArray();
+					reduceArray( data, isUnsigned, 0, ( int ) cell.size(), buffer, withVariance, statistics );
+				}
+				partials[ taskIndex ] = statistics;
+			}
+		} );
+		return merge( partials );
+	}
+
+	/**
+	 * Reduce any {@link IterableInterval}, reading values through
+	 * {@link Cursor}s.
+	 */
+	private static < T extends RealType< T > > Statistics reduceIterable( final IterableInterval< T > data, final boolean withVariance, final int numThreads )
+	{
+		final long size = data.size();
+		final int numTasks = ( int ) Math.min( ( size + CHUNK_SIZE - 1 ) / CHUNK_SIZE, 4 * Math.max( 1, numThreads ) );
+		final Statistics[] partials = new Statistics[ numTasks ];
+		ParallelHelper.run( numTasks, numThreads, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final Statistics statistics = new Statistics();
+				final double[] buffer = new double[ CHUNK_SIZE ];
+				final long start = ParallelHelper.chunkStart( size, numTasks, taskIndex );
+				final long end = ParallelHelper.chunkStart( size, numTasks, taskIndex + 1 );
+				final Cursor< T > cursor = data.cursor();
+				cursor.jumpFwd( start );
+				for ( long i = start; i < end; )
+				{
+					final int n = ( int ) Math.min( CHUNK_SIZE, end - i );
+					for ( int j = 0; j < n; ++j )
+						buffer[ j ] = cursor.next().getRealDouble();
+					reduce( buffer, 0, n, withVariance, statistics );
+					i += n;
+				}
+				partials[ taskIndex ] = statistics;
+			}
+		} );
+		return merge( partials );
+	}
+
+	private static Statistics merge( final Statistics[] partials )
+	{
+		final Statistics statistics = new Statistics();
+		for ( final Statistics partial : partials )
+			statistics.add( partial );
+		return statistics;
+	}
+}
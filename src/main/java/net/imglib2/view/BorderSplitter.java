@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.util.Intervals;
+
+/**
+ * Decomposes the target interval of a neighborhood operation into an interior
+ * region and thin border slabs. For every position of the interior, the whole
+ * neighborhood lies inside the source interval, such that it can be served by
+ * plain source accessors without any out-of-bounds overhead. Only the border
+ * slabs need to go through an {@link OutOfBoundsFactory}.
+ * 
+ * <p>
+ * The neighborhood of a target position <em>p</em> is the box
+ * <em>[p + kernelMin, p + kernelMax]</em>. The interior and the (at most
+ * <em>2n</em>) border slabs are disjoint and together cover the target
+ * exactly.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class BorderSplitter
+{
+	/**
+	 * A part of the target interval, together with the source data required
+	 * to compute it.
+	 */
+	public static class Region< T >
+	{
+		private final FinalInterval interval;
+
+		private final RandomAccessibleInterval< T > source;
+
+		private final boolean interior;
+
+		Region( final FinalInterval interval, final RandomAccessibleInterval< T > source, final boolean interior )
+		{
+			this.interval = interval;
+			this.source = source;
+			this.interior = interior;
+		}
+
+		/**
+		 * @return the target positions covered by this region.
+		 */
+		public FinalInterval getInterval()
+		{
+			return interval;
+		}
+
+		/**
+		 * @return the source values that the neighborhoods of all positions in
+		 *         {@link #getInterval()} can touch. For the interior region,
+		 *         this is a plain view of the source. For border slabs, it is a
+		 *         view of the extended source.
+		 */
+		public RandomAccessibleInterval< T > getSource()
+		{
+			return source;
+		}
+
+		/**
+		 * @return whether this is the interior region, i.e., whether
+		 *         {@link #getSource()} is served without out-of-bounds
+		 *         handling.
+		 */
+		public boolean isInterior()
+		{
+			return interior;
+		}
+	}
+
+	/**
+	 * Compute the interior of a target interval for a neighborhood
+	 * <em>[p + kernelMin, p + kernelMax]</em>.
+	 * 
+	 * @param source
+	 *            the interval of the source data
+	 * @param target
+	 *            the target interval
+	 * @param kernelMin
+	 *            minimum offset of the neighborhood (usually &le; 0)
+	 * @param kernelMax
+	 *            maximum offset of the neighborhood (usually &ge; 0)
+	 * @return the positions in {@code target} whose whole neighborhood lies
+	 *         in {@code source}, or {@code null} if there are none.
+	 */
+	public static FinalInterval interior( final Interval source, final Interval target, final long[] kernelMin, final long[] kernelMax )
+	{
+		final int n = target.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Math.max( target.min( d ), source.min( d ) - kernelMin[ d ] );
+			max[ d ] = Math.min( target.max( d ), source.max( d ) - kernelMax[ d ] );
+			if ( min[ d ] > max[ d ] )
+				return null;
+		}
+		return new FinalInterval( min, max );
+	}
+
+	/**
+	 * Compute the interior of a target interval for a symmetric neighborhood
+	 * <em>[p - radius, p + radius]</em>.
+	 * 
+	 * @see #interior(Interval, Interval, long[], long[])
+	 */
+	public static FinalInterval interior( final Interval source, final Interval target, final long[] radius )
+	{
+		return interior( source, target, negate( radius ), radius );
+	}
+
+	/**
+	 * Decompose the part of {@code target} that is not covered by
+	 * {@code interior} into disjoint slabs. For each dimension, a lower and an
+	 * upper slab are cut off (if non-empty), and the remainder is narrowed to
+	 * the interior in that dimension.
+	 * 
+	 * @param target
+	 *            the target interval
+	 * @param interior
+	 *            a sub-interval of {@code target}, or {@code null} if the
+	 *            interior is empty.
+	 * @return at most <em>2n</em> disjoint slabs.
+	 */
+	public static List< FinalInterval > border( final Interval target, final Interval interior )
+	{
+		final ArrayList< FinalInterval > slabs = new ArrayList< FinalInterval >();
+		if ( interior == null )
+		{
+			if ( !Intervals.isEmpty( target ) )
+				slabs.add( new FinalInterval( target ) );
+			return slabs;
+		}
+
+		final int n = target.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		target.min( min );
+		target.max( max );
+		for ( int d = 0; d < n; ++d )
+		{
+			final long imin = interior.min( d );
+			final long imax = interior.max( d );
+			if ( imin > min[ d ] )
+			{
+				final long tmp = max[ d ];
+				max[ d ] = imin - 1;
+				slabs.add( new FinalInterval( min, max ) );
+				max[ d ] = tmp;
+			}
+			if ( imax < max[ d ] )
+			{
+				final long tmp = min[ d ];
+				min[ d ] = imax + 1;
+				slabs.add( new FinalInterval( min, max ) );
+				min[ d ] = tmp;
+			}
+			min[ d ] = imin;
+			max[ d ] = imax;
+		}
+		return slabs;
+	}
+
+	/**
+	 * Split {@code target} into the interior and border slabs for a
+	 * neighborhood <em>[p + kernelMin, p + kernelMax]</em>. The interior
+	 * region (if any) is the first element of the returned list. Its
+	 * {@link Region#getSource() source} is a view of {@code source} itself,
+	 * the sources of the border slabs are views of {@code source} extended by
+	 * {@code factory}.
+	 * 
+	 * @param source
+	 *            the source data
+	 * @param factory
+	 *            out-of-bounds strategy used for the border slabs
+	 * @param target
+	 *            the target interval
+	 * @param kernelMin
+	 *            minimum offset of the neighborhood
+	 * @param kernelMax
+	 *            maximum offset of the neighborhood
+	 * @return the interior region followed by the border slabs.
+	 */
+	public static < T, F extends RandomAccessibleInterval< T > > List< Region< T > > split( final F source, final OutOfBoundsFactory< T, ? super F > factory, final Interval target, final long[] kernelMin, final long[] kernelMax )
+	{
+		final ArrayList< Region< T > > regions = new ArrayList< Region< T > >();
+		final FinalInterval interior = interior( source, target, kernelMin, kernelMax );
+		if ( interior != null )
+			regions.add( new Region< T >( interior, Views.interval( source, neighborhoods( interior, kernelMin, kernelMax ) ), true ) );
+		final ExtendedRandomAccessibleInterval< T, F > extended = Views.extend( source, factory );
+		for ( final FinalInterval slab : border( target, interior ) )
+			regions.add( new Region< T >( slab, Views.interval( extended, neighborhoods( slab, kernelMin, kernelMax ) ), false ) );
+		return regions;
+	}
+
+	/**
+	 * Split {@code target} into the interior and border slabs for a symmetric
+	 * neighborhood <em>[p - radius, p + radius]</em>.
+	 * 
+	 * @see #split(RandomAccessibleInterval, OutOfBoundsFactory, Interval,
+	 *      long[], long[])
+	 */
+	public static < T, F extends RandomAccessibleInterval< T > > List< Region< T > > split( final F source, final OutOfBoundsFactory< T, ? super F > factory, final Interval target, final long[] radius )
+	{
+		return split( source, factory, target, negate( radius ), radius );
+	}
+
+	/**
+	 * @return the union of the neighborhoods of all positions in
+	 *         {@code interval}.
+	 */
+	private static FinalInterval neighborhoods( final Interval interval, final long[] kernelMin, final long[] kernelMax )
+	{
+		final int n = interval.numDimensions();
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = interval.min( d ) + kernelMin[ d ];
+			max[ d ] = interval.max( d ) + kernelMax[ d ];
+		}
+		return new FinalInterval( min, max );
+	}
+
+	private static long[] negate( final long[] a )
+	{
+		final long[] b = new long[ a.length ];
+		for ( int i = 0; i < a.length; ++i )
+			b[ i ] = -a[ i ];
+		return b;
+	}
+}
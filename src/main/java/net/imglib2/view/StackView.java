@@ -33,16 +33,24 @@
  */
 package net.imglib2.view;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import net.imglib2.AbstractInterval;
+import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.Localizable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.View;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.ParallelHelper;
 import net.imglib2.util.Util;
 
 /**
@@ -165,7 +173,115 @@ public class StackView< T > extends AbstractInterval implements RandomAccessible
 	{
 		return stackAccessMode;
 	}
-	
+
+	/**
+	 * Materialize a stack of <em>n</em>-dimensional hyperslices into a new
+	 * <em>(n+1)</em>-dimensional {@link PlanarImg}. This is much faster than
+	 * copying from a {@link StackView} when the slices are expensive to
+	 * compute (e.g., converted views), because the slices are copied in
+	 * parallel, each with a single flat-iteration cursor.
+	 * 
+	 * <p>
+	 * Slices that are themselves array-backed ({@link PlanarImg}s, or
+	 * 2-dimensional {@link ArrayImg}s) of the same type are not copied.
+	 * Instead, their arrays are used as planes of the result
+	 * ({@link PlanarImg#setPlane(int, ArrayDataAccess)}), so the result shares
+	 * data with these slices.
+	 * </p>
+	 * 
+	 * <p>
+	 * The result has min 0 in every dimension.
+	 * </p>
+	 * 
+	 * @param hyperslices
+	 *            the slices to stack. All must have the same dimensions.
+	 * @param numThreads
+	 *            how many threads to use.
+	 * @return a {@link PlanarImg} containing the stacked slices.
+	 */
+	public static < T extends NativeType< T > > PlanarImg< T, ? > materialize( final List< ? extends RandomAccessibleInterval< T > > hyperslices, final int numThreads )
+	{
+		final RandomAccessibleInterval< T > first = hyperslices.get( 0 );
+		final int sliceDims = first.numDimensions();
+		final long[] dimensions = new long[ sliceDims + 1 ];
+		for ( int d = 0; d < sliceDims; ++d )
+			dimensions[ d ] = first.dimension( d );
+		dimensions[ sliceDims ] = hyperslices.size();
+		for ( final RandomAccessibleInterval< T > slice : hyperslices )
+		{
+			if ( slice.numDimensions() != sliceDims )
+				throw new IllegalArgumentException( "All slices must have the same dimensionality." );
+			for ( int d = 0; d < sliceDims; ++d )
+				if ( slice.dimension( d ) != dimensions[ d ] )
+					throw new IllegalArgumentException( "All slices must have the same dimensions." );
+		}
+
+		final T type = first.randomAccess().get().createVariable();
+		final PlanarImg< T, ? > img = new PlanarImgFactory< T >().create( dimensions, type );
+		materialize( hyperslices, img, numThreads );
+		return img;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private static < T extends NativeType< T >, A extends ArrayDataAccess< A > > void materialize( final List< ? extends RandomAccessibleInterval< T > > hyperslices, final PlanarImg< T, A > img, final int numThreads )
+	{
+		final int numSlices = hyperslices.size();
+		final int sliceDims = img.numDimensions() - 1;
+		final int planesPerSlice = img.numSlices() / numSlices;
+		final Class< ? > typeClass = img.firstElement().getClass();
+		final Class< ? > planeClass = img.getPlane( 0 ).getClass();
+
+		// share planes of array-backed slices, collect the others for copying
+		final ArrayList< Integer > toCopy = new ArrayList< Integer >();
+		for ( int s = 0; s < numSlices; ++s )
+		{
+			final RandomAccessibleInterval< T > slice = hyperslices.get( s );
+			boolean shared = false;
+			if ( sliceDims >= 2 && slice instanceof PlanarImg )
+			{
+				final PlanarImg< T, ? > planar = ( PlanarImg< T, ? > ) slice;
+				if ( planar.firstElement().getClass() == typeClass && planar.getPlane( 0 ).getClass() == planeClass )
+				{
+					for ( int p = 0; p < planesPerSlice; ++p )
+						img.setPlane( s * planesPerSlice + p, ( A ) planar.getPlane( p ) );
+					shared = true;
+				}
+			}
+			else if ( sliceDims == 2 && slice instanceof ArrayImg )
+			{
+				final ArrayImg< T, ? > array = ( ArrayImg< T, ? > ) slice;
+				final Object data = array.update( null );
+				if ( array.firstElement().getClass() == typeClass && data.getClass() == planeClass )
+				{
+					img.setPlane( s, ( A ) data );
+					shared = true;
+				}
+			}
+			if ( !shared )
+				toCopy.add( s );
+		}
+
+		// slices of less than two dimensions share a plane, so copy them sequentially
+		final int numTasks = toCopy.size();
+		ParallelHelper.run( numTasks, sliceDims >= 2 ? numThreads : 1, new ParallelHelper.Task()
+		{
+			@Override
+			public void run( final int taskIndex )
+			{
+				final int s = toCopy.get( taskIndex );
+				final long[] min = new long[ sliceDims + 1 ];
+				final long[] max = new long[ sliceDims + 1 ];
+				img.max( max );
+				min[ sliceDims ] = s;
+				max[ sliceDims ] = s;
+				final Cursor< T > out = Views.flatIterable( Views.interval( img, new FinalInterval( min, max ) ) ).cursor();
+				final Cursor< T > in = Views.flatIterable( hyperslices.get( s ) ).cursor();
+				while ( out.hasNext() )
+					out.next().set( in.next() );
+			}
+		} );
+	}
+
 	/**
 	 * A {@link RandomAccess} on a {@link StackView}. It keeps a list of
 	 * {@link RandomAccess}es on all constituent hyper-slices of the
@@ -63,6 +63,7 @@ import net.imglib2.transform.integer.permutation.PermutationTransform;
 import net.imglib2.transform.integer.permutation.SingleDimensionPermutationTransform;
 import net.imglib2.transform.integer.shear.InverseShearTransform;
 import net.imglib2.transform.integer.shear.ShearTransform;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
@@ -72,6 +73,8 @@ import net.imglib2.view.StackView.StackAccessMode;
 import net.imglib2.view.composite.CompositeIntervalView;
 import net.imglib2.view.composite.CompositeView;
 import net.imglib2.view.composite.GenericComposite;
+import net.imglib2.view.composite.InterleavedComposite;
+import net.imglib2.view.composite.InterleavedCompositeView;
 import net.imglib2.view.composite.NumericComposite;
 import net.imglib2.view.composite.RealComposite;
 
@@ -856,6 +859,23 @@ public class Views
 		return new CompositeView< T, RealComposite< T > >( source, new RealComposite.Factory< T >( numChannels ) );
 	}
 
+	/**
+	 * Collapse the first dimension of an <em>n</em>-dimensional
+	 * {@link ArrayImg}&lt;T extends {@link RealType}&lt;T&gt;&gt; with
+	 * interleaved channels into an (<em>n</em>-1)-dimensional
+	 * {@link RandomAccessibleInterval}&lt;{@link InterleavedComposite}
+	 * &lt;T&gt;&gt;. Channel values are accessed at direct offsets into the
+	 * backing array.
+	 *
+	 * @param source
+	 *            the source, with the channel axis as dimension 0
+	 * @return an (<em>n</em>-1)-dimensional {@link InterleavedCompositeView}
+	 */
+	public static < T extends NativeType< T > & RealType< T >, A > InterleavedCompositeView< T, A > collapseInterleaved( final ArrayImg< T, A > source )
+	{
+		return new InterleavedCompositeView< T, A >( source );
+	}
+
 	/**
 	 * Collapse the <em>n</em><sup>th</sup> dimension of an <em>n</em>
 	 * -dimensional {@link RandomAccessible}&lt;T extends {@link NumericType}
@@ -0,0 +1,241 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view.composite;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+
+/**
+ * A vector of the <em>numChannels</em> consecutive values of an
+ * {@link ArrayImg} that stores channels interleaved, i.e., with the channel
+ * axis as the fastest-varying dimension. The channels of the current pixel
+ * occupy indices {@link #getOffset()} ... {@link #getOffset()} +
+ * <em>numChannels</em> - 1 of the backing {@link #getAccess() access}.
+ * 
+ * <p>
+ * {@link #get(long)} only updates the index of a linked type. The bulk
+ * getters and setters copy all channels of the pixel at once. For
+ * {@link FloatType}, {@link DoubleType}, {@link ShortType} and
+ * {@link UnsignedShortType}, they work directly on the primitive array.
+ * </p>
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class InterleavedComposite< T extends NativeType< T > & RealType< T >, A > implements Composite< T >
+{
+	final protected ArrayImg< T, A > img;
+
+	final protected A access;
+
+	final protected T type;
+
+	final protected int numChannels;
+
+	final private float[] floats;
+
+	final private double[] doubles;
+
+	final private short[] shorts;
+
+	final private boolean unsigned;
+
+	/**
+	 * index of channel 0 of the current pixel.
+	 */
+	protected int offset;
+
+	public InterleavedComposite( final ArrayImg< T, A > img, final int numChannels )
+	{
+		this.img = img;
+		this.access = img.update( null );
+		this.numChannels = numChannels;
+		type = img.createLinkedType();
+		type.updateContainer( this );
+
+		final Class< ? > typeClass = type.getClass();
+		floats = ( typeClass == FloatType.class && access instanceof FloatArray ) ? ( ( FloatArray ) access ).getCurrentStorageArray() : null;
+		doubles = ( typeClass == DoubleType.class && access instanceof DoubleArray ) ? ( ( DoubleArray ) access ).getCurrentStorageArray() : null;
+		unsigned = typeClass == UnsignedShortType.class;
+		shorts = ( ( unsigned || typeClass == ShortType.class ) && access instanceof ShortArray ) ? ( ( ShortArray ) access ).getCurrentStorageArray() : null;
+	}
+
+	/**
+	 * Set the index of channel 0 of the current pixel.
+	 */
+	public void setOffset( final int offset )
+	{
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the index of channel 0 of the current pixel in
+	 *         {@link #getAccess()}.
+	 */
+	public int getOffset()
+	{
+		return offset;
+	}
+
+	/**
+	 * @return the backing access of the {@link ArrayImg}, e.g., a
+	 *         {@link FloatArray} or {@link ShortArray}.
+	 */
+	public A getAccess()
+	{
+		return access;
+	}
+
+	public int numChannels()
+	{
+		return numChannels;
+	}
+
+	@Override
+	public T get( final long i )
+	{
+		type.updateIndex( offset + ( int ) i );
+		return type;
+	}
+
+	/**
+	 * Copy all channel values of the current pixel into {@code values}.
+	 */
+	public void get( final float[] values )
+	{
+		if ( floats != null )
+			System.arraycopy( floats, offset, values, 0, numChannels );
+		else if ( shorts != null )
+		{
+			if ( unsigned )
+				for ( int c = 0; c < numChannels; ++c )
+					values[ c ] = shorts[ offset + c ] & 0xffff;
+			else
+				for ( int c = 0; c < numChannels; ++c )
+					values[ c ] = shorts[ offset + c ];
+		}
+		else
+			for ( int c = 0; c < numChannels; ++c )
+			{
+				type.updateIndex( offset + c );
+				values[ c ] = type.getRealFloat();
+			}
+	}
+
+	/**
+	 * Set all channel values of the current pixel from {@code values}.
+	 */
+	public void set( final float[] values )
+	{
+		if ( floats != null )
+			System.arraycopy( values, 0, floats, offset, numChannels );
+		else if ( shorts != null )
+			for ( int c = 0; c < numChannels; ++c )
+				shorts[ offset + c ] = ( short ) Util.round( values[ c ] );
+		else
+			for ( int c = 0; c < numChannels; ++c )
+			{
+				type.updateIndex( offset + c );
+				type.setReal( values[ c ] );
+			}
+	}
+
+	/**
+	 * Copy all channel values of the current pixel into {@code values}.
+	 */
+	public void get( final double[] values )
+	{
+		if ( doubles != null )
+			System.arraycopy( doubles, offset, values, 0, numChannels );
+		else if ( floats != null )
+			for ( int c = 0; c < numChannels; ++c )
+				values[ c ] = floats[ offset + c ];
+		else if ( shorts != null )
+		{
+			if ( unsigned )
+				for ( int c = 0; c < numChannels; ++c )
+					values[ c ] = shorts[ offset + c ] & 0xffff;
+			else
+				for ( int c = 0; c < numChannels; ++c )
+					values[ c ] = shorts[ offset + c ];
+		}
+		else
+			for ( int c = 0; c < numChannels; ++c )
+			{
+				type.updateIndex( offset + c );
+				values[ c ] = type.getRealDouble();
+			}
+	}
+
+	/**
+	 * Set all channel values of the current pixel from {@code values}.
+	 */
+	public void set( final double[] values )
+	{
+		if ( doubles != null )
+			System.arraycopy( values, 0, doubles, offset, numChannels );
+		else if ( floats != null )
+			for ( int c = 0; c < numChannels; ++c )
+				floats[ offset + c ] = ( float ) values[ c ];
+		else if ( shorts != null )
+			for ( int c = 0; c < numChannels; ++c )
+				shorts[ offset + c ] = ( short ) Util.round( values[ c ] );
+		else
+			for ( int c = 0; c < numChannels; ++c )
+			{
+				type.updateIndex( offset + c );
+				type.setReal( values[ c ] );
+			}
+	}
+
+	/**
+	 * Create an independent composite on the same image, pointing at the same
+	 * pixel.
+	 */
+	public InterleavedComposite< T, A > copy()
+	{
+		final InterleavedComposite< T, A > copy = new InterleavedComposite< T, A >( img, numChannels );
+		copy.offset = offset;
+		return copy;
+	}
+}
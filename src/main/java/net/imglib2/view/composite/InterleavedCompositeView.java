@@ -0,0 +1,233 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view.composite;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Collapses the first dimension of an <em>n</em>-dimensional {@link ArrayImg}
+ * into an (<em>n</em>-1)-dimensional {@link RandomAccessibleInterval} of
+ * {@link InterleavedComposite}s. This is the view of choice for interleaved
+ * multi-channel data (e.g., RGB or spectral images stored channel by channel
+ * for each pixel). In contrast to {@link Views#collapseReal}, the channels of
+ * a pixel are accessed at direct index offsets into the backing array, without
+ * positioning a {@link RandomAccess} along the channel dimension.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class InterleavedCompositeView< T extends NativeType< T > & RealType< T >, A > extends AbstractInterval implements RandomAccessibleInterval< InterleavedComposite< T, A > >
+{
+	final protected ArrayImg< T, A > source;
+
+	final protected int numChannels;
+
+	/**
+	 * index increment for a step in each dimension.
+	 */
+	final protected int[] steps;
+
+	public InterleavedCompositeView( final ArrayImg< T, A > source )
+	{
+		super( collapsedDimensions( source ) );
+		this.source = source;
+		numChannels = ( int ) source.dimension( 0 );
+		steps = new int[ n ];
+		int step = numChannels;
+		for ( int d = 0; d < n; ++d )
+		{
+			steps[ d ] = step;
+			step *= ( int ) source.dimension( d + 1 );
+		}
+	}
+
+	private static long[] collapsedDimensions( final Interval source )
+	{
+		final int n = source.numDimensions() - 1;
+		if ( n < 1 )
+			throw new IllegalArgumentException( "source must have at least two dimensions." );
+		final long[] dimensions = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			dimensions[ d ] = source.dimension( d + 1 );
+		return dimensions;
+	}
+
+	public int numChannels()
+	{
+		return numChannels;
+	}
+
+	public class InterleavedCompositeRandomAccess extends AbstractLocalizable implements RandomAccess< InterleavedComposite< T, A > >
+	{
+		final protected InterleavedComposite< T, A > composite;
+
+		protected int offset;
+
+		public InterleavedCompositeRandomAccess()
+		{
+			super( InterleavedCompositeView.this.n );
+			composite = new InterleavedComposite< T, A >( source, numChannels );
+		}
+
+		protected InterleavedCompositeRandomAccess( final InterleavedCompositeRandomAccess ra )
+		{
+			this();
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = ra.position[ d ];
+			offset = ra.offset;
+		}
+
+		@Override
+		public InterleavedComposite< T, A > get()
+		{
+			composite.setOffset( offset );
+			return composite;
+		}
+
+		@Override
+		public InterleavedCompositeRandomAccess copy()
+		{
+			return new InterleavedCompositeRandomAccess( this );
+		}
+
+		@Override
+		public InterleavedCompositeRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+
+		@Override
+		public void fwd( final int d )
+		{
+			++position[ d ];
+			offset += steps[ d ];
+		}
+
+		@Override
+		public void bck( final int d )
+		{
+			--position[ d ];
+			offset -= steps[ d ];
+		}
+
+		@Override
+		public void move( final int distance, final int d )
+		{
+			position[ d ] += distance;
+			offset += distance * steps[ d ];
+		}
+
+		@Override
+		public void move( final long distance, final int d )
+		{
+			move( ( int ) distance, d );
+		}
+
+		@Override
+		public void move( final Localizable localizable )
+		{
+			for ( int d = 0; d < n; ++d )
+				move( localizable.getLongPosition( d ), d );
+		}
+
+		@Override
+		public void move( final int[] distance )
+		{
+			for ( int d = 0; d < n; ++d )
+				move( distance[ d ], d );
+		}
+
+		@Override
+		public void move( final long[] distance )
+		{
+			for ( int d = 0; d < n; ++d )
+				move( distance[ d ], d );
+		}
+
+		@Override
+		public void setPosition( final Localizable localizable )
+		{
+			for ( int d = 0; d < n; ++d )
+				setPosition( localizable.getLongPosition( d ), d );
+		}
+
+		@Override
+		public void setPosition( final int[] pos )
+		{
+			for ( int d = 0; d < n; ++d )
+				setPosition( pos[ d ], d );
+		}
+
+		@Override
+		public void setPosition( final long[] pos )
+		{
+			for ( int d = 0; d < n; ++d )
+				setPosition( pos[ d ], d );
+		}
+
+		@Override
+		public void setPosition( final int pos, final int d )
+		{
+			offset += ( int ) ( pos - position[ d ] ) * steps[ d ];
+			position[ d ] = pos;
+		}
+
+		@Override
+		public void setPosition( final long pos, final int d )
+		{
+			setPosition( ( int ) pos, d );
+		}
+	}
+
+	@Override
+	public InterleavedCompositeRandomAccess randomAccess()
+	{
+		return new InterleavedCompositeRandomAccess();
+	}
+
+	@Override
+	public InterleavedCompositeRandomAccess randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.neighborsearch.NearestNeighborSearchOnKDTree;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class NativePointSampleListTest
+{
+	@Test
+	public void testIterationAndKDTree()
+	{
+		final int n = 2;
+		final int m = 1000;
+		final long[][] points = new long[ m ][ n ];
+		final Random rnd = new Random( 1 );
+		final NativePointSampleList< IntType > list = new NativePointSampleList< IntType >( n, new IntType() );
+		for ( int i = 0; i < m; ++i )
+		{
+			points[ i ][ 0 ] = rnd.nextInt( 200 ) - 100;
+			points[ i ][ 1 ] = rnd.nextInt( 50 );
+			if ( i % 2 == 0 )
+				list.add( points[ i ], new IntType( i ) );
+			else
+				list.add( new Point( points[ i ] ), new IntType( i ) );
+		}
+		assertEquals( m, list.size() );
+
+		final long[] min = new long[] { Long.MAX_VALUE, Long.MAX_VALUE };
+		final long[] max = new long[] { Long.MIN_VALUE, Long.MIN_VALUE };
+		final Cursor< IntType > cursor = list.cursor();
+		final long[] pos = new long[ n ];
+		int i = 0;
+		while ( cursor.hasNext() )
+		{
+			assertEquals( i, cursor.next().get() );
+			cursor.localize( pos );
+			for ( int d = 0; d < n; ++d )
+			{
+				assertEquals( points[ i ][ d ], pos[ d ] );
+				assertEquals( points[ i ][ d ], cursor.getIntPosition( d ) );
+				min[ d ] = Math.min( min[ d ], pos[ d ] );
+				max[ d ] = Math.max( max[ d ], pos[ d ] );
+			}
+			++i;
+		}
+		for ( int d = 0; d < n; ++d )
+		{
+			assertEquals( min[ d ], list.min( d ) );
+			assertEquals( max[ d ], list.max( d ) );
+		}
+
+		final NearestNeighborSearchOnKDTree< IntType > search = new NearestNeighborSearchOnKDTree< IntType >( new KDTree< IntType >( list ) );
+		for ( int j = 0; j < m; j += 37 )
+		{
+			search.search( new Point( points[ j ] ) );
+			assertEquals( 0, search.getSquareDistance(), 0 );
+			final int found = search.getSampler().get().get();
+			assertEquals( points[ j ][ 0 ], points[ found ][ 0 ] );
+			assertEquals( points[ j ][ 1 ], points[ found ][ 1 ] );
+		}
+	}
+}
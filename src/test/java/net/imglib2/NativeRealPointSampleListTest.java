@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.neighborsearch.NearestNeighborSearchOnKDTree;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class NativeRealPointSampleListTest
+{
+	final static private int n = 3;
+
+	final static private int m = 5000;
+
+	private final ArrayList< RealPoint > points = new ArrayList< RealPoint >();
+
+	private final ArrayList< DoubleType > samples = new ArrayList< DoubleType >();
+
+	private NativeRealPointSampleList< DoubleType > createList()
+	{
+		final Random rnd = new Random( 123456 );
+		final NativeRealPointSampleList< DoubleType > list = new NativeRealPointSampleList< DoubleType >( n, new DoubleType(), 3 );
+		for ( int i = 0; i < m; ++i )
+		{
+			final double[] position = new double[ n ];
+			for ( int d = 0; d < n; ++d )
+				position[ d ] = rnd.nextDouble() * 100 - 50;
+			final DoubleType sample = new DoubleType( rnd.nextDouble() );
+			points.add( new RealPoint( position ) );
+			samples.add( sample );
+			if ( i % 2 == 0 )
+				list.add( position, sample );
+			else
+				list.add( new RealPoint( position ), sample );
+		}
+		return list;
+	}
+
+	@Test
+	public void testIteration()
+	{
+		final NativeRealPointSampleList< DoubleType > list = createList();
+		assertEquals( m, list.size() );
+		final double[] min = new double[ n ];
+		final double[] max = new double[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Double.MAX_VALUE;
+			max[ d ] = -Double.MAX_VALUE;
+		}
+
+		final RealCursor< DoubleType > cursor = list.localizingCursor();
+		int i = 0;
+		while ( cursor.hasNext() )
+		{
+			assertEquals( samples.get( i ).get(), cursor.next().get(), 0 );
+			for ( int d = 0; d < n; ++d )
+			{
+				final double x = points.get( i ).getDoublePosition( d );
+				assertEquals( x, cursor.getDoublePosition( d ), 0 );
+				min[ d ] = Math.min( min[ d ], x );
+				max[ d ] = Math.max( max[ d ], x );
+			}
+			++i;
+		}
+		assertEquals( m, i );
+		for ( int d = 0; d < n; ++d )
+		{
+			assertEquals( min[ d ], list.realMin( d ), 0 );
+			assertEquals( max[ d ], list.realMax( d ), 0 );
+		}
+		assertEquals( samples.get( 0 ).get(), list.firstElement().get(), 0 );
+	}
+
+	@Test
+	public void testCopyAndJump()
+	{
+		final NativeRealPointSampleList< DoubleType > list = createList();
+		final RealCursor< DoubleType > cursor = list.cursor();
+		cursor.jumpFwd( 17 );
+		final RealCursor< DoubleType > copy = cursor.copyCursor();
+		assertEquals( samples.get( 16 ).get(), copy.get().get(), 0 );
+		assertEquals( points.get( 16 ).getDoublePosition( 2 ), copy.getDoublePosition( 2 ), 0 );
+		copy.fwd();
+		assertEquals( samples.get( 17 ).get(), copy.get().get(), 0 );
+		assertEquals( samples.get( 16 ).get(), cursor.get().get(), 0 );
+	}
+
+	@Test
+	public void testWrap()
+	{
+		final double[] coordinates = new double[] { 0, 0, 1, 1, 2, -3 };
+		final ArrayImg< FloatType, FloatArray > values = ArrayImgs.floats( 3 );
+		final NativeRealPointSampleList< FloatType > list = new NativeRealPointSampleList< FloatType >( 2, coordinates, values );
+		assertEquals( 3, list.size() );
+		assertEquals( -3, list.realMin( 1 ), 0 );
+		assertEquals( 2, list.realMax( 0 ), 0 );
+
+		// samples are shared with the wrapped image
+		final RealCursor< FloatType > cursor = list.cursor();
+		cursor.jumpFwd( 2 );
+		cursor.get().set( 5 );
+		assertEquals( 5, values.update( null ).getValue( 1 ), 0 );
+	}
+
+	@Test
+	public void testKDTree()
+	{
+		final NativeRealPointSampleList< DoubleType > list = createList();
+		final KDTree< DoubleType > tree = list.kdTree();
+		assertEquals( m, tree.size() );
+		final NearestNeighborSearchOnKDTree< DoubleType > search = new NearestNeighborSearchOnKDTree< DoubleType >( tree );
+
+		final Random rnd = new Random( 42 );
+		for ( int q = 0; q < 200; ++q )
+		{
+			final RealPoint query = new RealPoint( rnd.nextDouble() * 120 - 60, rnd.nextDouble() * 120 - 60, rnd.nextDouble() * 120 - 60 );
+			int best = -1;
+			double bestDist = Double.MAX_VALUE;
+			for ( int i = 0; i < m; ++i )
+			{
+				double dist = 0;
+				for ( int d = 0; d < n; ++d )
+				{
+					final double diff = points.get( i ).getDoublePosition( d ) - query.getDoublePosition( d );
+					dist += diff * diff;
+				}
+				if ( dist < bestDist )
+				{
+					bestDist = dist;
+					best = i;
+				}
+			}
+			search.search( query );
+			assertEquals( bestDist, search.getSquareDistance(), 1e-9 );
+			assertEquals( samples.get( best ).get(), search.getSampler().get().get(), 0 );
+		}
+
+		// the tree refers to the stored samples
+		search.search( points.get( 7 ) );
+		search.getSampler().get().set( -1 );
+		final RealCursor< DoubleType > cursor = list.cursor();
+		cursor.jumpFwd( 8 );
+		assertEquals( -1, cursor.get().get(), 0 );
+		assertTrue( tree.getRoot() != null );
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.convolution;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.outofbounds.OutOfBoundsBorderFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.outofbounds.OutOfBoundsPeriodicFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class SeparableConvolutionTest
+{
+	private final long[] dims = new long[] { 13, 9, 7 };
+
+	private final double[][] kernels = new double[][] {
+			{ 0.1, 0.2, 0.4, 0.3 },
+			{ 1 },
+			{ 0.25, 0.5, 0.25 } };
+
+	private static void fill( final Img< ? extends RealType< ? > > img )
+	{
+		final Random rnd = new Random( 7 );
+		for ( final RealType< ? > t : img )
+			t.setReal( rnd.nextInt( 200 ) );
+	}
+
+	/**
+	 * Naive convolution by summing over the full (non-separated) kernel.
+	 */
+	private static < T extends RealType< T > > Img< DoubleType > reference( final double[][] kernels, final RandomAccessible< T > source, final long[] min, final long[] dims )
+	{
+		final int n = dims.length;
+		final Img< DoubleType > result = new ArrayImgFactory< DoubleType >().create( dims, new DoubleType() );
+		final RandomAccess< T > a = source.randomAccess();
+		final Cursor< DoubleType > c = result.localizingCursor();
+		final long[] x = new long[ n ];
+		final int[] j = new int[ n ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( x );
+			double sum = 0;
+			for ( int d = 0; d < n; ++d )
+				j[ d ] = 0;
+			while ( j[ n - 1 ] < kernels[ n - 1 ].length )
+			{
+				double w = 1;
+				for ( int d = 0; d < n; ++d )
+				{
+					w *= kernels[ d ][ j[ d ] ];
+					a.setPosition( min[ d ] + x[ d ] + kernels[ d ].length / 2 - j[ d ], d );
+				}
+				sum += w * a.get().getRealDouble();
+				for ( int d = 0; d < n; ++d )
+				{
+					if ( ++j[ d ] < kernels[ d ].length || d == n - 1 )
+						break;
+					j[ d ] = 0;
+				}
+			}
+			c.get().set( sum );
+		}
+		return result;
+	}
+
+	private static void assertImagesEqual( final RandomAccessibleInterval< DoubleType > expected, final RandomAccessibleInterval< ? extends RealType< ? > > actual, final double delta )
+	{
+		final Cursor< DoubleType > e = Views.flatIterable( expected ).cursor();
+		final Cursor< ? extends RealType< ? > > a = Views.flatIterable( actual ).cursor();
+		while ( e.hasNext() )
+			assertEquals( e.next().get(), a.next().getRealDouble(), delta );
+	}
+
+	@Test
+	public void testConvolve()
+	{
+		final Img< FloatType > source = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		fill( source );
+		final Img< DoubleType > target = new ArrayImgFactory< DoubleType >().create( dims, new DoubleType() );
+		SeparableConvolution.convolve( kernels, source, new OutOfBoundsBorderFactory< FloatType, RandomAccessibleInterval< FloatType > >(), target, 1 );
+		final Img< DoubleType > expected = reference( kernels, Views.extendBorder( source ), new long[ 3 ], dims );
+		assertImagesEqual( expected, target, 1e-9 );
+	}
+
+	@Test
+	public void testConvolveMultiThreadedCellImg()
+	{
+		final Img< FloatType > source = new CellImgFactory< FloatType >( 4 ).create( dims, new FloatType() );
+		fill( source );
+		final Img< FloatType > target = new CellImgFactory< FloatType >( 5 ).create( dims, new FloatType() );
+		SeparableConvolution.convolve( kernels, source, new OutOfBoundsPeriodicFactory< FloatType, RandomAccessibleInterval< FloatType > >(), target, 4 );
+		final Img< DoubleType > expected = reference( kernels, Views.extendPeriodic( source ), new long[ 3 ], dims );
+		assertImagesEqual( expected, target, 1e-4 );
+	}
+
+	@Test
+	public void testConvolveSubInterval()
+	{
+		final Img< FloatType > source = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		fill( source );
+		final long[] min = new long[] { 2, 1, 3 };
+		final long[] max = new long[] { 10, 8, 6 };
+		final Img< DoubleType > target = new ArrayImgFactory< DoubleType >().create( new long[] { 9, 8, 4 }, new DoubleType() );
+		final RandomAccessibleInterval< DoubleType > translated = Views.translate( target, min );
+		SeparableConvolution.convolve( kernels, Views.extendZero( source ), Views.interval( translated, min, max ), 2 );
+		final Img< DoubleType > expected = reference( kernels, Views.extendZero( source ), min, new long[] { 9, 8, 4 } );
+		assertImagesEqual( expected, target, 1e-9 );
+	}
+
+	@Test
+	public void testInPlace()
+	{
+		final Img< UnsignedByteType > image = new ArrayImgFactory< UnsignedByteType >().create( dims, new UnsignedByteType() );
+		fill( image );
+		final double[] sigma = new double[] { 1.5, 0, 2 };
+		final double[][] gaussKernels = new double[][] {
+				Util.createGaussianKernel1DDouble( sigma[ 0 ], true ),
+				{ 1 },
+				Util.createGaussianKernel1DDouble( sigma[ 2 ], true ) };
+		final Img< DoubleType > expected = reference( gaussKernels, Views.extendMirrorSingle( image ), new long[ 3 ], dims );
+		SeparableConvolution.gauss( sigma, image, image, 3 );
+		// integer target: results are rounded
+		assertImagesEqual( expected, image, 0.5 + 1e-9 );
+	}
+
+	@Test
+	public void testBoxKernel1D()
+	{
+		final Img< DoubleType > source = new ArrayImgFactory< DoubleType >().create( new long[] { 10 }, new DoubleType() );
+		int i = 0;
+		for ( final DoubleType t : source )
+			t.set( i++ );
+		final Img< DoubleType > target = source.copy();
+		SeparableConvolution.convolve( new double[][] { { 1, 1, 1 } }, source, new OutOfBoundsMirrorFactory< DoubleType, RandomAccessibleInterval< DoubleType > >( Boundary.DOUBLE ), target, 1 );
+		final double[] expected = new double[] { 1, 3, 6, 9, 12, 15, 18, 21, 24, 26 };
+		i = 0;
+		for ( final DoubleType t : target )
+			assertEquals( expected[ i++ ], t.get(), 0 );
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector.specialized;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealARGBConverter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.ColorTable16;
+import net.imglib2.display.projector.AbstractProjector2D;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Compares the specialized ARGB projectors to the result of the generic
+ * converters.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class XYARGBProjectorTest
+{
+	final static int w = 37;
+
+	final static int h = 23;
+
+	final static int d = 5;
+
+	private static < T extends RealType< T > > void fill( final Img< T > img, final double min, final double max )
+	{
+		final Random random = new Random( 42 );
+		for ( final T t : img )
+			t.setReal( min + random.nextDouble() * ( max - min ) );
+	}
+
+	private static < T extends RealType< T > > void check( final RandomAccessibleInterval< T > source, final AbstractProjector2D projector, final ARGBScreenImage target, final Converter< T, ARGBType > converter )
+	{
+		final ARGBType expected = new ARGBType();
+		final RandomAccess< T > a = source.randomAccess();
+		for ( int z = 0; z < d; ++z )
+		{
+			projector.setPosition( z, 2 );
+			projector.map();
+			a.setPosition( z, 2 );
+			final Cursor< ARGBType > c = target.localizingCursor();
+			while ( c.hasNext() )
+			{
+				c.fwd();
+				a.setPosition( c.getIntPosition( 0 ), 0 );
+				a.setPosition( c.getIntPosition( 1 ), 1 );
+				converter.convert( a.get(), expected );
+				assertEquals( expected.get(), c.get().get() );
+			}
+		}
+	}
+
+	@Test
+	public void testArrayImgFloat()
+	{
+		final ArrayImg< FloatType, FloatArray > source = ArrayImgs.floats( w, h, d );
+		fill( source, -10, 110 );
+		final ARGBScreenImage target = new ARGBScreenImage( w, h );
+		final ArrayImgXYARGBProjector< FloatType > projector = new ArrayImgXYARGBProjector< FloatType >( source, target, 0, 100, null );
+		check( source, projector, target, new RealARGBConverter< FloatType >( 0, 100 ) );
+	}
+
+	@Test
+	public void testArrayImg1D()
+	{
+		final ArrayImg< FloatType, FloatArray > source = ArrayImgs.floats( w );
+		fill( source, -10, 110 );
+		final ARGBScreenImage target = new ARGBScreenImage( w, 1 );
+		final ArrayImgXYARGBProjector< FloatType > projector = new ArrayImgXYARGBProjector< FloatType >( source, target, 0, 100, null );
+		projector.map();
+		final RealARGBConverter< FloatType > converter = new RealARGBConverter< FloatType >( 0, 100 );
+		final ARGBType expected = new ARGBType();
+		final Cursor< FloatType > s = source.cursor();
+		final Cursor< ARGBType > c = target.cursor();
+		while ( c.hasNext() )
+		{
+			converter.convert( s.next(), expected );
+			assertEquals( expected.get(), c.next().get() );
+		}
+	}
+
+	@Test
+	public void testPlanarImgShortLUT()
+	{
+		final PlanarImg< ShortType, ? > source = PlanarImgs.shorts( w, h, d );
+		fill( source, -1000, 1000 );
+		final ARGBScreenImage target = new ARGBScreenImage( w, h );
+		final ColorTable16 lut = new ColorTable16();
+		final PlanarImgXYARGBProjector< ShortType > projector = new PlanarImgXYARGBProjector< ShortType >( source, target, -500, 800, lut );
+		check( source, projector, target, new RealLUTConverter< ShortType >( -500, 800, lut ) );
+	}
+
+	@Test
+	public void testCellImgUnsignedShort()
+	{
+		final CellImg< UnsignedShortType, ?, ? > source = new CellImgFactory< UnsignedShortType >( 8 ).create( new long[] { w, h, d }, new UnsignedShortType() );
+		fill( source, 0, 65535 );
+		final ARGBScreenImage target = new ARGBScreenImage( w, h );
+		final CellImgXYARGBProjector< UnsignedShortType > projector = new CellImgXYARGBProjector< UnsignedShortType >( source, target, 1000, 50000, null );
+		check( source, projector, target, new RealARGBConverter< UnsignedShortType >( 1000, 50000 ) );
+	}
+}
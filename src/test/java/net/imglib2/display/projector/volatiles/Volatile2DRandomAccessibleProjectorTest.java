@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.display.projector.volatiles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import net.imglib2.Cursor;
+import net.imglib2.Volatile;
+import net.imglib2.converter.Converter;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class Volatile2DRandomAccessibleProjectorTest
+{
+	final static int width = 5;
+
+	final static int height = 4;
+
+	ListImg< Volatile< IntType > > source;
+
+	ArrayImg< IntType, IntArray > target;
+
+	int numConverted;
+
+	final Converter< Volatile< IntType >, IntType > converter = new Converter< Volatile< IntType >, IntType >()
+	{
+		@Override
+		public void convert( final Volatile< IntType > input, final IntType output )
+		{
+			++numConverted;
+			output.set( input.isValid() ? input.get().get() : -1 );
+		}
+	};
+
+	@Before
+	public void init()
+	{
+		final ArrayList< Volatile< IntType > > pixels = new ArrayList< Volatile< IntType > >();
+		for ( int i = 0; i < width * height; ++i )
+			pixels.add( new Volatile< IntType >( new IntType( i ), true ) );
+		source = new ListImg< Volatile< IntType > >( pixels, width, height );
+		target = ArrayImgs.ints( width, height );
+		numConverted = 0;
+	}
+
+	@Test
+	public void testRemapInvalidRowsOnly()
+	{
+		final Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType > projector =
+				new Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType >( 0, 1, source, target, converter );
+
+		// invalidate one pixel in row 2
+		final Cursor< Volatile< IntType > > c = source.cursor();
+		c.jumpFwd( 2 * width + 3 );
+		c.get().setValid( false );
+
+		projector.map();
+		assertFalse( projector.isValid() );
+		assertEquals( 1, projector.numInvalidRows() );
+		assertEquals( width * height, numConverted );
+
+		c.get().setValid( true );
+		numConverted = 0;
+		projector.map();
+		assertTrue( projector.isValid() );
+		assertEquals( 0, projector.numInvalidRows() );
+		assertEquals( width, numConverted );
+
+		final Cursor< IntType > t = target.cursor();
+		int i = 0;
+		while ( t.hasNext() )
+			assertEquals( i++, t.next().get() );
+
+		numConverted = 0;
+		projector.map();
+		assertEquals( 0, numConverted );
+
+		projector.invalidate();
+		projector.map();
+		assertEquals( width * height, numConverted );
+	}
+
+	Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType > cancelingProjector;
+
+	@Test
+	public void testCancel()
+	{
+		// converter that cancels the projector after each row
+		final Converter< Volatile< IntType >, IntType > cancelingConverter = new Converter< Volatile< IntType >, IntType >()
+		{
+			@Override
+			public void convert( final Volatile< IntType > input, final IntType output )
+			{
+				converter.convert( input, output );
+				if ( numConverted % width == 0 )
+					cancelingProjector.cancel();
+			}
+		};
+		cancelingProjector = new Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType >( 0, 1, source, target, cancelingConverter );
+
+		cancelingProjector.map();
+		assertFalse( cancelingProjector.isValid() );
+		assertEquals( width, numConverted );
+		assertEquals( height - 1, cancelingProjector.numInvalidRows() );
+
+		// the next map() continues with the remaining rows
+		cancelingProjector.map();
+		assertEquals( 2 * width, numConverted );
+		assertEquals( height - 2, cancelingProjector.numInvalidRows() );
+	}
+
+	@Test
+	public void testCancelBeforeMap()
+	{
+		final Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType > projector =
+				new Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType >( 0, 1, source, target, converter );
+
+		// a cancel() while no map() is running does not affect the next map()
+		projector.cancel();
+		projector.map();
+		assertTrue( projector.isValid() );
+		assertEquals( width * height, numConverted );
+		assertEquals( 0, projector.numInvalidRows() );
+	}
+
+	@Test
+	public void testPermutedSource()
+	{
+		// x of the target is dimension 1 of the source, so rows are mapped
+		// through RandomAccesses
+		final Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType > projector =
+				new Volatile2DRandomAccessibleProjector< IntType, Volatile< IntType >, IntType >( 1, 0, Views.permute( source, 0, 1 ), target, converter );
+
+		final Cursor< Volatile< IntType > > c = source.cursor();
+		c.jumpFwd( width + 1 );
+		c.get().setValid( false );
+
+		projector.map();
+		assertFalse( projector.isValid() );
+		assertEquals( 1, projector.numInvalidRows() );
+
+		c.get().setValid( true );
+		numConverted = 0;
+		projector.map();
+		assertTrue( projector.isValid() );
+		assertEquals( width, numConverted );
+
+		final Cursor< IntType > t = target.cursor();
+		int i = 0;
+		while ( t.hasNext() )
+			assertEquals( i++, t.next().get() );
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.fft;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class FFTConvolutionTest
+{
+	private final long[] dims = new long[] { 19, 14, 6 };
+
+	private final long[] kernelDims = new long[] { 5, 4, 3 };
+
+	private static void fill( final Img< ? extends RealType< ? > > img, final long seed )
+	{
+		final Random rnd = new Random( seed );
+		for ( final RealType< ? > t : img )
+			t.setReal( rnd.nextInt( 100 ) );
+	}
+
+	/**
+	 * Naive convolution (or correlation) with the kernel origin at
+	 * dimension / 2.
+	 */
+	private static < T extends RealType< T >, K extends RealType< K > > Img< DoubleType > reference( final RandomAccessible< T > source, final RandomAccessibleInterval< K > kernel, final long[] dims, final boolean correlate )
+	{
+		final int n = dims.length;
+		final Img< DoubleType > result = new ArrayImgFactory< DoubleType >().create( dims, new DoubleType() );
+		final RandomAccess< T > a = source.randomAccess();
+		final Cursor< DoubleType > c = result.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			double sum = 0;
+			final Cursor< K > k = Views.iterable( kernel ).localizingCursor();
+			while ( k.hasNext() )
+			{
+				k.fwd();
+				for ( int d = 0; d < n; ++d )
+				{
+					final long j = k.getLongPosition( d ) - kernel.min( d ) - kernel.dimension( d ) / 2;
+					a.setPosition( c.getLongPosition( d ) + ( correlate ? j : -j ), d );
+				}
+				sum += k.get().getRealDouble() * a.get().getRealDouble();
+			}
+			c.get().set( sum );
+		}
+		return result;
+	}
+
+	private static void assertImagesEqual( final RandomAccessibleInterval< DoubleType > expected, final RandomAccessibleInterval< ? extends RealType< ? > > actual, final double delta )
+	{
+		final Cursor< DoubleType > e = Views.flatIterable( expected ).cursor();
+		final Cursor< ? extends RealType< ? > > a = Views.flatIterable( actual ).cursor();
+		while ( e.hasNext() )
+			assertEquals( e.next().get(), a.next().getRealDouble(), delta );
+	}
+
+	@Test
+	public void testConvolve()
+	{
+		final Img< UnsignedShortType > source = new ArrayImgFactory< UnsignedShortType >().create( dims, new UnsignedShortType() );
+		fill( source, 1 );
+		final Img< FloatType > kernel = new ArrayImgFactory< FloatType >().create( kernelDims, new FloatType() );
+		fill( kernel, 2 );
+		final Img< FloatType > target = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		FFTConvolution.convolve( source, new OutOfBoundsMirrorFactory< UnsignedShortType, RandomAccessibleInterval< UnsignedShortType > >( Boundary.SINGLE ), kernel, target, 3 );
+		final Img< DoubleType > expected = reference( Views.extendMirrorSingle( source ), kernel, dims, false );
+		assertImagesEqual( expected, target, 0.5 );
+	}
+
+	@Test
+	public void testCorrelateCellImg()
+	{
+		final Img< FloatType > source = new CellImgFactory< FloatType >( 5 ).create( dims, new FloatType() );
+		fill( source, 3 );
+		// translated kernel with even dimensions
+		final Img< FloatType > kernel = new ArrayImgFactory< FloatType >().create( new long[] { 4, 6, 2 }, new FloatType() );
+		fill( kernel, 4 );
+		final RandomAccessibleInterval< FloatType > translatedKernel = Views.translate( kernel, -7, 2, 1 );
+		final Img< DoubleType > target = new CellImgFactory< DoubleType >( 4 ).create( dims, new DoubleType() );
+		FFTConvolution.correlate( Views.extendZero( source ), translatedKernel, target, 2 );
+		final Img< DoubleType > expected = reference( Views.extendZero( source ), translatedKernel, dims, true );
+		assertImagesEqual( expected, target, 0.5 );
+	}
+
+	@Test
+	public void testConvolveInPlaceSubInterval()
+	{
+		final Img< FloatType > image = new ArrayImgFactory< FloatType >().create( dims, new FloatType() );
+		fill( image, 5 );
+		final Img< FloatType > kernel = new ArrayImgFactory< FloatType >().create( kernelDims, new FloatType() );
+		fill( kernel, 6 );
+		final long[] min = new long[] { 3, 2, 1 };
+		final long[] max = new long[] { 15, 13, 4 };
+		final long[] subDims = new long[] { 13, 12, 4 };
+		final Img< DoubleType > expected = reference( Views.offset( Views.extendBorder( image ), min ), kernel, subDims, false );
+		final RandomAccessibleInterval< FloatType > sub = Views.interval( image, min, max );
+		FFTConvolution.convolve( Views.extendBorder( image ), kernel, sub, 1 );
+		assertImagesEqual( expected, sub, 0.5 );
+	}
+}
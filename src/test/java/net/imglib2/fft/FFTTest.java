@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.fft;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.ComplexType;
+import net.imglib2.type.numeric.complex.ComplexDoubleType;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class FFTTest
+{
+	// 41 is transformed using Bluestein's algorithm
+	private final long[] dims = new long[] { 12, 41, 5 };
+
+	private static < C extends ComplexType< C > > void fill( final Img< C > img )
+	{
+		final Random rnd = new Random( 17 );
+		for ( final C c : img )
+			c.setComplexNumber( rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5 );
+	}
+
+	/**
+	 * Naive n-dimensional DFT.
+	 */
+	private static < C extends ComplexType< C > > double[][] dft( final Img< C > img )
+	{
+		final int n = img.numDimensions();
+		final long[] dims = new long[ n ];
+		img.dimensions( dims );
+		final int size = ( int ) img.size();
+		final double[][] result = new double[ 2 ][ size ];
+		final RandomAccess< C > a = img.randomAccess();
+		final long[] x = new long[ n ];
+		final long[] k = new long[ n ];
+		for ( int i = 0; i < size; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dims, k );
+			double re = 0, im = 0;
+			for ( int j = 0; j < size; ++j )
+			{
+				IntervalIndexer.indexToPosition( j, dims, x );
+				double angle = 0;
+				for ( int d = 0; d < n; ++d )
+					angle -= 2 * Math.PI * ( ( x[ d ] * k[ d ] ) % dims[ d ] ) / dims[ d ];
+				a.setPosition( x );
+				final C c = a.get();
+				final double cos = Math.cos( angle ), sin = Math.sin( angle );
+				re += c.getRealDouble() * cos - c.getImaginaryDouble() * sin;
+				im += c.getRealDouble() * sin + c.getImaginaryDouble() * cos;
+			}
+			result[ 0 ][ i ] = re;
+			result[ 1 ][ i ] = im;
+		}
+		return result;
+	}
+
+	private static < C extends ComplexType< C > > void assertEqualsDFT( final double[][] expected, final Img< C > img, final double delta )
+	{
+		final Cursor< C > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final int i = ( int ) IntervalIndexer.positionToIndex( c, img );
+			assertEquals( expected[ 0 ][ i ], c.get().getRealDouble(), delta );
+			assertEquals( expected[ 1 ][ i ], c.get().getImaginaryDouble(), delta );
+		}
+	}
+
+	@Test
+	public void testNextFastSize()
+	{
+		assertEquals( 1, FFT.nextFastSize( 1 ) );
+		assertEquals( 7 + 1, FFT.nextFastSize( 7 ) );
+		assertEquals( 9, FFT.nextFastSize( 9 ) );
+		assertEquals( 12, FFT.nextFastSize( 11 ) );
+		assertEquals( 1000, FFT.nextFastSize( 1000 ) );
+		assertEquals( 1024, FFT.nextFastSize( 1021 ) );
+		assertEquals( 1080, FFT.nextFastSize( 1025 ) );
+	}
+
+	@Test
+	public void testForwardArrayImg()
+	{
+		final Img< ComplexFloatType > img = new ArrayImgFactory< ComplexFloatType >().create( dims, new ComplexFloatType() );
+		fill( img );
+		final double[][] expected = dft( img );
+		FFT.forward( img, 3 );
+		assertEqualsDFT( expected, img, 1e-3 );
+	}
+
+	@Test
+	public void testForwardArrayImgDouble()
+	{
+		final Img< ComplexDoubleType > img = new ArrayImgFactory< ComplexDoubleType >().create( dims, new ComplexDoubleType() );
+		fill( img );
+		final double[][] expected = dft( img );
+		FFT.forward( img, 2 );
+		assertEqualsDFT( expected, img, 1e-9 );
+	}
+
+	@Test
+	public void testForwardCellImg()
+	{
+		final Img< ComplexFloatType > img = new CellImgFactory< ComplexFloatType >( 4 ).create( dims, new ComplexFloatType() );
+		fill( img );
+		final double[][] expected = dft( img );
+		FFT.forward( img, 3 );
+		assertEqualsDFT( expected, img, 1e-3 );
+	}
+
+	@Test
+	public void testInverse()
+	{
+		final Img< ComplexFloatType > img = new CellImgFactory< ComplexFloatType >( 5 ).create( dims, new ComplexFloatType() );
+		fill( img );
+		final Img< ComplexFloatType > copy = img.copy();
+		FFT.forward( img, 2 );
+		FFT.inverse( img, 2 );
+		final Cursor< ComplexFloatType > c = img.cursor();
+		final Cursor< ComplexFloatType > e = copy.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			e.fwd();
+			assertEquals( e.get().getRealDouble(), c.get().getRealDouble(), 1e-5 );
+			assertEquals( e.get().getImaginaryDouble(), c.get().getImaginaryDouble(), 1e-5 );
+		}
+	}
+
+	@Test
+	public void testRealToComplex()
+	{
+		final Img< FloatType > real = new ArrayImgFactory< FloatType >().create( new long[] { 8, 6 }, new FloatType() );
+		final Random rnd = new Random( 3 );
+		for ( final FloatType t : real )
+			t.set( rnd.nextFloat() );
+
+		// the transform of a real image is conjugate symmetric
+		final Img< ComplexFloatType > spectrum = FFT.forward( real, new ArrayImgFactory< ComplexFloatType >(), 2 );
+		final RandomAccess< ComplexFloatType > a = spectrum.randomAccess();
+		final RandomAccess< ComplexFloatType > b = spectrum.randomAccess();
+		for ( int y = 0; y < 6; ++y )
+			for ( int x = 0; x < 8; ++x )
+			{
+				a.setPosition( new int[] { x, y } );
+				b.setPosition( new int[] { ( 8 - x ) % 8, ( 6 - y ) % 6 } );
+				assertEquals( a.get().getRealDouble(), b.get().getRealDouble(), 1e-5 );
+				assertEquals( a.get().getImaginaryDouble(), -b.get().getImaginaryDouble(), 1e-5 );
+			}
+
+		FFT.inverse( spectrum, 2 );
+		final Img< FloatType > result = real.factory().create( real, new FloatType() );
+		FFT.complexToReal( spectrum, result, 2 );
+		final Cursor< FloatType > c = result.cursor();
+		for ( final FloatType t : real )
+			assertEquals( t.get(), c.next().get(), 1e-5 );
+	}
+}
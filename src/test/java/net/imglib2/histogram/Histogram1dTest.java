@@ -38,8 +38,13 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
 
 import org.junit.Test;
 
@@ -51,6 +56,14 @@ import org.junit.Test;
 public class Histogram1dTest
 {
 
+	private static void assertSameCounts( final Histogram1d< FloatType > expected, final Histogram1d< FloatType > actual )
+	{
+		assertEquals( expected.ignoredCount(), actual.ignoredCount() );
+		assertEquals( expected.distributionCount(), actual.distributionCount() );
+		for ( long bin = 0; bin < expected.getBinCount(); ++bin )
+			assertEquals( expected.frequency( bin ), actual.frequency( bin ) );
+	}
+
 	@Test
 	public void test()
 	{
@@ -104,6 +117,33 @@ public class Histogram1dTest
 		assertEquals( 0, hist.upperTailCount() );
 	}
 
+	@Test
+	public void testParallelCount()
+	{
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( 301, 77 );
+		final Random random = new Random( 1 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() * 120 - 10 );
+
+		for ( final boolean tails : new boolean[] { false, true } )
+		{
+			final BinMapper1d< FloatType > binMapper = new Real1dBinMapper< FloatType >( 0, 100, 37, tails );
+			final Histogram1d< FloatType > expected = new Histogram1d< FloatType >( binMapper );
+			for ( final FloatType t : img )
+				expected.increment( t );
+
+			final Histogram1d< FloatType > hist = new Histogram1d< FloatType >( img, binMapper );
+			final Histogram1d< FloatType > parallel = new Histogram1d< FloatType >( binMapper );
+			parallel.countData( img, 3 );
+			assertSameCounts( expected, hist );
+			assertSameCounts( expected, parallel );
+
+			parallel.addData( img, 2 );
+			assertEquals( 2 * expected.totalCount(), parallel.totalCount() );
+			assertEquals( 2 * expected.frequency( 5 ), parallel.frequency( 5 ) );
+		}
+	}
+
 	private List< UnsignedByteType > getData1()
 	{
 		final List< UnsignedByteType > data = new ArrayList< UnsignedByteType >();
@@ -34,19 +34,27 @@
 
 package net.imglib2.histogram;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
 
 import org.junit.Test;
 
@@ -129,6 +137,191 @@ public class HistogramNdTest
 		assertEquals( 1, hist.frequency( list ) );
 	}
 
+	@Test
+	public void testParallelCount()
+	{
+		final Img< UnsignedByteType > img1 = ArrayImgs.unsignedBytes( 123, 45 );
+		final Img< UnsignedByteType > img2 = ArrayImgs.unsignedBytes( 123, 45 );
+		final Random random = new Random( 1 );
+		for ( final UnsignedByteType t : img1 )
+			t.set( random.nextInt( 256 ) );
+		for ( final UnsignedByteType t : img2 )
+			t.set( random.nextInt( 256 ) );
+
+		final List< BinMapper1d< UnsignedByteType >> binMappers = new ArrayList< BinMapper1d< UnsignedByteType >>();
+		binMappers.add( new Integer1dBinMapper< UnsignedByteType >( 10, 200, false ) );
+		binMappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 100, true ) );
+
+		final List< Iterable< UnsignedByteType >> data = new ArrayList< Iterable< UnsignedByteType >>();
+		data.add( img1 );
+		data.add( img2 );
+		final HistogramNd< UnsignedByteType > expected = new HistogramNd< UnsignedByteType >( data, binMappers );
+
+		final List< IterableInterval< UnsignedByteType >> intervals = new ArrayList< IterableInterval< UnsignedByteType >>();
+		intervals.add( img1 );
+		intervals.add( img2 );
+		final HistogramNd< UnsignedByteType > hist = new HistogramNd< UnsignedByteType >( binMappers );
+		hist.countData( intervals, 4 );
+
+		assertEquals( expected.ignoredCount(), hist.ignoredCount() );
+		assertEquals( expected.distributionCount(), hist.distributionCount() );
+		final Cursor< LongType > e = expected.localizingCursor();
+		final long[] pos = new long[ 2 ];
+		while ( e.hasNext() )
+		{
+			e.fwd();
+			e.localize( pos );
+			assertEquals( e.get().get(), hist.frequency( pos ) );
+		}
+	}
+
+	@Test
+	public void testSparse()
+	{
+		final Img< UnsignedByteType > img1 = ArrayImgs.unsignedBytes( 63, 45 );
+		final Img< UnsignedByteType > img2 = ArrayImgs.unsignedBytes( 63, 45 );
+		final Random random = new Random( 2 );
+		for ( final UnsignedByteType t : img1 )
+			t.set( random.nextInt( 256 ) );
+		for ( final UnsignedByteType t : img2 )
+			t.set( random.nextInt( 64 ) );
+
+		final List< BinMapper1d< UnsignedByteType >> binMappers = new ArrayList< BinMapper1d< UnsignedByteType >>();
+		binMappers.add( new Integer1dBinMapper< UnsignedByteType >( 10, 200, true ) );
+		binMappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 40, true ) );
+		final List< Iterable< UnsignedByteType >> data = new ArrayList< Iterable< UnsignedByteType >>();
+		data.add( img1 );
+		data.add( img2 );
+		final List< IterableInterval< UnsignedByteType >> intervals = new ArrayList< IterableInterval< UnsignedByteType >>();
+		intervals.add( img1 );
+		intervals.add( img2 );
+
+		final HistogramNd< UnsignedByteType > dense = new HistogramNd< UnsignedByteType >( data, binMappers );
+		final HistogramNd< UnsignedByteType > sparse = new HistogramNd< UnsignedByteType >( binMappers, true );
+		sparse.countData( data );
+		final HistogramNd< UnsignedByteType > sparseParallel = new HistogramNd< UnsignedByteType >( binMappers, true );
+		sparseParallel.countData( intervals, 3 );
+
+		for ( final HistogramNd< UnsignedByteType > h : Arrays.asList( sparse, sparseParallel ) )
+		{
+			assertTrue( h.dfd().isSparse() );
+			assertEquals( dense.distributionCount(), h.distributionCount() );
+			assertEquals( dense.ignoredCount(), h.ignoredCount() );
+			assertEquals( dense.lowerTailCount(), h.lowerTailCount() );
+			assertEquals( dense.upperTailCount(), h.upperTailCount() );
+			assertEquals( dense.valueCount(), h.valueCount() );
+			for ( int d = 0; d < 2; ++d )
+			{
+				assertEquals( dense.lowerTailCount( d ), h.lowerTailCount( d ) );
+				assertEquals( dense.upperTailCount( d ), h.upperTailCount( d ) );
+				assertEquals( dense.valueCount( d ), h.valueCount( d ) );
+				assertEquals( dense.distributionCount( d, 3 ), h.distributionCount( d, 3 ) );
+			}
+			assertEquals( dense.dfd().modeCount(), h.dfd().modeCount() );
+			final List< long[] > denseModes = dense.dfd().modePositions();
+			final List< long[] > modes = h.dfd().modePositions();
+			assertEquals( denseModes.size(), modes.size() );
+			for ( int i = 0; i < modes.size(); ++i )
+				assertArrayEquals( denseModes.get( i ), modes.get( i ) );
+
+			final Cursor< LongType > e = dense.localizingCursor();
+			final Cursor< LongType > c = h.localizingCursor();
+			final long[] pos = new long[ 2 ];
+			while ( e.hasNext() )
+			{
+				assertEquals( e.next().get(), c.next().get() );
+				e.localize( pos );
+				assertEquals( e.get().get(), h.frequency( pos ) );
+				assertEquals( dense.relativeFrequency( pos, true ), h.relativeFrequency( pos, true ), 0 );
+			}
+		}
+
+		sparse.subtractData( data );
+		assertEquals( 0, sparse.distributionCount() );
+		assertEquals( 0, sparse.dfd().frequency( new long[] { 5, 5 } ) );
+	}
+
+	@Test
+	public void testSparseHighDimensional()
+	{
+		final List< BinMapper1d< IntType >> binMappers = new ArrayList< BinMapper1d< IntType >>();
+		for ( int d = 0; d < 4; ++d )
+			binMappers.add( new Integer1dBinMapper< IntType >( 0, 256, false ) );
+		final HistogramNd< IntType > hist = new HistogramNd< IntType >( binMappers, true );
+		assertEquals( 1l << 32, hist.getBinCount() );
+
+		final List< IntType > values = new ArrayList< IntType >();
+		for ( int d = 0; d < 4; ++d )
+			values.add( new IntType( 255 - d ) );
+		hist.increment( values );
+		hist.increment( values );
+		values.get( 0 ).set( 0 );
+		hist.increment( values );
+
+		assertEquals( 3, hist.distributionCount() );
+		assertEquals( 2, hist.frequency( new long[] { 255, 254, 253, 252 } ) );
+		assertEquals( 1, hist.frequency( new long[] { 0, 254, 253, 252 } ) );
+		assertEquals( 0, hist.frequency( new long[] { 1, 254, 253, 252 } ) );
+		assertEquals( 2.0 / 3, hist.relativeFrequency( new long[] { 255, 254, 253, 252 }, true ), 1e-12 );
+		assertEquals( 1, hist.distributionCount( 0, 0 ) );
+		assertArrayEquals( new long[] { 255, 254, 253, 252 }, hist.dfd().modePositions().get( 0 ) );
+	}
+
+	@Test
+	public void testRealTypeCount()
+	{
+		final Img< FloatType > img1 = ArrayImgs.floats( 57, 33 );
+		final Img< FloatType > img2 = ArrayImgs.floats( 57, 33 );
+		final Random random = new Random( 3 );
+		for ( final FloatType t : img1 )
+			t.set( random.nextFloat() * 12 - 1 );
+		for ( final FloatType t : img2 )
+			t.set( random.nextFloat() * 5 );
+
+		final List< BinMapper1d< FloatType >> binMappers = new ArrayList< BinMapper1d< FloatType >>();
+		binMappers.add( new Real1dBinMapper< FloatType >( 0, 10, 20, false ) );
+		binMappers.add( new Real1dBinMapper< FloatType >( 1, 4, 7, true ) );
+
+		// reference: increment every sample individually
+		final HistogramNd< FloatType > expected = new HistogramNd< FloatType >( binMappers );
+		final Cursor< FloatType > c1 = img1.cursor();
+		final Cursor< FloatType > c2 = img2.cursor();
+		final List< FloatType > values = new ArrayList< FloatType >();
+		values.add( null );
+		values.add( null );
+		while ( c1.hasNext() )
+		{
+			values.set( 0, c1.next() );
+			values.set( 1, c2.next() );
+			expected.increment( values );
+		}
+
+		final List< Iterable< FloatType >> data = new ArrayList< Iterable< FloatType >>();
+		data.add( img1 );
+		data.add( img2 );
+		final HistogramNd< FloatType > hist = new HistogramNd< FloatType >( data, binMappers );
+
+		final List< IterableInterval< FloatType >> intervals = new ArrayList< IterableInterval< FloatType >>();
+		intervals.add( img1 );
+		intervals.add( img2 );
+		final HistogramNd< FloatType > parallel = new HistogramNd< FloatType >( binMappers );
+		parallel.countData( intervals, 3 );
+
+		for ( final HistogramNd< FloatType > h : Arrays.asList( hist, parallel ) )
+		{
+			assertEquals( expected.ignoredCount(), h.ignoredCount() );
+			assertEquals( expected.distributionCount(), h.distributionCount() );
+			final Cursor< LongType > e = expected.cursor();
+			final Cursor< LongType > c = h.cursor();
+			while ( e.hasNext() )
+				assertEquals( e.next().get(), c.next().get() );
+		}
+
+		hist.subtractData( data );
+		assertEquals( 0, hist.distributionCount() );
+		assertEquals( 0, hist.ignoredCount() );
+	}
+
 	@Test
 	public void testConstrainedWithTails()
 	{
@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LongLongHashMap} against a {@link HashMap}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class LongLongHashMapTest
+{
+	@Test
+	public void testRandomOperations()
+	{
+		final Random random = new Random( 1 );
+		final LongLongHashMap map = new LongLongHashMap();
+		final HashMap< Long, Long > expected = new HashMap< Long, Long >();
+		for ( int i = 0; i < 100000; ++i )
+		{
+			// small key range to provoke collisions and removals
+			final long key = random.nextInt( 500 ) * 1024l;
+			final int op = random.nextInt( 3 );
+			final Long current = expected.get( key );
+			final long value = current == null ? 0 : current;
+			if ( op == 0 )
+			{
+				final long delta = random.nextInt( 3 ) - 1;
+				assertEquals( value + delta, map.add( key, delta ) );
+				if ( value + delta == 0 )
+					expected.remove( key );
+				else
+					expected.put( key, value + delta );
+			}
+			else if ( op == 1 )
+			{
+				final long v = random.nextInt( 2 ) == 0 ? 0 : random.nextInt( 100 );
+				map.put( key, v );
+				if ( v == 0 )
+					expected.remove( key );
+				else
+					expected.put( key, v );
+			}
+			else
+				assertEquals( value, map.get( key ) );
+			assertEquals( expected.size(), map.size() );
+		}
+
+		final LongLongHashMap copy = map.copy();
+		int numEntries = 0;
+		for ( int slot = 0; slot < copy.capacity(); ++slot )
+		{
+			final long key = copy.keyAt( slot );
+			if ( key != LongLongHashMap.EMPTY )
+			{
+				assertEquals( expected.get( key ).longValue(), copy.valueAt( slot ) );
+				++numEntries;
+			}
+		}
+		assertEquals( expected.size(), numEntries );
+		for ( final Map.Entry< Long, Long > e : expected.entrySet() )
+			assertEquals( e.getValue().longValue(), copy.get( e.getKey() ) );
+
+		map.clear();
+		assertEquals( 0, map.size() );
+		assertEquals( expected.size(), copy.size() );
+	}
+}
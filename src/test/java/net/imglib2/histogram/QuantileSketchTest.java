@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link QuantileSketch}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class QuantileSketchTest
+{
+	private static final double[] QS = { 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99 };
+
+	private static void checkQuantiles( final QuantileSketch sketch, final double[] sorted, final double maxRankError )
+	{
+		assertEquals( sorted.length, sketch.count() );
+		assertEquals( sorted[ 0 ], sketch.min(), 0 );
+		assertEquals( sorted[ sorted.length - 1 ], sketch.max(), 0 );
+		for ( final double q : QS )
+		{
+			final double v = sketch.quantile( q );
+			int rank = Arrays.binarySearch( sorted, v );
+			if ( rank < 0 )
+				rank = -rank - 1;
+			assertEquals( q, ( double ) rank / sorted.length, maxRankError );
+			assertEquals( q, sketch.rank( v ), maxRankError );
+		}
+	}
+
+	@Test
+	public void testStream()
+	{
+		final Random random = new Random( 1 );
+		final double[] values = new double[ 200000 ];
+		final QuantileSketch sketch = new QuantileSketch();
+		for ( int i = 0; i < values.length; ++i )
+		{
+			values[ i ] = random.nextGaussian();
+			sketch.add( values[ i ] );
+		}
+		Arrays.sort( values );
+		checkQuantiles( sketch, values, 0.02 );
+		assertTrue( sketch.numRetained() < 2000 );
+	}
+
+	@Test
+	public void testSmall()
+	{
+		final QuantileSketch sketch = new QuantileSketch();
+		for ( int i = 1; i <= 100; ++i )
+			sketch.add( i );
+		// exact as long as no compaction happened
+		assertEquals( 50, sketch.quantile( 0.5 ), 0 );
+		assertEquals( 0.5, sketch.rank( 50 ), 0 );
+		assertEquals( 1, sketch.quantile( 0 ), 0 );
+		assertEquals( 100, sketch.quantile( 1 ), 0 );
+		final long[] histogram = sketch.histogram( new double[] { 10, 50.5 } );
+		assertEquals( 10, histogram[ 0 ] );
+		assertEquals( 40, histogram[ 1 ] );
+		assertEquals( 50, histogram[ 2 ] );
+	}
+
+	@Test
+	public void testMerge()
+	{
+		final Random random = new Random( 2 );
+		final double[] values = new double[ 100000 ];
+		final QuantileSketch a = new QuantileSketch( 100 );
+		final QuantileSketch b = new QuantileSketch( 100 );
+		for ( int i = 0; i < values.length; ++i )
+		{
+			// differently distributed halves
+			values[ i ] = i % 2 == 0 ? random.nextDouble() : 2 + random.nextDouble() * 3;
+			( i % 2 == 0 ? a : b ).add( values[ i ] );
+		}
+		a.merge( b );
+		Arrays.sort( values );
+		checkQuantiles( a, values, 0.03 );
+	}
+
+	@Test
+	public void testCreateParallel()
+	{
+		final Random random = new Random( 3 );
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( 300, 200 );
+		final double[] values = new double[ ( int ) img.size() ];
+		int i = 0;
+		for ( final FloatType t : img )
+		{
+			t.set( random.nextFloat() * 1000 );
+			values[ i++ ] = t.get();
+		}
+		Arrays.sort( values );
+		checkQuantiles( QuantileSketch.create( img, QuantileSketch.DEFAULT_K, 4 ), values, 0.02 );
+
+		final CellImg< FloatType, ?, ? > cellImg = new CellImgFactory< FloatType >( 32 ).create( new long[] { 300, 200 }, new FloatType() );
+		i = 0;
+		for ( final FloatType t : cellImg )
+		{
+			t.set( random.nextFloat() * 1000 );
+			values[ i++ ] = t.get();
+		}
+		Arrays.sort( values );
+		checkQuantiles( QuantileSketch.create( cellImg, QuantileSketch.DEFAULT_K, 3 ), values, 0.02 );
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link RankFilter} to sorting the window values.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class RankFilterTest
+{
+	/**
+	 * Brute-force percentile of the window around every target pixel,
+	 * ignoring values outside <code>[minValue, maxValue]</code>.
+	 */
+	private static < T extends IntegerType< T > > void check( final RandomAccessible< T > source, final ArrayImg< FloatType, FloatArray > result, final long[] radius, final double percentile, final long minValue, final long maxValue )
+	{
+		final int n = result.numDimensions();
+		final RandomAccess< T > access = source.randomAccess();
+		final Cursor< FloatType > c = result.localizingCursor();
+		final long[] pos = new long[ n ];
+		final long[] offset = new long[ n ];
+		long windowSize = 1;
+		for ( int d = 0; d < n; ++d )
+			windowSize *= 2 * radius[ d ] + 1;
+		final long[] values = new long[ ( int ) windowSize ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			int numValues = 0;
+			for ( int i = 0; i < windowSize; ++i )
+			{
+				long j = i;
+				for ( int d = 0; d < n; ++d )
+				{
+					offset[ d ] = j % ( 2 * radius[ d ] + 1 ) - radius[ d ];
+					j /= 2 * radius[ d ] + 1;
+					access.setPosition( pos[ d ] + offset[ d ], d );
+				}
+				final long v = access.get().getIntegerLong();
+				if ( v >= minValue && v <= maxValue )
+					values[ numValues++ ] = v;
+			}
+			Arrays.sort( values, 0, numValues );
+			final double expected = numValues == 0 ? 0 : values[ ( int ) Math.floor( percentile * ( numValues - 1 ) ) ];
+			assertEquals( expected, c.get().get(), 0 );
+		}
+	}
+
+	@Test
+	public void testMedian2D()
+	{
+		final ArrayImg< UnsignedByteType, ? > img = ArrayImgs.unsignedBytes( 37, 23 );
+		final Random random = new Random( 1 );
+		for ( final UnsignedByteType t : img )
+			t.set( random.nextInt( 256 ) );
+		final RandomAccessible< UnsignedByteType > source = Views.extendMirrorSingle( img );
+		final long[] radius = { 3, 2 };
+
+		final ArrayImg< FloatType, FloatArray > result = ArrayImgs.floats( 37, 23 );
+		RankFilter.median( source, result, radius, 3 );
+		check( source, result, radius, 0.5, 0, 255 );
+
+		RankFilter.min( source, result, radius, 2 );
+		check( source, result, radius, 0, 0, 255 );
+
+		RankFilter.max( source, result, radius, 1 );
+		check( source, result, radius, 1, 0, 255 );
+	}
+
+	@Test
+	public void testPercentile3D()
+	{
+		final ArrayImg< IntType, ? > img = ArrayImgs.ints( 13, 11, 9 );
+		final Random random = new Random( 2 );
+		for ( final IntType t : img )
+			t.set( random.nextInt( 1000 ) - 100 );
+		final RandomAccessible< IntType > source = Views.extendBorder( img );
+		final long[] radius = { 1, 2, 1 };
+
+		// values outside [0, 799] are ignored
+		final Integer1dBinMapper< IntType > mapper = new Integer1dBinMapper< IntType >( 0, 800, false );
+		final ArrayImg< FloatType, FloatArray > result = ArrayImgs.floats( 13, 11, 9 );
+		RankFilter.percentile( source, result, radius, 0.3, mapper, 4 );
+		check( source, result, radius, 0.3, 0, 799 );
+	}
+
+	@Test
+	public void testLargeRadius1D()
+	{
+		final ArrayImg< UnsignedByteType, ? > img = ArrayImgs.unsignedBytes( 50 );
+		final Random random = new Random( 3 );
+		for ( final UnsignedByteType t : img )
+			t.set( random.nextInt( 256 ) );
+		final RandomAccessible< UnsignedByteType > source = Views.extendZero( img );
+		final long[] radius = { 20 };
+		final ArrayImg< FloatType, FloatArray > result = ArrayImgs.floats( 50 );
+		RankFilter.percentile( source, result, radius, 0.9, 1 );
+		check( source, result, radius, 0.9, 0, 255 );
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.ImgTestHelper;
+import net.imglib2.util.Util;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompressedCellImg} and {@link CellCompressor}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class CompressedCellImgTest
+{
+	@Test
+	public void testCompressedCellImg()
+	{
+		final long[][] dim = ImgTestHelper.dims();
+		for ( int i = 0; i < dim.length; ++i )
+		{
+			if ( dim[ i ].length > 1 )
+			{
+				assertTrue( "ArrayImg vs CompressedCellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new ArrayImgFactory< FloatType >(), new CompressedCellImgFactory< FloatType >( 10, 2 ) ) );
+				assertTrue( "CompressedCellImg vs CellImg failed for dim = " + Util.printCoordinates( dim[ i ] ),
+						ImgTestHelper.testImg( dim[ i ], new CompressedCellImgFactory< FloatType >( 5, 1 ), new CellImgFactory< FloatType >() ) );
+			}
+		}
+	}
+
+	@Test
+	public void testCompressorRoundTrip()
+	{
+		final Random rnd = new Random( 1 );
+		final int n = 1000;
+
+		final byte[] b = new byte[ n ];
+		final char[] c = new char[ n ];
+		final short[] s = new short[ n ];
+		final int[] i = new int[ n ];
+		final long[] l = new long[ n ];
+		final float[] f = new float[ n ];
+		final double[] d = new double[ n ];
+		for ( int j = 0; j < n; ++j )
+		{
+			// runs of random values, mixed with 12-bit noise
+			final int v = j % 100 < 50 ? j / 100 : rnd.nextInt( 4096 );
+			b[ j ] = ( byte ) v;
+			c[ j ] = ( char ) v;
+			s[ j ] = ( short ) v;
+			i[ j ] = v * 12345;
+			l[ j ] = v * 1234567891011L;
+			f[ j ] = v * 0.1f;
+			d[ j ] = v * 0.1;
+		}
+		final byte[] b2 = new byte[ n ];
+		CellCompressor.decompress( CellCompressor.compress( b ), b2 );
+		assertArrayEquals( b, b2 );
+		final char[] c2 = new char[ n ];
+		CellCompressor.decompress( CellCompressor.compress( c ), c2 );
+		assertArrayEquals( c, c2 );
+		final short[] s2 = new short[ n ];
+		CellCompressor.decompress( CellCompressor.compress( s ), s2 );
+		assertArrayEquals( s, s2 );
+		final int[] i2 = new int[ n ];
+		CellCompressor.decompress( CellCompressor.compress( i ), i2 );
+		assertArrayEquals( i, i2 );
+		final long[] l2 = new long[ n ];
+		CellCompressor.decompress( CellCompressor.compress( l ), l2 );
+		assertArrayEquals( l, l2 );
+		final float[] f2 = new float[ n ];
+		CellCompressor.decompress( CellCompressor.compress( f ), f2 );
+		assertArrayEquals( f, f2, 0 );
+		final double[] d2 = new double[ n ];
+		CellCompressor.decompress( CellCompressor.compress( d ), d2 );
+		assertArrayEquals( d, d2, 0 );
+
+		final byte[] empty = new byte[ 0 ];
+		CellCompressor.decompress( CellCompressor.compress( empty ), empty );
+	}
+
+	@Test
+	public void testCompressionRatio()
+	{
+		final short[] constant = new short[ 32 * 32 * 32 ];
+		assertTrue( CellCompressor.compress( constant ).length < 16 );
+
+		// 12-bit values in a 16-bit container with smooth background
+		final short[] data = new short[ 32 * 32 * 32 ];
+		for ( int j = 0; j < data.length; ++j )
+			data[ j ] = ( short ) ( 1000 + ( j / 256 ) );
+		assertTrue( CellCompressor.compress( data ).length < data.length * 2 / 4 );
+	}
+
+	/**
+	 * Write with several accessors into a image with a single hot cell and
+	 * check that no writes are lost, also after garbage collection of evicted
+	 * cells.
+	 */
+	@Test
+	public void testWriteRead()
+	{
+		final long[] dims = new long[] { 67, 45, 9 };
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory< UnsignedShortType >( 8, 1 ).create( dims, new UnsignedShortType() );
+		final int[] expected = new int[ ( int ) img.size() ];
+
+		final Random rnd = new Random( 7 );
+		final RandomAccess< UnsignedShortType > a1 = img.randomAccess();
+		final RandomAccess< UnsignedShortType > a2 = img.randomAccess();
+		final long[] pos = new long[ 3 ];
+		for ( int k = 0; k < 20000; ++k )
+		{
+			final RandomAccess< UnsignedShortType > a = k % 2 == 0 ? a1 : a2;
+			for ( int d = 0; d < 3; ++d )
+				pos[ d ] = rnd.nextInt( ( int ) dims[ d ] );
+			a.setPosition( pos );
+			final int v = rnd.nextInt( 4096 );
+			a.get().set( v );
+			expected[ ( int ) ( pos[ 0 ] + dims[ 0 ] * ( pos[ 1 ] + dims[ 1 ] * pos[ 2 ] ) ) ] = v;
+		}
+
+		for ( int k = 0; k < 3; ++k )
+		{
+			System.gc();
+			img.getCells().compact();
+		}
+
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			assertEquals( expected[ ( int ) ( pos[ 0 ] + dims[ 0 ] * ( pos[ 1 ] + dims[ 1 ] * pos[ 2 ] ) ) ], c.get().get() );
+		}
+
+		final CompressedCellImg< UnsignedShortType, ? > copy = img.copy();
+		final Cursor< UnsignedShortType > c1 = img.cursor();
+		final Cursor< UnsignedShortType > c2 = copy.cursor();
+		while ( c1.hasNext() )
+			assertEquals( c1.next().get(), c2.next().get() );
+	}
+
+	/**
+	 * Write concurrently from several threads, each into its own slices, with
+	 * fewer hot cells than threads, and check that no writes are lost.
+	 */
+	@Test
+	public void testConcurrentWrite() throws InterruptedException
+	{
+		final long[] dims = new long[] { 40, 30, 16 };
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory< UnsignedShortType >( 4, 2 ).create( dims, new UnsignedShortType() );
+		final int numThreads = 4;
+		final Thread[] threads = new Thread[ numThreads ];
+		for ( int t = 0; t < numThreads; ++t )
+		{
+			final int first = t;
+			threads[ t ] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					final RandomAccess< UnsignedShortType > a = img.randomAccess();
+					for ( int round = 0; round < 5; ++round )
+						for ( int z = first; z < dims[ 2 ]; z += numThreads )
+							for ( int y = 0; y < dims[ 1 ]; ++y )
+								for ( int x = 0; x < dims[ 0 ]; ++x )
+								{
+									a.setPosition( new int[] { x, y, z } );
+									a.get().set( ( x + 3 * y + 7 * z + round ) % 4096 );
+								}
+				}
+			};
+			threads[ t ].start();
+		}
+		for ( final Thread thread : threads )
+			thread.join();
+
+		System.gc();
+		img.getCells().compact();
+
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final int expected = ( c.getIntPosition( 0 ) + 3 * c.getIntPosition( 1 ) + 7 * c.getIntPosition( 2 ) + 4 ) % 4096;
+			assertEquals( expected, c.get().get() );
+		}
+	}
+}
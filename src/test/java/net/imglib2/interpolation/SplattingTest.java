@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.interpolation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RealCursor;
+import net.imglib2.RealPoint;
+import net.imglib2.RealPointSampleList;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class SplattingTest
+{
+	private static RealPointSampleList< DoubleType > randomPoints( final int numPoints, final double[] min, final double[] max )
+	{
+		final Random rnd = new Random( 7 );
+		final int n = min.length;
+		final RealPointSampleList< DoubleType > points = new RealPointSampleList< DoubleType >( n );
+		for ( int i = 0; i < numPoints; ++i )
+		{
+			final RealPoint p = new RealPoint( n );
+			for ( int d = 0; d < n; ++d )
+				p.setPosition( min[ d ] + rnd.nextDouble() * ( max[ d ] - min[ d ] ), d );
+			points.add( p, new DoubleType( rnd.nextDouble() ) );
+		}
+		return points;
+	}
+
+	private static double sum( final Iterable< DoubleType > img )
+	{
+		double sum = 0;
+		for ( final DoubleType t : img )
+			sum += t.get();
+		return sum;
+	}
+
+	@Test
+	public void testNearest()
+	{
+		final RealPointSampleList< DoubleType > points = new RealPointSampleList< DoubleType >( 2 );
+		points.add( new RealPoint( 3.4, 2.6 ), new DoubleType( 1 ) );
+		points.add( new RealPoint( 2.6, 3.4 ), new DoubleType( 2 ) );
+		points.add( new RealPoint( 7.0, 1.0 ), new DoubleType( 4 ) );
+		points.add( new RealPoint( 10.0, 1.0 ), new DoubleType( 8 ) );
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 10, 5 );
+		final IntervalView< DoubleType > target = Views.translate( img, 0, 1 );
+		Splatting.nearest( points, target, 2 );
+
+		final RandomAccess< DoubleType > a = target.randomAccess();
+		a.setPosition( new long[] { 3, 3 } );
+		assertEquals( 3, a.get().get(), 0 );
+		a.setPosition( new long[] { 7, 1 } );
+		assertEquals( 4, a.get().get(), 0 );
+		assertEquals( 7, sum( img ), 0 );
+	}
+
+	@Test
+	public void testLinear()
+	{
+		final RealPointSampleList< DoubleType > points = new RealPointSampleList< DoubleType >( 3 );
+		points.add( new RealPoint( 1.25, 2.5, 3.0 ), new DoubleType( 8 ) );
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 5, 5, 5 );
+		Splatting.linear( points, img, 1 );
+
+		final RandomAccess< DoubleType > a = img.randomAccess();
+		a.setPosition( new long[] { 1, 2, 3 } );
+		assertEquals( 8 * 0.75 * 0.5, a.get().get(), 1e-12 );
+		a.setPosition( new long[] { 2, 3, 3 } );
+		assertEquals( 8 * 0.25 * 0.5, a.get().get(), 1e-12 );
+		assertEquals( 8, sum( img ), 1e-12 );
+
+		// linear splatting of points inside conserves mass
+		final RealPointSampleList< DoubleType > many = randomPoints( 1000, new double[] { 0, 0, 0 }, new double[] { 4, 4, 4 } );
+		final ArrayImg< DoubleType, DoubleArray > img2 = ArrayImgs.doubles( 5, 5, 5 );
+		Splatting.linear( many, img2, 3 );
+		assertEquals( sum( many ), sum( img2 ), 1e-9 );
+	}
+
+	@Test
+	public void testGaussian()
+	{
+		final RealPointSampleList< DoubleType > points = new RealPointSampleList< DoubleType >( 2 );
+		points.add( new RealPoint( 20.3, 15.8 ), new DoubleType( 2 ) );
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 40, 30 );
+		Splatting.gaussian( points, new double[] { 2, 1.5 }, img, 1 );
+		assertEquals( 2, sum( img ), 1e-12 );
+
+		// center of mass
+		double cx = 0, cy = 0;
+		final RandomAccess< DoubleType > a = img.randomAccess();
+		for ( int y = 0; y < 30; ++y )
+			for ( int x = 0; x < 40; ++x )
+			{
+				a.setPosition( new long[] { x, y } );
+				cx += x * a.get().get();
+				cy += y * a.get().get();
+			}
+		assertEquals( 20.3, cx / 2, 0.05 );
+		assertEquals( 15.8, cy / 2, 0.05 );
+
+		// point near the border loses mass outside the target
+		final RealPointSampleList< DoubleType > border = new RealPointSampleList< DoubleType >( 2 );
+		border.add( new RealPoint( 0.0, 15.0 ), new DoubleType( 1 ) );
+		final ArrayImg< DoubleType, DoubleArray > img2 = ArrayImgs.doubles( 40, 30 );
+		Splatting.gaussian( border, new double[] { 2, 2 }, img2, 1 );
+		assertEquals( 0.6, sum( img2 ), 0.05 );
+	}
+
+	@Test
+	public void testMultiThreaded()
+	{
+		final double[] min = new double[] { -5, -5 };
+		final double[] max = new double[] { 35, 25 };
+		final RealPointSampleList< DoubleType > points = randomPoints( 5000, min, max );
+		final ArrayImg< DoubleType, DoubleArray > single = ArrayImgs.doubles( 30, 20 );
+		final ArrayImg< DoubleType, DoubleArray > multi = ArrayImgs.doubles( 30, 20 );
+		Splatting.gaussian( points, new double[] { 1.5, 0.7 }, single, 1 );
+		Splatting.gaussian( points, new double[] { 1.5, 0.7 }, multi, 5 );
+		final double[] a = single.update( null ).getCurrentStorageArray();
+		final double[] b = multi.update( null ).getCurrentStorageArray();
+		for ( int i = 0; i < a.length; ++i )
+			assertEquals( a[ i ], b[ i ], 1e-9 );
+		assertEquals( Intervals.numElements( single ), a.length );
+	}
+
+	@Test
+	public void testTilesMatchSinglePoints()
+	{
+		// translated 3D target, split into several tiles with overlapping halos
+		final double[] min = new double[] { 2, -3, 8 };
+		final double[] max = new double[] { 14, 9, 40 };
+		final RealPointSampleList< DoubleType > points = randomPoints( 300, min, max );
+		final double[] sigma = new double[] { 1, 0.8, 1.7 };
+		final ArrayImg< DoubleType, DoubleArray > img = ArrayImgs.doubles( 12, 11, 30 );
+		final IntervalView< DoubleType > target = Views.translate( img, 3, -2, 10 );
+		Splatting.gaussian( points, sigma, target, 3 );
+
+		final ArrayImg< DoubleType, DoubleArray > expectedImg = ArrayImgs.doubles( 12, 11, 30 );
+		final IntervalView< DoubleType > expected = Views.translate( expectedImg, 3, -2, 10 );
+		final RealCursor< DoubleType > c = points.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final RealPointSampleList< DoubleType > single = new RealPointSampleList< DoubleType >( 3 );
+			single.add( new RealPoint( c ), c.get().copy() );
+			Splatting.gaussian( single, sigma, expected, 1 );
+		}
+
+		final double[] a = img.update( null ).getCurrentStorageArray();
+		final double[] b = expectedImg.update( null ).getCurrentStorageArray();
+		for ( int i = 0; i < a.length; ++i )
+			assertEquals( b[ i ], a[ i ], 1e-9 );
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.interpolation.randomaccess;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link LanczosResampler} to per-point {@link LanczosInterpolator}
+ * evaluation, and the separable {@link LanczosInterpolator} to a direct
+ * evaluation of the kernel products.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class LanczosResamplerTest
+{
+	private static ArrayImg< FloatType, FloatArray > createSource( final long... dims )
+	{
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( dims );
+		final Random random = new Random( 1 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() * 100 );
+		return img;
+	}
+
+	private static void check( final RandomAccessible< FloatType > source, final double[][] affine, final ArrayImg< FloatType, FloatArray > target, final int alpha )
+	{
+		final int n = target.numDimensions();
+		LanczosResampler.resample( source, affine, target, alpha, true, 3 );
+
+		final RealRandomAccess< FloatType > interpolator = Views.interpolate( source, new LanczosInterpolatorFactory< FloatType >( alpha, true ) ).realRandomAccess();
+		final double[] p = new double[ n ];
+		final Cursor< FloatType > c = target.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			for ( int r = 0; r < n; ++r )
+			{
+				p[ r ] = affine[ r ][ n ];
+				for ( int d = 0; d < n; ++d )
+					p[ r ] += affine[ r ][ d ] * c.getDoublePosition( d );
+			}
+			interpolator.setPosition( p );
+			assertEquals( interpolator.get().getRealDouble(), c.get().get(), 1e-3 );
+		}
+	}
+
+	@Test
+	public void testInterpolator()
+	{
+		final int alpha = 3;
+		final RandomAccessible< FloatType > source = Views.extendMirrorSingle( createSource( 12, 10, 9 ) );
+		final LanczosInterpolator< FloatType > interpolator = new LanczosInterpolator< FloatType >( source, alpha, false, 0, 0 );
+		final double[] lut = LanczosInterpolator.createLanczosLUT( alpha, LanczosInterpolator.lutScale );
+		final RandomAccess< FloatType > access = source.randomAccess();
+		final Random random = new Random( 2 );
+		final double[] p = new double[ 3 ];
+		final long[] f = new long[ 3 ];
+		for ( int i = 0; i < 100; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+			{
+				p[ d ] = random.nextDouble() * 12 - 1;
+				f[ d ] = ( long ) Math.floor( p[ d ] ) - alpha + 1;
+			}
+			interpolator.setPosition( p );
+
+			double expected = 0;
+			for ( int z = 0; z < 2 * alpha; ++z )
+				for ( int y = 0; y < 2 * alpha; ++y )
+					for ( int x = 0; x < 2 * alpha; ++x )
+					{
+						access.setPosition( new long[] { f[ 0 ] + x, f[ 1 ] + y, f[ 2 ] + z } );
+						final double w = LanczosInterpolator.lookUpLanczos( lut, p[ 0 ] - f[ 0 ] - x ) * LanczosInterpolator.lookUpLanczos( lut, p[ 1 ] - f[ 1 ] - y ) * LanczosInterpolator.lookUpLanczos( lut, p[ 2 ] - f[ 2 ] - z );
+						expected += w * access.get().get();
+					}
+			assertEquals( expected, interpolator.get().get(), 1e-3 );
+			assertEquals( expected, interpolator.copy().get().getRealDouble(), 1e-3 );
+		}
+	}
+
+	@Test
+	public void testAxisAligned2D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendBorder( createSource( 20, 15 ) );
+		final double[][] affine = { { 0.37, 0, 1.3 }, { 0, 1.5, -3.1 } };
+		check( source, affine, ArrayImgs.floats( 50, 8 ), 3 );
+	}
+
+	@Test
+	public void testRotated2D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendBorder( createSource( 20, 15 ) );
+		final double a = 0.3;
+		final double[][] affine = { { 0.5 * Math.cos( a ), -Math.sin( a ), 2.1 }, { 0.5 * Math.sin( a ), Math.cos( a ), -1.3 } };
+		check( source, affine, ArrayImgs.floats( 40, 17 ), 2 );
+	}
+
+	@Test
+	public void testRotated3D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendMirrorSingle( createSource( 10, 11, 12 ) );
+		final double[][] affine = { { 0.9, 0.1, 0, 0.5 }, { -0.1, 0.9, 0.2, 0 }, { 0.3, 0, -1.1, 11 } };
+		check( source, affine, ArrayImgs.floats( 13, 12, 11 ), 3 );
+	}
+
+	@Test
+	public void testAntialiasPreservesConstant()
+	{
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( 40, 30 );
+		for ( final FloatType t : img )
+			t.set( 7 );
+		final ArrayImg< FloatType, FloatArray > target = ArrayImgs.floats( 10, 10 );
+		final double[][] affine = { { 4, 0, 0.5 }, { 0, 3, 0 } };
+		LanczosResampler.resample( Views.extendBorder( img ), affine, target, 3, true, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 2 );
+		for ( final FloatType t : target )
+			assertEquals( 7, t.get(), 1e-5 );
+	}
+}
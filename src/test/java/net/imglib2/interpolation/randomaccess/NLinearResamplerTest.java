@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.interpolation.randomaccess;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link NLinearResampler} to per-point {@link NLinearInterpolator}
+ * evaluation.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class NLinearResamplerTest
+{
+	private static ArrayImg< FloatType, FloatArray > createSource( final long... dims )
+	{
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( dims );
+		final Random random = new Random( 1 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() * 100 );
+		return img;
+	}
+
+	private static void check( final RandomAccessible< FloatType > source, final double[][] affine, final ArrayImg< DoubleType, DoubleArray > target )
+	{
+		final int n = target.numDimensions();
+		NLinearResampler.resample( source, affine, target, 3 );
+
+		final RealRandomAccess< FloatType > interpolator = Views.interpolate( source, new NLinearInterpolatorFactory< FloatType >() ).realRandomAccess();
+		final double[] p = new double[ n ];
+		final Cursor< DoubleType > c = target.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			for ( int r = 0; r < n; ++r )
+			{
+				p[ r ] = affine[ r ][ n ];
+				for ( int d = 0; d < n; ++d )
+					p[ r ] += affine[ r ][ d ] * c.getDoublePosition( d );
+			}
+			interpolator.setPosition( p );
+			assertEquals( interpolator.get().getRealDouble(), c.get().get(), 1e-3 );
+		}
+	}
+
+	@Test
+	public void testAxisAligned2D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendBorder( createSource( 20, 15 ) );
+		final double[][] affine = { { 0.37, 0, 1.3 }, { 0, 2.5, -3.1 } };
+		check( source, affine, ArrayImgs.doubles( 50, 8 ) );
+	}
+
+	@Test
+	public void testAxisAligned3D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendMirrorSingle( createSource( 10, 11, 12 ) );
+		final double[][] affine = { { 0.5, 0, 0, 0.25 }, { 0, 1.7, 0, 0 }, { 0, 0, 0.9, 2.2 } };
+		check( source, affine, ArrayImgs.doubles( 21, 7, 13 ) );
+	}
+
+	@Test
+	public void testRotated2D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendBorder( createSource( 20, 15 ) );
+		final double a = 0.3;
+		final double[][] affine = { { 0.5 * Math.cos( a ), -Math.sin( a ), 2.1 }, { 0.5 * Math.sin( a ), Math.cos( a ), -1.3 } };
+		check( source, affine, ArrayImgs.doubles( 40, 17 ) );
+	}
+
+	@Test
+	public void testRotated3D()
+	{
+		final RandomAccessible< FloatType > source = Views.extendZero( createSource( 10, 11, 12 ) );
+		final double[][] affine = { { 0.9, 0.1, 0, 0.5 }, { -0.1, 0.9, 0.2, 0 }, { 0.3, 0, -1.1, 11 } };
+		check( source, affine, ArrayImgs.doubles( 13, 12, 11 ) );
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.mipmap;
+
+import static org.junit.Assert.assertEquals;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+public class MipmapsTest
+{
+	private static ArrayImg< FloatType, FloatArray > createSource()
+	{
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( 9, 6, 3 );
+		final Cursor< FloatType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.get().set( c.getIntPosition( 0 ) + 10 * c.getIntPosition( 1 ) + 100 * c.getIntPosition( 2 ) );
+		}
+		return img;
+	}
+
+	@Test
+	public void testAverage()
+	{
+		final ArrayImg< FloatType, FloatArray > img = createSource();
+		final MipmapPyramid< FloatType > pyramid = Mipmaps.average( img, new ArrayImgFactory< FloatType >(), new long[] { 2, 2, 1 }, 3, 4 );
+
+		assertEquals( 3, pyramid.numLevels() );
+		assertEquals( 4, pyramid.getDownsamplingFactor( 2, 0 ) );
+		assertEquals( 1, pyramid.getDownsamplingFactor( 2, 2 ) );
+
+		final RandomAccessibleInterval< FloatType > level1 = pyramid.getLevel( 1 );
+		assertEquals( 5, level1.dimension( 0 ) );
+		assertEquals( 3, level1.dimension( 1 ) );
+		assertEquals( 3, level1.dimension( 2 ) );
+
+		final RandomAccess< FloatType > a = level1.randomAccess();
+		a.setPosition( new long[] { 1, 1, 2 } );
+		// mean of x in {2,3}, y in {2,3}, z = 2
+		assertEquals( 2.5 + 25 + 200, a.get().get(), 1e-4 );
+		// clipped border block, x = 8 only
+		a.setPosition( new long[] { 4, 0, 0 } );
+		assertEquals( 8 + 5, a.get().get(), 1e-4 );
+
+		final RandomAccessibleInterval< FloatType > level2 = pyramid.getLevel( 2 );
+		assertEquals( 3, level2.dimension( 0 ) );
+		assertEquals( 2, level2.dimension( 1 ) );
+	}
+
+	@Test
+	public void testMax()
+	{
+		final ArrayImg< FloatType, FloatArray > img = createSource();
+		final MipmapPyramid< FloatType > pyramid = Mipmaps.max( img, new ArrayImgFactory< FloatType >(), new long[] { 3, 3, 3 }, 2, 2 );
+		final RandomAccess< FloatType > a = pyramid.getLevel( 1 ).randomAccess();
+		a.setPosition( new long[] { 2, 1, 0 } );
+		assertEquals( 8 + 50 + 200, a.get().get(), 0 );
+	}
+
+	@Test
+	public void testBestLevel()
+	{
+		final MipmapPyramid< FloatType > pyramid = Mipmaps.average( createSource(), new ArrayImgFactory< FloatType >(), new long[] { 2, 2, 1 }, 3, 1 );
+		assertEquals( 0, Mipmaps.bestLevel( pyramid, 1.0, 0 ) );
+		assertEquals( 0, Mipmaps.bestLevel( pyramid, 0.6, 0 ) );
+		assertEquals( 1, Mipmaps.bestLevel( pyramid, 0.5, 0 ) );
+		assertEquals( 2, Mipmaps.bestLevel( pyramid, 0.1, 0 ) );
+		// not downsampled in Z, all levels qualify
+		assertEquals( 2, Mipmaps.bestLevel( pyramid, 0.1, 2 ) );
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.outofbounds;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class PaddedBufferTest
+{
+	private final long[] min = new long[] { -3, 5, 1 };
+
+	private final long[] dimensions = new long[] { 11, 7, 5 };
+
+	private final long[] border = new long[] { 4, 2, 0 };
+
+	private RandomAccessibleInterval< FloatType > createSource()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( dimensions, new FloatType() );
+		final Random random = new Random( 123 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+		return Views.translate( img, min );
+	}
+
+	private void testFactory( final OutOfBoundsFactory< FloatType, RandomAccessibleInterval< FloatType > > factory, final ImgFactory< FloatType > imgFactory )
+	{
+		final RandomAccessibleInterval< FloatType > source = createSource();
+		final PaddedBuffer< FloatType > buffer = new PaddedBuffer< FloatType >( source, border, factory, imgFactory );
+
+		final FinalInterval expected = Intervals.createMinMax( -7, 3, 1, 11, 13, 5 );
+		assertEquals( true, Intervals.equals( expected, buffer.getPadded() ) );
+		assertEquals( true, Intervals.equals( source, buffer.getInterior() ) );
+		assertEquals( Intervals.numElements( expected ), Intervals.numElements( buffer.getBuffer() ) );
+		assertExtended( source, factory, buffer );
+
+		// modify interior and refresh halo
+		for ( final FloatType t : Views.iterable( buffer.getInterior() ) )
+			t.mul( -2 );
+		buffer.refreshHalo();
+		assertExtended( buffer.getInterior(), factory, buffer );
+	}
+
+	private static void assertExtended( final RandomAccessibleInterval< FloatType > source, final OutOfBoundsFactory< FloatType, RandomAccessibleInterval< FloatType > > factory, final PaddedBuffer< FloatType > buffer )
+	{
+		final RandomAccessible< FloatType > extended = Views.extend( source, factory );
+		final RandomAccess< FloatType > a = extended.randomAccess();
+		final Cursor< FloatType > c = Views.iterable( buffer.getPadded() ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			final float value = c.next().get();
+			a.setPosition( c );
+			assertEquals( a.get().get(), value, 0 );
+		}
+	}
+
+	@Test
+	public void testMirrorSingle()
+	{
+		testFactory( new OutOfBoundsMirrorFactory< FloatType, RandomAccessibleInterval< FloatType > >( Boundary.SINGLE ), new ArrayImgFactory< FloatType >() );
+	}
+
+	@Test
+	public void testPeriodicCellImg()
+	{
+		testFactory( new OutOfBoundsPeriodicFactory< FloatType, RandomAccessibleInterval< FloatType > >(), new CellImgFactory< FloatType >( 4 ) );
+	}
+
+	@Test
+	public void testMirrorExpWindowing()
+	{
+		testFactory( new OutOfBoundsMirrorExpWindowingFactory< FloatType, RandomAccessibleInterval< FloatType > >( 3 ), new ArrayImgFactory< FloatType >() );
+	}
+
+	@Test
+	public void testUniformBorder()
+	{
+		final RandomAccessibleInterval< FloatType > source = createSource();
+		final PaddedBuffer< FloatType > buffer = new PaddedBuffer< FloatType >( source, 2, new OutOfBoundsBorderFactory< FloatType, RandomAccessibleInterval< FloatType > >(), new ArrayImgFactory< FloatType >() );
+		assertEquals( true, Intervals.equals( Intervals.expand( source, 2 ), buffer.getPadded() ) );
+		assertExtended( source, new OutOfBoundsBorderFactory< FloatType, RandomAccessibleInterval< FloatType > >(), buffer );
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.type.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BitMasks}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class BitMasksTest
+{
+	final static long[] dimensions = new long[] { 67, 33, 5 };
+
+	private static Img< BitType > create( final ImgFactory< BitType > factory, final long seed )
+	{
+		final Img< BitType > img = factory.create( dimensions, new BitType() );
+		final Random rnd = new Random( seed );
+		for ( final BitType t : img )
+			t.set( rnd.nextBoolean() );
+		return img;
+	}
+
+	private static long count( final Img< BitType > img )
+	{
+		long count = 0;
+		for ( final BitType t : img )
+			if ( t.get() )
+				++count;
+		return count;
+	}
+
+	private static void testFactory( final ImgFactory< BitType > factory, final ImgFactory< BitType > otherFactory )
+	{
+		final Img< BitType > a = create( factory, 1 );
+		final long expected = count( a );
+		assertEquals( expected, BitMasks.cardinality( a, 1 ) );
+		assertEquals( expected, BitMasks.cardinality( a, 3 ) );
+
+		BitMasks.not( a, 2 );
+		assertEquals( a.size() - expected, BitMasks.cardinality( a, 2 ) );
+		assertEquals( a.size() - expected, count( a ) );
+
+		BitMasks.fill( a, true, 2 );
+		assertEquals( a.size(), BitMasks.cardinality( a, 2 ) );
+		BitMasks.fill( a, false, 2 );
+		assertEquals( 0, BitMasks.cardinality( a, 2 ) );
+
+		checkCombine( factory, factory );
+		checkCombine( factory, otherFactory );
+	}
+
+	private static void checkCombine( final ImgFactory< BitType > targetFactory, final ImgFactory< BitType > sourceFactory )
+	{
+		for ( int op = 0; op < 4; ++op )
+		{
+			final Img< BitType > target = create( targetFactory, 2 );
+			final Img< BitType > expected = create( targetFactory, 2 );
+			final Img< BitType > source = create( sourceFactory, 3 );
+			switch ( op )
+			{
+			case 0:
+				BitMasks.and( target, source, 3 );
+				break;
+			case 1:
+				BitMasks.or( target, source, 3 );
+				break;
+			case 2:
+				BitMasks.xor( target, source, 3 );
+				break;
+			case 3:
+				BitMasks.andNot( target, source, 3 );
+				break;
+			}
+			final Cursor< BitType > c = expected.localizingCursor();
+			final RandomAccess< BitType > s = source.randomAccess();
+			final RandomAccess< BitType > t = target.randomAccess();
+			while ( c.hasNext() )
+			{
+				final boolean e = c.next().get();
+				s.setPosition( c );
+				t.setPosition( c );
+				final boolean v = s.get().get();
+				final boolean r = op == 0 ? e && v : op == 1 ? e || v : op == 2 ? e ^ v : e && !v;
+				assertEquals( r, t.get().get() );
+			}
+			assertEquals( count( target ), BitMasks.cardinality( target, 2 ) );
+		}
+	}
+
+	@Test
+	public void testArrayImg()
+	{
+		testFactory( new ArrayImgFactory< BitType >(), new PlanarImgFactory< BitType >() );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		testFactory( new PlanarImgFactory< BitType >(), new CellImgFactory< BitType >( 10 ) );
+	}
+
+	@Test
+	public void testCellImg()
+	{
+		testFactory( new CellImgFactory< BitType >( 13 ), new CellImgFactory< BitType >( 16 ) );
+	}
+
+	@Test
+	public void testGeneric()
+	{
+		testFactory( new ListImgFactory< BitType >(), new ArrayImgFactory< BitType >() );
+
+		final Img< BitType > img = create( new ArrayImgFactory< BitType >(), 4 );
+		long expected = 0;
+		for ( final BitType t : Views.interval( img, new long[] { 1, 2, 3 }, new long[] { 50, 30, 4 } ) )
+			if ( t.get() )
+				++expected;
+		assertEquals( expected, BitMasks.cardinality( Views.iterable( Views.interval( img, new long[] { 1, 2, 3 }, new long[] { 50, 30, 4 } ) ), 2 ) );
+	}
+
+	/**
+	 * Unused bits in the last word must not be counted.
+	 */
+	@Test
+	public void testPadding()
+	{
+		final Img< BitType > img = new ArrayImgFactory< BitType >().create( new long[] { 100 }, new BitType() );
+		BitMasks.fill( img, true, 1 );
+		BitMasks.xor( img, img.copy(), 1 );
+		BitMasks.not( img, 1 );
+		assertEquals( 100, BitMasks.cardinality( img, 1 ) );
+		assertEquals( 100, count( img ) );
+	}
+}
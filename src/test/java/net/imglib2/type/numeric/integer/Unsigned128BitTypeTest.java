@@ -35,6 +35,7 @@ package net.imglib2.type.numeric.integer;
 
 import static org.junit.Assert.*;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Random;
 
@@ -163,4 +164,88 @@ public class Unsigned128BitTypeTest
 		assertEquals( l.get(), bi );
 	}
 
+	private static final BigInteger MOD = BigInteger.ONE.shiftLeft( 128 );
+
+	private static BigInteger random( final Random rnd )
+	{
+		// mix small and large values
+		return new BigInteger( 1 + rnd.nextInt( 128 ), rnd );
+	}
+
+	/**
+	 * Tests add, sub, mul, div and compareTo against {@link BigInteger}
+	 * arithmetic modulo 2^128.
+	 */
+	@Test
+	public void testArithmetic()
+	{
+		final Random rnd = new Random( 1234 );
+		for ( int n = 0; n < 10000; ++n )
+		{
+			final BigInteger a = random( rnd );
+			final BigInteger b = random( rnd );
+			final Unsigned128BitType ua = new Unsigned128BitType( a );
+			final Unsigned128BitType ub = new Unsigned128BitType( b );
+
+			Unsigned128BitType u = ua.copy();
+			u.add( ub );
+			assertEquals( a.add( b ).mod( MOD ), u.get() );
+
+			u = ua.copy();
+			u.sub( ub );
+			assertEquals( a.subtract( b ).mod( MOD ), u.get() );
+
+			u = ua.copy();
+			u.mul( ub );
+			assertEquals( a.multiply( b ).mod( MOD ), u.get() );
+
+			if ( b.signum() != 0 )
+			{
+				u = ua.copy();
+				u.div( ub );
+				assertEquals( a.divide( b ), u.get() );
+			}
+
+			assertEquals( a.compareTo( b ), ua.compareTo( ub ) );
+		}
+	}
+
+	@Test( expected = ArithmeticException.class )
+	public void testDivByZero()
+	{
+		final Unsigned128BitType u = new Unsigned128BitType( 5, 7 );
+		u.div( new Unsigned128BitType() );
+	}
+
+	/**
+	 * Tests {@link Unsigned128BitType#getRealDouble()} and
+	 * {@link Unsigned128BitType#setReal(double)}.
+	 */
+	@Test
+	public void testRealConversion()
+	{
+		final Random rnd = new Random( 42 );
+		for ( int n = 0; n < 10000; ++n )
+		{
+			final BigInteger a = random( rnd );
+			final Unsigned128BitType u = new Unsigned128BitType( a );
+			final double expected = a.doubleValue();
+			assertEquals( expected, u.getRealDouble(), 0 );
+
+			u.setReal( expected );
+			assertEquals( new BigDecimal( expected ).toBigInteger(), u.get() );
+		}
+
+		final Unsigned128BitType u = new Unsigned128BitType();
+		u.setReal( 2.5 );
+		assertEquals( BigInteger.valueOf( 3 ), u.get() );
+		u.setReal( -10 );
+		assertEquals( BigInteger.ZERO, u.get() );
+		u.setReal( 1e40 );
+		assertEquals( u.getMaxBigIntegerValue(), u.get() );
+		u.setOne();
+		u.mul( 1e20 );
+		assertEquals( new BigInteger( "100000000000000000000" ), u.get() );
+	}
+
 }
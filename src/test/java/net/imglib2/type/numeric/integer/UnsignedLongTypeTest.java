@@ -38,6 +38,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigInteger;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -177,4 +178,24 @@ public class UnsignedLongTypeTest {
 
 		assertEquals( ul.get(), bi.longValue() );
 	}
+
+	/**
+	 * Tests {@link UnsignedLongType#divide(long, long)} for dividends larger
+	 * than the maximum signed long value.
+	 */
+	@Test
+	public void testDivide() {
+
+		final BigInteger d1 = new BigInteger( "11957585406701461413" );
+		final BigInteger d2 = BigInteger.valueOf( 342753 );
+		assertEquals( d1.divide( d2 ).longValue(), UnsignedLongType.divide( d1.longValue(), d2.longValue() ) );
+
+		final Random rnd = new Random( 12 );
+		for ( int i = 0; i < 1000; ++i ) {
+			final long a = rnd.nextLong() | Long.MIN_VALUE;
+			final long b = rnd.nextInt( Integer.MAX_VALUE ) + 1;
+			assertEquals( BigInteger.valueOf( a ).add( BigInteger.ONE.shiftLeft( 64 ) ).divide( BigInteger.valueOf( b ) ).longValue(), UnsignedLongType.divide( a, b ) );
+		}
+	}
+
 }
@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.type.numeric.real;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.converter.RealFloatConverter;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BFloat16Type}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class BFloat16TypeTest
+{
+	/**
+	 * Converting any bit pattern to float and back gives the same bits.
+	 */
+	@Test
+	public void testRoundTrip()
+	{
+		for ( int h = 0; h < 1 << 16; ++h )
+		{
+			final float f = BFloat16Type.toFloat( ( short ) h );
+			if ( Float.isNaN( f ) )
+				assertTrue( Float.isNaN( BFloat16Type.toFloat( BFloat16Type.fromFloat( f ) ) ) );
+			else
+				assertEquals( ( short ) h, BFloat16Type.fromFloat( f ) );
+		}
+	}
+
+	/**
+	 * Converting a float gives the nearest value, ties to even.
+	 */
+	@Test
+	public void testRounding()
+	{
+		final Random rnd = new Random( 123 );
+		for ( int n = 0; n < 100000; ++n )
+		{
+			final float v = Float.intBitsToFloat( rnd.nextInt() );
+			if ( Float.isNaN( v ) )
+				continue;
+			final short h = BFloat16Type.fromFloat( v );
+			final double r = BFloat16Type.toFloat( h );
+			if ( Math.abs( v ) > BFloat16Type.MAX_VALUE )
+			{
+				if ( Double.isInfinite( r ) )
+					continue;
+				assertEquals( BFloat16Type.MAX_VALUE, Math.abs( r ), 0 );
+			}
+			// neighbors in magnitude
+			final double lower = BFloat16Type.toFloat( ( short ) ( h - 1 ) );
+			final double upper = BFloat16Type.toFloat( ( short ) ( h + 1 ) );
+			final double d = Math.abs( r - v );
+			if ( ( h & 0x7fff ) != 0 )
+				assertTrue( d <= Math.abs( lower - v ) );
+			if ( ( h & 0x7fff ) < 0x7f7f )
+				assertTrue( d <= Math.abs( upper - v ) );
+			if ( d != 0 && ( d == Math.abs( lower - v ) || d == Math.abs( upper - v ) ) )
+				assertEquals( 0, h & 1 );
+		}
+		assertEquals( Float.POSITIVE_INFINITY, BFloat16Type.toFloat( BFloat16Type.fromFloat( Float.POSITIVE_INFINITY ) ), 0 );
+		assertEquals( Float.NEGATIVE_INFINITY, BFloat16Type.toFloat( BFloat16Type.fromFloat( Float.NEGATIVE_INFINITY ) ), 0 );
+		assertTrue( Float.isNaN( BFloat16Type.toFloat( BFloat16Type.fromFloat( Float.NaN ) ) ) );
+	}
+
+	@Test
+	public void testArithmetic()
+	{
+		final BFloat16Type a = new BFloat16Type( 1.5f );
+		final BFloat16Type b = new BFloat16Type( 2.25f );
+		a.add( b );
+		assertEquals( 3.75f, a.get(), 0 );
+		a.mul( b );
+		assertEquals( 8.4375f, a.get(), 0 );
+		a.sub( b );
+		assertEquals( 6.1875f, a.get(), 0 );
+		a.setReal( 1 / 3.0 );
+		assertEquals( 1 / 3.0, a.getRealDouble(), 1e-2 );
+		assertTrue( a.compareTo( b ) < 0 );
+		assertTrue( b.copy().valueEquals( b ) );
+	}
+
+	private static void testImg( final ImgFactory< BFloat16Type > factory )
+	{
+		final Img< BFloat16Type > img = factory.create( new long[] { 13, 7, 5 }, new BFloat16Type() );
+		final Random rnd = new Random( 42 );
+		final float[] values = new float[ ( int ) img.size() ];
+		int i = 0;
+		for ( final BFloat16Type t : img )
+		{
+			values[ i ] = rnd.nextFloat() * 100;
+			t.set( values[ i++ ] );
+		}
+		final Cursor< FloatType > c = Converters.convert( ( IterableInterval< BFloat16Type > ) img, new RealFloatConverter< BFloat16Type >(), new FloatType() ).cursor();
+		i = 0;
+		while ( c.hasNext() )
+			assertEquals( values[ i++ ], c.next().get(), 100 * 1e-2 );
+	}
+
+	@Test
+	public void testImgs()
+	{
+		testImg( new ArrayImgFactory< BFloat16Type >() );
+		testImg( new PlanarImgFactory< BFloat16Type >() );
+		testImg( new CellImgFactory< BFloat16Type >( 4 ) );
+	}
+}
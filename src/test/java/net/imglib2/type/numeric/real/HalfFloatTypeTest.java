@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.type.numeric.real;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.converter.RealFloatConverter;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link HalfFloatType}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class HalfFloatTypeTest
+{
+	/**
+	 * Converting any bit pattern to float and back gives the same bits.
+	 */
+	@Test
+	public void testRoundTrip()
+	{
+		for ( int h = 0; h < 1 << 16; ++h )
+		{
+			final float f = HalfFloatType.toFloat( ( short ) h );
+			if ( Float.isNaN( f ) )
+				assertTrue( Float.isNaN( HalfFloatType.toFloat( HalfFloatType.fromFloat( f ) ) ) );
+			else
+				assertEquals( ( short ) h, HalfFloatType.fromFloat( f ) );
+		}
+	}
+
+	/**
+	 * Converting a float gives the nearest value, ties to even.
+	 */
+	@Test
+	public void testRounding()
+	{
+		final Random rnd = new Random( 123 );
+		for ( int n = 0; n < 100000; ++n )
+		{
+			final float v = Float.intBitsToFloat( rnd.nextInt() );
+			if ( Float.isNaN( v ) )
+				continue;
+			final short h = HalfFloatType.fromFloat( v );
+			final double r = HalfFloatType.toFloat( h );
+			if ( Math.abs( v ) > HalfFloatType.MAX_VALUE )
+			{
+				if ( Double.isInfinite( r ) )
+					continue;
+				assertEquals( HalfFloatType.MAX_VALUE, Math.abs( r ), 0 );
+			}
+			// neighbors in magnitude
+			final double lower = HalfFloatType.toFloat( ( short ) ( h - 1 ) );
+			final double upper = HalfFloatType.toFloat( ( short ) ( h + 1 ) );
+			final double d = Math.abs( r - v );
+			if ( ( h & 0x7fff ) != 0 )
+				assertTrue( d <= Math.abs( lower - v ) );
+			if ( ( h & 0x7fff ) < 0x7f7f )
+				assertTrue( d <= Math.abs( upper - v ) );
+			if ( d != 0 && ( d == Math.abs( lower - v ) || d == Math.abs( upper - v ) ) )
+				assertEquals( 0, h & 1 );
+		}
+		assertEquals( Float.POSITIVE_INFINITY, HalfFloatType.toFloat( HalfFloatType.fromFloat( Float.POSITIVE_INFINITY ) ), 0 );
+		assertEquals( Float.NEGATIVE_INFINITY, HalfFloatType.toFloat( HalfFloatType.fromFloat( Float.NEGATIVE_INFINITY ) ), 0 );
+		assertTrue( Float.isNaN( HalfFloatType.toFloat( HalfFloatType.fromFloat( Float.NaN ) ) ) );
+	}
+
+	@Test
+	public void testArithmetic()
+	{
+		final HalfFloatType a = new HalfFloatType( 1.5f );
+		final HalfFloatType b = new HalfFloatType( 2.25f );
+		a.add( b );
+		assertEquals( 3.75f, a.get(), 0 );
+		a.mul( b );
+		assertEquals( 8.4375f, a.get(), 0 );
+		a.sub( b );
+		assertEquals( 6.1875f, a.get(), 0 );
+		a.setReal( 1 / 3.0 );
+		assertEquals( 1 / 3.0, a.getRealDouble(), 1e-3 );
+		assertTrue( a.compareTo( b ) < 0 );
+		assertTrue( b.copy().valueEquals( b ) );
+	}
+
+	private static void testImg( final ImgFactory< HalfFloatType > factory )
+	{
+		final Img< HalfFloatType > img = factory.create( new long[] { 13, 7, 5 }, new HalfFloatType() );
+		final Random rnd = new Random( 42 );
+		final float[] values = new float[ ( int ) img.size() ];
+		int i = 0;
+		for ( final HalfFloatType t : img )
+		{
+			values[ i ] = rnd.nextFloat() * 100;
+			t.set( values[ i++ ] );
+		}
+		final Cursor< FloatType > c = Converters.convert( ( IterableInterval< HalfFloatType > ) img, new RealFloatConverter< HalfFloatType >(), new FloatType() ).cursor();
+		i = 0;
+		while ( c.hasNext() )
+			assertEquals( values[ i++ ], c.next().get(), 100 * 1e-3 );
+	}
+
+	@Test
+	public void testImgs()
+	{
+		testImg( new ArrayImgFactory< HalfFloatType >() );
+		testImg( new PlanarImgFactory< HalfFloatType >() );
+		testImg( new CellImgFactory< HalfFloatType >( 4 ) );
+	}
+}
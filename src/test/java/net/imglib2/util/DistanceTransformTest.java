@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class DistanceTransformTest
+{
+	@Test
+	public void testBruteForce()
+	{
+		final long[] dims = new long[] { 13, 9, 7 };
+		final double[] spacing = new double[] { 1.0, 0.5, 2.5 };
+		final ArrayImg< BitType, LongArray > mask = ArrayImgs.bits( dims );
+		final Random rnd = new Random( 3 );
+		final ArrayList< long[] > foreground = new ArrayList< long[] >();
+		final Cursor< BitType > m = mask.localizingCursor();
+		while ( m.hasNext() )
+		{
+			m.fwd();
+			if ( rnd.nextDouble() < 0.02 )
+			{
+				m.get().set( true );
+				final long[] pos = new long[ 3 ];
+				m.localize( pos );
+				foreground.add( pos );
+			}
+		}
+
+		// translated target
+		final ArrayImg< DoubleType, DoubleArray > distances = ArrayImgs.doubles( dims );
+		DistanceTransform.squaredEuclidean( mask, Views.translate( distances, 5, -2, 1 ), spacing, 3 );
+
+		final Cursor< DoubleType > c = distances.localizingCursor();
+		final long[] pos = new long[ 3 ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			double best = Double.POSITIVE_INFINITY;
+			for ( final long[] f : foreground )
+			{
+				double dist = 0;
+				for ( int d = 0; d < 3; ++d )
+				{
+					final double diff = ( f[ d ] - pos[ d ] ) * spacing[ d ];
+					dist += diff * diff;
+				}
+				best = Math.min( best, dist );
+			}
+			assertEquals( best, c.get().get(), 1e-9 );
+		}
+	}
+
+	@Test
+	public void testSinglePixel()
+	{
+		final ArrayImg< BitType, LongArray > mask = ArrayImgs.bits( 20 );
+		final Cursor< BitType > m = mask.cursor();
+		m.jumpFwd( 8 );
+		m.get().set( true );
+		final ArrayImg< FloatType, FloatArray > distances = ArrayImgs.floats( 20 );
+		DistanceTransform.squaredEuclidean( mask, distances, 1 );
+		final Cursor< FloatType > c = distances.cursor();
+		for ( int x = 0; x < 20; ++x )
+			assertEquals( ( x - 7 ) * ( x - 7 ), c.next().get(), 0 );
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final ArrayImg< BitType, LongArray > mask = ArrayImgs.bits( 4, 5 );
+		final ArrayImg< DoubleType, DoubleArray > distances = ArrayImgs.doubles( 4, 5 );
+		DistanceTransform.squaredEuclidean( mask, distances, 2 );
+		for ( final DoubleType t : distances )
+			assertEquals( Double.POSITIVE_INFINITY, t.get(), 0 );
+	}
+}
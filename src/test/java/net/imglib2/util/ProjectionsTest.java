@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Projections.Operation;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class ProjectionsTest
+{
+	private final long[] dims = new long[] { 7, 6, 5, 4 };
+
+	private void fill( final Img< UnsignedShortType > img )
+	{
+		final Random rnd = new Random( 11 );
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			// position-dependent random value, with ties
+			rnd.setSeed( IntervalIndexer.positionToIndex( new long[] { c.getLongPosition( 0 ), c.getLongPosition( 1 ), c.getLongPosition( 2 ), c.getLongPosition( 3 ) }, dims ) );
+			c.get().set( rnd.nextInt( 50 ) );
+		}
+	}
+
+	private static double reference( final RandomAccessibleInterval< UnsignedShortType > source, final int axis, final Operation operation, final long[] targetPos )
+	{
+		final int n = source.numDimensions();
+		final long[] pos = new long[ n ];
+		for ( int d = 0, e = 0; d < n; ++d )
+			if ( d != axis )
+				pos[ d ] = targetPos[ e++ ];
+		final RandomAccess< UnsignedShortType > a = source.randomAccess();
+		double max = Double.NEGATIVE_INFINITY, min = Double.POSITIVE_INFINITY, sum = 0;
+		long argMax = 0;
+		for ( long x = source.min( axis ); x <= source.max( axis ); ++x )
+		{
+			pos[ axis ] = x;
+			a.setPosition( pos );
+			final double v = a.get().getRealDouble();
+			if ( v > max )
+			{
+				max = v;
+				argMax = x;
+			}
+			min = Math.min( min, v );
+			sum += v;
+		}
+		switch ( operation )
+		{
+		case MAX:
+			return max;
+		case MIN:
+			return min;
+		case SUM:
+			return sum;
+		case MEAN:
+			return sum / source.dimension( axis );
+		default:
+			return argMax;
+		}
+	}
+
+	private void test( final RandomAccessibleInterval< UnsignedShortType > source, final int numThreads )
+	{
+		for ( int axis = 0; axis < 4; ++axis )
+			for ( final Operation operation : Operation.values() )
+			{
+				final long[] targetDims = new long[ 3 ];
+				for ( int d = 0, e = 0; d < 4; ++d )
+					if ( d != axis )
+						targetDims[ e++ ] = source.dimension( d );
+				final RandomAccessibleInterval< DoubleType > target = Views.translate( ArrayImgs.doubles( targetDims ), 1, 2, 3 );
+				Projections.project( source, axis, operation, target, numThreads );
+
+				final Cursor< DoubleType > c = Views.iterable( target ).localizingCursor();
+				final long[] pos = new long[ 3 ];
+				while ( c.hasNext() )
+				{
+					c.fwd();
+					c.localize( pos );
+					pos[ 0 ] -= 1;
+					pos[ 1 ] -= 2;
+					pos[ 2 ] -= 3;
+					int e = 0;
+					for ( int d = 0; d < 4; ++d )
+						if ( d != axis )
+							pos[ e++ ] += source.min( d );
+					assertEquals( operation + " along " + axis, reference( source, axis, operation, pos ), c.get().get(), 1e-9 );
+				}
+			}
+	}
+
+	@Test
+	public void testArrayImg()
+	{
+		final Img< UnsignedShortType > img = new ArrayImgFactory< UnsignedShortType >().create( dims, new UnsignedShortType() );
+		fill( img );
+		test( img, 1 );
+		test( img, 3 );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		final Img< UnsignedShortType > img = new PlanarImgFactory< UnsignedShortType >().create( dims, new UnsignedShortType() );
+		fill( img );
+		test( img, 2 );
+	}
+
+	@Test
+	public void testCellImg()
+	{
+		final Img< UnsignedShortType > img = new CellImgFactory< UnsignedShortType >( 3 ).create( dims, new UnsignedShortType() );
+		fill( img );
+		test( img, 1 );
+		test( img, 4 );
+	}
+
+	@Test
+	public void testView()
+	{
+		final Img< UnsignedShortType > img = new ArrayImgFactory< UnsignedShortType >().create( dims, new UnsignedShortType() );
+		fill( img );
+		test( Views.interval( Views.translate( img, -3, 0, 2, 1 ), new long[] { -2, 1, 2, 2 }, new long[] { 2, 4, 5, 4 } ), 3 );
+	}
+}
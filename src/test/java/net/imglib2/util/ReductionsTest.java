@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Reductions}.
+ * 
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class ReductionsTest
+{
+	final static long[] dimensions = new long[] { 123, 45, 7 };
+
+	private static < T extends RealType< T > > Img< T > create( final ImgFactory< T > factory, final T type, final double min, final double max )
+	{
+		final Img< T > img = factory.create( dimensions, type );
+		final Random rnd = new Random( 1234 );
+		for ( final T t : img )
+			t.setReal( min + Math.floor( rnd.nextDouble() * ( max - min ) ) );
+		return img;
+	}
+
+	/**
+	 * Compute reference statistics using {@link BigDecimal}s for the sum and
+	 * the textbook two-pass variance.
+	 */
+	private static < T extends RealType< T > > double[] reference( final IterableInterval< T > data )
+	{
+		BigDecimal sum = new BigDecimal( 0 );
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for ( final T t : data )
+		{
+			final double v = t.getRealDouble();
+			sum = sum.add( new BigDecimal( v ) );
+			min = Math.min( min, v );
+			max = Math.max( max, v );
+		}
+		final double mean = sum.doubleValue() / data.size();
+		double m2 = 0;
+		for ( final T t : data )
+		{
+			final double d = t.getRealDouble() - mean;
+			m2 += d * d;
+		}
+		return new double[] { sum.doubleValue(), min, max, mean, m2 / data.size() };
+	}
+
+	private static < T extends RealType< T > > void check( final IterableInterval< T > data, final int numThreads )
+	{
+		final double[] expected = reference( data );
+		final Reductions.Statistics s = Reductions.statistics( data, numThreads );
+		assertEquals( data.size(), s.count() );
+		assertEquals( expected[ 0 ], s.sum(), Math.abs( expected[ 0 ] ) * 1e-14 );
+		assertEquals( expected[ 1 ], s.min(), 0 );
+		assertEquals( expected[ 2 ], s.max(), 0 );
+		assertEquals( expected[ 3 ], s.mean(), Math.abs( expected[ 3 ] ) * 1e-12 );
+		assertEquals( expected[ 4 ], s.variance(), expected[ 4 ] * 1e-10 );
+
+		assertEquals( expected[ 0 ], Reductions.sum( data, numThreads ), Math.abs( expected[ 0 ] ) * 1e-14 );
+		assertEquals( expected[ 1 ], Reductions.min( data, numThreads ), 0 );
+		assertEquals( expected[ 2 ], Reductions.max( data, numThreads ), 0 );
+		assertEquals( expected[ 3 ], Reductions.mean( data, numThreads ), Math.abs( expected[ 3 ] ) * 1e-12 );
+		assertEquals( expected[ 4 ], Reductions.variance( data, numThreads ), expected[ 4 ] * 1e-10 );
+	}
+
+	@Test
+	public void testArrayImg()
+	{
+		check( create( new ArrayImgFactory< UnsignedByteType >(), new UnsignedByteType(), 0, 256 ), 1 );
+		check( create( new ArrayImgFactory< ByteType >(), new ByteType(), -128, 128 ), 3 );
+		check( create( new ArrayImgFactory< UnsignedIntType >(), new UnsignedIntType(), 0, 4e9 ), 4 );
+		check( create( new ArrayImgFactory< DoubleType >(), new DoubleType(), -1e6, 1e6 ), 2 );
+	}
+
+	@Test
+	public void testPlanarImg()
+	{
+		check( create( new PlanarImgFactory< UnsignedShortType >(), new UnsignedShortType(), 0, 65536 ), 1 );
+		check( create( new PlanarImgFactory< FloatType >(), new FloatType(), -1000, 1000 ), 4 );
+	}
+
+	@Test
+	public void testCellImg()
+	{
+		check( create( new CellImgFactory< UnsignedShortType >( 16 ), new UnsignedShortType(), 0, 65536 ), 1 );
+		check( create( new CellImgFactory< FloatType >( 10 ), new FloatType(), -1000, 1000 ), 4 );
+	}
+
+	@Test
+	public void testGeneric()
+	{
+		check( create( new ListImgFactory< FloatType >(), new FloatType(), -1000, 1000 ), 3 );
+		final Img< UnsignedByteType > img = create( new ArrayImgFactory< UnsignedByteType >(), new UnsignedByteType(), 0, 256 );
+		check( Views.iterable( Views.interval( img, new long[] { 3, 4, 1 }, new long[] { 100, 40, 5 } ) ), 2 );
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final Img< FloatType > img = new ArrayImgFactory< FloatType >().create( new long[] { 0 }, new FloatType() );
+		final Reductions.Statistics s = Reductions.statistics( img, 2 );
+		assertEquals( 0, s.count() );
+		assertEquals( 0, s.sum(), 0 );
+		assertEquals( Double.POSITIVE_INFINITY, s.min(), 0 );
+		assertEquals( Double.NEGATIVE_INFINITY, s.max(), 0 );
+		assertEquals( Double.NaN, s.mean(), 0 );
+	}
+
+	/**
+	 * Large offset and small spread: the naive sum-of-squares formula loses
+	 * all significant digits here.
+	 */
+	@Test
+	public void testVarianceAccuracy()
+	{
+		final Img< DoubleType > img = new ArrayImgFactory< DoubleType >().create( new long[] { 100000 }, new DoubleType() );
+		final Cursor< DoubleType > c = img.cursor();
+		for ( int i = 0; c.hasNext(); ++i )
+			c.next().set( 1e9 + ( i % 2 == 0 ? -1 : 1 ) );
+		final Reductions.Statistics s = Reductions.statistics( img, 3 );
+		assertEquals( 1e9, s.mean(), 0 );
+		assertEquals( 1.0, s.variance(), 1e-9 );
+	}
+
+	@Test
+	public void testMergeStatistics()
+	{
+		final Random rnd = new Random( 42 );
+		final Reductions.Statistics all = new Reductions.Statistics();
+		final Reductions.Statistics a = new Reductions.Statistics();
+		final Reductions.Statistics b = new Reductions.Statistics();
+		for ( int i = 0; i < 1000; ++i )
+		{
+			final double v = rnd.nextGaussian() * 10 + 5;
+			all.add( v );
+			( i < 300 ? a : b ).add( v );
+		}
+		a.add( b );
+		assertEquals( all.count(), a.count() );
+		assertEquals( all.sum(), a.sum(), 1e-9 );
+		assertEquals( all.min(), a.min(), 0 );
+		assertEquals( all.max(), a.max(), 0 );
+		assertEquals( all.variance(), a.variance(), 1e-9 );
+		assertEquals( all.sampleVariance() * 999, all.variance() * 1000, 1e-6 );
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class BorderSplitterTest
+{
+	@Test
+	public void testInterior()
+	{
+		final FinalInterval source = Intervals.createMinMax( 0, 0, 99, 49 );
+		final FinalInterval target = Intervals.createMinMax( -10, 5, 120, 40 );
+		final FinalInterval interior = BorderSplitter.interior( source, target, new long[] { -2, -1 }, new long[] { 3, 1 } );
+		assertTrue( Intervals.equals( interior, Intervals.createMinMax( 2, 5, 96, 40 ) ) );
+
+		assertNull( BorderSplitter.interior( source, target, new long[] { 5, 60 } ) );
+		final List< FinalInterval > border = BorderSplitter.border( target, null );
+		assertEquals( 1, border.size() );
+		assertTrue( Intervals.equals( border.get( 0 ), target ) );
+	}
+
+	@Test
+	public void testCoverage()
+	{
+		final FinalInterval source = Intervals.createMinMax( 0, 0, 0, 19, 14, 9 );
+		final FinalInterval[] targets = new FinalInterval[] {
+				source,
+				Intervals.createMinMax( -3, -3, -3, 22, 17, 12 ),
+				Intervals.createMinMax( 5, 0, 2, 10, 14, 3 ),
+				Intervals.createMinMax( 0, 0, 0, 1, 1, 1 ) };
+		final long[] radius = new long[] { 2, 1, 3 };
+		for ( final FinalInterval target : targets )
+		{
+			final FinalInterval interior = BorderSplitter.interior( source, target, radius );
+			final List< FinalInterval > border = BorderSplitter.border( target, interior );
+			assertTrue( border.size() <= 6 );
+
+			final int[] counts = new int[ ( int ) Intervals.numElements( target ) ];
+			if ( interior != null )
+				count( interior, target, counts );
+			for ( final FinalInterval slab : border )
+				count( slab, target, counts );
+			for ( final int c : counts )
+				assertEquals( 1, c );
+		}
+	}
+
+	@Test
+	public void testSplitFilter()
+	{
+		final long[] dims = new long[] { 23, 17 };
+		final Img< DoubleType > img = new ArrayImgFactory< DoubleType >().create( dims, new DoubleType() );
+		final Random random = new Random( 42 );
+		for ( final DoubleType t : img )
+			t.set( random.nextDouble() );
+
+		final OutOfBoundsMirrorFactory< DoubleType, Img< DoubleType > > oob = new OutOfBoundsMirrorFactory< DoubleType, Img< DoubleType > >( Boundary.SINGLE );
+		final long[] radius = new long[] { 2, 3 };
+		final FinalInterval target = Intervals.createMinMax( -1, 0, 24, 16 );
+
+		final List< BorderSplitter.Region< DoubleType > > regions = BorderSplitter.split( img, oob, target, radius );
+		assertTrue( regions.get( 0 ).isInterior() );
+		for ( int i = 1; i < regions.size(); ++i )
+			assertTrue( !regions.get( i ).isInterior() );
+
+		final RandomAccessible< DoubleType > extended = Views.extend( img, oob );
+		int numChecked = 0;
+		for ( final BorderSplitter.Region< DoubleType > region : regions )
+		{
+			if ( region.isInterior() )
+				assertTrue( Intervals.contains( img, region.getSource() ) );
+			final RandomAccess< DoubleType > a = region.getSource().randomAccess();
+			final RandomAccess< DoubleType > b = extended.randomAccess();
+			final long[] pos = new long[ 2 ];
+			final FinalInterval positions = region.getInterval();
+			final long[] p = new long[ 2 ];
+			for ( p[ 1 ] = positions.min( 1 ); p[ 1 ] <= positions.max( 1 ); ++p[ 1 ] )
+				for ( p[ 0 ] = positions.min( 0 ); p[ 0 ] <= positions.max( 0 ); ++p[ 0 ] )
+				{
+					assertEquals( sum( b, p, radius, pos ), sum( a, p, radius, pos ), 0 );
+					++numChecked;
+				}
+		}
+		assertEquals( Intervals.numElements( target ), numChecked );
+	}
+
+	private static double sum( final RandomAccess< DoubleType > a, final long[] p, final long[] radius, final long[] pos )
+	{
+		double s = 0;
+		for ( pos[ 1 ] = p[ 1 ] - radius[ 1 ]; pos[ 1 ] <= p[ 1 ] + radius[ 1 ]; ++pos[ 1 ] )
+			for ( pos[ 0 ] = p[ 0 ] - radius[ 0 ]; pos[ 0 ] <= p[ 0 ] + radius[ 0 ]; ++pos[ 0 ] )
+			{
+				a.setPosition( pos );
+				s += a.get().get();
+			}
+		return s;
+	}
+
+	private static void count( final FinalInterval region, final FinalInterval target, final int[] counts )
+	{
+		assertTrue( Intervals.contains( target, region ) );
+		final int n = target.numDimensions();
+		final long[] dims = Intervals.dimensionsAsLongArray( target );
+		final long[] pos = new long[ n ];
+		final LocalizingIntervalIterator it = new LocalizingIntervalIterator( region );
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			it.localize( pos );
+			for ( int d = 0; d < n; ++d )
+				pos[ d ] -= target.min( d );
+			++counts[ ( int ) IntervalIndexer.positionToIndex( pos, dims ) ];
+		}
+	}
+}
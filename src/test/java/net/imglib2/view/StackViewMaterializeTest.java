@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class StackViewMaterializeTest
+{
+	private static void assertStacked( final List< RandomAccessibleInterval< FloatType > > slices, final PlanarImg< FloatType, ? > img )
+	{
+		final int n = img.numDimensions();
+		assertEquals( slices.size(), img.dimension( n - 1 ) );
+		final Cursor< FloatType > expected = Views.flatIterable( Views.stack( slices ) ).cursor();
+		final Cursor< FloatType > actual = img.cursor();
+		while ( expected.hasNext() )
+			assertEquals( expected.next().get(), actual.next().get(), 0 );
+		assertTrue( !actual.hasNext() );
+	}
+
+	@Test
+	public void testConvertedSlices()
+	{
+		final List< RandomAccessibleInterval< FloatType > > slices = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		for ( int z = 0; z < 9; ++z )
+		{
+			final ArrayImg< FloatType, FloatArray > slice = ArrayImgs.floats( 6, 5 );
+			int i = 0;
+			for ( final FloatType t : slice )
+				t.set( 100 * z + i++ );
+			final RandomAccessibleInterval< FloatType > converted = Converters.convert( ( RandomAccessibleInterval< FloatType > ) Views.translate( slice, 3, -1 ), new Converter< FloatType, FloatType >()
+			{
+				@Override
+				public void convert( final FloatType input, final FloatType output )
+				{
+					output.set( 2 * input.get() );
+				}
+			}, new FloatType() );
+			slices.add( converted );
+		}
+		final PlanarImg< FloatType, ? > img = StackView.materialize( slices, 3 );
+		assertEquals( 9, img.numSlices() );
+		assertEquals( 0, img.min( 0 ) );
+		assertStacked( slices, img );
+	}
+
+	@Test
+	public void testSharedPlanes()
+	{
+		final ArrayImg< FloatType, FloatArray > arraySlice = ArrayImgs.floats( 4, 3 );
+		final PlanarImg< FloatType, FloatArray > planarSlice = PlanarImgs.floats( 4, 3 );
+		int i = 0;
+		for ( final FloatType t : arraySlice )
+			t.set( i++ );
+		for ( final FloatType t : planarSlice )
+			t.set( i++ );
+		final List< RandomAccessibleInterval< FloatType > > slices = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		slices.add( arraySlice );
+		slices.add( Views.interval( arraySlice, arraySlice ) );
+		slices.add( planarSlice );
+
+		final PlanarImg< FloatType, ? > img = StackView.materialize( slices, 2 );
+		assertStacked( slices, img );
+		assertSame( arraySlice.update( null ), img.getPlane( 0 ) );
+		assertTrue( arraySlice.update( null ) != img.getPlane( 1 ) );
+		assertSame( planarSlice.getPlane( 0 ), img.getPlane( 2 ) );
+	}
+
+	@Test
+	public void testVolumes()
+	{
+		final List< RandomAccessibleInterval< FloatType > > slices = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		final PlanarImg< FloatType, FloatArray > planar = PlanarImgs.floats( 3, 2, 4 );
+		final ArrayImg< FloatType, FloatArray > array = ArrayImgs.floats( 3, 2, 4 );
+		int i = 0;
+		for ( final FloatType t : planar )
+			t.set( i++ );
+		for ( final FloatType t : array )
+			t.set( i++ );
+		slices.add( array );
+		slices.add( planar );
+		final PlanarImg< FloatType, ? > img = StackView.materialize( slices, 2 );
+		assertEquals( 8, img.numSlices() );
+		assertStacked( slices, img );
+		assertSame( planar.getPlane( 3 ), img.getPlane( 7 ) );
+
+		// 1D slices
+		final List< RandomAccessibleInterval< FloatType > > lines = new ArrayList< RandomAccessibleInterval< FloatType > >();
+		for ( int z = 0; z < 5; ++z )
+			lines.add( Views.hyperSlice( Views.hyperSlice( array, 2, z % 4 ), 1, 1 ) );
+		assertStacked( lines, StackView.materialize( lines, 4 ) );
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2016 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view.composite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * @author coocoky (coocoky@users.noreply.github.com)
+ */
+public class InterleavedCompositeViewTest
+{
+	@Test
+	public void testFloat()
+	{
+		final ArrayImg< FloatType, FloatArray > img = ArrayImgs.floats( 3, 7, 5 );
+		final Random rnd = new Random( 1 );
+		for ( final FloatType t : img )
+			t.set( rnd.nextFloat() );
+
+		final InterleavedCompositeView< FloatType, FloatArray > view = Views.collapseInterleaved( img );
+		assertEquals( 2, view.numDimensions() );
+		assertEquals( 7, view.dimension( 0 ) );
+		assertEquals( 5, view.dimension( 1 ) );
+		assertEquals( 3, view.numChannels() );
+
+		final RandomAccess< FloatType > ia = img.randomAccess();
+		final Cursor< InterleavedComposite< FloatType, FloatArray > > c = Views.iterable( view ).localizingCursor();
+		final float[] values = new float[ 3 ];
+		final double[] doubles = new double[ 3 ];
+		while ( c.hasNext() )
+		{
+			final InterleavedComposite< FloatType, FloatArray > composite = c.next();
+			composite.get( values );
+			composite.get( doubles );
+			ia.setPosition( c.getLongPosition( 0 ), 1 );
+			ia.setPosition( c.getLongPosition( 1 ), 2 );
+			for ( int ch = 0; ch < 3; ++ch )
+			{
+				ia.setPosition( ch, 0 );
+				final float expected = ia.get().get();
+				assertEquals( expected, composite.get( ch ).get(), 0 );
+				assertEquals( expected, values[ ch ], 0 );
+				assertEquals( expected, doubles[ ch ], 0 );
+				assertEquals( expected, composite.getAccess().getValue( composite.getOffset() + ch ), 0 );
+			}
+		}
+
+		// set through the composite
+		final RandomAccess< InterleavedComposite< FloatType, FloatArray > > a = view.randomAccess();
+		a.setPosition( new long[] { 4, 2 } );
+		a.get().set( new float[] { 1, 2, 3 } );
+		a.move( -3, 0 );
+		a.fwd( 1 );
+		a.get().set( new double[] { 4, 5, 6 } );
+		ia.setPosition( new long[] { 2, 4, 2 } );
+		assertEquals( 3, ia.get().get(), 0 );
+		ia.setPosition( new long[] { 1, 1, 3 } );
+		assertEquals( 5, ia.get().get(), 0 );
+
+		final RandomAccess< InterleavedComposite< FloatType, FloatArray > > copy = a.copyRandomAccess();
+		a.bck( 1 );
+		assertEquals( 6, copy.get().get( 2 ).get(), 0 );
+		assertEquals( 3, copy.getLongPosition( 1 ) );
+	}
+
+	@Test
+	public void testUnsignedShort()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > img = ArrayImgs.unsignedShorts( 4, 3, 2 );
+		int i = 0;
+		for ( final UnsignedShortType t : img )
+			t.set( 65535 - 7 * i++ );
+
+		final RandomAccess< InterleavedComposite< UnsignedShortType, ShortArray > > a = Views.collapseInterleaved( img ).randomAccess();
+		a.setPosition( new int[] { 2, 1 } );
+		final float[] values = new float[ 4 ];
+		a.get().get( values );
+		final int first = 4 * ( 2 + 3 * 1 );
+		for ( int ch = 0; ch < 4; ++ch )
+			assertEquals( 65535 - 7 * ( first + ch ), values[ ch ], 0 );
+
+		a.get().set( new float[] { 1, 2, 3, 60000 } );
+		assertEquals( 60000, a.get().get( 3 ).get() );
+
+		a.get().set( new double[] { 4, 5.6, 7, 65535 } );
+		final double[] doubles = new double[ 4 ];
+		a.get().get( doubles );
+		assertEquals( 6, doubles[ 1 ], 0 );
+		assertEquals( 65535, doubles[ 3 ], 0 );
+		assertEquals( 65535, a.get().get( 3 ).get() );
+	}
+
+	@Test
+	public void testShort()
+	{
+		final ArrayImg< ShortType, ShortArray > img = ArrayImgs.shorts( 2, 3 );
+		final RandomAccess< InterleavedComposite< ShortType, ShortArray > > a = Views.collapseInterleaved( img ).randomAccess();
+		a.setPosition( 2, 0 );
+		a.get().set( new float[] { -3.4f, 1000 } );
+		assertEquals( -3, a.get().get( 0 ).get() );
+		a.get().set( new double[] { -32768, 12.5 } );
+		final double[] doubles = new double[ 2 ];
+		a.get().get( doubles );
+		assertEquals( -32768, doubles[ 0 ], 0 );
+		assertEquals( 13, doubles[ 1 ], 0 );
+		final RandomAccess< ShortType > ia = img.randomAccess();
+		ia.setPosition( new long[] { 1, 2 } );
+		assertEquals( 13, ia.get().get() );
+	}
+
+	@Test
+	public void testGeneric()
+	{
+		final ArrayImg< UnsignedByteType, ByteArray > img = ArrayImgs.unsignedBytes( 3, 2, 2 );
+		final RandomAccess< InterleavedComposite< UnsignedByteType, ByteArray > > a = Views.collapseInterleaved( img ).randomAccess();
+		a.setPosition( 1, 1 );
+		a.get().set( new float[] { 10, 200, 255 } );
+		final float[] values = new float[ 3 ];
+		a.get().get( values );
+		assertEquals( 200, values[ 1 ], 0 );
+		final RandomAccess< UnsignedByteType > ia = img.randomAccess();
+		ia.setPosition( new long[] { 2, 0, 1 } );
+		assertEquals( 255, ia.get().get() );
+	}
+}